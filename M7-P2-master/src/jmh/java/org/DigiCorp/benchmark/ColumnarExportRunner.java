@@ -0,0 +1,181 @@
+package org.DigiCorp.benchmark;
+
+import org.DigiCorp.dto.ExportReportDTO;
+import org.DigiCorp.dto.ExportTableDTO;
+import org.DigiCorp.export.ColumnarFormat;
+import org.DigiCorp.export.ColumnarReader;
+import org.DigiCorp.export.HistoryExporter;
+import org.DigiCorp.fixture.EmbeddedEmployees;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Exports the full history of a seeded embedded database in the columnar format and as CSV, then reads
+ * every file back, and compares size, export time and read time per table.
+ * <p>
+ * Reading a columnar file decodes every value of every row through ColumnarReader; reading a CSV file
+ * splits every line into its fields, which is the least a consumer of the CSV has to do. The row counts
+ * read back must match the rows exported.
+ * <p>
+ * Usage (arguments are key=value, all optional):
+ * <pre>
+ * mvn -Pjmh test-compile exec:exec -Djmh.main=org.DigiCorp.benchmark.ColumnarExportRunner \
+ *     -Djmh.args="employees=100000 blockRows=65536 bufferBytes=1048576 reads=3"
+ * </pre>
+ * Exits with status 1 if a file reads back a different number of rows than were exported.
+ */
+public class ColumnarExportRunner {
+
+    /**
+     * default settings, each overridable with a key=value argument
+     */
+    private static final Map<String, String> DEFAULTS = new LinkedHashMap<>();
+
+    static {
+        DEFAULTS.put("employees", "100000");
+        DEFAULTS.put("blockRows", "65536");
+        DEFAULTS.put("bufferBytes", "1048576");
+        DEFAULTS.put("fetchSize", "1000");
+        DEFAULTS.put("reads", "3");
+    }
+
+    /**
+     * runs the export, reads it back and prints the comparison
+     *
+     * @param args key=value settings, see DEFAULTS
+     * @throws Exception if the application cannot be started or seeded, or a file cannot be read
+     */
+    public static void main(String[] args) throws Exception {
+        Map<String, String> settings = parse(args);
+        int reads = Integer.parseInt(settings.get("reads"));
+
+        Map<String, Object> properties = new LinkedHashMap<>();
+        properties.put("employees.export.columnar.dir", Files.createTempDirectory("columnar-export").toString());
+        properties.put("employees.export.columnar.block-rows", settings.get("blockRows"));
+        properties.put("employees.export.columnar.buffer-bytes", settings.get("bufferBytes"));
+        properties.put("employees.export.fetch-size", settings.get("fetchSize"));
+
+        System.out.println("settings " + settings);
+        int mismatches = 0;
+        // printed at the end, so the JIT cannot drop the decoding it sums
+        long checksum = 0;
+        try (ConfigurableApplicationContext context = EmbeddedEmployees.start("columnar-export", 0, properties)) {
+            EmbeddedEmployees.seed(context, Integer.parseInt(settings.get("employees")));
+            HistoryExporter exporter = context.getBean(HistoryExporter.class);
+            // once to warm up, once measured
+            exporter.export(true);
+            ExportReportDTO report = exporter.export(true);
+            System.out.println("exported to " + report.getDirectory() + " in " + report.getElapsedMs() + " ms");
+
+            System.out.printf("%-13s %9s %12s %12s %6s %9s %9s %9s %9s%n", "table", "rows", "columnar B",
+                    "csv B", "ratio", "write ms", "csv write", "read ms", "csv read");
+            for (ExportTableDTO table : report.getTables()) {
+                Path columnar = Path.of(report.getDirectory(), table.getTable() + ColumnarFormat.EXTENSION);
+                Path csv = Path.of(report.getDirectory(), table.getTable() + ".csv");
+                long columnarRows = 0;
+                long csvRows = 0;
+                long columnarNanos = Long.MAX_VALUE;
+                long csvNanos = Long.MAX_VALUE;
+                for (int r = 0; r < reads; r++) {
+                    long start = System.nanoTime();
+                    Read read = readColumnar(columnar);
+                    columnarNanos = Math.min(columnarNanos, System.nanoTime() - start);
+                    columnarRows = read.rows();
+                    checksum += read.checksum();
+                    start = System.nanoTime();
+                    read = readCsv(csv);
+                    csvNanos = Math.min(csvNanos, System.nanoTime() - start);
+                    csvRows = read.rows();
+                    checksum += read.checksum();
+                }
+                if (columnarRows != table.getRows() || csvRows != table.getRows()) {
+                    mismatches++;
+                    System.out.println("  " + table.getTable() + ": exported " + table.getRows() + " rows, read back "
+                            + columnarRows + " from the columnar file and " + csvRows + " from the CSV file");
+                }
+                System.out.printf("%-13s %9d %12d %12d %6.2f %9d %9d %9.1f %9.1f%n", table.getTable(), table.getRows(),
+                        table.getColumnarBytes(), table.getCsvBytes(),
+                        table.getColumnarBytes() / (double) Math.max(1, table.getCsvBytes()),
+                        table.getColumnarMs(), table.getCsvMs(), columnarNanos / 1e6, csvNanos / 1e6);
+            }
+            System.out.printf("total %d columnar bytes, %d csv bytes (%.2f)%n", report.getColumnarBytes(),
+                    report.getCsvBytes(), report.getColumnarBytes() / (double) Math.max(1, report.getCsvBytes()));
+        }
+        System.out.println("read checksum " + checksum);
+        System.out.println(mismatches == 0 ? "all row counts match" : mismatches + " tables read back wrong");
+        if (mismatches > 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * decodes every value of a columnar file and returns its row count and a checksum of the values
+     */
+    private static Read readColumnar(Path path) throws IOException {
+        long rows = 0;
+        long checksum = 0;
+        try (ColumnarReader reader = ColumnarReader.open(path)) {
+            int columns = reader.getColumns().size();
+            while (reader.next()) {
+                rows++;
+                for (int c = 0; c < columns; c++) {
+                    checksum += switch (reader.getColumns().get(c).type()) {
+                        case INT -> reader.getInt(c);
+                        case DATE -> reader.getEpochDay(c);
+                        case STRING -> {
+                            String value = reader.getString(c);
+                            yield value == null ? 0 : value.length();
+                        }
+                    };
+                }
+            }
+        }
+        return new Read(rows, checksum);
+    }
+
+    /**
+     * splits every line of a CSV file into its fields and returns its row count, without the header, and a
+     * checksum of the field counts
+     */
+    private static Read readCsv(Path path) throws IOException {
+        long rows = -1;
+        long checksum = 0;
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                rows++;
+                checksum += line.split(",", -1).length;
+            }
+        }
+        return new Read(Math.max(0, rows), checksum);
+    }
+
+    /**
+     * rows read from a file, and a checksum of what was decoded
+     */
+    private record Read(long rows, long checksum) {
+    }
+
+    /**
+     * parses key=value arguments over the defaults
+     */
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> settings = new LinkedHashMap<>(DEFAULTS);
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq < 0 || !DEFAULTS.containsKey(arg.substring(0, eq))) {
+                throw new IllegalArgumentException("Unknown argument '" + arg + "', expected key=value with key one of "
+                        + DEFAULTS.keySet());
+            }
+            settings.put(arg.substring(0, eq), arg.substring(eq + 1));
+        }
+        return settings;
+    }
+}
@@ -0,0 +1,252 @@
+package org.DigiCorp.benchmark;
+
+import org.DigiCorp.dao.EmployeeDAO;
+import org.DigiCorp.exceptions.InvalidDataException;
+import org.DigiCorp.fixture.EmbeddedDataset;
+import org.DigiCorp.fixture.EmbeddedEmployees;
+import org.DigiCorp.fixture.EmployeesDataset;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Generates an employees-database-shaped dataset in the embedded database, checks that its histories are
+ * intact, then times the main EmployeeDAO operations against it, all offline.
+ * <p>
+ * The dataset comes from EmployeesDataset: at scale 1 it has the size of the employees sample database.
+ * After generation the runner prints the rows per table and a fingerprint of the data, which is the same
+ * for the same scale and seed whatever the number of threads, and checks that no employee has two current
+ * rows in, or overlapping periods within, a history. Each operation is then called from one thread on
+ * employees drawn at random, first to warm up and then measured, up to a number of calls or a time budget.
+ * <p>
+ * Usage (arguments are key=value, all optional; a scale 1 dataset and the read models over it hold about
+ * 1.3 GB of heap, run it with 4 GB as below):
+ * <pre>
+ * mvn -Pjmh test-compile exec:exec -Djmh.jvmArgs="-Xms4g -Xmx4g -XX:MaxTenuringThreshold=1" \
+ *     -Djmh.main=org.DigiCorp.benchmark.EmployeeDaoPerfRunner \
+ *     -Djmh.args="scale=1 seed=42 threads=8 iterations=20000 seconds=5"
+ * </pre>
+ * Prints calls per second and the median and 99th percentile latency of every operation; exits with
+ * status 1 if a history check fails.
+ */
+public class EmployeeDaoPerfRunner {
+
+    /**
+     * default settings, each overridable with a key=value argument
+     */
+    private static final Map<String, String> DEFAULTS = new LinkedHashMap<>();
+
+    static {
+        DEFAULTS.put("scale", "1");
+        DEFAULTS.put("seed", "42");
+        DEFAULTS.put("threads", String.valueOf(Runtime.getRuntime().availableProcessors()));
+        DEFAULTS.put("iterations", "20000");
+        DEFAULTS.put("seconds", "5");
+        DEFAULTS.put("latencyMs", "0");
+        DEFAULTS.put("check", "true");
+    }
+
+    /**
+     * history tables checked after generation
+     */
+    private static final String[] HISTORIES = {"salaries", "titles", "dept_emp", "dept_manager"};
+
+    /**
+     * an EmployeeDAO operation called with a random employee
+     */
+    private interface Operation {
+        Object call(EmployeeDAO dao, int empNo, SplittableRandom random) throws InvalidDataException;
+    }
+
+    /**
+     * runs the generation, the checks and the timings
+     *
+     * @param args key=value settings, see DEFAULTS
+     * @throws Exception if the application cannot be started, or the dataset cannot be generated or checked
+     */
+    public static void main(String[] args) throws Exception {
+        Map<String, String> settings = parse(args);
+        double scale = Double.parseDouble(settings.get("scale"));
+        long seed = Long.parseLong(settings.get("seed"));
+        int threads = Integer.parseInt(settings.get("threads"));
+        int iterations = Integer.parseInt(settings.get("iterations"));
+        long budgetNanos = (long) (Double.parseDouble(settings.get("seconds")) * 1e9);
+
+        Map<String, Object> properties = new LinkedHashMap<>();
+        properties.put("spring.datasource.hikari.maximum-pool-size", Math.max(20, threads + 4));
+        properties.put("employees.metrics.slow-request-sample-rate", "0");
+        properties.put(EmbeddedDataset.SCALE, scale);
+        properties.put(EmbeddedDataset.SEED, seed);
+        properties.put(EmbeddedDataset.THREADS, threads);
+
+        System.out.println("settings " + settings);
+        int violations = 0;
+        long start = System.nanoTime();
+        try (ConfigurableApplicationContext context = EmbeddedEmployees.start("employees-dataset",
+                Long.parseLong(settings.get("latencyMs")), properties)) {
+            double startSeconds = (System.nanoTime() - start) / 1e9;
+            EmbeddedDataset dataset = context.getBean(EmbeddedDataset.class);
+            double seconds = dataset.getMillis() / 1e3;
+            System.out.printf("generated %d rows in %.1f s (%.0f rows/s), application ready with its read models"
+                    + " after %.1f s%n", dataset.getTotalRows(), seconds, dataset.getTotalRows() / seconds, startSeconds);
+            dataset.getRows().forEach((table, count) -> System.out.printf("  %-12s %,12d%n", table, count));
+
+            DataSource dataSource = context.getBean(DataSource.class);
+            System.out.println("fingerprint " + fingerprint(dataSource));
+            if (Boolean.parseBoolean(settings.get("check"))) {
+                violations = check(dataSource);
+            }
+
+            EmployeeDAO dao = context.getBean(EmployeeDAO.class);
+            int employees = dataset.getEmployees();
+            LocalDate asOf = LocalDate.of(1998, 6, 1);
+            String[] prefixes = {"Ma", "Sa", "Bam", "Kob", "Jo", "Ge"};
+
+            Map<String, Operation> operations = new LinkedHashMap<>();
+            operations.put("getEmployeeRecords", (d, empNo, r) -> d.getEmployeeRecords(empNo));
+            operations.put("getEmployeeSummary", (d, empNo, r) -> d.getEmployeeSummary(empNo));
+            operations.put("getEmployeeCurrentState", (d, empNo, r) -> d.getEmployeeCurrentState(empNo));
+            operations.put("getSalaryHistory", (d, empNo, r) -> d.getSalaryHistory(empNo));
+            operations.put("getSalaryAsOf", (d, empNo, r) -> d.getSalaryAsOf(empNo, asOf));
+            operations.put("searchEmployees", (d, empNo, r) ->
+                    d.searchEmployees(prefixes[r.nextInt(prefixes.length)], "prefix", 20));
+            operations.put("getEmployeeRecordsAfter", (d, empNo, r) ->
+                    d.getEmployeeRecordsAfter(EmbeddedEmployees.deptNo(1 + r.nextInt(EmbeddedEmployees.DEPARTMENTS)), empNo, 20));
+            operations.put("getDepartmentStats", (d, empNo, r) ->
+                    d.getDepartmentStats(EmbeddedEmployees.deptNo(1 + r.nextInt(EmbeddedEmployees.DEPARTMENTS))));
+
+            System.out.printf("%-24s %8s %10s %10s %10s %8s%n", "operation", "calls", "calls/s", "p50 us", "p99 us", "misses");
+            for (Map.Entry<String, Operation> operation : operations.entrySet()) {
+                time(dao, operation.getKey(), operation.getValue(), employees, seed, iterations, budgetNanos);
+            }
+        }
+        System.out.println(violations == 0 ? "all histories intact" : violations + " invariant violations");
+        if (violations > 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * warms an operation up, then calls it iterations times, or for as long as the time budget allows, and prints
+     * its throughput and latencies
+     */
+    private static void time(EmployeeDAO dao, String name, Operation operation, int employees, long seed,
+                             int iterations, long budgetNanos) {
+        SplittableRandom random = new SplittableRandom(seed);
+        long warmupEnd = System.nanoTime() + budgetNanos / 5;
+        for (int i = 0; i < iterations / 10 && System.nanoTime() < warmupEnd; i++) {
+            call(dao, operation, EmployeesDataset.FIRST_EMP_NO + random.nextInt(employees), random);
+        }
+        long[] nanos = new long[iterations];
+        int calls = 0;
+        int misses = 0;
+        long start = System.nanoTime();
+        long end = start + budgetNanos;
+        while (calls < iterations && (calls == 0 || System.nanoTime() < end)) {
+            long callStart = System.nanoTime();
+            if (!call(dao, operation, EmployeesDataset.FIRST_EMP_NO + random.nextInt(employees), random)) {
+                misses++;
+            }
+            nanos[calls++] = System.nanoTime() - callStart;
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        Arrays.sort(nanos, 0, calls);
+        System.out.printf("%-24s %8d %10.0f %10.1f %10.1f %8d%n", name, calls, calls / seconds,
+                nanos[calls / 2] / 1e3, nanos[(int) (calls * 0.99)] / 1e3, misses);
+    }
+
+    /**
+     * calls an operation, returning false if it found nothing
+     */
+    private static boolean call(EmployeeDAO dao, Operation operation, int empNo, SplittableRandom random) {
+        try {
+            return operation.call(dao, empNo, random) != null;
+        } catch (InvalidDataException e) {
+            return false;
+        }
+    }
+
+    /**
+     * sums over the generated rows, identical for identical datasets
+     */
+    private static String fingerprint(DataSource dataSource) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("SELECT (SELECT SUM(salary) FROM salaries), "
+                     + "(SELECT SUM(emp_no) FROM titles WHERE title = 'Senior Engineer'), "
+                     + "(SELECT SUM(emp_no) FROM dept_emp WHERE dept_no = 'd005'), "
+                     + "(SELECT SUM(LENGTH(first_name) + LENGTH(last_name)) FROM employees)")) {
+            rs.next();
+            return rs.getLong(1) + "-" + rs.getLong(2) + "-" + rs.getLong(3) + "-" + rs.getLong(4);
+        }
+    }
+
+    /**
+     * checks every history and prints each violation, returning their number
+     */
+    private static int check(DataSource dataSource) throws SQLException {
+        int violations = 0;
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            for (String table : HISTORIES) {
+                // at most one current row per employee, or per department for managers
+                violations += count(statement, table + " with several current rows per employee",
+                        "SELECT COUNT(*) FROM (SELECT emp_no FROM " + table
+                                + " WHERE to_date = DATE '9999-01-01' GROUP BY " + (table.equals("dept_manager") ? "dept_no" : "emp_no")
+                                + " HAVING COUNT(*) > 1) t");
+                // no period starting within another period of the same employee
+                violations += count(statement, table + " periods overlapping",
+                        "SELECT COUNT(*) FROM " + table + " a JOIN " + table + " b ON a.emp_no = b.emp_no"
+                                + " AND a.from_date < b.from_date AND b.from_date < a.to_date");
+                violations += count(statement, table + " periods ending before they start",
+                        "SELECT COUNT(*) FROM " + table + " WHERE to_date <= from_date");
+            }
+            violations += count(statement, "current employees without a current salary, title or department",
+                    "SELECT COUNT(*) FROM employees e WHERE EXISTS (SELECT 1 FROM salaries s WHERE s.emp_no = e.emp_no"
+                            + " AND s.to_date = DATE '9999-01-01') AND (NOT EXISTS (SELECT 1 FROM titles t"
+                            + " WHERE t.emp_no = e.emp_no AND t.to_date = DATE '9999-01-01') OR NOT EXISTS"
+                            + " (SELECT 1 FROM dept_emp d WHERE d.emp_no = e.emp_no AND d.to_date = DATE '9999-01-01'))");
+        }
+        return violations;
+    }
+
+    /**
+     * runs a counting query, printing the count if it is not 0
+     */
+    private static int count(Statement statement, String description, String sql) throws SQLException {
+        try (ResultSet rs = statement.executeQuery(sql)) {
+            rs.next();
+            long count = rs.getLong(1);
+            if (count > 0) {
+                System.out.println("  " + count + " " + description);
+                return 1;
+            }
+            return 0;
+        }
+    }
+
+    /**
+     * parses key=value arguments over the defaults
+     */
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> settings = new LinkedHashMap<>(DEFAULTS);
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq < 0 || !DEFAULTS.containsKey(arg.substring(0, eq))) {
+                throw new IllegalArgumentException("Unknown argument '" + arg + "', expected key=value with key one of "
+                        + DEFAULTS.keySet());
+            }
+            settings.put(arg.substring(0, eq), arg.substring(eq + 1));
+        }
+        return settings;
+    }
+}
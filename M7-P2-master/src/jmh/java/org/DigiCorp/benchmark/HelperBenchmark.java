@@ -0,0 +1,67 @@
+package org.DigiCorp.benchmark;
+
+import org.DigiCorp.dto.EmployeePromotionRequest;
+import org.DigiCorp.exceptions.InvalidDataException;
+import org.DigiCorp.util.Helper;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the Helper methods run on every promotion: title casing and request validation.
+ * Run with -prof gc to compare bytes/op of toTitleCase and toTitleCaseFast.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HelperBenchmark {
+
+    /**
+     * title as typed by clients: already title cased, lower case, or messy casing and spacing
+     */
+    @Param({"Senior Engineer", "senior engineer", "  sENIOR   staff\tENGINEER "})
+    public String title;
+
+    /**
+     * a well-formed promotion request, as validated on every promote call
+     */
+    private EmployeePromotionRequest request;
+
+    /**
+     * builds the promotion request once per trial
+     */
+    @Setup
+    public void setUp() {
+        request = new EmployeePromotionRequest(10001, "Senior Engineer", 65000, "d005");
+        request.setPromotionDate(LocalDate.of(2024, 12, 17));
+    }
+
+    /**
+     * current implementation: regex split plus a substring per word
+     */
+    @Benchmark
+    public String toTitleCase() {
+        return Helper.toTitleCase(title);
+    }
+
+    /**
+     * single-pass implementation that only allocates the result, or nothing when unchanged
+     */
+    @Benchmark
+    public String toTitleCaseFast() {
+        return Helper.toTitleCaseFast(title);
+    }
+
+    /**
+     * input validation of a promotion request
+     */
+    @Benchmark
+    public EmployeePromotionRequest validatePromotionRequest() throws InvalidDataException {
+        Helper.validatePromotionRequest(request);
+        return request;
+    }
+}
@@ -0,0 +1,274 @@
+package org.DigiCorp.benchmark;
+
+import org.DigiCorp.fixture.EmbeddedEmployees;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import org.springframework.context.ConfigurableApplicationContext;
+
+import javax.sql.DataSource;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Hammers the same few employees with concurrent promotions, then checks that their histories are intact.
+ * <p>
+ * The application is started against an embedded database seeded with synthetic employees. Many clients
+ * then post synchronous promotions, each to one of a handful of hot employees, with promotion dates drawn
+ * from a shared sequence so that requests race to close the same current rows; every date is handed out
+ * twice, so same-date promotions race as well. Employees keep their department, which they could not
+ * return to once left, so requests change salary and title only. Afterwards every hot employee must still
+ * have exactly one current salary, title and department row, and consecutive rows of each history must
+ * not overlap.
+ * <p>
+ * Usage (arguments are key=value, all optional):
+ * <pre>
+ * mvn -Pjmh test-compile exec:exec -Djmh.main=org.DigiCorp.benchmark.PromotionStressRunner \
+ *     -Djmh.args="clients=64 requests=4000 hot=4 employees=1000 latencyMs=1"
+ * </pre>
+ * Prints the number of responses per status code, the lock wait, retry and failure metrics, and every
+ * violated invariant; exits with status 1 if any invariant is violated.
+ */
+public class PromotionStressRunner {
+
+    /**
+     * default settings, each overridable with a key=value argument
+     */
+    private static final Map<String, String> DEFAULTS = new LinkedHashMap<>();
+
+    static {
+        DEFAULTS.put("clients", "64");
+        DEFAULTS.put("requests", "4000");
+        DEFAULTS.put("hot", "4");
+        DEFAULTS.put("employees", "1000");
+        DEFAULTS.put("latencyMs", "1");
+        DEFAULTS.put("poolSize", "20");
+        DEFAULTS.put("lockTimeoutMs", "5000");
+        DEFAULTS.put("maxAttempts", "3");
+    }
+
+    /**
+     * history tables checked after the run
+     */
+    private static final String[] HISTORIES = {"salaries", "titles", "dept_emp"};
+
+    /**
+     * runs the stress test and prints its outcome
+     *
+     * @param args key=value settings, see DEFAULTS
+     * @throws Exception if the application cannot be started, seeded or checked
+     */
+    public static void main(String[] args) throws Exception {
+        Map<String, String> settings = parse(args);
+        int clients = Integer.parseInt(settings.get("clients"));
+        int requests = Integer.parseInt(settings.get("requests"));
+        int hot = Integer.parseInt(settings.get("hot"));
+        int employees = Integer.parseInt(settings.get("employees"));
+        long latencyMs = Long.parseLong(settings.get("latencyMs"));
+
+        Map<String, Object> properties = new LinkedHashMap<>();
+        properties.put("spring.datasource.hikari.maximum-pool-size", settings.get("poolSize"));
+        properties.put("spring.datasource.hikari.connection-timeout", "30000");
+        properties.put("employees.metrics.slow-request-sample-rate", "0");
+        properties.put("employees.promotion.lock.timeout-ms", settings.get("lockTimeoutMs"));
+        // H2 ignores the per-query lock timeout MariaDB honours, so give it the same database-wide one
+        properties.put("spring.datasource.url", "jdbc:h2:mem:promotion-stress;MODE=MariaDB;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT="
+                + settings.get("lockTimeoutMs"));
+        properties.put("employees.promotion.lock.max-attempts", settings.get("maxAttempts"));
+
+        System.out.println("settings " + settings);
+        int violations;
+        try (ConfigurableApplicationContext context =
+                     EmbeddedEmployees.start("promotion-stress", latencyMs, properties)) {
+            EmbeddedEmployees.seed(context, employees);
+            String url = "http://localhost:" + EmbeddedEmployees.port(context) + "/employees/promote";
+
+            String[] deptNos = currentDepartments(context.getBean(DataSource.class), hot);
+            long start = System.nanoTime();
+            Map<Integer, LongAdder> statuses = hammer(url, clients, requests, deptNos);
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            System.out.printf("%d promotions in %.1f s (%.1f req/s)%n", requests, seconds, requests / seconds);
+            statuses.forEach((status, count) -> System.out.printf("  HTTP %d: %d%n", status, count.sum()));
+            printLockMetrics(context.getBean(MeterRegistry.class));
+
+            violations = check(context.getBean(DataSource.class), hot);
+        }
+        System.out.println(violations == 0 ? "all histories intact" : violations + " invariant violations");
+        if (violations > 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Posts the promotions from clients concurrent clients and counts the responses by status code.
+     *
+     * @param url      promotion endpoint
+     * @param clients  number of concurrent clients
+     * @param requests total number of promotions posted
+     * @param deptNos  current department of each employee promoted, from FIRST_EMP_NO
+     * @return response count by status code, -1 for requests that got no response
+     * @throws InterruptedException if interrupted while waiting for the clients
+     */
+    private static Map<Integer, LongAdder> hammer(String url, int clients, int requests, String[] deptNos)
+            throws InterruptedException {
+        Map<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+        AtomicInteger sequence = new AtomicInteger();
+        // after every seeded salary row, so promotions only fail on the races under test
+        LocalDate firstDate = LocalDate.of(2030, 1, 1);
+
+        try (HttpClient http = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(30)).build();
+             ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int c = 0; c < clients; c++) {
+                executor.submit(() -> {
+                    int n;
+                    while ((n = sequence.getAndIncrement()) < requests) {
+                        ThreadLocalRandom random = ThreadLocalRandom.current();
+                        int employee = random.nextInt(deptNos.length);
+                        String body = "{\"empNo\":" + (EmbeddedEmployees.FIRST_EMP_NO + employee)
+                                + ",\"newDeptNo\":\"" + deptNos[employee] + "\""
+                                + ",\"newSalary\":" + (40000 + random.nextInt(60000))
+                                + ",\"newTitle\":\"" + (random.nextBoolean() ? "Engineer" : "Senior Engineer") + "\""
+                                + ",\"promotionDate\":\"" + firstDate.plusDays(n / 2) + "\"}";
+                        HttpRequest request = HttpRequest.newBuilder(URI.create(url))
+                                .header("Content-Type", "application/json")
+                                .timeout(Duration.ofSeconds(60))
+                                .POST(HttpRequest.BodyPublishers.ofString(body))
+                                .build();
+                        int status;
+                        try {
+                            status = http.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+                        } catch (Exception e) {
+                            status = -1;
+                        }
+                        statuses.computeIfAbsent(status, s -> new LongAdder()).increment();
+                    }
+                    return null;
+                });
+            }
+            executor.shutdown();
+            executor.awaitTermination(1, TimeUnit.HOURS);
+        }
+        return new TreeMap<>(statuses);
+    }
+
+    /**
+     * returns the current department of each of the first hot employees
+     */
+    private static String[] currentDepartments(DataSource dataSource, int hot) throws SQLException {
+        String[] deptNos = new String[hot];
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement current = connection.prepareStatement(
+                     "SELECT dept_no FROM dept_emp WHERE emp_no = ? AND to_date = ?")) {
+            for (int i = 0; i < hot; i++) {
+                current.setInt(1, EmbeddedEmployees.FIRST_EMP_NO + i);
+                current.setDate(2, Date.valueOf(LocalDate.of(9999, 1, 1)));
+                try (ResultSet rs = current.executeQuery()) {
+                    rs.next();
+                    deptNos[i] = rs.getString(1);
+                }
+            }
+        }
+        return deptNos;
+    }
+
+    /**
+     * prints the promotion lock metrics published by the application
+     */
+    private static void printLockMetrics(MeterRegistry registry) {
+        Timer wait = registry.find("employees.promotion.lock.wait").timer();
+        Counter retries = registry.find("employees.promotion.lock.retries").counter();
+        Counter failures = registry.find("employees.promotion.lock.failures").counter();
+        if (wait != null) {
+            System.out.printf("lock waits: %d, mean %.2f ms, max %.2f ms%n", wait.count(),
+                    wait.mean(TimeUnit.MILLISECONDS), wait.max(TimeUnit.MILLISECONDS));
+        }
+        System.out.printf("lock retries: %.0f, lock failures: %.0f%n",
+                retries == null ? 0 : retries.count(), failures == null ? 0 : failures.count());
+    }
+
+    /**
+     * Checks the histories of the hot employees and prints every violation.
+     *
+     * @param dataSource application data source
+     * @param hot        number of employees promoted, from FIRST_EMP_NO
+     * @return number of violations found
+     * @throws SQLException if a query fails
+     */
+    private static int check(DataSource dataSource, int hot) throws SQLException {
+        int violations = 0;
+        LocalDate current = LocalDate.of(9999, 1, 1);
+        try (Connection connection = dataSource.getConnection()) {
+            for (String table : HISTORIES) {
+                try (PreparedStatement rows = connection.prepareStatement(
+                        "SELECT from_date, to_date FROM " + table + " WHERE emp_no = ? ORDER BY from_date, to_date")) {
+                    for (int empNo = EmbeddedEmployees.FIRST_EMP_NO; empNo < EmbeddedEmployees.FIRST_EMP_NO + hot; empNo++) {
+                        rows.setInt(1, empNo);
+                        int currentRows = 0;
+                        LocalDate previousTo = null;
+                        int count = 0;
+                        try (ResultSet rs = rows.executeQuery()) {
+                            while (rs.next()) {
+                                LocalDate from = rs.getObject(1, Date.class).toLocalDate();
+                                LocalDate to = rs.getObject(2, Date.class).toLocalDate();
+                                count++;
+                                if (to.equals(current)) {
+                                    currentRows++;
+                                }
+                                if (previousTo != null && from.isBefore(previousTo)) {
+                                    System.out.printf("  %s of %d: row from %s overlaps the previous row, ending %s%n",
+                                            table, empNo, from, previousTo);
+                                    violations++;
+                                }
+                                previousTo = to;
+                            }
+                        }
+                        if (currentRows != 1) {
+                            System.out.printf("  %s of %d: %d current rows%n", table, empNo, currentRows);
+                            violations++;
+                        }
+                        System.out.printf("  %s of %d: %d rows%n", table, empNo, count);
+                    }
+                }
+            }
+        }
+        return violations;
+    }
+
+    /**
+     * merges key=value arguments over DEFAULTS
+     */
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> settings = new LinkedHashMap<>(DEFAULTS);
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq < 0 || !DEFAULTS.containsKey(arg.substring(0, eq))) {
+                throw new IllegalArgumentException("Unknown argument '" + arg + "', expected key=value with key one of "
+                        + DEFAULTS.keySet());
+            }
+            settings.put(arg.substring(0, eq), arg.substring(eq + 1));
+        }
+        return settings;
+    }
+}
@@ -0,0 +1,234 @@
+package org.DigiCorp.benchmark;
+
+import org.DigiCorp.dao.EmployeeDAO;
+import org.DigiCorp.dto.SalaryPercentilesDTO;
+import org.DigiCorp.fixture.EmbeddedDataset;
+import org.DigiCorp.fixture.EmbeddedEmployees;
+import org.DigiCorp.readmodel.SalaryPercentileStore;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Checks the salary percentile sketches against the exact percentiles of a generated dataset, and compares
+ * serving percentiles from the sketches with computing them in SQL.
+ * <p>
+ * Once the application has started over a dataset generated by EmployeesDataset, the runner times a rebuild of
+ * the sketches, which loads the current rows in parallel with the configured number of threads, and reads the
+ * exact current salaries of every department and title.
+ * For every group and every served percentile it prints the estimate and the exact value, and the rank error:
+ * how far the exact rank of the estimate lies from the percentile, as a fraction of the headcount. It then
+ * times getSalaryPercentiles calls against the SQL a database would run for the same four percentiles.
+ * <p>
+ * Usage (arguments are key=value, all optional; at scale 1, run it with 4 GB of heap as below):
+ * <pre>
+ * mvn -Pjmh test-compile exec:exec -Djmh.jvmArgs="-Xms4g -Xmx4g -XX:MaxTenuringThreshold=1" \
+ *     -Djmh.main=org.DigiCorp.benchmark.SalaryPercentileRunner \
+ *     -Djmh.args="scale=1 seed=42 threads=8 k=200 calls=100000 sqlCalls=20"
+ * </pre>
+ * Exits with status 1 if a rank error exceeds the bound the response reports.
+ */
+public class SalaryPercentileRunner {
+
+    /**
+     * default settings, each overridable with a key=value argument
+     */
+    private static final Map<String, String> DEFAULTS = new LinkedHashMap<>();
+
+    static {
+        DEFAULTS.put("scale", "0.3");
+        DEFAULTS.put("seed", "42");
+        DEFAULTS.put("threads", String.valueOf(Runtime.getRuntime().availableProcessors()));
+        DEFAULTS.put("k", "200");
+        DEFAULTS.put("calls", "100000");
+        DEFAULTS.put("sqlCalls", "20");
+    }
+
+    /**
+     * percentiles checked, as served
+     */
+    private static final double[] PERCENTILES = {0.25, 0.50, 0.75, 0.90};
+
+    /**
+     * current salary, title and department of every current employee
+     */
+    private static final String CURRENT_ROWS = "SELECT s.salary, t.title, d.dept_no FROM salaries s"
+            + " JOIN titles t ON t.emp_no = s.emp_no AND t.to_date = DATE '9999-01-01'"
+            + " JOIN dept_emp d ON d.emp_no = s.emp_no AND d.to_date = DATE '9999-01-01'"
+            + " WHERE s.to_date = DATE '9999-01-01'";
+
+    /**
+     * one percentile of a department in SQL, the nearest-rank salary at a given offset
+     */
+    private static final String SQL_PERCENTILE = "SELECT s.salary FROM salaries s"
+            + " JOIN dept_emp d ON d.emp_no = s.emp_no AND d.to_date = DATE '9999-01-01' AND d.dept_no = ?"
+            + " WHERE s.to_date = DATE '9999-01-01' ORDER BY s.salary OFFSET ? ROWS FETCH NEXT 1 ROW ONLY";
+
+    /**
+     * runs the generation, the checks and the timings
+     *
+     * @param args key=value settings, see DEFAULTS
+     * @throws Exception if the application cannot be started, or the dataset cannot be generated or read
+     */
+    public static void main(String[] args) throws Exception {
+        Map<String, String> settings = parse(args);
+        int threads = Integer.parseInt(settings.get("threads"));
+        int calls = Integer.parseInt(settings.get("calls"));
+        int sqlCalls = Integer.parseInt(settings.get("sqlCalls"));
+
+        Map<String, Object> properties = new LinkedHashMap<>();
+        properties.put("spring.datasource.hikari.maximum-pool-size", Math.max(20, threads + 4));
+        properties.put("employees.metrics.slow-request-sample-rate", "0");
+        properties.put("employees.salary-percentiles.k", settings.get("k"));
+        properties.put("employees.salary-percentiles.threads", settings.get("threads"));
+        properties.put(EmbeddedDataset.SCALE, settings.get("scale"));
+        properties.put(EmbeddedDataset.SEED, settings.get("seed"));
+        properties.put(EmbeddedDataset.THREADS, settings.get("threads"));
+
+        System.out.println("settings " + settings);
+        int violations = 0;
+        try (ConfigurableApplicationContext context = EmbeddedEmployees.start("salary-percentiles", 0, properties)) {
+            DataSource dataSource = context.getBean(DataSource.class);
+            SalaryPercentileStore store = context.getBean(SalaryPercentileStore.class);
+            EmployeeDAO dao = context.getBean(EmployeeDAO.class);
+
+            System.out.println("rebuilt with " + threads + " threads in " + store.rebuild().get("lastRebuildMillis")
+                    + " ms: " + store.getStatistics());
+
+            Map<String, List<Integer>> byDepartment = new TreeMap<>();
+            Map<String, List<Integer>> byTitle = new TreeMap<>();
+            try (Connection connection = dataSource.getConnection();
+                 PreparedStatement statement = connection.prepareStatement(CURRENT_ROWS);
+                 ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    byTitle.computeIfAbsent(rs.getString(2), t -> new ArrayList<>()).add(rs.getInt(1));
+                    byDepartment.computeIfAbsent(rs.getString(3), d -> new ArrayList<>()).add(rs.getInt(1));
+                }
+            }
+
+            System.out.printf("%-20s %9s %7s %-25s %9s %9s%n", "group", "headcount", "pct",
+                    "estimate (exact)", "rank err", "bound");
+            for (Map.Entry<String, List<Integer>> group : byDepartment.entrySet()) {
+                violations += check(dao.getDepartmentSalaryPercentiles(group.getKey(), 1), group.getValue());
+            }
+            for (Map.Entry<String, List<Integer>> group : byTitle.entrySet()) {
+                violations += check(dao.getTitleSalaryPercentiles(group.getKey(), 1), group.getValue());
+            }
+
+            String[] departments = byDepartment.keySet().toArray(String[]::new);
+            long start = System.nanoTime();
+            for (int i = 0; i < calls; i++) {
+                dao.getDepartmentSalaryPercentiles(departments[i % departments.length], null);
+            }
+            double sketchMicros = (System.nanoTime() - start) / 1e3 / calls;
+            start = System.nanoTime();
+            for (int i = 0; i < sqlCalls; i++) {
+                String deptNo = departments[i % departments.length];
+                sqlPercentiles(dataSource, deptNo, byDepartment.get(deptNo).size());
+            }
+            double sqlMicros = (System.nanoTime() - start) / 1e3 / sqlCalls;
+            System.out.printf("department percentiles and histogram from sketches: %.1f us per call%n", sketchMicros);
+            System.out.printf("department percentiles in SQL:                      %.1f us per call (%.0fx)%n",
+                    sqlMicros, sqlMicros / sketchMicros);
+        }
+        System.out.println(violations == 0 ? "all estimates within their bound" : violations + " estimates out of bound");
+        if (violations > 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * prints every percentile of a group against its exact value, returning the number out of bound
+     */
+    private static int check(SalaryPercentilesDTO estimate, List<Integer> salaries) {
+        int[] sorted = salaries.stream().mapToInt(Integer::intValue).sorted().toArray();
+        Integer[] estimates = {estimate.getP25(), estimate.getP50(), estimate.getP75(), estimate.getP90()};
+        int violations = 0;
+        if (estimate.getHeadcount() != sorted.length) {
+            System.out.println("  " + estimate.getGroup() + ": headcount " + estimate.getHeadcount()
+                    + ", exact " + sorted.length);
+            violations++;
+        }
+        for (int i = 0; i < PERCENTILES.length; i++) {
+            int exact = sorted[(int) Math.max(1, Math.ceil(PERCENTILES[i] * sorted.length)) - 1];
+            double error = rankError(sorted, estimates[i], PERCENTILES[i]);
+            boolean out = error > estimate.getRankError();
+            violations += out ? 1 : 0;
+            System.out.printf("%-20s %9d %7s %-25s %9.4f %9.4f%s%n", estimate.getGroup(), sorted.length,
+                    "p" + Math.round(PERCENTILES[i] * 100), estimates[i] + " (" + exact + ")", error,
+                    estimate.getRankError(), out ? "  OUT OF BOUND" : "");
+        }
+        return violations;
+    }
+
+    /**
+     * returns how far the exact rank range of a value lies from a percentile, as a fraction of the values
+     */
+    private static double rankError(int[] sorted, int value, double percentile) {
+        int below = lowerBound(sorted, value);
+        int atOrBelow = lowerBound(sorted, value + 1);
+        double target = percentile * sorted.length;
+        double distance = target < below ? below - target : Math.max(0, target - atOrBelow);
+        return distance / sorted.length;
+    }
+
+    /**
+     * returns the number of values below a value
+     */
+    private static int lowerBound(int[] sorted, int value) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sorted[mid] < value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * computes the four percentiles of a department in SQL, one nearest-rank query each
+     */
+    private static int[] sqlPercentiles(DataSource dataSource, String deptNo, int headcount) throws SQLException {
+        int[] values = new int[PERCENTILES.length];
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(SQL_PERCENTILE)) {
+            for (int i = 0; i < PERCENTILES.length; i++) {
+                statement.setString(1, deptNo);
+                statement.setLong(2, (long) Math.max(1, Math.ceil(PERCENTILES[i] * headcount)) - 1);
+                try (ResultSet rs = statement.executeQuery()) {
+                    values[i] = rs.next() ? rs.getInt(1) : 0;
+                }
+            }
+        }
+        return values;
+    }
+
+    /**
+     * parses key=value arguments over the defaults
+     */
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> settings = new LinkedHashMap<>(DEFAULTS);
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq < 0 || !DEFAULTS.containsKey(arg.substring(0, eq))) {
+                throw new IllegalArgumentException("Unknown argument '" + arg + "', expected key=value with key one of "
+                        + DEFAULTS.keySet());
+            }
+            settings.put(arg.substring(0, eq), arg.substring(eq + 1));
+        }
+        return settings;
+    }
+}
@@ -0,0 +1,92 @@
+package org.DigiCorp.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.DigiCorp.dto.EmployeeRecordDTO;
+import org.DigiCorp.model.*;
+import org.DigiCorp.util.ObjectMapperContextResolver;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks JSON serialization of the two largest responses, through the same ObjectMapper
+ * the application registers in ObjectMapperContextResolver:
+ * a fully loaded Employee graph (endpoint #2) and a page of 20 EmployeeRecordDTO (endpoint #3).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SerializationBenchmark {
+
+    /**
+     * the application's JSON mapper
+     */
+    private ObjectMapper mapper;
+
+    /**
+     * employee with a typical history: ~20 salaries, a few titles, departments and a manager stint
+     */
+    private Employee employee;
+
+    /**
+     * one page of endpoint #3
+     */
+    private List<EmployeeRecordDTO> page;
+
+    /**
+     * builds the mapper and the object graphs once per trial
+     */
+    @Setup
+    public void setUp() {
+        mapper = new ObjectMapperContextResolver().objectMapper();
+
+        LocalDate hired = LocalDate.of(1986, 6, 26);
+        LocalDate current = LocalDate.of(9999, 1, 1);
+        employee = new Employee(10001, LocalDate.of(1953, 9, 2), "Georgi", "Facello", "M", hired);
+
+        List<Salary> salaries = new ArrayList<>();
+        for (int year = 0; year < 20; year++) {
+            LocalDate from = hired.plusYears(year);
+            LocalDate to = year == 19 ? current : from.plusYears(1);
+            salaries.add(new Salary(employee, from, to, 60000 + year * 1500));
+        }
+        employee.setSalaryList(salaries);
+        employee.setTitleList(List.of(
+                new Title(employee, "Engineer", hired, hired.plusYears(7)),
+                new Title(employee, "Senior Engineer", hired.plusYears(7), hired.plusYears(15)),
+                new Title(employee, "Manager", hired.plusYears(15), current)));
+        employee.setDeptEmpList(List.of(
+                new DeptEmp(employee, "d004", hired, hired.plusYears(10)),
+                new DeptEmp(employee, "d005", hired.plusYears(10), current)));
+        employee.setDeptManagerList(List.of(
+                new DeptManager(employee, "d005", hired.plusYears(15), current)));
+
+        page = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            page.add(new EmployeeRecordDTO(10001 + i, hired.plusDays(i * 37L), "Georgi", "Facello"));
+        }
+    }
+
+    /**
+     * endpoint #2 response body
+     */
+    @Benchmark
+    public byte[] serializeEmployeeGraph() throws JsonProcessingException {
+        return mapper.writeValueAsBytes(employee);
+    }
+
+    /**
+     * endpoint #3 response body
+     */
+    @Benchmark
+    public byte[] serializeRecordPage() throws JsonProcessingException {
+        return mapper.writeValueAsBytes(page);
+    }
+}
@@ -0,0 +1,220 @@
+package org.DigiCorp.benchmark;
+
+import org.DigiCorp.fixture.EmbeddedEmployees;
+
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compares the throughput and latency of the platform-thread and virtual-thread request execution modes.
+ * <p>
+ * For each mode the application is started against an embedded database seeded with synthetic employees,
+ * then every client count is driven in turn: that many closed-loop clients request random employee summaries
+ * over HTTP, for a warm-up period and then a measured period; requests completing within the measured
+ * period are counted. Both modes use the same connection pool,
+ * so database concurrency is bounded identically; a simulated per-statement latency stands in for
+ * the round trip to MariaDB.
+ * <p>
+ * Usage (arguments are key=value, all optional):
+ * <pre>
+ * mvn -Pjmh test-compile exec:exec -Djmh.main=org.DigiCorp.benchmark.ThreadModeLoadRunner \
+ *     -Djmh.args="modes=platform,virtual clients=50,200,500,1000,2000 seconds=10 warmup=3 employees=20000 latencyMs=2"
+ * </pre>
+ * Clients run in the same JVM as the server, so absolute numbers are pessimistic; compare the modes
+ * against each other rather than against production.
+ */
+public class ThreadModeLoadRunner {
+
+    /**
+     * default settings, each overridable with a key=value argument
+     */
+    private static final Map<String, String> DEFAULTS = new LinkedHashMap<>();
+
+    static {
+        DEFAULTS.put("modes", "platform,virtual");
+        DEFAULTS.put("clients", "50,200,500,1000,2000");
+        DEFAULTS.put("seconds", "10");
+        DEFAULTS.put("warmup", "3");
+        DEFAULTS.put("employees", "20000");
+        DEFAULTS.put("latencyMs", "2");
+        DEFAULTS.put("poolSize", "20");
+    }
+
+    /**
+     * runs the comparison and prints one result line per mode and client count
+     *
+     * @param args key=value settings, see DEFAULTS
+     * @throws Exception if the application cannot be started or seeded
+     */
+    public static void main(String[] args) throws Exception {
+        Map<String, String> settings = parse(args);
+        int seconds = Integer.parseInt(settings.get("seconds"));
+        int warmup = Integer.parseInt(settings.get("warmup"));
+        int employees = Integer.parseInt(settings.get("employees"));
+        long latencyMs = Long.parseLong(settings.get("latencyMs"));
+        int[] clientCounts = Arrays.stream(settings.get("clients").split(","))
+                .mapToInt(c -> Integer.parseInt(c.trim())).toArray();
+
+        System.out.println("settings " + settings);
+        System.out.printf("%-9s %8s %12s %10s %10s %10s %8s%n",
+                "mode", "clients", "req/s", "p50 ms", "p99 ms", "max ms", "errors");
+
+        for (String mode : settings.get("modes").split(",")) {
+            boolean virtual = "virtual".equals(mode.trim());
+            Map<String, Object> properties = new LinkedHashMap<>();
+            properties.put("spring.threads.virtual.enabled", String.valueOf(virtual));
+            properties.put("spring.datasource.hikari.maximum-pool-size", settings.get("poolSize"));
+            properties.put("spring.datasource.hikari.connection-timeout", "30000");
+            properties.put("employees.metrics.slow-request-sample-rate", "0");
+
+            try (ConfigurableApplicationContext context =
+                         EmbeddedEmployees.start("load-" + mode.trim(), latencyMs, properties)) {
+                EmbeddedEmployees.seed(context, employees);
+                String base = "http://localhost:" + EmbeddedEmployees.port(context) + "/employees/getEmployeeSummary?empNo=";
+
+                for (int clients : clientCounts) {
+                    Result result = drive(base, employees, clients, warmup, seconds);
+                    System.out.printf("%-9s %8d %12.1f %10.2f %10.2f %10.2f %8d%n",
+                            mode.trim(), clients, result.throughput,
+                            result.percentileMs(0.50), result.percentileMs(0.99), result.percentileMs(1.0),
+                            result.errors);
+                }
+            }
+        }
+    }
+
+    /**
+     * Drives one client count: clients loop on blocking requests, latencies are kept for the measured period only.
+     *
+     * @param base      request URL without the employee number
+     * @param employees number of seeded employees to pick from
+     * @param clients   number of concurrent closed-loop clients
+     * @param warmup    seconds of warm-up, not measured
+     * @param seconds   seconds measured
+     * @return throughput, latencies and error count of the measured period
+     * @throws InterruptedException if interrupted while waiting for the clients
+     */
+    private static Result drive(String base, int employees, int clients, int warmup, int seconds)
+            throws InterruptedException {
+        long measureFrom = System.nanoTime() + TimeUnit.SECONDS.toNanos(warmup);
+        long measureTo = measureFrom + TimeUnit.SECONDS.toNanos(seconds);
+        AtomicLong errors = new AtomicLong();
+        List<long[]> latencies = new ArrayList<>();
+        int[] counts = new int[clients];
+
+        // clients run on virtual threads whatever the server mode, so 2000 of them cost next to nothing
+        try (HttpClient http = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(30)).build();
+             ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+
+            for (int c = 0; c < clients; c++) {
+                long[] samples = new long[1024];
+                latencies.add(samples);
+                int client = c;
+                executor.submit(() -> {
+                    long[] own = samples;
+                    int n = 0;
+                    while (true) {
+                        long start = System.nanoTime();
+                        if (start >= measureTo) {
+                            break;
+                        }
+                        int empNo = EmbeddedEmployees.FIRST_EMP_NO + ThreadLocalRandom.current().nextInt(employees);
+                        HttpRequest request = HttpRequest.newBuilder(URI.create(base + empNo))
+                                .timeout(Duration.ofSeconds(60)).build();
+                        boolean ok;
+                        try {
+                            ok = http.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200;
+                        } catch (Exception e) {
+                            ok = false;
+                        }
+                        long end = System.nanoTime();
+                        // a request counts towards the period it completes in
+                        if (end < measureFrom || end > measureTo) {
+                            continue;
+                        }
+                        if (!ok) {
+                            errors.incrementAndGet();
+                            continue;
+                        }
+                        if (n == own.length) {
+                            own = Arrays.copyOf(own, n * 2);
+                        }
+                        own[n++] = end - start;
+                    }
+                    latencies.set(client, own);
+                    counts[client] = n;
+                    return null;
+                });
+            }
+            executor.shutdown();
+            executor.awaitTermination(warmup + seconds + 120, TimeUnit.SECONDS);
+        }
+
+        int total = 0;
+        for (int count : counts) {
+            total += count;
+        }
+        long[] all = new long[total];
+        int at = 0;
+        for (int c = 0; c < clients; c++) {
+            System.arraycopy(latencies.get(c), 0, all, at, counts[c]);
+            at += counts[c];
+        }
+        Arrays.sort(all);
+        return new Result((double) total / seconds, all, errors.get());
+    }
+
+    /**
+     * merges key=value arguments over DEFAULTS
+     */
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> settings = new LinkedHashMap<>(DEFAULTS);
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq < 0 || !DEFAULTS.containsKey(arg.substring(0, eq))) {
+                throw new IllegalArgumentException("Unknown argument '" + arg + "', expected key=value with key one of "
+                        + DEFAULTS.keySet());
+            }
+            settings.put(arg.substring(0, eq), arg.substring(eq + 1));
+        }
+        return settings;
+    }
+
+    /**
+     * outcome of one mode and client count
+     */
+    private static final class Result {
+        private final double throughput;
+        private final long[] sortedNanos;
+        private final long errors;
+
+        private Result(double throughput, long[] sortedNanos, long errors) {
+            this.throughput = throughput;
+            this.sortedNanos = sortedNanos;
+            this.errors = errors;
+        }
+
+        private double percentileMs(double p) {
+            if (sortedNanos.length == 0) {
+                return Double.NaN;
+            }
+            int index = (int) Math.min(sortedNanos.length - 1, Math.ceil(p * sortedNanos.length) - 1);
+            return sortedNanos[Math.max(0, index)] / 1_000_000.0;
+        }
+    }
+}
@@ -2,8 +2,10 @@ package org.DigiCorp;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class M7P2Application {
 
     public static void main(String[] args) {
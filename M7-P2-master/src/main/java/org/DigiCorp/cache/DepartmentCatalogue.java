@@ -0,0 +1,232 @@
+package org.DigiCorp.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+import org.DigiCorp.model.Department;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-process catalogue of all departments.
+ * The departments table is tiny and almost never changes, so it is preloaded once into an
+ * immutable snapshot that serves endpoint #1 and every department existence check without
+ * a database round trip. The snapshot is swapped atomically on refresh, either on a schedule
+ * or through the admin trigger.
+ * <p>
+ * A lookup for an unknown department falls back to the database once; if the department
+ * exists there (e.g. it was added after the last refresh) the catalogue is reloaded. A department
+ * the database does not know either is remembered for a short while, so repeated lookups of it
+ * (e.g. an import full of rows naming it) cost no further round trips.
+ */
+@Component
+public class DepartmentCatalogue {
+
+    /**
+     * EntityManager injected by Spring, used only to (re)load the catalogue
+     */
+    @PersistenceContext
+    private EntityManager em;
+
+    /**
+     * the current immutable snapshot, replaced as a whole on refresh
+     */
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>();
+
+    /**
+     * department keys the database did not know when last looked up, expiring after a short while
+     */
+    private final Cache<String, Boolean> unknown;
+
+    /**
+     * lookups answered from the snapshot, or from the unknown departments
+     */
+    private final LongAdder hits = new LongAdder();
+
+    /**
+     * lookups that had to go to the database
+     */
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * number of times the catalogue has been (re)loaded
+     */
+    private final LongAdder refreshes = new LongAdder();
+
+    /**
+     * constructor, initializes the catalogue with its bounds
+     *
+     * @param unknownTtlMs   how long a department the database does not know is answered as unknown, in milliseconds
+     * @param unknownMaxSize maximum unknown departments remembered
+     */
+    public DepartmentCatalogue(@Value("${employees.departments.unknown-ttl-ms:60000}") long unknownTtlMs,
+                               @Value("${employees.departments.unknown-max-size:1000}") long unknownMaxSize) {
+        this.unknown = Caffeine.newBuilder()
+                .maximumSize(unknownMaxSize)
+                .expireAfterWrite(Duration.ofMillis(unknownTtlMs))
+                .build();
+    }
+
+    /**
+     * preloads the catalogue once the application has started
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void preload() {
+        refresh();
+    }
+
+    /**
+     * reloads the catalogue on a fixed schedule, 1 hour by default
+     */
+    @Scheduled(initialDelayString = "${employees.departments.refresh-interval-ms:3600000}",
+            fixedDelayString = "${employees.departments.refresh-interval-ms:3600000}")
+    public void scheduledRefresh() {
+        refresh();
+    }
+
+    /**
+     * Reloads all departments from the database and atomically replaces the snapshot.
+     *
+     * @return the number of departments loaded
+     */
+    public int refresh() {
+        List<Department> departments =
+                em.createNamedQuery("Department.findAllDepartments", Department.class).getResultList();
+
+        Map<String, Department> byDeptNo = new HashMap<>();
+        for (Department d : departments) {
+            byDeptNo.put(key(d.getDeptNo()), d);
+        }
+
+        Snapshot current = snapshot.get();
+        long version = current == null ? 1 : current.version + 1;
+        snapshot.set(new Snapshot(List.copyOf(departments), Map.copyOf(byDeptNo), version));
+        unknown.invalidateAll();
+        refreshes.increment();
+        return departments.size();
+    }
+
+    /**
+     * Retrieves all departments from the catalogue.
+     *
+     * @return immutable list of all Department entities
+     */
+    public List<Department> findAll() {
+        hits.increment();
+        return loadedSnapshot().departments;
+    }
+
+    /**
+     * Retrieves a department by its number, ignoring case.
+     *
+     * @param deptNo department number (e.g. 'd005' or 'D005')
+     * @return the Department, or null if it does not exist
+     */
+    public Department find(String deptNo) {
+        if (deptNo == null) {
+            return null;
+        }
+
+        String key = key(deptNo);
+        Department department = loadedSnapshot().byDeptNo.get(key);
+        if (department != null || unknown.getIfPresent(key) != null) {
+            hits.increment();
+            return department;
+        }
+
+        // not in the catalogue, check the database in case it was added since the last refresh
+        misses.increment();
+        if (em.find(Department.class, deptNo) == null) {
+            unknown.put(key, Boolean.TRUE);
+            return null;
+        }
+        refresh();
+        return loadedSnapshot().byDeptNo.get(key);
+    }
+
+    /**
+     * Checks whether a department exists, ignoring case.
+     *
+     * @param deptNo department number (e.g. 'd005')
+     * @return true if the department exists, false otherwise
+     */
+    public boolean exists(String deptNo) {
+        return find(deptNo) != null;
+    }
+
+    /**
+     * Retrieves the version of the current snapshot, incremented on every refresh.
+     *
+     * @return the catalogue version
+     */
+    public long getVersion() {
+        return loadedSnapshot().version;
+    }
+
+    /**
+     * Retrieves the catalogue counters.
+     *
+     * @return map of counter name to value
+     */
+    public Map<String, Long> getStatistics() {
+        Snapshot current = snapshot.get();
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("size", current == null ? 0L : current.departments.size());
+        stats.put("version", current == null ? 0L : current.version);
+        stats.put("hits", hits.sum());
+        stats.put("misses", misses.sum());
+        stats.put("unknown", unknown.estimatedSize());
+        stats.put("refreshes", refreshes.sum());
+        return stats;
+    }
+
+    /**
+     * returns the current snapshot, loading it first if a request arrives before preload ran
+     */
+    private Snapshot loadedSnapshot() {
+        Snapshot current = snapshot.get();
+        if (current == null) {
+            refresh();
+            current = snapshot.get();
+        }
+        return current;
+    }
+
+    /**
+     * normalises a department number into a catalogue key
+     */
+    private static String key(String deptNo) {
+        return deptNo.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * immutable view of the catalogue at one point in time
+     */
+    private static final class Snapshot {
+        private final List<Department> departments;
+        private final Map<String, Department> byDeptNo;
+        private final long version;
+
+        private Snapshot(List<Department> departments, Map<String, Department> byDeptNo, long version) {
+            this.departments = departments;
+            this.byDeptNo = byDeptNo;
+            this.version = version;
+        }
+    }
+}
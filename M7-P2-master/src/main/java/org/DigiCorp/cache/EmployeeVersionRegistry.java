@@ -0,0 +1,163 @@
+package org.DigiCorp.cache;
+
+import org.DigiCorp.event.EmployeePromotedEvent;
+import org.DigiCorp.event.EmployeeSavedEvent;
+import org.DigiCorp.event.EmployeesImportedEvent;
+
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.security.SecureRandom;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Issues the strong ETags of employee and department reads, so a client revalidating a response it already
+ * holds gets a 304 without the employee being loaded or serialized.
+ * <p>
+ * Every employee has a version counter, zero until the employee is first promoted or saved, and the
+ * department list uses the catalogue version. Counters live in memory only, so every tag also carries a
+ * random nonce drawn at startup: tags issued before a restart, or by another instance, never match.
+ * <p>
+ * A change bumps the employee's version twice: before its transaction commits, so no tag issued from then
+ * on can match the tag of the old content, and again after the commit, so a tag issued for content read
+ * while the commit was in flight cannot match either. Callers must read the tag before loading the content
+ * it describes; a tag can then only be older than its content, which costs at most one extra 200.
+ * (An EmployeeSavedEvent raised by the flush inside the commit itself only gets the second bump.)
+ * <p>
+ * A bulk import changes employees without events per employee, so every tag also carries the number of
+ * imports that have finished: each one invalidates all tags issued before it.
+ */
+@Component
+public class EmployeeVersionRegistry {
+
+    /**
+     * random per-process prefix of every tag
+     */
+    private final String nonce = Long.toString(new SecureRandom().nextLong() & Long.MAX_VALUE, 36);
+
+    /**
+     * version of every employee changed since startup, absent means zero
+     */
+    private final Map<Integer, Long> versions = new ConcurrentHashMap<>();
+
+    /**
+     * bulk imports finished since startup
+     */
+    private final AtomicLong imports = new AtomicLong();
+
+    /**
+     * preloaded department catalogue, whose version tags the department list
+     */
+    private final DepartmentCatalogue departmentCatalogue;
+
+    /**
+     * version bumps applied
+     */
+    private final LongAdder bumps = new LongAdder();
+
+    /**
+     * constructor, initializes the registry with the department catalogue
+     *
+     * @param departmentCatalogue in-process department catalogue
+     */
+    public EmployeeVersionRegistry(DepartmentCatalogue departmentCatalogue) {
+        this.departmentCatalogue = departmentCatalogue;
+    }
+
+    /**
+     * Retrieves the ETag of an employee's representations.
+     *
+     * @param empNo employee number
+     * @return the unquoted entity tag
+     */
+    public String employeeTag(int empNo) {
+        return "e" + empNo + "-" + nonce + "-" + imports.get() + "." + versions.getOrDefault(empNo, 0L);
+    }
+
+    /**
+     * Retrieves the ETag of the department list.
+     *
+     * @return the unquoted entity tag
+     */
+    public String departmentsTag() {
+        return "d-" + nonce + "-" + departmentCatalogue.getVersion();
+    }
+
+    /**
+     * bumps the promoted employee's version as the promotion commits
+     *
+     * @param event the committing promotion
+     */
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
+    public void beforePromotionCommit(EmployeePromotedEvent event) {
+        bump(event.getEmpNo());
+    }
+
+    /**
+     * bumps the promoted employee's version once the promotion has committed
+     *
+     * @param event the committed promotion
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void afterPromotionCommit(EmployeePromotedEvent event) {
+        bump(event.getEmpNo());
+    }
+
+    /**
+     * bumps the saved employee's version as the change commits
+     *
+     * @param event the committing new hire or change
+     */
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
+    public void beforeSaveCommit(EmployeeSavedEvent event) {
+        bump(event.getEmpNo());
+    }
+
+    /**
+     * bumps the saved employee's version once the change has committed
+     *
+     * @param event the committed new hire or change
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void afterSaveCommit(EmployeeSavedEvent event) {
+        bump(event.getEmpNo());
+    }
+
+    /**
+     * invalidates every employee tag once imported rows have committed, after the read models are rebuilt
+     *
+     * @param event the finished import
+     */
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    @EventListener
+    public void onEmployeesImported(EmployeesImportedEvent event) {
+        imports.incrementAndGet();
+    }
+
+    /**
+     * Retrieves the registry counters.
+     *
+     * @return map of counter name to value
+     */
+    public Map<String, Long> getStatistics() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("versionedEmployees", (long) versions.size());
+        stats.put("bumps", bumps.sum());
+        stats.put("imports", imports.get());
+        stats.put("departmentsVersion", departmentCatalogue.getVersion());
+        return stats;
+    }
+
+    private void bump(int empNo) {
+        versions.merge(empNo, 1L, Long::sum);
+        bumps.increment();
+    }
+}
@@ -0,0 +1,290 @@
+package org.DigiCorp.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import org.DigiCorp.event.EmployeePromotedEvent;
+import org.DigiCorp.event.EmployeeSavedEvent;
+import org.DigiCorp.event.EmployeesImportedEvent;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Cache of already-serialized JSON responses: the department list, employee records and department pages.
+ * <p>
+ * Serializing an Employee walks its whole history graph, and the same popular employees and the static
+ * department list are serialized over and over. This cache keeps the encoded bytes, serialized with the
+ * application ObjectMapper so they are identical to what Spring would write, plus a gzip copy of larger
+ * bodies for clients accepting it. Entries are bounded by their total size in bytes and evicted by Caffeine.
+ * <p>
+ * Every entry records the version of the data it was built from: the ETag version of the employee or
+ * department list, or the generation of the department's pages. A lookup with a different version misses,
+ * so an entry built from data read just before a promotion committed is never served after it. Committed
+ * promotions and employee changes also drop the employee's entry straight away; stale department pages are
+ * unreachable once the generation moves on and are evicted under size pressure.
+ */
+@Component
+public class JsonResponseCache {
+
+    /**
+     * approximate per-entry overhead added to the weight of every entry: key, entry object and map node
+     */
+    private static final int ENTRY_OVERHEAD_BYTES = 96;
+
+    /**
+     * application ObjectMapper, the same one Spring uses to write JSON responses
+     */
+    private final ObjectMapper objectMapper;
+
+    /**
+     * true to keep a gzip copy of bodies of at least gzipMinBytes
+     */
+    private final boolean gzip;
+
+    /**
+     * smallest body that is worth compressing
+     */
+    private final int gzipMinBytes;
+
+    /**
+     * the entries, bounded by their total weight in bytes
+     */
+    private final Cache<String, Entry> cache;
+
+    /**
+     * generation of the department pages of every department, bumped on employee changes (renames)
+     */
+    private final AtomicLong pagesGeneration = new AtomicLong();
+
+    /**
+     * generation of each department's pages, bumped when a promotion moves an employee in or out
+     */
+    private final Map<String, Long> departmentGenerations = new ConcurrentHashMap<>();
+
+    /**
+     * constructor, initializes the cache with its bounds
+     *
+     * @param objectMapper application ObjectMapper
+     * @param maxBytes     maximum total size of the cached bodies in bytes
+     * @param gzip         true to keep a gzip copy of larger bodies
+     * @param gzipMinBytes smallest body that is compressed
+     */
+    public JsonResponseCache(ObjectMapper objectMapper,
+                             @Value("${employees.json-cache.max-bytes:67108864}") long maxBytes,
+                             @Value("${employees.json-cache.gzip:true}") boolean gzip,
+                             @Value("${employees.json-cache.gzip-min-bytes:1024}") int gzipMinBytes) {
+        this.objectMapper = objectMapper;
+        this.gzip = gzip;
+        this.gzipMinBytes = gzipMinBytes;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((String key, Entry entry) -> entry.weight(key))
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Returns the cache key of an employee record.
+     *
+     * @param empNo employee number
+     * @return the cache key
+     */
+    public static String employeeKey(int empNo) {
+        return "employee:" + empNo;
+    }
+
+    /**
+     * Returns the cache key of one page of a department's employee records.
+     *
+     * @param deptNo department number (e.g. 'd005')
+     * @param page   1-indexed page number
+     * @return the cache key
+     */
+    public static String departmentPageKey(String deptNo, int page) {
+        return "page:" + deptNo.toLowerCase(Locale.ROOT) + ":" + page;
+    }
+
+    /**
+     * Retrieves the version of a department's pages, to be read before the page is loaded.
+     *
+     * @param deptNo department number (e.g. 'd005')
+     * @return the version
+     */
+    public String departmentPagesVersion(String deptNo) {
+        return pagesGeneration.get() + "-" + departmentGenerations.getOrDefault(deptNo.toLowerCase(Locale.ROOT), 0L);
+    }
+
+    /**
+     * Retrieves a cached response.
+     *
+     * @param key     cache key
+     * @param version version of the data the caller would serve, read before loading it
+     * @return the cached entry, or null if absent or built from another version
+     */
+    public Entry get(String key, String version) {
+        Entry entry = cache.getIfPresent(key);
+        return entry != null && entry.version.equals(version) ? entry : null;
+    }
+
+    /**
+     * Serializes a response body and caches it.
+     *
+     * @param key     cache key
+     * @param version version of the data the body was built from, read before loading it
+     * @param body    the response body
+     * @return the new entry
+     */
+    public Entry put(String key, String version, Object body) {
+        byte[] json;
+        try {
+            json = objectMapper.writeValueAsBytes(body);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+        Entry entry = new Entry(version, json, gzip && json.length >= gzipMinBytes ? compress(json) : null);
+        cache.put(key, entry);
+        return entry;
+    }
+
+    /**
+     * drops the promoted employee's record and moves the pages of the departments involved to a new generation
+     *
+     * @param event the committed promotion
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onEmployeePromoted(EmployeePromotedEvent event) {
+        cache.invalidate(employeeKey(event.getEmpNo()));
+        if (event.isDeptChanged()) {
+            departmentGenerations.merge(event.getOldDeptNo().toLowerCase(Locale.ROOT), 1L, Long::sum);
+            departmentGenerations.merge(event.getNewDeptNo().toLowerCase(Locale.ROOT), 1L, Long::sum);
+        }
+    }
+
+    /**
+     * drops the saved employee's record and moves every department page to a new generation,
+     * since a renamed employee may appear on any of them
+     *
+     * @param event the committed new hire or change
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onEmployeeSaved(EmployeeSavedEvent event) {
+        cache.invalidate(employeeKey(event.getEmpNo()));
+        pagesGeneration.incrementAndGet();
+    }
+
+    /**
+     * drops every entry and moves every department page to a new generation once imported rows have
+     * committed, after the read models are rebuilt
+     *
+     * @param event the finished import
+     */
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    @EventListener
+    public void onEmployeesImported(EmployeesImportedEvent event) {
+        pagesGeneration.incrementAndGet();
+        cache.invalidateAll();
+    }
+
+    /**
+     * Evicts every entry.
+     */
+    public void evictAll() {
+        cache.invalidateAll();
+    }
+
+    /**
+     * Retrieves the cache counters.
+     *
+     * @return map of counter name to value
+     */
+    public Map<String, Long> getStatistics() {
+        CacheStats stats = cache.stats();
+        long bytes = 0;
+        long gzipped = 0;
+        for (Map.Entry<String, Entry> e : cache.asMap().entrySet()) {
+            bytes += e.getValue().weight(e.getKey());
+            gzipped += e.getValue().gzip == null ? 0 : 1;
+        }
+
+        Map<String, Long> result = new LinkedHashMap<>();
+        result.put("entries", cache.estimatedSize());
+        result.put("gzippedEntries", gzipped);
+        result.put("bytes", bytes);
+        result.put("maxBytes", cache.policy().eviction().map(e -> e.getMaximum()).orElse(0L));
+        result.put("hits", stats.hitCount());
+        result.put("misses", stats.missCount());
+        result.put("evictions", stats.evictionCount());
+        return result;
+    }
+
+    private static byte[] compress(byte[] json) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(json.length / 4 + 64);
+        try (GZIPOutputStream gz = new GZIPOutputStream(out)) {
+            gz.write(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * One cached response: the JSON bytes, the optional gzip copy and the version they were built from.
+     */
+    public static final class Entry {
+        /**
+         * version of the data the body was built from
+         */
+        private final String version;
+        /**
+         * the JSON body
+         */
+        private final byte[] json;
+        /**
+         * gzip copy of the body, null if the body was not compressed
+         */
+        private final byte[] gzip;
+
+        private Entry(String version, byte[] json, byte[] gzip) {
+            this.version = version;
+            this.json = json;
+            this.gzip = gzip;
+        }
+
+        /**
+         * @return the JSON body
+         */
+        public byte[] getJson() {
+            return json;
+        }
+
+        /**
+         * @return gzip copy of the body, or null if it was not compressed
+         */
+        public byte[] getGzip() {
+            return gzip;
+        }
+
+        private int weight(String key) {
+            return ENTRY_OVERHEAD_BYTES + key.length() * 2 + json.length + (gzip == null ? 0 : gzip.length);
+        }
+    }
+}
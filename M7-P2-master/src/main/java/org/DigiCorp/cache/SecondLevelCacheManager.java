@@ -0,0 +1,195 @@
+package org.DigiCorp.cache;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.configuration.TypesafeConfigurator;
+import com.typesafe.config.ConfigFactory;
+
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceUnit;
+
+import org.DigiCorp.event.EmployeePromotedEvent;
+import org.DigiCorp.event.EmployeesImportedEvent;
+import org.DigiCorp.model.Employee;
+
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.hibernate.cache.jcache.internal.JCacheRegionFactory;
+import org.hibernate.cache.spi.RegionFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.cache.CacheManager;
+import javax.cache.configuration.MutableConfiguration;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Manages the Hibernate second-level cache holding employee histories and the query cache
+ * holding department employee lists.
+ * <p>
+ * New history rows are persisted from the owning side, which Hibernate does not reflect in the
+ * cached (inverse) collections of Employee. Once a promotion commits, this class therefore
+ * evicts exactly the promoted employee's collections and the query regions of the
+ * departments the employee left or joined. It also exposes the cache statistics.
+ * <p>
+ * Caffeine only applies the regions of application.conf to caches of the exact same name, and Hibernate
+ * creates any other region from the default template. The per-department query regions are therefore
+ * created here, from the department-employee-records template, before Hibernate first uses them.
+ */
+@Component
+public class SecondLevelCacheManager {
+
+    /**
+     * prefix of the per-department query cache regions
+     */
+    private static final String DEPARTMENT_QUERY_REGION_PREFIX = "department-employee-records.";
+
+    /**
+     * region of application.conf the per-department query regions are created from
+     */
+    private static final String DEPARTMENT_QUERY_REGION_TEMPLATE = "department-employee-records";
+
+    /**
+     * per-department query regions already created from the template
+     */
+    private final Set<String> departmentQueryRegions = ConcurrentHashMap.newKeySet();
+
+    /**
+     * history collection roles of Employee that are held in the second-level cache
+     */
+    private static final String[] EMPLOYEE_COLLECTION_ROLES = {
+            Employee.class.getName() + ".salaryList",
+            Employee.class.getName() + ".titleList",
+            Employee.class.getName() + ".deptEmpList",
+            Employee.class.getName() + ".deptManagerList"
+    };
+
+    /**
+     * EntityManagerFactory injected by Spring, unwrapped to reach the Hibernate cache and statistics
+     */
+    @PersistenceUnit
+    private EntityManagerFactory emf;
+
+    /**
+     * Returns the query cache region holding the employee lists of one department, creating it from
+     * the department-employee-records template of application.conf the first time.
+     *
+     * @param deptNo department number (e.g. 'd005')
+     * @return the query cache region name
+     */
+    public String departmentQueryRegion(String deptNo) {
+        String region = departmentQueryRegionName(deptNo);
+        if (!departmentQueryRegions.contains(region)) {
+            synchronized (departmentQueryRegions) {
+                if (!departmentQueryRegions.contains(region)) {
+                    CacheManager cacheManager = ((JCacheRegionFactory) emf.unwrap(SessionFactoryImplementor.class)
+                            .getServiceRegistry().getService(RegionFactory.class)).getCacheManager();
+                    if (cacheManager.getCache(region) == null) {
+                        Optional<CaffeineConfiguration<Object, Object>> template =
+                                TypesafeConfigurator.from(ConfigFactory.load(), DEPARTMENT_QUERY_REGION_TEMPLATE);
+                        if (template.isPresent()) {
+                            cacheManager.createCache(region, template.get());
+                        } else {
+                            cacheManager.createCache(region, new MutableConfiguration<>());
+                        }
+                    }
+                    departmentQueryRegions.add(region);
+                }
+            }
+        }
+        return region;
+    }
+
+    /**
+     * returns the name of a department's query cache region
+     */
+    private static String departmentQueryRegionName(String deptNo) {
+        return DEPARTMENT_QUERY_REGION_PREFIX + deptNo.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Evicts the promoted employee's cached collections, and the query regions of the departments
+     * involved if the employee moved, once the promotion has committed.
+     * Runs before every other listener, so versions bumped after the commit (ETags, JSON response cache)
+     * are never paired with content read from a not yet evicted cache entry.
+     *
+     * @param event the committed promotion
+     */
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onEmployeePromoted(EmployeePromotedEvent event) {
+        Cache cache = emf.unwrap(SessionFactory.class).getCache();
+        for (String role : EMPLOYEE_COLLECTION_ROLES) {
+            cache.evictCollectionData(role, event.getEmpNo());
+        }
+        if (event.isDeptChanged()) {
+            cache.evictQueryRegion(departmentQueryRegionName(event.getOldDeptNo()));
+            cache.evictQueryRegion(departmentQueryRegionName(event.getNewDeptNo()));
+        }
+    }
+
+    /**
+     * Evicts everything once imported rows have committed, before every other listener, as the import
+     * wrote past Hibernate.
+     *
+     * @param event the finished import
+     */
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @EventListener
+    public void onEmployeesImported(EmployeesImportedEvent event) {
+        evictAll();
+    }
+
+    /**
+     * Evicts every entity, collection and query region.
+     */
+    public void evictAll() {
+        emf.unwrap(SessionFactory.class).getCache().evictAll();
+    }
+
+    /**
+     * Retrieves the overall and per-region cache statistics.
+     *
+     * @return map of statistic name to value, with one nested map per region
+     */
+    public Map<String, Object> getStatistics() {
+        Statistics statistics = emf.unwrap(SessionFactory.class).getStatistics();
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("secondLevelCacheHits", statistics.getSecondLevelCacheHitCount());
+        stats.put("secondLevelCacheMisses", statistics.getSecondLevelCacheMissCount());
+        stats.put("secondLevelCachePuts", statistics.getSecondLevelCachePutCount());
+        stats.put("queryCacheHits", statistics.getQueryCacheHitCount());
+        stats.put("queryCacheMisses", statistics.getQueryCacheMissCount());
+        stats.put("queryCachePuts", statistics.getQueryCachePutCount());
+
+        Map<String, Object> regions = new LinkedHashMap<>();
+        for (String regionName : new TreeSet<>(Arrays.asList(statistics.getSecondLevelCacheRegionNames()))) {
+            CacheRegionStatistics region = statistics.getCacheRegionStatistics(regionName);
+            if (region == null) {
+                continue;
+            }
+            Map<String, Long> regionStats = new LinkedHashMap<>();
+            regionStats.put("hits", region.getHitCount());
+            regionStats.put("misses", region.getMissCount());
+            regionStats.put("puts", region.getPutCount());
+            regionStats.put("elementsInMemory", region.getElementCountInMemory());
+            regions.put(regionName, regionStats);
+        }
+        stats.put("regions", regions);
+        return stats;
+    }
+}
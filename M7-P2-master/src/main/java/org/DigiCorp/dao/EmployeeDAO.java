@@ -1,26 +1,67 @@
 package org.DigiCorp.dao;
 
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.LockTimeoutException;
 import jakarta.persistence.PersistenceContext;
-import jakarta.persistence.TypedQuery;
 
+import org.DigiCorp.cache.DepartmentCatalogue;
+import org.DigiCorp.cache.EmployeeVersionRegistry;
+import org.DigiCorp.cache.SecondLevelCacheManager;
 import org.DigiCorp.dto.*;
+import org.DigiCorp.event.EmployeePromotedEvent;
 import org.DigiCorp.exceptions.InvalidDataException;
+import org.DigiCorp.readmodel.EmployeeCurrentStateStore;
+import org.DigiCorp.readmodel.EmployeeHistoryIndex;
+import org.DigiCorp.readmodel.EmployeeNameIndex;
+import org.DigiCorp.readmodel.SalaryHistoryStore;
+import org.DigiCorp.readmodel.SalaryPercentileStore;
 import org.DigiCorp.util.Helper;
 import org.DigiCorp.model.*;
 
+import org.hibernate.CacheMode;
+import org.hibernate.Hibernate;
+import org.hibernate.PessimisticLockException;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.hibernate.exception.LockAcquisitionException;
+import org.hibernate.query.Query;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.PessimisticLockingFailureException;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.sql.SQLTransactionRollbackException;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 /**
  * Provides business logic for managing Employee data.
  * This class acts as a Data Access Object (DAO), managing transactions and
  * executing JPA queries to interact with the database.
+ * Every public method is timed as employees.dao, tagged with the method name.
  */
 @Repository
+@Timed(value = "employees.dao", description = "Time spent in EmployeeDAO methods", histogram = true)
 public class EmployeeDAO {
 
     /**
@@ -29,18 +70,181 @@ public class EmployeeDAO {
     @PersistenceContext
     private EntityManager em;
 
+    /**
+     * preloaded department catalogue, answers department lookups without a database round trip
+     */
+    private final DepartmentCatalogue departmentCatalogue;
+
+    /**
+     * in-memory read model of every employee's current salary, title, department and manager flag
+     */
+    private final EmployeeCurrentStateStore currentStateStore;
+
+    /**
+     * in-memory columnar copy of the whole salary history
+     */
+    private final SalaryHistoryStore salaryHistoryStore;
+
+    /**
+     * in-memory index over employee first and last names
+     */
+    private final EmployeeNameIndex nameIndex;
+
+    /**
+     * in-memory point-in-time index of every employee's title and department history
+     */
+    private final EmployeeHistoryIndex historyIndex;
+
+    /**
+     * in-memory salary percentile sketches per department and per title
+     */
+    private final SalaryPercentileStore salaryPercentileStore;
+
+    /**
+     * issues the ETags of employee and department reads
+     */
+    private final EmployeeVersionRegistry versionRegistry;
+
+    /**
+     * names, and creates, the query cache regions of the department employee lists
+     */
+    private final SecondLevelCacheManager secondLevelCacheManager;
+
+    /**
+     * JDBC fetch size used when streaming large result sets
+     */
+    private final int exportFetchSize;
+
+    /**
+     * publishes an EmployeePromotedEvent for every promotion
+     */
+    private final ApplicationEventPublisher eventPublisher;
+
+    /**
+     * runs each chunk of a bulk promotion in its own transaction
+     */
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * number of promotion requests committed per transaction in a bulk promotion
+     */
+    private final int promotionChunkSize;
+
+    /**
+     * how long a promotion waits for an employee's row lock, in milliseconds
+     */
+    private final int lockTimeoutMs;
+
+    /**
+     * attempts made at a promotion transaction that loses a lock conflict (deadlock or lock wait timeout)
+     */
+    private final int lockMaxAttempts;
+
+    /**
+     * time spent acquiring employee row locks
+     */
+    private final Timer lockWait;
+
+    /**
+     * promotion transactions retried after losing a lock conflict
+     */
+    private final Counter lockRetries;
+
+    /**
+     * promotion transactions given up after losing a lock conflict lockMaxAttempts times
+     */
+    private final Counter lockFailures;
+
+    /**
+     * constructor, initializes the DAO with its collaborators
+     *
+     * @param departmentCatalogue   in-process department catalogue
+     * @param currentStateStore     in-memory current-state read model
+     * @param salaryHistoryStore    in-memory columnar salary history
+     * @param nameIndex             in-memory employee name index
+     * @param historyIndex          in-memory title and department history index
+     * @param salaryPercentileStore in-memory salary percentile sketches per department and per title
+     * @param versionRegistry       per-employee and catalogue versions behind the ETags
+     * @param secondLevelCacheManager names, and creates, the query cache regions of the department employee lists
+     * @param eventPublisher        publisher for promotion events
+     * @param transactionManager    transaction manager used for chunked bulk promotions
+     * @param exportFetchSize       JDBC fetch size used when streaming large result sets
+     * @param promotionChunkSize    number of promotion requests committed per transaction in a bulk promotion
+     * @param meterRegistry         registry the lock wait timer and retry counters are published to
+     * @param lockTimeoutMs         how long a promotion waits for an employee's row lock, in milliseconds
+     * @param lockMaxAttempts       attempts made at a promotion transaction that loses a lock conflict
+     */
+    public EmployeeDAO(DepartmentCatalogue departmentCatalogue,
+                       EmployeeCurrentStateStore currentStateStore,
+                       SalaryHistoryStore salaryHistoryStore,
+                       EmployeeNameIndex nameIndex,
+                       EmployeeHistoryIndex historyIndex,
+                       SalaryPercentileStore salaryPercentileStore,
+                       EmployeeVersionRegistry versionRegistry,
+                       SecondLevelCacheManager secondLevelCacheManager,
+                       ApplicationEventPublisher eventPublisher,
+                       PlatformTransactionManager transactionManager,
+                       @Value("${employees.export.fetch-size:1000}") int exportFetchSize,
+                       @Value("${employees.promotion.chunk-size:500}") int promotionChunkSize,
+                       MeterRegistry meterRegistry,
+                       @Value("${employees.promotion.lock.timeout-ms:5000}") int lockTimeoutMs,
+                       @Value("${employees.promotion.lock.max-attempts:3}") int lockMaxAttempts) {
+        this.departmentCatalogue = departmentCatalogue;
+        this.currentStateStore = currentStateStore;
+        this.salaryHistoryStore = salaryHistoryStore;
+        this.nameIndex = nameIndex;
+        this.historyIndex = historyIndex;
+        this.salaryPercentileStore = salaryPercentileStore;
+        this.versionRegistry = versionRegistry;
+        this.secondLevelCacheManager = secondLevelCacheManager;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.exportFetchSize = exportFetchSize;
+        this.promotionChunkSize = promotionChunkSize;
+        this.lockTimeoutMs = lockTimeoutMs;
+        this.lockMaxAttempts = lockMaxAttempts;
+        this.lockWait = Timer.builder("employees.promotion.lock.wait")
+                .description("Time spent acquiring employee row locks before promoting")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.lockRetries = Counter.builder("employees.promotion.lock.retries")
+                .description("Promotion transactions retried after a deadlock or lock wait timeout")
+                .register(meterRegistry);
+        this.lockFailures = Counter.builder("employees.promotion.lock.failures")
+                .description("Promotion transactions given up after repeated deadlocks or lock wait timeouts")
+                .register(meterRegistry);
+    }
+
     /**
      * Endpoint #1
-     * Retrieves a list of all Department entities from the database by
-     * executing a named query
+     * Retrieves a list of all Department entities from the preloaded department catalogue
      *
      * @return List of all Department entities.
      */
     public List<Department> findAllDepartments() {
-        // retrieves all departments using the named query
-        TypedQuery<Department> query =
-                em.createNamedQuery("Department.findAllDepartments", Department.class);
-        return query.getResultList();
+        // served from the catalogue, which is loaded with the Department.findAllDepartments named query
+        return departmentCatalogue.findAll();
+    }
+
+    /**
+     * Retrieves the strong ETag of the department list, derived from the department catalogue version.
+     *
+     * @return The quoted entity tag.
+     */
+    public String getDepartmentsETag() {
+        return '"' + versionRegistry.departmentsTag() + '"';
+    }
+
+    /**
+     * Retrieves the strong ETag of an employee's record and summary, derived from a version
+     * that every committed promotion or change of the employee bumps.
+     * Read it before the content it describes.
+     *
+     * @param empNo The primary key Employee entity.
+     * @return The quoted entity tag.
+     */
+    public String getEmployeeETag(int empNo) {
+        return '"' + versionRegistry.employeeTag(empNo) + '"';
     }
 
     /**
@@ -52,9 +256,284 @@ public class EmployeeDAO {
      * @param empNo The primary key Employee entity.
      * @return The Employee entity corresponding to the supplied key, or null if not found.
      */
+    @Transactional(readOnly = true)
     public Employee getEmployeeRecords(int empNo) {
-        // find employee via primary key
-        return em.find(Employee.class, empNo);
+        // find employee via primary key, loading every history collection through the entity graph
+        Employee emp = em.find(Employee.class, empNo,
+                Map.of("jakarta.persistence.fetchgraph", em.getEntityGraph("Employee.fullHistory")));
+
+        // the graph is not applied when the employee is served from the second-level cache,
+        // so make sure every collection is loaded (from the collection cache in that case)
+        if (emp != null) {
+            Hibernate.initialize(emp.getSalaryList());
+            Hibernate.initialize(emp.getTitleList());
+            Hibernate.initialize(emp.getDeptEmpList());
+            Hibernate.initialize(emp.getDeptManagerList());
+        }
+        return emp;
+    }
+
+    /**
+     * Retrieves the complete records of several employees at once.
+     * <p>
+     * Employees and their four history collections are loaded with four IN-list queries,
+     * each join-fetching one collection into the same persistence context, so the number of
+     * queries stays fixed however many employees are requested.
+     *
+     * @param empNos The primary keys of the Employee entities.
+     * @return Map keyed by every requested empNo, in request order, holding the Employee entity
+     * or null if that employee does not exist.
+     */
+    @Transactional(readOnly = true)
+    public Map<Integer, Employee> getEmployeeRecords(Collection<Integer> empNos) {
+        return loadEmployeesWithHistory(empNos);
+    }
+
+    /**
+     * Loads employees and their four history collections into the current persistence context
+     * with four IN-list queries.
+     *
+     * @param empNos The primary keys of the Employee entities.
+     * @return Map keyed by every requested empNo, in request order, holding the managed Employee entity or null.
+     */
+    private Map<Integer, Employee> loadEmployeesWithHistory(Collection<Integer> empNos) {
+        Map<Integer, Employee> records = new LinkedHashMap<>();
+        for (Integer empNo : empNos) {
+            records.put(empNo, null);
+        }
+        if (records.isEmpty()) {
+            return records;
+        }
+
+        for (String queryName : List.of(
+                "Employee.fetchSalaryListByIds",
+                "Employee.fetchTitleListByIds",
+                "Employee.fetchDeptEmpListByIds",
+                "Employee.fetchDeptManagerListByIds")) {
+            List<Employee> loaded = em.createNamedQuery(queryName, Employee.class)
+                    .setParameter("empNos", records.keySet())
+                    .getResultList();
+            for (Employee emp : loaded) {
+                records.put(emp.getEmpNo(), emp);
+            }
+        }
+        return records;
+    }
+
+    /**
+     * Retrieves the current title, salary and department of a specific employee
+     * as a flat projection, without hydrating the Employee entity or its history collections.
+     *
+     * @param empNo The primary key Employee entity.
+     * @return The EmployeeSummaryDTO for the supplied key, or null if not found.
+     */
+    public EmployeeSummaryDTO getEmployeeSummary(int empNo) {
+        // an employee can hold more than one current title, keep the first row
+        List<EmployeeSummaryDTO> rows = em.createNamedQuery(
+                        "Employee.getEmployeeSummary",
+                        EmployeeSummaryDTO.class)
+                .setParameter("empNo", empNo)
+                .setParameter("currentToDate", Helper.CURRENT_TO_DATE)
+                .setMaxResults(1)
+                .getResultList();
+        return rows.isEmpty() ? null : rows.getFirst();
+    }
+
+    /**
+     * Retrieves an employee's name, hire date and the salary, title and department they held on some date,
+     * answered from the in-memory name index, salary history and title/department history index.
+     *
+     * @param empNo The primary key Employee entity.
+     * @param asOf  The date.
+     * @return The EmployeeSummaryDTO as of the date; salary, title and department are null where none applied.
+     * @throws InvalidDataException If the employee does not exist.
+     */
+    public EmployeeSummaryDTO getEmployeeSummaryAsOf(int empNo, LocalDate asOf) throws InvalidDataException {
+        EmployeeRecordDTO person = nameIndex.find(empNo);
+        if (person == null) {
+            throw new InvalidDataException("Requested Employee Record not found", 404);
+        }
+        SalaryPeriodDTO salary = salaryHistoryStore.salaryAsOf(empNo, asOf);
+        String deptNo = historyIndex.deptAsOf(empNo, asOf);
+        Department department = deptNo == null ? null : departmentCatalogue.find(deptNo);
+        return new EmployeeSummaryDTO(empNo, person.getFirstName(), person.getLastName(), person.getHireDate(),
+                historyIndex.titleAsOf(empNo, asOf),
+                salary == null ? null : salary.getSalary(),
+                deptNo,
+                department == null ? null : department.getDeptName());
+    }
+
+    /**
+     * Retrieves the current salary, title, department and manager flag of a specific employee
+     * from the in-memory current-state read model, without a database round trip.
+     *
+     * @param empNo The primary key Employee entity.
+     * @return The EmployeeCurrentStateDTO for the supplied key, or null if not found.
+     */
+    public EmployeeCurrentStateDTO getEmployeeCurrentState(int empNo) {
+        return currentStateStore.find(empNo);
+    }
+
+    /**
+     * Retrieves the current state of several employees from the in-memory current-state read model.
+     *
+     * @param empNos The primary keys of the Employee entities.
+     * @return Map keyed by every requested empNo, in request order, holding the EmployeeCurrentStateDTO
+     * or null if that employee does not exist.
+     */
+    public Map<Integer, EmployeeCurrentStateDTO> getEmployeeCurrentStates(List<Integer> empNos) {
+        return currentStateStore.findAll(empNos);
+    }
+
+    /**
+     * Retrieves the headcount, payroll and average/min/max current salary of a department,
+     * maintained in memory by the current-state read model.
+     *
+     * @param deptNo The department number (e.g., 'd005').
+     * @return The department's DepartmentStatsDTO.
+     * @throws InvalidDataException If the supplied deptNo does not correspond to an existing Department.
+     */
+    public DepartmentStatsDTO getDepartmentStats(String deptNo) throws InvalidDataException {
+        return currentStateStore.getDepartmentStats(getDepartment(deptNo).getDeptNo());
+    }
+
+    /**
+     * Retrieves the stats of every department, in catalogue order.
+     *
+     * @return List of DepartmentStatsDTO, one per department.
+     */
+    public List<DepartmentStatsDTO> getAllDepartmentStats() {
+        List<DepartmentStatsDTO> stats = new ArrayList<>();
+        for (Department department : departmentCatalogue.findAll()) {
+            stats.add(currentStateStore.getDepartmentStats(department.getDeptNo()));
+        }
+        return stats;
+    }
+
+    /**
+     * Retrieves the estimated salary percentiles and histogram of a department's current employees,
+     * maintained in memory by the salary percentile sketches.
+     *
+     * @param deptNo  The department number (e.g., 'd005').
+     * @param buckets Number of histogram buckets, or null for the configured default.
+     * @return The department's SalaryPercentilesDTO.
+     * @throws InvalidDataException If the supplied deptNo does not correspond to an existing Department.
+     */
+    public SalaryPercentilesDTO getDepartmentSalaryPercentiles(String deptNo, Integer buckets)
+            throws InvalidDataException {
+        return salaryPercentileStore.getDepartmentPercentiles(getDepartment(deptNo).getDeptNo(), buckets);
+    }
+
+    /**
+     * Retrieves the estimated salary percentiles and histogram of the current holders of a title,
+     * maintained in memory by the salary percentile sketches.
+     *
+     * @param title   The job title (e.g., 'Senior Engineer').
+     * @param buckets Number of histogram buckets, or null for the configured default.
+     * @return The title's SalaryPercentilesDTO.
+     * @throws InvalidDataException If the title is blank or no current employee has held it.
+     */
+    public SalaryPercentilesDTO getTitleSalaryPercentiles(String title, Integer buckets) throws InvalidDataException {
+        if (title == null || title.isBlank()) {
+            throw new InvalidDataException("Please provide a title.", 400);
+        }
+        SalaryPercentilesDTO percentiles = salaryPercentileStore.getTitlePercentiles(title, buckets);
+        if (percentiles == null) {
+            throw new InvalidDataException("No current employee holds the title " + title + ".", 404);
+        }
+        return percentiles;
+    }
+
+    /**
+     * Retrieves the estimated salary percentiles and histograms of every department, in catalogue order,
+     * or of every title, in title order.
+     *
+     * @param groupBy 'department' or 'title'.
+     * @param buckets Number of histogram buckets, or null for the configured default.
+     * @return List of SalaryPercentilesDTO, one per department or title.
+     * @throws InvalidDataException If groupBy is neither 'department' nor 'title'.
+     */
+    public List<SalaryPercentilesDTO> getAllSalaryPercentiles(String groupBy, Integer buckets)
+            throws InvalidDataException {
+        if (SalaryPercentileStore.BY_TITLE.equalsIgnoreCase(groupBy)) {
+            return salaryPercentileStore.getAllTitlePercentiles(buckets);
+        }
+        if (!SalaryPercentileStore.BY_DEPARTMENT.equalsIgnoreCase(groupBy)) {
+            throw new InvalidDataException("Group by must be 'department' or 'title'.", 400);
+        }
+        List<SalaryPercentilesDTO> percentiles = new ArrayList<>();
+        for (Department department : departmentCatalogue.findAll()) {
+            percentiles.add(salaryPercentileStore.getDepartmentPercentiles(department.getDeptNo(), buckets));
+        }
+        return percentiles;
+    }
+
+    /**
+     * Searches employees by first and last name in the in-memory name index.
+     *
+     * @param name  One or more words, each matched against the employee's first and last name.
+     * @param mode  'prefix' to match words at the start of a name, 'substring' to match them anywhere.
+     * @param limit Maximum number of employees returned.
+     * @return List of matching EmployeeRecordDTO, best match first.
+     * @throws InvalidDataException If the name is blank or the mode is unknown.
+     */
+    public List<EmployeeRecordDTO> searchEmployees(String name, String mode, int limit) throws InvalidDataException {
+        if (name == null || name.isBlank()) {
+            throw new InvalidDataException("Please provide a name to search for.", 400);
+        }
+        if (!"prefix".equalsIgnoreCase(mode) && !"substring".equalsIgnoreCase(mode)) {
+            throw new InvalidDataException("Search mode must be 'prefix' or 'substring'.", 400);
+        }
+        return nameIndex.search(name, "substring".equalsIgnoreCase(mode), limit);
+    }
+
+    /**
+     * Retrieves an employee's complete salary history from the in-memory columnar salary history.
+     *
+     * @param empNo The primary key Employee entity.
+     * @return List of SalaryPeriodDTO in fromDate order.
+     * @throws InvalidDataException If the employee has no salary history.
+     */
+    public List<SalaryPeriodDTO> getSalaryHistory(int empNo) throws InvalidDataException {
+        List<SalaryPeriodDTO> history = salaryHistoryStore.history(empNo);
+        if (history == null) {
+            throw new InvalidDataException("Requested Employee Record not found", 404);
+        }
+        return history;
+    }
+
+    /**
+     * Retrieves the salary an employee earned on some date from the in-memory columnar salary history.
+     *
+     * @param empNo The primary key Employee entity.
+     * @param asOf  The date.
+     * @return The SalaryPeriodDTO covering the date.
+     * @throws InvalidDataException If the employee earned no salary on that date.
+     */
+    public SalaryPeriodDTO getSalaryAsOf(int empNo, LocalDate asOf) throws InvalidDataException {
+        SalaryPeriodDTO period = salaryHistoryStore.salaryAsOf(empNo, asOf);
+        if (period == null) {
+            throw new InvalidDataException("No salary found for employee " + empNo + " on " + asOf, 404);
+        }
+        return period;
+    }
+
+    /**
+     * Scans the salary every employee earned on some date, in memory, and counts and sums those within a range.
+     *
+     * @param asOf      The date.
+     * @param minSalary Lowest salary included.
+     * @param maxSalary Highest salary included.
+     * @param limit     Maximum number of matching salary periods returned.
+     * @return The SalaryScanResultDTO.
+     * @throws InvalidDataException If the salary range is empty.
+     */
+    public SalaryScanResultDTO scanSalaries(LocalDate asOf, int minSalary, int maxSalary, int limit)
+            throws InvalidDataException {
+        if (minSalary > maxSalary) {
+            throw new InvalidDataException("Minimum salary must not exceed maximum salary.", 400);
+        }
+        return salaryHistoryStore.scan(asOf, minSalary, maxSalary, limit);
     }
 
     /**
@@ -71,39 +550,409 @@ public class EmployeeDAO {
             throws InvalidDataException {
 
         // CHECK: if dept supplied, does it belong in the department list?
-        if (em.find(Department.class, deptNo) == null) {
-            throw new InvalidDataException("Department " + deptNo + " does not exist.", 404);
-        }
+        Department department = getDepartment(deptNo);
 
         // execute named query to retrieve List of EmployeeDTO records
         // we supply deptNo as a key, convert the page to 0-index, cap the results to 20
         return em.createNamedQuery(
                         "Employee.getDepartmentEmployeeRecords",
                         EmployeeRecordDTO.class)
-                .setParameter("deptNo", deptNo)
+                .setParameter("deptNo", department.getDeptNo())
+                .setHint("org.hibernate.cacheable", true)
+                .setHint("org.hibernate.cacheRegion",
+                        secondLevelCacheManager.departmentQueryRegion(department.getDeptNo()))
                 .setFirstResult((page - 1) * 20)
                 .setMaxResults(20)
                 .getResultList();
     }
 
+    /**
+     * Endpoint #3 (cursor mode)
+     * Retrieves the next slice of employee records for a specific department using
+     * keyset pagination: rows are located by seeking past the last seen employee number
+     * instead of skipping over an OFFSET, so deep slices cost the same as the first one.
+     *
+     * @param deptNo     The department number (e.g., 'd005') used to filter the employees.
+     * @param afterEmpNo The last employee number already seen by the client (0 to start from the beginning).
+     * @param limit      Maximum number of records to return.
+     * @return A page holding up to limit records and the cursor of the following slice.
+     * @throws InvalidDataException If the supplied deptNo does not correspond to an existing Department.
+     */
+    public EmployeeRecordPage getEmployeeRecordsAfter(String deptNo, int afterEmpNo, int limit)
+            throws InvalidDataException {
+
+        // CHECK: if dept supplied, does it belong in the department list?
+        Department department = getDepartment(deptNo);
+
+        // fetch one extra row so we know whether another slice follows
+        List<EmployeeRecordDTO> records = em.createNamedQuery(
+                        "Employee.getDepartmentEmployeeRecordsAfter",
+                        EmployeeRecordDTO.class)
+                .setParameter("deptNo", department.getDeptNo())
+                .setParameter("afterEmpNo", afterEmpNo)
+                .setHint("org.hibernate.cacheable", true)
+                .setHint("org.hibernate.cacheRegion",
+                        secondLevelCacheManager.departmentQueryRegion(department.getDeptNo()))
+                .setMaxResults(limit + 1)
+                .getResultList();
+
+        String nextCursor = null;
+        if (records.size() > limit) {
+            records = records.subList(0, limit);
+            nextCursor = Helper.encodeCursor(records.getLast().getEmpNo());
+        }
+        return new EmployeeRecordPage(records, nextCursor);
+    }
+
+    /**
+     * Endpoint #3 (membership mode)
+     * Retrieves the next slice of the employee records of everyone who worked in, joined or left a department
+     * over a range of dates, from the interval index over the in-memory department history, using the same
+     * cursor as keyset mode.
+     *
+     * @param deptNo     The department number (e.g., 'd005') used to filter the employees.
+     * @param mode       'during' for everyone in the department on any day of the range, 'joined' for everyone
+     *                   whose assignment started in it, 'left' for everyone whose assignment ended in it.
+     * @param start      First date of the range.
+     * @param end        Last date of the range, inclusive.
+     * @param afterEmpNo The last employee number already seen by the client (0 to start from the beginning).
+     * @param limit      Maximum number of records to return.
+     * @return A page holding up to limit records and the cursor of the following slice.
+     * @throws InvalidDataException If the supplied deptNo does not correspond to an existing Department,
+     *                              the mode is unknown or the range is empty.
+     */
+    public EmployeeRecordPage getEmployeeRecordsByMembership(String deptNo, String mode, LocalDate start,
+                                                             LocalDate end, int afterEmpNo, int limit)
+            throws InvalidDataException {
+
+        // CHECK: if dept supplied, does it belong in the department list?
+        Department department = getDepartment(deptNo);
+
+        EmployeeHistoryIndex.Membership membership = switch (mode.toLowerCase(Locale.ROOT)) {
+            case "during" -> EmployeeHistoryIndex.Membership.DURING;
+            case "joined" -> EmployeeHistoryIndex.Membership.JOINED;
+            case "left" -> EmployeeHistoryIndex.Membership.LEFT;
+            default -> throw new InvalidDataException("Mode must be 'during', 'joined' or 'left'.", 400);
+        };
+        if (start.isAfter(end)) {
+            throw new InvalidDataException("Start date must not be after end date.", 400);
+        }
+
+        int[] members = historyIndex.departmentEmployees(department.getDeptNo(), membership, start, end);
+        // seek past the cursor in the sorted employee numbers
+        int i = Arrays.binarySearch(members, afterEmpNo);
+        i = i >= 0 ? i + 1 : -i - 1;
+
+        List<EmployeeRecordDTO> records = new ArrayList<>();
+        for (; i < members.length && records.size() < limit; i++) {
+            EmployeeRecordDTO record = nameIndex.find(members[i]);
+            if (record != null) {
+                records.add(record);
+            }
+        }
+        String nextCursor = i < members.length && !records.isEmpty()
+                ? Helper.encodeCursor(records.getLast().getEmpNo())
+                : null;
+        return new EmployeeRecordPage(records, nextCursor);
+    }
+
+    /**
+     * Retrieves a department from the catalogue, failing if it does not exist.
+     *
+     * @param deptNo The department number (e.g., 'd005').
+     * @return The matching Department entity.
+     * @throws InvalidDataException If the supplied deptNo does not correspond to an existing Department.
+     */
+    public Department getDepartment(String deptNo) throws InvalidDataException {
+        Department department = departmentCatalogue.find(deptNo);
+        if (department == null) {
+            throw new InvalidDataException("Department " + deptNo + " does not exist.", 404);
+        }
+        return department;
+    }
+
+    /**
+     * Streams every employee record of a department to the supplied consumer.
+     * <p>
+     * Rows are read through a forward-only scroll with a tuned fetch size, so the driver streams
+     * them from the server and memory stays constant regardless of department size.
+     * DTO projections are not managed entities, so the persistence context does not grow either.
+     *
+     * @param deptNo      The department number, as stored (see getDepartment).
+     * @param currentOnly true to only include employees currently assigned to the department.
+     * @param consumer    Receives each record in employee number order.
+     */
+    @Transactional(readOnly = true)
+    public void streamEmployeeRecords(String deptNo, boolean currentOnly, Consumer<EmployeeRecordDTO> consumer) {
+        Session session = em.unwrap(Session.class);
+        Query<EmployeeRecordDTO> query;
+        if (currentOnly) {
+            query = session.createNamedQuery("Employee.getCurrentDepartmentEmployeeRecords", EmployeeRecordDTO.class)
+                    .setParameter("currentToDate", Helper.CURRENT_TO_DATE);
+        } else {
+            query = session.createNamedQuery("Employee.getDepartmentEmployeeRecords", EmployeeRecordDTO.class);
+        }
+
+        try (ScrollableResults<EmployeeRecordDTO> rows = query
+                .setParameter("deptNo", deptNo)
+                .setReadOnly(true)
+                .setFetchSize(exportFetchSize)
+                .scroll(ScrollMode.FORWARD_ONLY)) {
+            while (rows.next()) {
+                consumer.accept(rows.get());
+            }
+        }
+    }
+
     /**
      * Promotes an employee by updating their salary/department/title in a single transaction.
      * <p>
      * This method closes existing records by setting toDate = promotionDate (or today if not specified)
      * and inserts new records with fromDate = promotionDate and toDate = '9999-01-01'
+     * <p>
+     * The employee's row is locked before its history is read, so concurrent promotions of the same
+     * employee run one after the other and each validates against the history the previous one committed.
      *
      * @param request EmployeePromotionRequest payload
-     * @throws InvalidDataException when validation fails
+     * @throws InvalidDataException when validation fails, or with status 409 if the employee's row stayed
+     *                              locked by other promotions through every attempt
      */
-    @Transactional
     public void promoteEmployee(EmployeePromotionRequest request)
             throws InvalidDataException {
 
-        // CHECK: Employee must exist
-        Employee emp = em.find(Employee.class, request.getEmpNo());
-        if (emp == null) {
-            throw new InvalidDataException("Employee does not exist", 404);
+        InvalidDataException[] rejection = new InvalidDataException[1];
+        try {
+            executeWithLockRetry(status -> {
+                try {
+                    lockForPromotion(List.of(request.getEmpNo()));
+
+                    // CHECK: Employee must exist
+                    Employee emp = em.find(Employee.class, request.getEmpNo());
+                    if (emp == null) {
+                        throw new InvalidDataException("Employee does not exist", 404);
+                    }
+
+                    applyPromotion(emp, request);
+                } catch (InvalidDataException e) {
+                    rejection[0] = e;
+                    status.setRollbackOnly();
+                }
+            });
+        } catch (RuntimeException e) {
+            if (isLockConflict(e)) {
+                throw new InvalidDataException("Employee is being promoted by another request, please retry", 409);
+            }
+            throw e;
+        }
+        if (rejection[0] != null) {
+            throw rejection[0];
         }
+    }
+
+    /**
+     * Promotes many employees in one call.
+     * <p>
+     * Requests are processed in chunks of employees.promotion.chunk-size, one transaction per chunk.
+     * Each chunk preloads all of its employees and their histories with a fixed number of IN-list
+     * queries, applies the same rules as promoteEmployee to every request, and writes the closing
+     * updates and new rows through JDBC batching. A request failing validation is reported and
+     * skipped without affecting the rest of its chunk; if a chunk fails to commit, its requests are
+     * retried one transaction each so only the offending request is reported as failed. Only the
+     * rejections of the request checks alone are kept then: any other outcome was decided against
+     * the histories as the chunk's rolled back promotions had left them.
+     * Each chunk locks its employees' rows before reading their histories, as promoteEmployee does.
+     *
+     * @param requests EmployeePromotionRequest payloads, processed in order
+     * @return one PromotionResult per request, in request order
+     */
+    public List<PromotionResult> promoteEmployees(List<EmployeePromotionRequest> requests) {
+        PromotionResult[] results = new PromotionResult[requests.size()];
+
+        for (int start = 0; start < requests.size(); start += promotionChunkSize) {
+            int end = Math.min(start + promotionChunkSize, requests.size());
+            List<Integer> chunk = new ArrayList<>();
+            for (int i = start; i < end; i++) {
+                chunk.add(i);
+            }
+
+            try {
+                executeWithLockRetry(status -> promoteChunk(requests, chunk, results));
+            } catch (RuntimeException e) {
+                // the chunk rolled back, isolate the offending request(s) by retrying one at a time
+                for (int i : chunk) {
+                    if (results[i] != null && !results[i].isSuccess()) {
+                        try {
+                            Helper.validatePromotionRequest(requests.get(i));
+                        } catch (InvalidDataException invalid) {
+                            // rejected by the request alone, which the rollback does not change
+                            continue;
+                        }
+                    }
+                    try {
+                        executeWithLockRetry(status -> promoteChunk(requests, List.of(i), results));
+                    } catch (RuntimeException single) {
+                        results[i] = isLockConflict(single)
+                                ? PromotionResult.failure(i, requests.get(i).getEmpNo(), 409,
+                                "Promotion failed: Employee is being promoted by another request, please retry")
+                                : PromotionResult.failure(i, requests.get(i).getEmpNo(), 500,
+                                "Unexpected error: " + single.getMessage());
+                    }
+                }
+            }
+        }
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Applies a set of promotion requests inside the current transaction.
+     * Employees are preloaded with their histories first, then each request is validated and applied.
+     *
+     * @param requests all promotion requests of the bulk call
+     * @param indexes  positions of the requests to process in this transaction
+     * @param results  result slots, filled in for every processed position
+     */
+    private void promoteChunk(List<EmployeePromotionRequest> requests, List<Integer> indexes,
+                              PromotionResult[] results) {
+        List<Integer> empNos = new ArrayList<>();
+        for (int i : indexes) {
+            EmployeePromotionRequest request = requests.get(i);
+            try {
+                Helper.validatePromotionRequest(request);
+                empNos.add(request.getEmpNo());
+                results[i] = null;
+            } catch (InvalidDataException e) {
+                results[i] = PromotionResult.failure(i, request.getEmpNo(), e.getStatusCode(),
+                        "Promotion failed: " + e.getMessage());
+            }
+        }
+
+        if (!empNos.isEmpty()) {
+            lockForPromotion(empNos);
+        }
+        Map<Integer, Employee> employees = loadEmployeesWithHistory(empNos);
+
+        for (int i : indexes) {
+            if (results[i] != null) {
+                continue;
+            }
+            EmployeePromotionRequest request = requests.get(i);
+            Employee emp = employees.get(request.getEmpNo());
+            try {
+                if (emp == null) {
+                    throw new InvalidDataException("Employee does not exist", 404);
+                }
+                applyPromotion(emp, request);
+                results[i] = PromotionResult.success(i, request.getEmpNo());
+            } catch (InvalidDataException e) {
+                // validation happens before any write, so the rest of the chunk is unaffected
+                results[i] = PromotionResult.failure(i, request.getEmpNo(), e.getStatusCode(),
+                        "Promotion failed: " + e.getMessage());
+            }
+        }
+
+        // surface constraint violations here, while the chunk can still be retried item by item
+        em.flush();
+    }
+
+    /**
+     * Locks the rows of the employees about to be promoted, in empNo order, until the transaction ends.
+     * <p>
+     * The rest of the transaction then reads from the database instead of the second-level cache: a
+     * promotion that committed just before the lock was granted may not have been evicted from it yet.
+     *
+     * @param empNos employee numbers to lock
+     */
+    private void lockForPromotion(Collection<Integer> empNos) {
+        em.unwrap(Session.class).setCacheMode(CacheMode.REFRESH);
+
+        long start = System.nanoTime();
+        try {
+            em.createNamedQuery("Employee.lockByIds", Employee.class)
+                    .setParameter("empNos", empNos)
+                    .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                    .setHint("jakarta.persistence.lock.timeout", lockTimeoutMs)
+                    .getResultList();
+        } finally {
+            lockWait.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Runs work in a new transaction, running it again in a fresh one if it loses a lock conflict:
+     * a deadlock, or a lock wait timeout.
+     *
+     * @param work the transaction's work, may run more than once
+     * @throws RuntimeException the last failure, once lockMaxAttempts attempts have lost a lock conflict
+     *                          or on any other failure
+     */
+    private void executeWithLockRetry(Consumer<TransactionStatus> work) {
+        for (int attempt = 1; ; attempt++) {
+            // the work's own failure decides: the pool may close a connection that timed out, and the
+            // failed rollback then replaces the lock conflict as the exception the template throws
+            RuntimeException[] conflict = new RuntimeException[1];
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    try {
+                        work.accept(status);
+                    } catch (RuntimeException e) {
+                        if (isLockConflict(e)) {
+                            conflict[0] = e;
+                        }
+                        throw e;
+                    }
+                });
+                return;
+            } catch (RuntimeException e) {
+                RuntimeException failure = conflict[0] != null ? conflict[0] : e;
+                if (!isLockConflict(failure)) {
+                    throw e;
+                }
+                if (attempt >= lockMaxAttempts) {
+                    lockFailures.increment();
+                    throw failure;
+                }
+                lockRetries.increment();
+                try {
+                    // back off a little longer every time, with jitter so the losers do not collide again
+                    Thread.sleep(attempt * 10L + ThreadLocalRandom.current().nextInt(10));
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    throw failure;
+                }
+            }
+        }
+    }
+
+    /**
+     * returns true if the failure, or one of its causes, is a deadlock or lock wait timeout
+     */
+    private static boolean isLockConflict(Throwable failure) {
+        for (Throwable t = failure; t != null; t = t.getCause() == t ? null : t.getCause()) {
+            if (t instanceof PessimisticLockingFailureException
+                    || t instanceof jakarta.persistence.PessimisticLockException
+                    || t instanceof LockTimeoutException
+                    || t instanceof PessimisticLockException
+                    || t instanceof LockAcquisitionException
+                    || t instanceof SQLTransactionRollbackException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Validates a promotion request against an employee's history and writes the resulting changes.
+     * <p>
+     * Every check runs before the first write, so an InvalidDataException leaves the persistence
+     * context untouched. New rows are also added to the employee's collections, keeping them
+     * consistent for any later promotion of the same employee within the transaction.
+     *
+     * @param emp     managed Employee entity to promote
+     * @param request EmployeePromotionRequest payload
+     * @throws InvalidDataException when validation fails
+     */
+    private void applyPromotion(Employee emp, EmployeePromotionRequest request)
+            throws InvalidDataException {
 
         // Business validation (Service layer) - check if promotion date makes sense for business rules
         LocalDate latestSalaryDate = emp.getSalaryList().stream()
@@ -119,6 +968,8 @@ public class EmployeeDAO {
 
         DeptManager currentDeptManager =
                 emp.getDeptManagerList().isEmpty() ? null : emp.getDeptManagerList().getLast();
+        boolean managerBefore = currentDeptManager != null
+                && currentDeptManager.getToDate().equals(LocalDate.of(9999, 1, 1));
 
         // CHECK: Employee must be current
         if (!currentSalary.getToDate().equals(LocalDate.of(9999, 1, 1))) {
@@ -135,7 +986,7 @@ public class EmployeeDAO {
         }
 
         // CHECK: Department exists
-        if (deptChanged && em.find(Department.class, request.getNewDeptNo()) == null) {
+        if (deptChanged && !departmentCatalogue.exists(request.getNewDeptNo())) {
             throw new InvalidDataException(
                     "Department " + request.getNewDeptNo() + " does not exist.", 404);
         }
@@ -159,17 +1010,21 @@ public class EmployeeDAO {
                     "Employee has already been promoted on " + effectiveDate + " and cannot be promoted again on the same date", 400);
         }
 
-        /* ---------- Salary Update ---------- */
-        if (salaryChanged) {
-            currentSalary.setToDate(effectiveDate);
-            em.merge(currentSalary);
+        // every current row of a changed history is closed, not only the latest: imports may have left several
+        List<Salary> currentSalaries = salaryChanged ? currentRows(emp.getSalaryList(), Salary::getToDate) : List.of();
+        List<DeptEmp> currentDeptEmps = deptChanged ? currentRows(emp.getDeptEmpList(), DeptEmp::getToDate) : List.of();
+        List<Title> currentTitles = titleChanged ? currentRows(emp.getTitleList(), Title::getToDate) : List.of();
 
-            Salary newSalary = new Salary(
-                    emp, effectiveDate, LocalDate.of(9999, 1, 1), request.getNewSalary());
-            em.persist(newSalary);
+        // CHECK: the rows closed must have started before the promotion
+        boolean startsLater = currentSalaries.stream().anyMatch(r -> r.getFromDate().isAfter(effectiveDate))
+                || currentDeptEmps.stream().anyMatch(r -> r.getFromDate().isAfter(effectiveDate))
+                || currentTitles.stream().anyMatch(r -> r.getFromDate().isAfter(effectiveDate));
+        if (startsLater) {
+            throw new InvalidDataException(
+                    "Promotion date cannot be earlier than the start of the employee's current salary, title or department", 400);
         }
 
-        /* ---------- Department Update ---------- */
+        // CHECK: Employee cannot return to a department they worked in before
         if (deptChanged) {
             for (DeptEmp d : emp.getDeptEmpList()) {
                 if (d.getDeptNo().equalsIgnoreCase(request.getNewDeptNo())) {
@@ -177,31 +1032,59 @@ public class EmployeeDAO {
                             "Employee cannot return to their previous department", 400);
                 }
             }
+        }
+
+        /* ---------- Salary Update ---------- */
+        if (salaryChanged) {
+            for (Salary s : currentSalaries) {
+                s.setToDate(effectiveDate);
+                em.merge(s);
+            }
 
-            currentDeptEmp.setToDate(effectiveDate);
-            em.merge(currentDeptEmp);
+            Salary newSalary = new Salary(
+                    emp, effectiveDate, LocalDate.of(9999, 1, 1), request.getNewSalary());
+            em.persist(newSalary);
+            emp.getSalaryList().add(newSalary);
+        }
+
+        /* ---------- Department Update ---------- */
+        if (deptChanged) {
+            for (DeptEmp d : currentDeptEmps) {
+                d.setToDate(effectiveDate);
+                em.merge(d);
+            }
 
             DeptEmp newDeptEmp = new DeptEmp(
                     emp, request.getNewDeptNo().toLowerCase(), effectiveDate, LocalDate.of(9999, 1, 1));
             em.persist(newDeptEmp);
+            emp.getDeptEmpList().add(newDeptEmp);
         }
 
         /* ---------- Title Update ---------- */
+        String resultTitle = currentTitle.getTitle();
+        boolean managerAfter = managerBefore;
         if (titleChanged) {
-            String inputTitle = Helper.toTitleCase(request.getNewTitle());
+            String inputTitle = Helper.toTitleCaseFast(request.getNewTitle());
+            resultTitle = inputTitle;
 
-            currentTitle.setToDate(effectiveDate);
-            em.merge(currentTitle);
+            for (Title t : currentTitles) {
+                t.setToDate(effectiveDate);
+                em.merge(t);
+            }
 
             Title newTitle = new Title(
                     emp, inputTitle, effectiveDate, LocalDate.of(9999, 1, 1));
             em.persist(newTitle);
+            emp.getTitleList().add(newTitle);
 
             // Manager -> Non-manager
             if ("Manager".equals(currentTitle.getTitle()) && !"Manager".equals(inputTitle)) {
                 if (currentDeptManager != null) {
-                    currentDeptManager.setToDate(effectiveDate);
-                    em.merge(currentDeptManager);
+                    for (DeptManager m : currentRows(emp.getDeptManagerList(), DeptManager::getToDate)) {
+                        m.setToDate(effectiveDate);
+                        em.merge(m);
+                    }
+                    managerAfter = false;
                 }
             }
 
@@ -210,8 +1093,24 @@ public class EmployeeDAO {
                 DeptManager newManager = new DeptManager(
                         emp, request.getNewDeptNo().toLowerCase(), effectiveDate, LocalDate.of(9999, 1, 1));
                 em.persist(newManager);
+                emp.getDeptManagerList().add(newManager);
+                managerAfter = true;
             }
         }
+
+        // let caches and read models know what changed, listeners act once the transaction commits
+        eventPublisher.publishEvent(new EmployeePromotedEvent(
+                emp.getEmpNo(), effectiveDate,
+                currentSalary.getSalary(), request.getNewSalary(),
+                currentTitle.getTitle(), resultTitle,
+                currentDeptEmp.getDeptNo(), deptChanged ? request.getNewDeptNo().toLowerCase() : currentDeptEmp.getDeptNo(),
+                managerBefore, managerAfter));
     }
 
-}
\ No newline at end of file
+    /**
+     * returns the rows of a history still current, ending 9999-01-01
+     */
+    private static <T> List<T> currentRows(List<T> history, Function<T, LocalDate> toDate) {
+        return history.stream().filter(r -> toDate.apply(r).equals(Helper.CURRENT_TO_DATE)).toList();
+    }
+}
@@ -0,0 +1,178 @@
+package org.DigiCorp.dto;
+
+/**
+ * Department Stats DTO (Data Transfer Object) holding the headcount and salary aggregates
+ * of a department's current employees.
+ */
+public class DepartmentStatsDTO {
+    /**
+     * The department number.
+     */
+    private String deptNo;
+    /**
+     * Number of employees currently in the department.
+     */
+    private int headcount;
+    /**
+     * Sum of the current annual salaries of the department's employees.
+     */
+    private long payroll;
+    /**
+     * Average current annual salary, or null if the department has no employees.
+     */
+    private Double averageSalary;
+    /**
+     * Lowest current annual salary, or null if the department has no employees.
+     */
+    private Integer minSalary;
+    /**
+     * Highest current annual salary, or null if the department has no employees.
+     */
+    private Integer maxSalary;
+
+    // constructors
+
+    /**
+     * Default public constructor
+     */
+    public DepartmentStatsDTO() {
+    }
+
+    /**
+     * Parameterized constructor to initialize a department stats instance
+     *
+     * @param deptNo    department number
+     * @param headcount number of employees currently in the department
+     * @param payroll   sum of the current annual salaries
+     * @param minSalary lowest current annual salary, or null if the department has no employees
+     * @param maxSalary highest current annual salary, or null if the department has no employees
+     */
+    public DepartmentStatsDTO(String deptNo, int headcount, long payroll, Integer minSalary, Integer maxSalary) {
+        this.deptNo = deptNo;
+        this.headcount = headcount;
+        this.payroll = payroll;
+        this.averageSalary = headcount == 0 ? null : (double) payroll / headcount;
+        this.minSalary = minSalary;
+        this.maxSalary = maxSalary;
+    }
+
+    /**
+     * Creates the stats of a department without current employees.
+     *
+     * @param deptNo department number
+     * @return DepartmentStatsDTO with zero headcount and payroll
+     */
+    public static DepartmentStatsDTO empty(String deptNo) {
+        return new DepartmentStatsDTO(deptNo, 0, 0, null, null);
+    }
+
+    // getters/setters
+
+    /**
+     * Retrieves the department number.
+     *
+     * @return The department number.
+     */
+    public String getDeptNo() {
+        return deptNo;
+    }
+
+    /**
+     * Sets the department number.
+     *
+     * @param deptNo The department number.
+     */
+    public void setDeptNo(String deptNo) {
+        this.deptNo = deptNo;
+    }
+
+    /**
+     * Retrieves the number of employees currently in the department.
+     *
+     * @return The headcount.
+     */
+    public int getHeadcount() {
+        return headcount;
+    }
+
+    /**
+     * Sets the number of employees currently in the department.
+     *
+     * @param headcount The headcount.
+     */
+    public void setHeadcount(int headcount) {
+        this.headcount = headcount;
+    }
+
+    /**
+     * Retrieves the sum of the current annual salaries.
+     *
+     * @return The payroll.
+     */
+    public long getPayroll() {
+        return payroll;
+    }
+
+    /**
+     * Sets the sum of the current annual salaries.
+     *
+     * @param payroll The payroll.
+     */
+    public void setPayroll(long payroll) {
+        this.payroll = payroll;
+    }
+
+    /**
+     * Retrieves the average current annual salary.
+     *
+     * @return The average salary, or null if the department has no employees.
+     */
+    public Double getAverageSalary() {
+        return averageSalary;
+    }
+
+    /**
+     * Sets the average current annual salary.
+     *
+     * @param averageSalary The average salary.
+     */
+    public void setAverageSalary(Double averageSalary) {
+        this.averageSalary = averageSalary;
+    }
+
+    /**
+     * Retrieves the lowest current annual salary.
+     *
+     * @return The minimum salary, or null if the department has no employees.
+     */
+    public Integer getMinSalary() {
+        return minSalary;
+    }
+
+    /**
+     * Sets the lowest current annual salary.
+     *
+     * @param minSalary The minimum salary.
+     */
+    public void setMinSalary(Integer minSalary) {
+        this.minSalary = minSalary;
+    }
+
+    /**
+     * Retrieves the highest current annual salary.
+     *
+     * @return The maximum salary, or null if the department has no employees.
+     */
+    public Integer getMaxSalary() {
+        return maxSalary;
+    }
+
+    /**
+     * Sets the highest current annual salary.
+     *
+     * @param maxSalary The maximum salary.
+     */
+    public void setMaxSalary(Integer maxSalary) {
+        this.maxSalary = maxSalary;
+    }
+}
@@ -0,0 +1,170 @@
+package org.DigiCorp.dto;
+
+/**
+ * Employee Current State DTO (Data Transfer Object) holding an employee's current salary, title,
+ * department and manager flag, as kept by the in-memory current-state read model.
+ */
+public class EmployeeCurrentStateDTO {
+    /**
+     * The employee's employee number.
+     */
+    private int empNo;
+    /**
+     * true if the employee still works for the company (holds a current salary).
+     */
+    private boolean current;
+    /**
+     * The employee's current annual salary, or null if the employee has left.
+     */
+    private Integer salary;
+    /**
+     * The employee's current job title, or null if the employee holds none.
+     */
+    private String title;
+    /**
+     * The department number of the employee's current department, or null if none.
+     */
+    private String deptNo;
+    /**
+     * true if the employee currently manages a department.
+     */
+    private boolean manager;
+
+    // constructors
+
+    /**
+     * Default public constructor
+     */
+    public EmployeeCurrentStateDTO() {
+    }
+
+    /**
+     * Parameterized constructor to initialize a current state instance
+     *
+     * @param empNo   employee's unique ID number
+     * @param current true if the employee still works for the company
+     * @param salary  employee's current annual salary
+     * @param title   employee's current job title
+     * @param deptNo  employee's current department number
+     * @param manager true if the employee currently manages a department
+     */
+    public EmployeeCurrentStateDTO(int empNo, boolean current, Integer salary, String title,
+                                   String deptNo, boolean manager) {
+        this.empNo = empNo;
+        this.current = current;
+        this.salary = salary;
+        this.title = title;
+        this.deptNo = deptNo;
+        this.manager = manager;
+    }
+
+    // getters/setters
+
+    /**
+     * Retrieves the employee's unique ID number.
+     *
+     * @return The employee number as an integer.
+     */
+    public int getEmpNo() {
+        return empNo;
+    }
+
+    /**
+     * Sets the employee's unique ID number.
+     *
+     * @param empNo The new employee number.
+     */
+    public void setEmpNo(int empNo) {
+        this.empNo = empNo;
+    }
+
+    /**
+     * Retrieves whether the employee still works for the company.
+     *
+     * @return true if the employee holds a current salary.
+     */
+    public boolean isCurrent() {
+        return current;
+    }
+
+    /**
+     * Sets whether the employee still works for the company.
+     *
+     * @param current true if the employee holds a current salary.
+     */
+    public void setCurrent(boolean current) {
+        this.current = current;
+    }
+
+    /**
+     * Retrieves the employee's current annual salary.
+     *
+     * @return The current salary, or null if the employee has left.
+     */
+    public Integer getSalary() {
+        return salary;
+    }
+
+    /**
+     * Sets the employee's current annual salary.
+     *
+     * @param salary The new current salary.
+     */
+    public void setSalary(Integer salary) {
+        this.salary = salary;
+    }
+
+    /**
+     * Retrieves the employee's current job title.
+     *
+     * @return The current title, or null if none.
+     */
+    public String getTitle() {
+        return title;
+    }
+
+    /**
+     * Sets the employee's current job title.
+     *
+     * @param title The new current title.
+     */
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    /**
+     * Retrieves the employee's current department number.
+     *
+     * @return The current department number, or null if none.
+     */
+    public String getDeptNo() {
+        return deptNo;
+    }
+
+    /**
+     * Sets the employee's current department number.
+     *
+     * @param deptNo The new current department number.
+     */
+    public void setDeptNo(String deptNo) {
+        this.deptNo = deptNo;
+    }
+
+    /**
+     * Retrieves whether the employee currently manages a department.
+     *
+     * @return true if the employee is a current department manager.
+     */
+    public boolean isManager() {
+        return manager;
+    }
+
+    /**
+     * Sets whether the employee currently manages a department.
+     *
+     * @param manager true if the employee is a current department manager.
+     */
+    public void setManager(boolean manager) {
+        this.manager = manager;
+    }
+}
@@ -0,0 +1,73 @@
+package org.DigiCorp.dto;
+
+import java.util.List;
+
+/**
+ * Data Transfer Object (DTO) representing one slice of a department's employee list
+ * when it is read in cursor (keyset) mode.
+ * Carries the records for this slice and an opaque cursor pointing at the next slice.
+ */
+public class EmployeeRecordPage {
+    /**
+     * The employee records in this slice, ordered by employee number.
+     */
+    private List<EmployeeRecordDTO> records;
+    /**
+     * Opaque cursor to supply as 'after' to fetch the next slice,
+     * or null if this is the last slice.
+     */
+    private String nextCursor;
+
+    /**
+     * Default public constructor
+     */
+    public EmployeeRecordPage() {
+    }
+
+    /**
+     * Parameterized constructor to initialize a page instance
+     *
+     * @param records    employee records contained in this slice
+     * @param nextCursor cursor for the following slice, or null if there is none
+     */
+    public EmployeeRecordPage(List<EmployeeRecordDTO> records, String nextCursor) {
+        this.records = records;
+        this.nextCursor = nextCursor;
+    }
+
+    /**
+     * Retrieves the employee records in this slice.
+     *
+     * @return The list of EmployeeRecordDTO objects.
+     */
+    public List<EmployeeRecordDTO> getRecords() {
+        return records;
+    }
+
+    /**
+     * Sets the employee records in this slice.
+     *
+     * @param records The new list of EmployeeRecordDTO objects.
+     */
+    public void setRecords(List<EmployeeRecordDTO> records) {
+        this.records = records;
+    }
+
+    /**
+     * Retrieves the cursor for the next slice.
+     *
+     * @return The opaque next cursor, or null if this is the last slice.
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    /**
+     * Sets the cursor for the next slice.
+     *
+     * @param nextCursor The new opaque next cursor.
+     */
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+}
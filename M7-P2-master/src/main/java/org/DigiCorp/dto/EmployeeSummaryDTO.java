@@ -0,0 +1,222 @@
+package org.DigiCorp.dto;
+
+import java.time.LocalDate;
+
+/**
+ * Employee Summary DTO (Data Transfer Object) holding an employee's details together with
+ * their current title, salary and department.
+ * Populated directly by a constructor-expression query, so no Employee entity
+ * or history collection is loaded to build it.
+ */
+public class EmployeeSummaryDTO {
+    /**
+     * The employee's employee number.
+     */
+    private int empNo;
+    /**
+     * The employee's first name.
+     */
+    private String firstName;
+    /**
+     * The employee's last name.
+     */
+    private String lastName;
+    /**
+     * The date the employee was hired.
+     */
+    private LocalDate hireDate;
+    /**
+     * The employee's current job title, or null if the employee holds none.
+     */
+    private String title;
+    /**
+     * The employee's current annual salary, or null if the employee has left.
+     */
+    private Integer salary;
+    /**
+     * The department number of the employee's current department, or null if none.
+     */
+    private String deptNo;
+    /**
+     * The name of the employee's current department, or null if none.
+     */
+    private String deptName;
+
+    // constructors
+
+    /**
+     * Default public constructor
+     */
+    public EmployeeSummaryDTO() {
+    }
+
+    /**
+     * Parameterized constructor used by the Employee.getEmployeeSummary query
+     *
+     * @param empNo     employee's unique ID number
+     * @param firstName employee's first name
+     * @param lastName  employee's last name
+     * @param hireDate  date employee was hired
+     * @param title     employee's current job title
+     * @param salary    employee's current annual salary
+     * @param deptNo    employee's current department number
+     * @param deptName  employee's current department name
+     */
+    public EmployeeSummaryDTO(int empNo, String firstName, String lastName, LocalDate hireDate,
+                              String title, Integer salary, String deptNo, String deptName) {
+        this.empNo = empNo;
+        this.firstName = firstName;
+        this.lastName = lastName;
+        this.hireDate = hireDate;
+        this.title = title;
+        this.salary = salary;
+        this.deptNo = deptNo;
+        this.deptName = deptName;
+    }
+
+    // getters/setters
+
+    /**
+     * Retrieves the employee's unique ID number.
+     *
+     * @return The employee number as an integer.
+     */
+    public int getEmpNo() {
+        return empNo;
+    }
+
+    /**
+     * Sets the employee's unique ID number.
+     *
+     * @param empNo The new employee number.
+     */
+    public void setEmpNo(int empNo) {
+        this.empNo = empNo;
+    }
+
+    /**
+     * Retrieves the employee's first name.
+     *
+     * @return The first name as a String.
+     */
+    public String getFirstName() {
+        return firstName;
+    }
+
+    /**
+     * Sets the employee's first name.
+     *
+     * @param firstName The new first name.
+     */
+    public void setFirstName(String firstName) {
+        this.firstName = firstName;
+    }
+
+    /**
+     * Retrieves the employee's last name.
+     *
+     * @return The last name as a String.
+     */
+    public String getLastName() {
+        return lastName;
+    }
+
+    /**
+     * Sets the employee's last name.
+     *
+     * @param lastName The new last name.
+     */
+    public void setLastName(String lastName) {
+        this.lastName = lastName;
+    }
+
+    /**
+     * Retrieves the employee's hire date
+     *
+     * @return The hire date of the employee
+     */
+    public LocalDate getHireDate() {
+        return hireDate;
+    }
+
+    /**
+     * Sets the employee's hire date.
+     *
+     * @param hireDate The new LocalDate hire date
+     */
+    public void setHireDate(LocalDate hireDate) {
+        this.hireDate = hireDate;
+    }
+
+    /**
+     * Retrieves the employee's current job title.
+     *
+     * @return The current title, or null if none.
+     */
+    public String getTitle() {
+        return title;
+    }
+
+    /**
+     * Sets the employee's current job title.
+     *
+     * @param title The new current title.
+     */
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    /**
+     * Retrieves the employee's current annual salary.
+     *
+     * @return The current salary, or null if none.
+     */
+    public Integer getSalary() {
+        return salary;
+    }
+
+    /**
+     * Sets the employee's current annual salary.
+     *
+     * @param salary The new current salary.
+     */
+    public void setSalary(Integer salary) {
+        this.salary = salary;
+    }
+
+    /**
+     * Retrieves the employee's current department number.
+     *
+     * @return The current department number (e.g., 'd005'), or null if none.
+     */
+    public String getDeptNo() {
+        return deptNo;
+    }
+
+    /**
+     * Sets the employee's current department number.
+     *
+     * @param deptNo The new current department number.
+     */
+    public void setDeptNo(String deptNo) {
+        this.deptNo = deptNo;
+    }
+
+    /**
+     * Retrieves the employee's current department name.
+     *
+     * @return The current department name, or null if none.
+     */
+    public String getDeptName() {
+        return deptName;
+    }
+
+    /**
+     * Sets the employee's current department name.
+     *
+     * @param deptName The new current department name.
+     */
+    public void setDeptName(String deptName) {
+        this.deptName = deptName;
+    }
+}
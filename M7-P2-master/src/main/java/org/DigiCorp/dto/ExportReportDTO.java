@@ -0,0 +1,125 @@
+package org.DigiCorp.dto;
+
+import java.util.List;
+
+/**
+ * Data Transfer Object (DTO) reporting one run of the full-history export.
+ */
+public class ExportReportDTO {
+    /**
+     * Server-side directory holding one columnar file per table, and the CSV files if asked for.
+     */
+    private String directory;
+    /**
+     * Wall-clock time of the whole export, in milliseconds.
+     */
+    private long elapsedMs;
+    /**
+     * Size of all columnar files, in bytes.
+     */
+    private long columnarBytes;
+    /**
+     * Size of all CSV files, in bytes, or 0 if none were written.
+     */
+    private long csvBytes;
+    /**
+     * The tables exported, in export order.
+     */
+    private List<ExportTableDTO> tables;
+
+    /**
+     * Default public constructor
+     */
+    public ExportReportDTO() {
+    }
+
+    /**
+     * Retrieves the directory of the exported files.
+     *
+     * @return The directory.
+     */
+    public String getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Sets the directory of the exported files.
+     *
+     * @param directory The new directory.
+     */
+    public void setDirectory(String directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Retrieves the wall-clock time of the export.
+     *
+     * @return The time in milliseconds.
+     */
+    public long getElapsedMs() {
+        return elapsedMs;
+    }
+
+    /**
+     * Sets the wall-clock time of the export.
+     *
+     * @param elapsedMs The new time in milliseconds.
+     */
+    public void setElapsedMs(long elapsedMs) {
+        this.elapsedMs = elapsedMs;
+    }
+
+    /**
+     * Retrieves the size of all columnar files.
+     *
+     * @return The size in bytes.
+     */
+    public long getColumnarBytes() {
+        return columnarBytes;
+    }
+
+    /**
+     * Sets the size of all columnar files.
+     *
+     * @param columnarBytes The new size in bytes.
+     */
+    public void setColumnarBytes(long columnarBytes) {
+        this.columnarBytes = columnarBytes;
+    }
+
+    /**
+     * Retrieves the size of all CSV files.
+     *
+     * @return The size in bytes, 0 if none were written.
+     */
+    public long getCsvBytes() {
+        return csvBytes;
+    }
+
+    /**
+     * Sets the size of all CSV files.
+     *
+     * @param csvBytes The new size in bytes.
+     */
+    public void setCsvBytes(long csvBytes) {
+        this.csvBytes = csvBytes;
+    }
+
+    /**
+     * Retrieves the tables exported.
+     *
+     * @return The per-table reports.
+     */
+    public List<ExportTableDTO> getTables() {
+        return tables;
+    }
+
+    /**
+     * Sets the tables exported.
+     *
+     * @param tables The new per-table reports.
+     */
+    public void setTables(List<ExportTableDTO> tables) {
+        this.tables = tables;
+    }
+}
@@ -0,0 +1,146 @@
+package org.DigiCorp.dto;
+
+/**
+ * Data Transfer Object (DTO) reporting the export of one table: its columnar file and, when asked for,
+ * the CSV file written alongside it for comparison.
+ */
+public class ExportTableDTO {
+    /**
+     * Table exported.
+     */
+    private String table;
+    /**
+     * Rows exported.
+     */
+    private long rows;
+    /**
+     * Size of the columnar file, in bytes.
+     */
+    private long columnarBytes;
+    /**
+     * Time to read the table and write the columnar file, in milliseconds.
+     */
+    private long columnarMs;
+    /**
+     * Size of the CSV file, in bytes, or 0 if no CSV file was written.
+     */
+    private long csvBytes;
+    /**
+     * Time to read the table and write the CSV file, in milliseconds, or 0 if no CSV file was written.
+     */
+    private long csvMs;
+
+    /**
+     * Default public constructor
+     */
+    public ExportTableDTO() {
+    }
+
+    /**
+     * Retrieves the table exported.
+     *
+     * @return The table name.
+     */
+    public String getTable() {
+        return table;
+    }
+
+    /**
+     * Sets the table exported.
+     *
+     * @param table The new table name.
+     */
+    public void setTable(String table) {
+        this.table = table;
+    }
+
+    /**
+     * Retrieves the rows exported.
+     *
+     * @return The number of rows.
+     */
+    public long getRows() {
+        return rows;
+    }
+
+    /**
+     * Sets the rows exported.
+     *
+     * @param rows The new number of rows.
+     */
+    public void setRows(long rows) {
+        this.rows = rows;
+    }
+
+    /**
+     * Retrieves the size of the columnar file.
+     *
+     * @return The size in bytes.
+     */
+    public long getColumnarBytes() {
+        return columnarBytes;
+    }
+
+    /**
+     * Sets the size of the columnar file.
+     *
+     * @param columnarBytes The new size in bytes.
+     */
+    public void setColumnarBytes(long columnarBytes) {
+        this.columnarBytes = columnarBytes;
+    }
+
+    /**
+     * Retrieves the time to write the columnar file.
+     *
+     * @return The time in milliseconds.
+     */
+    public long getColumnarMs() {
+        return columnarMs;
+    }
+
+    /**
+     * Sets the time to write the columnar file.
+     *
+     * @param columnarMs The new time in milliseconds.
+     */
+    public void setColumnarMs(long columnarMs) {
+        this.columnarMs = columnarMs;
+    }
+
+    /**
+     * Retrieves the size of the CSV file.
+     *
+     * @return The size in bytes, 0 if none was written.
+     */
+    public long getCsvBytes() {
+        return csvBytes;
+    }
+
+    /**
+     * Sets the size of the CSV file.
+     *
+     * @param csvBytes The new size in bytes.
+     */
+    public void setCsvBytes(long csvBytes) {
+        this.csvBytes = csvBytes;
+    }
+
+    /**
+     * Retrieves the time to write the CSV file.
+     *
+     * @return The time in milliseconds, 0 if none was written.
+     */
+    public long getCsvMs() {
+        return csvMs;
+    }
+
+    /**
+     * Sets the time to write the CSV file.
+     *
+     * @param csvMs The new time in milliseconds.
+     */
+    public void setCsvMs(long csvMs) {
+        this.csvMs = csvMs;
+    }
+}
@@ -0,0 +1,68 @@
+package org.DigiCorp.dto;
+
+/**
+ * Data Transfer Object (DTO) describing one CSV record rejected by a bulk import.
+ */
+public class ImportRejectDTO {
+    /**
+     * Line of the file the record starts on, the header being line 1.
+     */
+    private long line;
+    /**
+     * Why the record was rejected, e.g. a validation message or the database error.
+     */
+    private String reason;
+
+    /**
+     * Default public constructor
+     */
+    public ImportRejectDTO() {
+    }
+
+    /**
+     * Parameterized constructor to initialize a reject instance
+     *
+     * @param line   line of the file the record starts on
+     * @param reason why the record was rejected
+     */
+    public ImportRejectDTO(long line, String reason) {
+        this.line = line;
+        this.reason = reason;
+    }
+
+    /**
+     * Retrieves the line the rejected record starts on.
+     *
+     * @return The line number.
+     */
+    public long getLine() {
+        return line;
+    }
+
+    /**
+     * Sets the line the rejected record starts on.
+     *
+     * @param line The new line number.
+     */
+    public void setLine(long line) {
+        this.line = line;
+    }
+
+    /**
+     * Retrieves why the record was rejected.
+     *
+     * @return The reason.
+     */
+    public String getReason() {
+        return reason;
+    }
+
+    /**
+     * Sets why the record was rejected.
+     *
+     * @param reason The new reason.
+     */
+    public void setReason(String reason) {
+        this.reason = reason;
+    }
+}
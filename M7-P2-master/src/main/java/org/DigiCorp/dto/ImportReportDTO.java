@@ -0,0 +1,346 @@
+package org.DigiCorp.dto;
+
+import java.util.List;
+
+/**
+ * Data Transfer Object (DTO) reporting the outcome of one run of a bulk CSV import job.
+ * Counts cover this run only, except the totals, which add up every run of the job.
+ */
+public class ImportReportDTO {
+    /**
+     * Id of the import job, under which an interrupted import is resumed.
+     */
+    private String jobId;
+    /**
+     * Table imported into.
+     */
+    private String table;
+    /**
+     * True once every record of the file has been committed or rejected.
+     */
+    private boolean complete;
+    /**
+     * Records of the file a previous run had already processed and this run skipped over.
+     */
+    private long resumedFrom;
+    /**
+     * Records processed by this run.
+     */
+    private long records;
+    /**
+     * Rows inserted by this run.
+     */
+    private long inserted;
+    /**
+     * Records rejected by this run.
+     */
+    private long rejected;
+    /**
+     * Rows skipped by this run because a run that stopped mid-chunk had already inserted them.
+     */
+    private long skipped;
+    /**
+     * Chunks committed by this run.
+     */
+    private long chunks;
+    /**
+     * Wall-clock time of this run, in milliseconds.
+     */
+    private long elapsedMs;
+    /**
+     * Records processed per second by this run.
+     */
+    private double rowsPerSecond;
+    /**
+     * Rows inserted by every run of the job.
+     */
+    private long totalInserted;
+    /**
+     * Records rejected by every run of the job.
+     */
+    private long totalRejected;
+    /**
+     * The first rejects of this run; every reject of the job is written to the rejects file.
+     */
+    private List<ImportRejectDTO> rejects;
+    /**
+     * Server-side CSV file listing the line and reason of every reject of the job.
+     */
+    private String rejectsFile;
+
+    /**
+     * Default public constructor
+     */
+    public ImportReportDTO() {
+    }
+
+    /**
+     * Retrieves the id of the import job.
+     *
+     * @return The job id.
+     */
+    public String getJobId() {
+        return jobId;
+    }
+
+    /**
+     * Sets the id of the import job.
+     *
+     * @param jobId The new job id.
+     */
+    public void setJobId(String jobId) {
+        this.jobId = jobId;
+    }
+
+    /**
+     * Retrieves the table imported into.
+     *
+     * @return The table name.
+     */
+    public String getTable() {
+        return table;
+    }
+
+    /**
+     * Sets the table imported into.
+     *
+     * @param table The new table name.
+     */
+    public void setTable(String table) {
+        this.table = table;
+    }
+
+    /**
+     * Retrieves whether the whole file has been imported.
+     *
+     * @return true once every record has been committed or rejected.
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * Sets whether the whole file has been imported.
+     *
+     * @param complete The new completion flag.
+     */
+    public void setComplete(boolean complete) {
+        this.complete = complete;
+    }
+
+    /**
+     * Retrieves the records a previous run had already processed.
+     *
+     * @return The number of records skipped over.
+     */
+    public long getResumedFrom() {
+        return resumedFrom;
+    }
+
+    /**
+     * Sets the records a previous run had already processed.
+     *
+     * @param resumedFrom The new number of records skipped over.
+     */
+    public void setResumedFrom(long resumedFrom) {
+        this.resumedFrom = resumedFrom;
+    }
+
+    /**
+     * Retrieves the records processed by this run.
+     *
+     * @return The number of records.
+     */
+    public long getRecords() {
+        return records;
+    }
+
+    /**
+     * Sets the records processed by this run.
+     *
+     * @param records The new number of records.
+     */
+    public void setRecords(long records) {
+        this.records = records;
+    }
+
+    /**
+     * Retrieves the rows inserted by this run.
+     *
+     * @return The number of rows inserted.
+     */
+    public long getInserted() {
+        return inserted;
+    }
+
+    /**
+     * Sets the rows inserted by this run.
+     *
+     * @param inserted The new number of rows inserted.
+     */
+    public void setInserted(long inserted) {
+        this.inserted = inserted;
+    }
+
+    /**
+     * Retrieves the records rejected by this run.
+     *
+     * @return The number of records rejected.
+     */
+    public long getRejected() {
+        return rejected;
+    }
+
+    /**
+     * Sets the records rejected by this run.
+     *
+     * @param rejected The new number of records rejected.
+     */
+    public void setRejected(long rejected) {
+        this.rejected = rejected;
+    }
+
+    /**
+     * Retrieves the rows skipped as already inserted.
+     *
+     * @return The number of rows skipped.
+     */
+    public long getSkipped() {
+        return skipped;
+    }
+
+    /**
+     * Sets the rows skipped as already inserted.
+     *
+     * @param skipped The new number of rows skipped.
+     */
+    public void setSkipped(long skipped) {
+        this.skipped = skipped;
+    }
+
+    /**
+     * Retrieves the chunks committed by this run.
+     *
+     * @return The number of chunks.
+     */
+    public long getChunks() {
+        return chunks;
+    }
+
+    /**
+     * Sets the chunks committed by this run.
+     *
+     * @param chunks The new number of chunks.
+     */
+    public void setChunks(long chunks) {
+        this.chunks = chunks;
+    }
+
+    /**
+     * Retrieves the wall-clock time of this run.
+     *
+     * @return The elapsed time in milliseconds.
+     */
+    public long getElapsedMs() {
+        return elapsedMs;
+    }
+
+    /**
+     * Sets the wall-clock time of this run.
+     *
+     * @param elapsedMs The new elapsed time in milliseconds.
+     */
+    public void setElapsedMs(long elapsedMs) {
+        this.elapsedMs = elapsedMs;
+    }
+
+    /**
+     * Retrieves the throughput of this run.
+     *
+     * @return The records processed per second.
+     */
+    public double getRowsPerSecond() {
+        return rowsPerSecond;
+    }
+
+    /**
+     * Sets the throughput of this run.
+     *
+     * @param rowsPerSecond The new records processed per second.
+     */
+    public void setRowsPerSecond(double rowsPerSecond) {
+        this.rowsPerSecond = rowsPerSecond;
+    }
+
+    /**
+     * Retrieves the rows inserted by every run of the job.
+     *
+     * @return The total number of rows inserted.
+     */
+    public long getTotalInserted() {
+        return totalInserted;
+    }
+
+    /**
+     * Sets the rows inserted by every run of the job.
+     *
+     * @param totalInserted The new total number of rows inserted.
+     */
+    public void setTotalInserted(long totalInserted) {
+        this.totalInserted = totalInserted;
+    }
+
+    /**
+     * Retrieves the records rejected by every run of the job.
+     *
+     * @return The total number of records rejected.
+     */
+    public long getTotalRejected() {
+        return totalRejected;
+    }
+
+    /**
+     * Sets the records rejected by every run of the job.
+     *
+     * @param totalRejected The new total number of records rejected.
+     */
+    public void setTotalRejected(long totalRejected) {
+        this.totalRejected = totalRejected;
+    }
+
+    /**
+     * Retrieves the first rejects of this run.
+     *
+     * @return The list of ImportRejectDTO objects.
+     */
+    public List<ImportRejectDTO> getRejects() {
+        return rejects;
+    }
+
+    /**
+     * Sets the first rejects of this run.
+     *
+     * @param rejects The new list of ImportRejectDTO objects.
+     */
+    public void setRejects(List<ImportRejectDTO> rejects) {
+        this.rejects = rejects;
+    }
+
+    /**
+     * Retrieves the file listing every reject of the job.
+     *
+     * @return The path of the rejects file on the server.
+     */
+    public String getRejectsFile() {
+        return rejectsFile;
+    }
+
+    /**
+     * Sets the file listing every reject of the job.
+     *
+     * @param rejectsFile The new path of the rejects file.
+     */
+    public void setRejectsFile(String rejectsFile) {
+        this.rejectsFile = rejectsFile;
+    }
+}
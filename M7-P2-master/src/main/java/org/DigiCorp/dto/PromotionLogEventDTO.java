@@ -0,0 +1,311 @@
+package org.DigiCorp.dto;
+
+import java.time.Instant;
+import java.time.LocalDate;
+
+/**
+ * Data Transfer Object (DTO) representing one committed promotion read from the promotion event log.
+ */
+public class PromotionLogEventDTO {
+    /**
+     * Position of the event in the promotion log.
+     */
+    private long offset;
+    /**
+     * Employee number of the promoted employee.
+     */
+    private int empNo;
+    /**
+     * Date the promotion takes effect.
+     */
+    private LocalDate effectiveDate;
+    /**
+     * Annual salary before the promotion.
+     */
+    private int oldSalary;
+    /**
+     * Annual salary after the promotion.
+     */
+    private int newSalary;
+    /**
+     * Job title before the promotion.
+     */
+    private String oldTitle;
+    /**
+     * Job title after the promotion.
+     */
+    private String newTitle;
+    /**
+     * Department number before the promotion.
+     */
+    private String oldDeptNo;
+    /**
+     * Department number after the promotion.
+     */
+    private String newDeptNo;
+    /**
+     * Whether the employee was a current department manager before the promotion.
+     */
+    private boolean managerBefore;
+    /**
+     * Whether the employee is a current department manager after the promotion.
+     */
+    private boolean managerAfter;
+    /**
+     * When the event was written to the log, just before its transaction committed.
+     */
+    private Instant recordedAt;
+
+    /**
+     * Default public constructor
+     */
+    public PromotionLogEventDTO() {
+    }
+
+    /**
+     * Parameterized constructor to initialize an event instance
+     *
+     * @param offset        log offset of the event
+     * @param empNo         employee number of the promoted employee
+     * @param effectiveDate date the promotion takes effect
+     * @param oldSalary     salary before the promotion
+     * @param newSalary     salary after the promotion
+     * @param oldTitle      title before the promotion
+     * @param newTitle      title after the promotion
+     * @param oldDeptNo     department number before the promotion
+     * @param newDeptNo     department number after the promotion
+     * @param managerBefore manager flag before the promotion
+     * @param managerAfter  manager flag after the promotion
+     * @param recordedAt    instant the event was recorded
+     */
+    public PromotionLogEventDTO(long offset, int empNo, LocalDate effectiveDate, int oldSalary, int newSalary, String oldTitle, String newTitle, String oldDeptNo, String newDeptNo, boolean managerBefore, boolean managerAfter, Instant recordedAt) {
+        this.offset = offset;
+        this.empNo = empNo;
+        this.effectiveDate = effectiveDate;
+        this.oldSalary = oldSalary;
+        this.newSalary = newSalary;
+        this.oldTitle = oldTitle;
+        this.newTitle = newTitle;
+        this.oldDeptNo = oldDeptNo;
+        this.newDeptNo = newDeptNo;
+        this.managerBefore = managerBefore;
+        this.managerAfter = managerAfter;
+        this.recordedAt = recordedAt;
+    }
+
+    /**
+     * Retrieves the position of the event in the log.
+     *
+     * @return The log offset of the event.
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    /**
+     * Sets the position of the event in the log.
+     *
+     * @param offset The new log offset of the event.
+     */
+    public void setOffset(long offset) {
+        this.offset = offset;
+    }
+
+    /**
+     * Retrieves the employee number.
+     *
+     * @return The employee number.
+     */
+    public int getEmpNo() {
+        return empNo;
+    }
+
+    /**
+     * Sets the employee number.
+     *
+     * @param empNo The new employee number of the promoted employee.
+     */
+    public void setEmpNo(int empNo) {
+        this.empNo = empNo;
+    }
+
+    /**
+     * Retrieves the date the promotion takes effect.
+     *
+     * @return The effective date.
+     */
+    public LocalDate getEffectiveDate() {
+        return effectiveDate;
+    }
+
+    /**
+     * Sets the date the promotion takes effect.
+     *
+     * @param effectiveDate The new date the promotion takes effect.
+     */
+    public void setEffectiveDate(LocalDate effectiveDate) {
+        this.effectiveDate = effectiveDate;
+    }
+
+    /**
+     * Retrieves the salary before the promotion.
+     *
+     * @return The old salary.
+     */
+    public int getOldSalary() {
+        return oldSalary;
+    }
+
+    /**
+     * Sets the salary before the promotion.
+     *
+     * @param oldSalary The new salary before the promotion.
+     */
+    public void setOldSalary(int oldSalary) {
+        this.oldSalary = oldSalary;
+    }
+
+    /**
+     * Retrieves the salary after the promotion.
+     *
+     * @return The new salary.
+     */
+    public int getNewSalary() {
+        return newSalary;
+    }
+
+    /**
+     * Sets the salary after the promotion.
+     *
+     * @param newSalary The new salary after the promotion.
+     */
+    public void setNewSalary(int newSalary) {
+        this.newSalary = newSalary;
+    }
+
+    /**
+     * Retrieves the title before the promotion.
+     *
+     * @return The old title.
+     */
+    public String getOldTitle() {
+        return oldTitle;
+    }
+
+    /**
+     * Sets the title before the promotion.
+     *
+     * @param oldTitle The new title before the promotion.
+     */
+    public void setOldTitle(String oldTitle) {
+        this.oldTitle = oldTitle;
+    }
+
+    /**
+     * Retrieves the title after the promotion.
+     *
+     * @return The new title.
+     */
+    public String getNewTitle() {
+        return newTitle;
+    }
+
+    /**
+     * Sets the title after the promotion.
+     *
+     * @param newTitle The new title after the promotion.
+     */
+    public void setNewTitle(String newTitle) {
+        this.newTitle = newTitle;
+    }
+
+    /**
+     * Retrieves the department before the promotion.
+     *
+     * @return The old department number.
+     */
+    public String getOldDeptNo() {
+        return oldDeptNo;
+    }
+
+    /**
+     * Sets the department before the promotion.
+     *
+     * @param oldDeptNo The new department number before the promotion.
+     */
+    public void setOldDeptNo(String oldDeptNo) {
+        this.oldDeptNo = oldDeptNo;
+    }
+
+    /**
+     * Retrieves the department after the promotion.
+     *
+     * @return The new department number.
+     */
+    public String getNewDeptNo() {
+        return newDeptNo;
+    }
+
+    /**
+     * Sets the department after the promotion.
+     *
+     * @param newDeptNo The new department number after the promotion.
+     */
+    public void setNewDeptNo(String newDeptNo) {
+        this.newDeptNo = newDeptNo;
+    }
+
+    /**
+     * Retrieves whether the employee was a manager before the promotion.
+     *
+     * @return True if the employee was a current manager.
+     */
+    public boolean isManagerBefore() {
+        return managerBefore;
+    }
+
+    /**
+     * Sets whether the employee was a manager before the promotion.
+     *
+     * @param managerBefore The new manager flag before the promotion.
+     */
+    public void setManagerBefore(boolean managerBefore) {
+        this.managerBefore = managerBefore;
+    }
+
+    /**
+     * Retrieves whether the employee is a manager after the promotion.
+     *
+     * @return True if the employee is a current manager.
+     */
+    public boolean isManagerAfter() {
+        return managerAfter;
+    }
+
+    /**
+     * Sets whether the employee is a manager after the promotion.
+     *
+     * @param managerAfter The new manager flag after the promotion.
+     */
+    public void setManagerAfter(boolean managerAfter) {
+        this.managerAfter = managerAfter;
+    }
+
+    /**
+     * Retrieves when the event was written to the log.
+     *
+     * @return The instant the event was recorded.
+     */
+    public Instant getRecordedAt() {
+        return recordedAt;
+    }
+
+    /**
+     * Sets when the event was written to the log.
+     *
+     * @param recordedAt The new instant the event was recorded.
+     */
+    public void setRecordedAt(Instant recordedAt) {
+        this.recordedAt = recordedAt;
+    }
+}
@@ -0,0 +1,71 @@
+package org.DigiCorp.dto;
+
+import java.util.List;
+
+/**
+ * Data Transfer Object (DTO) representing one slice of the promotion event log, read from an offset.
+ * Carries the committed promotions of this slice and the offset to continue tailing from.
+ */
+public class PromotionLogPage {
+    /**
+     * The committed promotions in this slice, in commit order.
+     */
+    private List<PromotionLogEventDTO> events;
+    /**
+     * Offset to supply to fetch the next slice; equal to the requested offset if no event was available.
+     */
+    private long nextOffset;
+
+    /**
+     * Default public constructor
+     */
+    public PromotionLogPage() {
+    }
+
+    /**
+     * Parameterized constructor to initialize a page instance
+     *
+     * @param events     list of PromotionLogEventDTO objects
+     * @param nextOffset offset of the next slice
+     */
+    public PromotionLogPage(List<PromotionLogEventDTO> events, long nextOffset) {
+        this.events = events;
+        this.nextOffset = nextOffset;
+    }
+
+    /**
+     * Retrieves the events in this slice.
+     *
+     * @return The list of PromotionLogEventDTO objects.
+     */
+    public List<PromotionLogEventDTO> getEvents() {
+        return events;
+    }
+
+    /**
+     * Sets the events in this slice.
+     *
+     * @param events The new list of PromotionLogEventDTO objects.
+     */
+    public void setEvents(List<PromotionLogEventDTO> events) {
+        this.events = events;
+    }
+
+    /**
+     * Retrieves the offset of the next slice.
+     *
+     * @return The next offset.
+     */
+    public long getNextOffset() {
+        return nextOffset;
+    }
+
+    /**
+     * Sets the offset of the next slice.
+     *
+     * @param nextOffset The new offset of the next slice.
+     */
+    public void setNextOffset(long nextOffset) {
+        this.nextOffset = nextOffset;
+    }
+}
@@ -0,0 +1,164 @@
+package org.DigiCorp.dto;
+
+/**
+ * Data Transfer Object (DTO) reporting the outcome of one request in a bulk promotion.
+ */
+public class PromotionResult {
+    /**
+     * Position of the request in the submitted array (0-indexed).
+     */
+    private int index;
+    /**
+     * Employee number of the request, may be null if the request omitted it.
+     */
+    private Integer empNo;
+    /**
+     * true if the promotion was committed.
+     */
+    private boolean success;
+    /**
+     * HTTP-style status code of this item: 201 on success, 400/404 on validation failure, 500 otherwise.
+     */
+    private int status;
+    /**
+     * Human readable outcome, matching the messages of the single promote endpoint.
+     */
+    private String message;
+
+    /**
+     * Default public constructor
+     */
+    public PromotionResult() {
+    }
+
+    /**
+     * Parameterized constructor to initialize a result instance
+     *
+     * @param index   position of the request in the submitted array
+     * @param empNo   employee number of the request
+     * @param success true if the promotion was committed
+     * @param status  HTTP-style status code of this item
+     * @param message human readable outcome
+     */
+    public PromotionResult(int index, Integer empNo, boolean success, int status, String message) {
+        this.index = index;
+        this.empNo = empNo;
+        this.success = success;
+        this.status = status;
+        this.message = message;
+    }
+
+    /**
+     * Creates the result of a committed promotion.
+     *
+     * @param index position of the request in the submitted array
+     * @param empNo employee number of the request
+     * @return successful PromotionResult
+     */
+    public static PromotionResult success(int index, Integer empNo) {
+        return new PromotionResult(index, empNo, true, 201, "Employee promoted successfully");
+    }
+
+    /**
+     * Creates the result of a rejected promotion.
+     *
+     * @param index   position of the request in the submitted array
+     * @param empNo   employee number of the request
+     * @param status  HTTP-style status code describing the failure
+     * @param message reason for the failure
+     * @return failed PromotionResult
+     */
+    public static PromotionResult failure(int index, Integer empNo, int status, String message) {
+        return new PromotionResult(index, empNo, false, status, message);
+    }
+
+    /**
+     * Retrieves the position of the request in the submitted array.
+     *
+     * @return The 0-indexed position.
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * Sets the position of the request in the submitted array.
+     *
+     * @param index The 0-indexed position.
+     */
+    public void setIndex(int index) {
+        this.index = index;
+    }
+
+    /**
+     * Retrieves the employee number of the request.
+     *
+     * @return The employee number, or null if omitted.
+     */
+    public Integer getEmpNo() {
+        return empNo;
+    }
+
+    /**
+     * Sets the employee number of the request.
+     *
+     * @param empNo The employee number.
+     */
+    public void setEmpNo(Integer empNo) {
+        this.empNo = empNo;
+    }
+
+    /**
+     * Retrieves whether the promotion was committed.
+     *
+     * @return true on success, false otherwise.
+     */
+    public boolean isSuccess() {
+        return success;
+    }
+
+    /**
+     * Sets whether the promotion was committed.
+     *
+     * @param success true on success, false otherwise.
+     */
+    public void setSuccess(boolean success) {
+        this.success = success;
+    }
+
+    /**
+     * Retrieves the HTTP-style status code of this item.
+     *
+     * @return The status code.
+     */
+    public int getStatus() {
+        return status;
+    }
+
+    /**
+     * Sets the HTTP-style status code of this item.
+     *
+     * @param status The status code.
+     */
+    public void setStatus(int status) {
+        this.status = status;
+    }
+
+    /**
+     * Retrieves the outcome message.
+     *
+     * @return The message.
+     */
+    public String getMessage() {
+        return message;
+    }
+
+    /**
+     * Sets the outcome message.
+     *
+     * @param message The message.
+     */
+    public void setMessage(String message) {
+        this.message = message;
+    }
+}
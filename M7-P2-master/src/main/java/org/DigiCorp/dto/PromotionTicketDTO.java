@@ -0,0 +1,191 @@
+package org.DigiCorp.dto;
+
+import java.time.Instant;
+
+/**
+ * Data Transfer Object (DTO) reporting the progress of a promotion submitted asynchronously.
+ */
+public class PromotionTicketDTO {
+    /**
+     * Opaque ticket id, supplied to the status endpoint to poll the promotion.
+     */
+    private String ticketId;
+    /**
+     * Employee number of the request.
+     */
+    private int empNo;
+    /**
+     * QUEUED, RUNNING, SUCCEEDED or FAILED.
+     */
+    private String state;
+    /**
+     * HTTP-style status code of the outcome, as the synchronous endpoint would return it; null until done.
+     */
+    private Integer status;
+    /**
+     * Human readable outcome, matching the messages of the synchronous endpoint; null until done.
+     */
+    private String message;
+    /**
+     * When the promotion was accepted.
+     */
+    private Instant submittedAt;
+    /**
+     * When the promotion committed or failed; null until done.
+     */
+    private Instant completedAt;
+
+    /**
+     * Default public constructor
+     */
+    public PromotionTicketDTO() {
+    }
+
+    /**
+     * Parameterized constructor to initialize a ticket instance
+     *
+     * @param ticketId    opaque ticket id
+     * @param empNo       employee number of the request
+     * @param state       QUEUED, RUNNING, SUCCEEDED or FAILED
+     * @param status      HTTP-style status code of the outcome, null until done
+     * @param message     human readable outcome, null until done
+     * @param submittedAt when the promotion was accepted
+     * @param completedAt when the promotion committed or failed, null until done
+     */
+    public PromotionTicketDTO(String ticketId, int empNo, String state, Integer status, String message,
+                              Instant submittedAt, Instant completedAt) {
+        this.ticketId = ticketId;
+        this.empNo = empNo;
+        this.state = state;
+        this.status = status;
+        this.message = message;
+        this.submittedAt = submittedAt;
+        this.completedAt = completedAt;
+    }
+
+    /**
+     * Retrieves the ticket id.
+     *
+     * @return The opaque ticket id.
+     */
+    public String getTicketId() {
+        return ticketId;
+    }
+
+    /**
+     * Sets the ticket id.
+     *
+     * @param ticketId The new ticket id.
+     */
+    public void setTicketId(String ticketId) {
+        this.ticketId = ticketId;
+    }
+
+    /**
+     * Retrieves the employee number of the request.
+     *
+     * @return The employee number.
+     */
+    public int getEmpNo() {
+        return empNo;
+    }
+
+    /**
+     * Sets the employee number of the request.
+     *
+     * @param empNo The new employee number.
+     */
+    public void setEmpNo(int empNo) {
+        this.empNo = empNo;
+    }
+
+    /**
+     * Retrieves the state of the promotion.
+     *
+     * @return QUEUED, RUNNING, SUCCEEDED or FAILED.
+     */
+    public String getState() {
+        return state;
+    }
+
+    /**
+     * Sets the state of the promotion.
+     *
+     * @param state The new state.
+     */
+    public void setState(String state) {
+        this.state = state;
+    }
+
+    /**
+     * Retrieves the status code of the outcome.
+     *
+     * @return The HTTP-style status code, or null until done.
+     */
+    public Integer getStatus() {
+        return status;
+    }
+
+    /**
+     * Sets the status code of the outcome.
+     *
+     * @param status The new status code.
+     */
+    public void setStatus(Integer status) {
+        this.status = status;
+    }
+
+    /**
+     * Retrieves the outcome message.
+     *
+     * @return The message, or null until done.
+     */
+    public String getMessage() {
+        return message;
+    }
+
+    /**
+     * Sets the outcome message.
+     *
+     * @param message The new message.
+     */
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+    /**
+     * Retrieves when the promotion was accepted.
+     *
+     * @return The submission instant.
+     */
+    public Instant getSubmittedAt() {
+        return submittedAt;
+    }
+
+    /**
+     * Sets when the promotion was accepted.
+     *
+     * @param submittedAt The new submission instant.
+     */
+    public void setSubmittedAt(Instant submittedAt) {
+        this.submittedAt = submittedAt;
+    }
+
+    /**
+     * Retrieves when the promotion committed or failed.
+     *
+     * @return The completion instant, or null until done.
+     */
+    public Instant getCompletedAt() {
+        return completedAt;
+    }
+
+    /**
+     * Sets when the promotion committed or failed.
+     *
+     * @param completedAt The new completion instant.
+     */
+    public void setCompletedAt(Instant completedAt) {
+        this.completedAt = completedAt;
+    }
+}
@@ -0,0 +1,97 @@
+package org.DigiCorp.dto;
+
+/**
+ * Salary Bucket DTO (Data Transfer Object) holding one bar of a salary histogram: a range of annual
+ * salaries and the estimated number of current employees earning within it.
+ */
+public class SalaryBucketDTO {
+    /**
+     * Lowest annual salary of the range, inclusive.
+     */
+    private int fromSalary;
+    /**
+     * Highest annual salary of the range, inclusive.
+     */
+    private int toSalary;
+    /**
+     * Estimated number of current employees whose salary falls in the range.
+     */
+    private long headcount;
+
+    // constructors
+
+    /**
+     * Default public constructor
+     */
+    public SalaryBucketDTO() {
+    }
+
+    /**
+     * Parameterized constructor to initialize a salary bucket instance
+     *
+     * @param fromSalary lowest annual salary of the range, inclusive
+     * @param toSalary   highest annual salary of the range, inclusive
+     * @param headcount  estimated number of current employees earning within the range
+     */
+    public SalaryBucketDTO(int fromSalary, int toSalary, long headcount) {
+        this.fromSalary = fromSalary;
+        this.toSalary = toSalary;
+        this.headcount = headcount;
+    }
+
+    // getters/setters
+
+    /**
+     * Retrieves the lowest annual salary of the range.
+     *
+     * @return The lowest salary, inclusive.
+     */
+    public int getFromSalary() {
+        return fromSalary;
+    }
+
+    /**
+     * Sets the lowest annual salary of the range.
+     *
+     * @param fromSalary The lowest salary, inclusive.
+     */
+    public void setFromSalary(int fromSalary) {
+        this.fromSalary = fromSalary;
+    }
+
+    /**
+     * Retrieves the highest annual salary of the range.
+     *
+     * @return The highest salary, inclusive.
+     */
+    public int getToSalary() {
+        return toSalary;
+    }
+
+    /**
+     * Sets the highest annual salary of the range.
+     *
+     * @param toSalary The highest salary, inclusive.
+     */
+    public void setToSalary(int toSalary) {
+        this.toSalary = toSalary;
+    }
+
+    /**
+     * Retrieves the estimated number of current employees earning within the range.
+     *
+     * @return The estimated headcount.
+     */
+    public long getHeadcount() {
+        return headcount;
+    }
+
+    /**
+     * Sets the estimated number of current employees earning within the range.
+     *
+     * @param headcount The estimated headcount.
+     */
+    public void setHeadcount(long headcount) {
+        this.headcount = headcount;
+    }
+}
@@ -0,0 +1,247 @@
+package org.DigiCorp.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Salary Percentiles DTO (Data Transfer Object) holding the estimated salary percentiles and histogram
+ * of the current employees of one department or of one title, as kept by the in-memory salary sketches.
+ * <p>
+ * The percentiles are nearest-rank: p50 is the lowest salary at or above which half of the employees earn.
+ * Their ranks are estimated within rankError of the headcount (99% confidence); a rankError of 0 means
+ * every value was kept and the figures are exact.
+ */
+public class SalaryPercentilesDTO {
+    /**
+     * What the employees are grouped by: 'department' or 'title'.
+     */
+    private String groupBy;
+    /**
+     * The department number or title of the group.
+     */
+    private String group;
+    /**
+     * Number of current employees in the group.
+     */
+    private long headcount;
+    /**
+     * 25th percentile of their current annual salaries, or null if the group has no employees.
+     */
+    private Integer p25;
+    /**
+     * Median of their current annual salaries, or null if the group has no employees.
+     */
+    private Integer p50;
+    /**
+     * 75th percentile of their current annual salaries, or null if the group has no employees.
+     */
+    private Integer p75;
+    /**
+     * 90th percentile of their current annual salaries, or null if the group has no employees.
+     */
+    private Integer p90;
+    /**
+     * Bound on the rank error of the percentiles and histogram counts, as a fraction of the headcount.
+     */
+    private double rankError;
+    /**
+     * Histogram of their current annual salaries, equal-width ranges from the lowest to the highest salary.
+     */
+    private List<SalaryBucketDTO> histogram = new ArrayList<>();
+
+    // constructors
+
+    /**
+     * Default public constructor
+     */
+    public SalaryPercentilesDTO() {
+    }
+
+    /**
+     * Parameterized constructor to initialize a salary percentiles instance without a histogram
+     *
+     * @param groupBy   'department' or 'title'
+     * @param group     department number or title of the group
+     * @param headcount number of current employees in the group
+     * @param p25       25th percentile of their current salaries
+     * @param p50       median of their current salaries
+     * @param p75       75th percentile of their current salaries
+     * @param p90       90th percentile of their current salaries
+     * @param rankError bound on the rank error, as a fraction of the headcount
+     */
+    public SalaryPercentilesDTO(String groupBy, String group, long headcount, Integer p25, Integer p50,
+                                Integer p75, Integer p90, double rankError) {
+        this.groupBy = groupBy;
+        this.group = group;
+        this.headcount = headcount;
+        this.p25 = p25;
+        this.p50 = p50;
+        this.p75 = p75;
+        this.p90 = p90;
+        this.rankError = rankError;
+    }
+
+    // getters/setters
+
+    /**
+     * Retrieves what the employees are grouped by.
+     *
+     * @return 'department' or 'title'.
+     */
+    public String getGroupBy() {
+        return groupBy;
+    }
+
+    /**
+     * Sets what the employees are grouped by.
+     *
+     * @param groupBy 'department' or 'title'.
+     */
+    public void setGroupBy(String groupBy) {
+        this.groupBy = groupBy;
+    }
+
+    /**
+     * Retrieves the department number or title of the group.
+     *
+     * @return The group.
+     */
+    public String getGroup() {
+        return group;
+    }
+
+    /**
+     * Sets the department number or title of the group.
+     *
+     * @param group The group.
+     */
+    public void setGroup(String group) {
+        this.group = group;
+    }
+
+    /**
+     * Retrieves the number of current employees in the group.
+     *
+     * @return The headcount.
+     */
+    public long getHeadcount() {
+        return headcount;
+    }
+
+    /**
+     * Sets the number of current employees in the group.
+     *
+     * @param headcount The headcount.
+     */
+    public void setHeadcount(long headcount) {
+        this.headcount = headcount;
+    }
+
+    /**
+     * Retrieves the 25th percentile of the current annual salaries.
+     *
+     * @return The 25th percentile, or null if the group has no employees.
+     */
+    public Integer getP25() {
+        return p25;
+    }
+
+    /**
+     * Sets the 25th percentile of the current annual salaries.
+     *
+     * @param p25 The 25th percentile.
+     */
+    public void setP25(Integer p25) {
+        this.p25 = p25;
+    }
+
+    /**
+     * Retrieves the median of the current annual salaries.
+     *
+     * @return The median, or null if the group has no employees.
+     */
+    public Integer getP50() {
+        return p50;
+    }
+
+    /**
+     * Sets the median of the current annual salaries.
+     *
+     * @param p50 The median.
+     */
+    public void setP50(Integer p50) {
+        this.p50 = p50;
+    }
+
+    /**
+     * Retrieves the 75th percentile of the current annual salaries.
+     *
+     * @return The 75th percentile, or null if the group has no employees.
+     */
+    public Integer getP75() {
+        return p75;
+    }
+
+    /**
+     * Sets the 75th percentile of the current annual salaries.
+     *
+     * @param p75 The 75th percentile.
+     */
+    public void setP75(Integer p75) {
+        this.p75 = p75;
+    }
+
+    /**
+     * Retrieves the 90th percentile of the current annual salaries.
+     *
+     * @return The 90th percentile, or null if the group has no employees.
+     */
+    public Integer getP90() {
+        return p90;
+    }
+
+    /**
+     * Sets the 90th percentile of the current annual salaries.
+     *
+     * @param p90 The 90th percentile.
+     */
+    public void setP90(Integer p90) {
+        this.p90 = p90;
+    }
+
+    /**
+     * Retrieves the bound on the rank error of the percentiles and histogram counts.
+     *
+     * @return The bound as a fraction of the headcount, 0 if the figures are exact.
+     */
+    public double getRankError() {
+        return rankError;
+    }
+
+    /**
+     * Sets the bound on the rank error of the percentiles and histogram counts.
+     *
+     * @param rankError The bound as a fraction of the headcount.
+     */
+    public void setRankError(double rankError) {
+        this.rankError = rankError;
+    }
+
+    /**
+     * Retrieves the histogram of the current annual salaries.
+     *
+     * @return The histogram buckets, lowest salaries first.
+     */
+    public List<SalaryBucketDTO> getHistogram() {
+        return histogram;
+    }
+
+    /**
+     * Sets the histogram of the current annual salaries.
+     *
+     * @param histogram The histogram buckets, lowest salaries first.
+     */
+    public void setHistogram(List<SalaryBucketDTO> histogram) {
+        this.histogram = histogram;
+    }
+}
@@ -0,0 +1,123 @@
+package org.DigiCorp.dto;
+
+import java.time.LocalDate;
+
+/**
+ * Salary Period DTO (Data Transfer Object) holding one row of an employee's salary history,
+ * as served by the columnar salary history store.
+ */
+public class SalaryPeriodDTO {
+    /**
+     * The employee's employee number.
+     */
+    private int empNo;
+    /**
+     * The first day the salary applied.
+     */
+    private LocalDate fromDate;
+    /**
+     * The day the salary stopped applying, 9999-01-01 for the current salary.
+     */
+    private LocalDate toDate;
+    /**
+     * The annual salary.
+     */
+    private int salary;
+
+    // constructors
+
+    /**
+     * Default public constructor
+     */
+    public SalaryPeriodDTO() {
+    }
+
+    /**
+     * Parameterized constructor to initialize a salary period instance
+     *
+     * @param empNo    employee's unique ID number
+     * @param fromDate first day the salary applied
+     * @param toDate   day the salary stopped applying
+     * @param salary   annual salary
+     */
+    public SalaryPeriodDTO(int empNo, LocalDate fromDate, LocalDate toDate, int salary) {
+        this.empNo = empNo;
+        this.fromDate = fromDate;
+        this.toDate = toDate;
+        this.salary = salary;
+    }
+
+    // getters/setters
+
+    /**
+     * Retrieves the employee's unique ID number.
+     *
+     * @return The employee number as an integer.
+     */
+    public int getEmpNo() {
+        return empNo;
+    }
+
+    /**
+     * Sets the employee's unique ID number.
+     *
+     * @param empNo The new employee number.
+     */
+    public void setEmpNo(int empNo) {
+        this.empNo = empNo;
+    }
+
+    /**
+     * Retrieves the first day the salary applied.
+     *
+     * @return The from date.
+     */
+    public LocalDate getFromDate() {
+        return fromDate;
+    }
+
+    /**
+     * Sets the first day the salary applied.
+     *
+     * @param fromDate The from date.
+     */
+    public void setFromDate(LocalDate fromDate) {
+        this.fromDate = fromDate;
+    }
+
+    /**
+     * Retrieves the day the salary stopped applying.
+     *
+     * @return The to date, 9999-01-01 for the current salary.
+     */
+    public LocalDate getToDate() {
+        return toDate;
+    }
+
+    /**
+     * Sets the day the salary stopped applying.
+     *
+     * @param toDate The to date.
+     */
+    public void setToDate(LocalDate toDate) {
+        this.toDate = toDate;
+    }
+
+    /**
+     * Retrieves the annual salary.
+     *
+     * @return The salary.
+     */
+    public int getSalary() {
+        return salary;
+    }
+
+    /**
+     * Sets the annual salary.
+     *
+     * @param salary The salary.
+     */
+    public void setSalary(int salary) {
+        this.salary = salary;
+    }
+}
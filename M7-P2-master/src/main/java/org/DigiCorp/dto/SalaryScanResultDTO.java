@@ -0,0 +1,174 @@
+package org.DigiCorp.dto;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Salary Scan Result DTO (Data Transfer Object) holding the outcome of a salary range scan:
+ * how many employees earned a salary within the range on some date, their total salary,
+ * and the first matching salary periods.
+ */
+public class SalaryScanResultDTO {
+    /**
+     * The date the scan was evaluated on.
+     */
+    private LocalDate asOf;
+    /**
+     * Lowest salary included in the range.
+     */
+    private int minSalary;
+    /**
+     * Highest salary included in the range.
+     */
+    private int maxSalary;
+    /**
+     * Number of employees whose salary on asOf was within the range.
+     */
+    private long matchCount;
+    /**
+     * Sum of the matching salaries.
+     */
+    private long totalSalary;
+    /**
+     * The first matching salary periods in empNo order, at most the requested limit.
+     */
+    private List<SalaryPeriodDTO> matches;
+
+    // constructors
+
+    /**
+     * Default public constructor
+     */
+    public SalaryScanResultDTO() {
+    }
+
+    /**
+     * Parameterized constructor to initialize a salary scan result instance
+     *
+     * @param asOf        date the scan was evaluated on
+     * @param minSalary   lowest salary included in the range
+     * @param maxSalary   highest salary included in the range
+     * @param matchCount  number of matching employees
+     * @param totalSalary sum of the matching salaries
+     * @param matches     first matching salary periods
+     */
+    public SalaryScanResultDTO(LocalDate asOf, int minSalary, int maxSalary,
+                               long matchCount, long totalSalary, List<SalaryPeriodDTO> matches) {
+        this.asOf = asOf;
+        this.minSalary = minSalary;
+        this.maxSalary = maxSalary;
+        this.matchCount = matchCount;
+        this.totalSalary = totalSalary;
+        this.matches = matches;
+    }
+
+    // getters/setters
+
+    /**
+     * Retrieves the date the scan was evaluated on.
+     *
+     * @return The as-of date.
+     */
+    public LocalDate getAsOf() {
+        return asOf;
+    }
+
+    /**
+     * Sets the date the scan was evaluated on.
+     *
+     * @param asOf The as-of date.
+     */
+    public void setAsOf(LocalDate asOf) {
+        this.asOf = asOf;
+    }
+
+    /**
+     * Retrieves the lowest salary included in the range.
+     *
+     * @return The minimum salary.
+     */
+    public int getMinSalary() {
+        return minSalary;
+    }
+
+    /**
+     * Sets the lowest salary included in the range.
+     *
+     * @param minSalary The minimum salary.
+     */
+    public void setMinSalary(int minSalary) {
+        this.minSalary = minSalary;
+    }
+
+    /**
+     * Retrieves the highest salary included in the range.
+     *
+     * @return The maximum salary.
+     */
+    public int getMaxSalary() {
+        return maxSalary;
+    }
+
+    /**
+     * Sets the highest salary included in the range.
+     *
+     * @param maxSalary The maximum salary.
+     */
+    public void setMaxSalary(int maxSalary) {
+        this.maxSalary = maxSalary;
+    }
+
+    /**
+     * Retrieves the number of matching employees.
+     *
+     * @return The match count.
+     */
+    public long getMatchCount() {
+        return matchCount;
+    }
+
+    /**
+     * Sets the number of matching employees.
+     *
+     * @param matchCount The match count.
+     */
+    public void setMatchCount(long matchCount) {
+        this.matchCount = matchCount;
+    }
+
+    /**
+     * Retrieves the sum of the matching salaries.
+     *
+     * @return The total salary.
+     */
+    public long getTotalSalary() {
+        return totalSalary;
+    }
+
+    /**
+     * Sets the sum of the matching salaries.
+     *
+     * @param totalSalary The total salary.
+     */
+    public void setTotalSalary(long totalSalary) {
+        this.totalSalary = totalSalary;
+    }
+
+    /**
+     * Retrieves the first matching salary periods.
+     *
+     * @return List of matching SalaryPeriodDTO, in empNo order.
+     */
+    public List<SalaryPeriodDTO> getMatches() {
+        return matches;
+    }
+
+    /**
+     * Sets the first matching salary periods.
+     *
+     * @param matches List of matching SalaryPeriodDTO.
+     */
+    public void setMatches(List<SalaryPeriodDTO> matches) {
+        this.matches = matches;
+    }
+}
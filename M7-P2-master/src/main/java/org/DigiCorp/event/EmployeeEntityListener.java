@@ -0,0 +1,42 @@
+package org.DigiCorp.event;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostUpdate;
+
+import org.DigiCorp.model.Employee;
+
+import org.springframework.context.ApplicationEventPublisher;
+
+/**
+ * JPA entity listener on Employee that publishes an EmployeeSavedEvent for every inserted or updated
+ * employee row, wherever in the application the change is made.
+ * Hibernate obtains the listener from Spring, which injects the event publisher.
+ */
+public class EmployeeEntityListener {
+
+    /**
+     * publishes an EmployeeSavedEvent for every saved employee
+     */
+    private final ApplicationEventPublisher eventPublisher;
+
+    /**
+     * constructor, initializes the listener with the event publisher
+     *
+     * @param eventPublisher publisher for employee events
+     */
+    public EmployeeEntityListener(ApplicationEventPublisher eventPublisher) {
+        this.eventPublisher = eventPublisher;
+    }
+
+    /**
+     * publishes the employee's attributes once its row has been inserted or updated
+     *
+     * @param employee the saved employee
+     */
+    @PostPersist
+    @PostUpdate
+    public void onSaved(Employee employee) {
+        eventPublisher.publishEvent(new EmployeeSavedEvent(employee.getEmpNo(),
+                employee.getFirstName(), employee.getLastName(), employee.getHireDate()));
+    }
+}
@@ -0,0 +1,193 @@
+package org.DigiCorp.event;
+
+import java.time.LocalDate;
+
+/**
+ * Application event published by EmployeeDAO for every successful promotion.
+ * Carries the employee's salary, title, department and manager state before and after the promotion,
+ * so listeners can update caches and read models without reloading the employee.
+ * <p>
+ * Listeners that keep state outside the database should use
+ * {@code @TransactionalEventListener} so they only react once the promotion has committed.
+ */
+public class EmployeePromotedEvent {
+    /**
+     * employee number of the promoted employee
+     */
+    private final int empNo;
+    /**
+     * date the promotion takes effect, the to_date of closed rows and from_date of new rows
+     */
+    private final LocalDate effectiveDate;
+    /**
+     * annual salary before the promotion
+     */
+    private final int oldSalary;
+    /**
+     * annual salary after the promotion
+     */
+    private final int newSalary;
+    /**
+     * job title before the promotion
+     */
+    private final String oldTitle;
+    /**
+     * job title after the promotion
+     */
+    private final String newTitle;
+    /**
+     * department number before the promotion
+     */
+    private final String oldDeptNo;
+    /**
+     * department number after the promotion
+     */
+    private final String newDeptNo;
+    /**
+     * whether the employee was a current department manager before the promotion
+     */
+    private final boolean managerBefore;
+    /**
+     * whether the employee is a current department manager after the promotion
+     */
+    private final boolean managerAfter;
+
+    /**
+     * Constructs a new EmployeePromotedEvent.
+     *
+     * @param empNo         employee number of the promoted employee
+     * @param effectiveDate date the promotion takes effect
+     * @param oldSalary     annual salary before the promotion
+     * @param newSalary     annual salary after the promotion
+     * @param oldTitle      job title before the promotion
+     * @param newTitle      job title after the promotion
+     * @param oldDeptNo     department number before the promotion
+     * @param newDeptNo     department number after the promotion
+     * @param managerBefore whether the employee was a current manager before the promotion
+     * @param managerAfter  whether the employee is a current manager after the promotion
+     */
+    public EmployeePromotedEvent(int empNo, LocalDate effectiveDate,
+                                 int oldSalary, int newSalary,
+                                 String oldTitle, String newTitle,
+                                 String oldDeptNo, String newDeptNo,
+                                 boolean managerBefore, boolean managerAfter) {
+        this.empNo = empNo;
+        this.effectiveDate = effectiveDate;
+        this.oldSalary = oldSalary;
+        this.newSalary = newSalary;
+        this.oldTitle = oldTitle;
+        this.newTitle = newTitle;
+        this.oldDeptNo = oldDeptNo;
+        this.newDeptNo = newDeptNo;
+        this.managerBefore = managerBefore;
+        this.managerAfter = managerAfter;
+    }
+
+    /**
+     * @return employee number of the promoted employee
+     */
+    public int getEmpNo() {
+        return empNo;
+    }
+
+    /**
+     * @return date the promotion takes effect
+     */
+    public LocalDate getEffectiveDate() {
+        return effectiveDate;
+    }
+
+    /**
+     * @return annual salary before the promotion
+     */
+    public int getOldSalary() {
+        return oldSalary;
+    }
+
+    /**
+     * @return annual salary after the promotion
+     */
+    public int getNewSalary() {
+        return newSalary;
+    }
+
+    /**
+     * @return job title before the promotion
+     */
+    public String getOldTitle() {
+        return oldTitle;
+    }
+
+    /**
+     * @return job title after the promotion
+     */
+    public String getNewTitle() {
+        return newTitle;
+    }
+
+    /**
+     * @return department number before the promotion
+     */
+    public String getOldDeptNo() {
+        return oldDeptNo;
+    }
+
+    /**
+     * @return department number after the promotion
+     */
+    public String getNewDeptNo() {
+        return newDeptNo;
+    }
+
+    /**
+     * @return whether the employee was a current department manager before the promotion
+     */
+    public boolean isManagerBefore() {
+        return managerBefore;
+    }
+
+    /**
+     * @return whether the employee is a current department manager after the promotion
+     */
+    public boolean isManagerAfter() {
+        return managerAfter;
+    }
+
+    /**
+     * @return true if the promotion changed the salary
+     */
+    public boolean isSalaryChanged() {
+        return oldSalary != newSalary;
+    }
+
+    /**
+     * @return true if the promotion changed the title
+     */
+    public boolean isTitleChanged() {
+        return !oldTitle.equals(newTitle);
+    }
+
+    /**
+     * @return true if the promotion moved the employee to another department
+     */
+    public boolean isDeptChanged() {
+        return !oldDeptNo.equalsIgnoreCase(newDeptNo);
+    }
+
+    /**
+     * provides string representation of the event
+     *
+     * @return formatted string of the event's attributes
+     */
+    @Override
+    public String toString() {
+        return "EmployeePromotedEvent{" +
+                "empNo=" + empNo +
+                ", effectiveDate=" + effectiveDate +
+                ", salary=" + oldSalary + "->" + newSalary +
+                ", title='" + oldTitle + "'->'" + newTitle + '\'' +
+                ", dept='" + oldDeptNo + "'->'" + newDeptNo + '\'' +
+                ", manager=" + managerBefore + "->" + managerAfter +
+                '}';
+    }
+}
@@ -0,0 +1,89 @@
+package org.DigiCorp.event;
+
+import java.time.LocalDate;
+
+/**
+ * Application event published by EmployeeEntityListener whenever an Employee row is inserted or updated,
+ * i.e. for new hires and for changes to an employee's own attributes such as a rename.
+ * Carries the employee's attributes after the change, so listeners can update read models without
+ * reloading the employee.
+ * <p>
+ * The event is published while the transaction flushes; listeners that keep state outside the database
+ * should use {@code @TransactionalEventListener} so they only react once the change has committed.
+ */
+public class EmployeeSavedEvent {
+    /**
+     * employee number of the saved employee
+     */
+    private final int empNo;
+    /**
+     * first name after the change
+     */
+    private final String firstName;
+    /**
+     * last name after the change
+     */
+    private final String lastName;
+    /**
+     * hire date after the change
+     */
+    private final LocalDate hireDate;
+
+    /**
+     * Constructs a new EmployeeSavedEvent.
+     *
+     * @param empNo     employee number of the saved employee
+     * @param firstName first name after the change
+     * @param lastName  last name after the change
+     * @param hireDate  hire date after the change
+     */
+    public EmployeeSavedEvent(int empNo, String firstName, String lastName, LocalDate hireDate) {
+        this.empNo = empNo;
+        this.firstName = firstName;
+        this.lastName = lastName;
+        this.hireDate = hireDate;
+    }
+
+    /**
+     * @return employee number of the saved employee
+     */
+    public int getEmpNo() {
+        return empNo;
+    }
+
+    /**
+     * @return first name after the change
+     */
+    public String getFirstName() {
+        return firstName;
+    }
+
+    /**
+     * @return last name after the change
+     */
+    public String getLastName() {
+        return lastName;
+    }
+
+    /**
+     * @return hire date after the change
+     */
+    public LocalDate getHireDate() {
+        return hireDate;
+    }
+
+    /**
+     * provides string representation of the event
+     *
+     * @return formatted string of the event's attributes
+     */
+    @Override
+    public String toString() {
+        return "EmployeeSavedEvent{" +
+                "empNo=" + empNo +
+                ", firstName='" + firstName + '\'' +
+                ", lastName='" + lastName + '\'' +
+                ", hireDate=" + hireDate +
+                '}';
+    }
+}
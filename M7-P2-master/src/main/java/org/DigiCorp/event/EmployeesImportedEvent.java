@@ -0,0 +1,65 @@
+package org.DigiCorp.event;
+
+/**
+ * Application event published by EmployeeImporter once a bulk import has stopped, whether it completed
+ * or failed part way, if any of its rows were committed.
+ * <p>
+ * Imported rows are written with plain JDBC, bypassing the entity listeners and the promotion events, so
+ * caches and read models holding rows of the imported table must be rebuilt or dropped as a whole. The
+ * event is published outside any transaction, after the last chunk committed.
+ */
+public class EmployeesImportedEvent {
+    /**
+     * table the rows were imported into: employees, salaries, titles or dept_emp
+     */
+    private final String table;
+    /**
+     * rows inserted
+     */
+    private final long rows;
+
+    /**
+     * Constructs a new EmployeesImportedEvent.
+     *
+     * @param table table the rows were imported into
+     * @param rows  rows inserted
+     */
+    public EmployeesImportedEvent(String table, long rows) {
+        this.table = table;
+        this.rows = rows;
+    }
+
+    /**
+     * @return table the rows were imported into
+     */
+    public String getTable() {
+        return table;
+    }
+
+    /**
+     * @return rows inserted
+     */
+    public long getRows() {
+        return rows;
+    }
+
+    /**
+     * @return true if the rows went into one of the salaries, titles and dept_emp history tables
+     */
+    public boolean isHistory() {
+        return !table.equals("employees");
+    }
+
+    /**
+     * provides string representation of the event
+     *
+     * @return formatted string of the event's attributes
+     */
+    @Override
+    public String toString() {
+        return "EmployeesImportedEvent{" +
+                "table='" + table + '\'' +
+                ", rows=" + rows +
+                '}';
+    }
+}
@@ -0,0 +1,149 @@
+package org.DigiCorp.export;
+
+import org.DigiCorp.util.Helper;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * The columnar file format of the history export: one file per table, rows stored in blocks, and every
+ * block stored column by column with an encoding suited to the column.
+ * <pre>
+ *   header   "EMPC" u8 version  string table  varint columns  (string name  u8 type  u8 encoding) per column
+ *   block    varint rows  (varint bytes  column data) per column      repeated, a block of 0 rows ends the data
+ *   footer   varint total rows  "EMPC"
+ * </pre>
+ * Strings are a varint byte count and UTF-8 bytes. Varints are unsigned LEB128, 7 bits per byte; signed
+ * values are zig-zag encoded first, so small negative numbers stay short. Dates are epoch days.
+ * Column data is, per encoding:
+ * <ul>
+ *   <li>DELTA (ints and dates): the zig-zag varint difference to the column's previous value in the block,
+ *   the first value taken against 0. Rows come in primary key order, so employee numbers and dates change
+ *   by small steps.</li>
+ *   <li>PERIOD_END (to_date): the value relative to the from_date of the same row, which is the column just
+ *   before it, as a zig-zag varint: 0 for the current row (9999-01-01), -1 for null, to - from + 1 for
+ *   to_date on or after from_date, and to - from - 1 otherwise.</li>
+ *   <li>DICT (strings): a varint number of strings first seen in this block, the strings themselves, then
+ *   per row the varint code + 1 of the string, 0 for null. Codes are given in order of first appearance
+ *   and hold for the rest of the file, so titles and department numbers cost one byte per row.</li>
+ *   <li>PLAIN (strings): per row the varint byte count + 1, 0 for null, and the UTF-8 bytes.</li>
+ * </ul>
+ * Every column's data is prefixed with its size, so a reader can find each column of a block without
+ * decoding the others.
+ */
+public final class ColumnarFormat {
+
+    /**
+     * first and last bytes of every file
+     */
+    static final byte[] MAGIC = {'E', 'M', 'P', 'C'};
+
+    /**
+     * format version written to the header
+     */
+    static final int VERSION = 1;
+
+    /**
+     * epoch day of the to_date of current rows, 9999-01-01
+     */
+    static final long CURRENT_TO_DAY = Helper.CURRENT_TO_DATE.toEpochDay();
+
+    /**
+     * file name extension of columnar files
+     */
+    public static final String EXTENSION = ".empc";
+
+    /**
+     * value type of a column
+     */
+    public enum Type {
+        INT, DATE, STRING
+    }
+
+    /**
+     * encoding of a column's values, see the class comment
+     */
+    public enum Encoding {
+        DELTA, PERIOD_END, DICT, PLAIN
+    }
+
+    /**
+     * one column of a table
+     *
+     * @param name     column name, as in the database
+     * @param type     value type
+     * @param encoding how the values are encoded
+     */
+    public record Column(String name, Type type, Encoding encoding) {
+    }
+
+    private ColumnarFormat() {
+    }
+
+    /**
+     * maps a signed value to an unsigned one, small magnitudes to small values
+     */
+    static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    /**
+     * inverse of zigZag
+     */
+    static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * reads an unsigned varint
+     */
+    static long readVarint(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalStateException("Malformed varint");
+    }
+
+    /**
+     * a growable byte array the encoders write to
+     */
+    static final class Bytes {
+        byte[] data = new byte[4096];
+        int size;
+
+        void clear() {
+            size = 0;
+        }
+
+        void write(int b) {
+            if (size == data.length) {
+                data = Arrays.copyOf(data, data.length * 2);
+            }
+            data[size++] = (byte) b;
+        }
+
+        void write(byte[] bytes) {
+            if (size + bytes.length > data.length) {
+                data = Arrays.copyOf(data, Math.max(data.length * 2, size + bytes.length));
+            }
+            System.arraycopy(bytes, 0, data, size, bytes.length);
+            size += bytes.length;
+        }
+
+        /**
+         * writes an unsigned varint
+         */
+        void varint(long value) {
+            while ((value & ~0x7FL) != 0) {
+                write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            write((int) value);
+        }
+    }
+}
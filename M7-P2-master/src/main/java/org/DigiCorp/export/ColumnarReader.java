@@ -0,0 +1,335 @@
+package org.DigiCorp.export;
+
+import org.DigiCorp.export.ColumnarFormat.Column;
+import org.DigiCorp.export.ColumnarFormat.Encoding;
+import org.DigiCorp.export.ColumnarFormat.Type;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reads a table exported in the columnar format (see ColumnarFormat), row by row.
+ * <p>
+ * The file is mapped into memory and decoded one block at a time into primitive columns, so reading
+ * costs no more memory than a block whatever the size of the file; files are mapped whole, so up to 2 GB.
+ * Typical use:
+ * <pre>
+ * try (ColumnarReader reader = ColumnarReader.open(Path.of("salaries.empc"))) {
+ *     int salary = reader.columnIndex("salary");
+ *     while (reader.next()) {
+ *         total += reader.getInt(salary);
+ *     }
+ * }
+ * </pre>
+ * A reader is not thread-safe.
+ */
+public final class ColumnarReader implements Closeable {
+
+    /**
+     * the file
+     */
+    private final FileChannel channel;
+
+    /**
+     * the whole file
+     */
+    private final ByteBuffer in;
+
+    /**
+     * table name from the header
+     */
+    private final String table;
+
+    /**
+     * the table's columns from the header
+     */
+    private final List<Column> columns;
+
+    /**
+     * values of the current block per column: ints and epoch days, or strings, depending on the column type
+     */
+    private final long[][] numbers;
+    private final String[][] strings;
+
+    /**
+     * strings of every DICT column, indexed by code
+     */
+    private final List<List<String>> dictionaries = new ArrayList<>();
+
+    /**
+     * rows in the current block, and the current row within it
+     */
+    private int blockRows;
+    private int row = -1;
+
+    /**
+     * rows read so far, in every block
+     */
+    private long rowsRead;
+
+    /**
+     * true once the end marker has been read
+     */
+    private boolean ended;
+
+    private ColumnarReader(FileChannel channel, ByteBuffer in) {
+        this.channel = channel;
+        this.in = in;
+        byte[] magic = new byte[ColumnarFormat.MAGIC.length];
+        in.get(magic);
+        if (!Arrays.equals(magic, ColumnarFormat.MAGIC)) {
+            throw new IllegalStateException("Not a columnar export file");
+        }
+        int version = in.get();
+        if (version != ColumnarFormat.VERSION) {
+            throw new IllegalStateException("Unsupported columnar format version " + version);
+        }
+        this.table = string(in);
+        int count = (int) ColumnarFormat.readVarint(in);
+        List<Column> read = new ArrayList<>(count);
+        for (int c = 0; c < count; c++) {
+            String name = string(in);
+            Type type = Type.values()[in.get()];
+            Encoding encoding = Encoding.values()[in.get()];
+            read.add(new Column(name, type, encoding));
+            dictionaries.add(encoding == Encoding.DICT ? new ArrayList<>() : null);
+        }
+        this.columns = List.copyOf(read);
+        this.numbers = new long[count][];
+        this.strings = new String[count][];
+    }
+
+    /**
+     * Opens a file written by the history export.
+     *
+     * @param path the file
+     * @return a reader positioned before the first row
+     * @throws IOException if the file cannot be read
+     */
+    public static ColumnarReader open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            return new ColumnarReader(channel, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Retrieves the name of the exported table.
+     *
+     * @return the table name, e.g. salaries
+     */
+    public String getTable() {
+        return table;
+    }
+
+    /**
+     * Retrieves the columns of the exported table.
+     *
+     * @return the columns, in file order
+     */
+    public List<Column> getColumns() {
+        return columns;
+    }
+
+    /**
+     * Looks up a column by name.
+     *
+     * @param name column name, e.g. from_date
+     * @return position of the column, to pass to the getters
+     * @throws IllegalArgumentException if the table has no such column
+     */
+    public int columnIndex(String name) {
+        for (int c = 0; c < columns.size(); c++) {
+            if (columns.get(c).name().equals(name)) {
+                return c;
+            }
+        }
+        throw new IllegalArgumentException("Table " + table + " has no column " + name);
+    }
+
+    /**
+     * Moves to the next row.
+     *
+     * @return false once every row has been read
+     * @throws IllegalStateException if the file is truncated or corrupt
+     */
+    public boolean next() {
+        if (++row < blockRows) {
+            return true;
+        }
+        if (ended) {
+            return false;
+        }
+        try {
+            blockRows = (int) ColumnarFormat.readVarint(in);
+            if (blockRows == 0) {
+                ended = true;
+                long total = ColumnarFormat.readVarint(in);
+                byte[] magic = new byte[ColumnarFormat.MAGIC.length];
+                in.get(magic);
+                if (total != rowsRead || !Arrays.equals(magic, ColumnarFormat.MAGIC)) {
+                    throw new IllegalStateException("Corrupt footer: " + total + " rows recorded, " + rowsRead + " read");
+                }
+                return false;
+            }
+            for (int c = 0; c < columns.size(); c++) {
+                int size = (int) ColumnarFormat.readVarint(in);
+                int end = in.position() + size;
+                decode(c);
+                if (in.position() != end) {
+                    throw new IllegalStateException("Corrupt block in column " + columns.get(c).name());
+                }
+            }
+        } catch (BufferUnderflowException e) {
+            throw new IllegalStateException("Truncated file, " + rowsRead + " rows read");
+        }
+        rowsRead += blockRows;
+        row = 0;
+        return true;
+    }
+
+    /**
+     * Retrieves an INT column of the current row.
+     *
+     * @param column position of the column
+     * @return the value
+     */
+    public int getInt(int column) {
+        return (int) numbers[column][row];
+    }
+
+    /**
+     * Retrieves a DATE column of the current row.
+     *
+     * @param column position of the column
+     * @return the date, or null
+     */
+    public LocalDate getDate(int column) {
+        long day = numbers[column][row];
+        return day == ColumnarWriter.NULL_DAY ? null : LocalDate.ofEpochDay(day);
+    }
+
+    /**
+     * Retrieves a DATE column of the current row as an epoch day, without allocating.
+     *
+     * @param column position of the column
+     * @return days since 1970-01-01, or Long.MIN_VALUE for null
+     */
+    public long getEpochDay(int column) {
+        return numbers[column][row];
+    }
+
+    /**
+     * Retrieves a STRING column of the current row.
+     *
+     * @param column position of the column
+     * @return the value, or null
+     */
+    public String getString(int column) {
+        return strings[column][row];
+    }
+
+    /**
+     * closes the file; the mapping itself is released by the garbage collector
+     *
+     * @throws IOException if the channel cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * decodes column c of the block being read
+     */
+    private void decode(int c) {
+        Column spec = columns.get(c);
+        switch (spec.encoding()) {
+            case DELTA -> {
+                long[] values = numbers(c);
+                long previous = 0;
+                for (int r = 0; r < blockRows; r++) {
+                    previous += ColumnarFormat.unZigZag(ColumnarFormat.readVarint(in));
+                    values[r] = previous;
+                }
+            }
+            case PERIOD_END -> {
+                long[] from = numbers[c - 1];
+                long[] values = numbers(c);
+                for (int r = 0; r < blockRows; r++) {
+                    long value = ColumnarFormat.unZigZag(ColumnarFormat.readVarint(in));
+                    values[r] = value == 0 ? ColumnarFormat.CURRENT_TO_DAY
+                            : value == -1 ? ColumnarWriter.NULL_DAY
+                            : value > 0 ? from[r] + value - 1
+                            : from[r] + value + 1;
+                }
+            }
+            case DICT -> {
+                List<String> dictionary = dictionaries.get(c);
+                int added = (int) ColumnarFormat.readVarint(in);
+                for (int i = 0; i < added; i++) {
+                    dictionary.add(string(in));
+                }
+                String[] values = strings(c);
+                for (int r = 0; r < blockRows; r++) {
+                    int code = (int) ColumnarFormat.readVarint(in);
+                    values[r] = code == 0 ? null : dictionary.get(code - 1);
+                }
+            }
+            case PLAIN -> {
+                String[] values = strings(c);
+                for (int r = 0; r < blockRows; r++) {
+                    int length = (int) ColumnarFormat.readVarint(in);
+                    if (length == 0) {
+                        values[r] = null;
+                    } else {
+                        values[r] = new String(bytes(in, length - 1), StandardCharsets.UTF_8);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * returns the value array of column c, large enough for the block
+     */
+    private long[] numbers(int c) {
+        if (numbers[c] == null || numbers[c].length < blockRows) {
+            numbers[c] = new long[blockRows];
+        }
+        return numbers[c];
+    }
+
+    /**
+     * returns the value array of column c, large enough for the block
+     */
+    private String[] strings(int c) {
+        if (strings[c] == null || strings[c].length < blockRows) {
+            strings[c] = new String[blockRows];
+        }
+        return strings[c];
+    }
+
+    private static String string(ByteBuffer in) {
+        return new String(bytes(in, (int) ColumnarFormat.readVarint(in)), StandardCharsets.UTF_8);
+    }
+
+    private static byte[] bytes(ByteBuffer in, int length) {
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,297 @@
+package org.DigiCorp.export;
+
+import org.DigiCorp.export.ColumnarFormat.Bytes;
+import org.DigiCorp.export.ColumnarFormat.Column;
+import org.DigiCorp.export.ColumnarFormat.Encoding;
+import org.DigiCorp.export.ColumnarFormat.Type;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes one table in the columnar format (see ColumnarFormat).
+ * <p>
+ * Rows are collected into a block of primitive columns, and each full block is encoded column by column
+ * into a direct buffer that is written to the channel whenever it fills up. Memory is bounded by the
+ * block size, whatever the number of rows.
+ */
+final class ColumnarWriter implements Closeable {
+
+    /**
+     * value stored for a null date
+     */
+    static final long NULL_DAY = Long.MIN_VALUE;
+
+    /**
+     * the file
+     */
+    private final FileChannel channel;
+
+    /**
+     * the table's columns
+     */
+    private final List<Column> columns;
+
+    /**
+     * rows per block
+     */
+    private final int blockRows;
+
+    /**
+     * encoded bytes waiting to be written to the channel
+     */
+    private final ByteBuffer out;
+
+    /**
+     * values of the block per column: ints and epoch days, or strings, depending on the column type
+     */
+    private final long[][] numbers;
+    private final String[][] strings;
+
+    /**
+     * code of every string seen so far, per DICT column
+     */
+    private final List<Map<String, Integer>> dictionaries;
+
+    /**
+     * rows in the current block
+     */
+    private int rows;
+
+    /**
+     * rows written, in every block
+     */
+    private long totalRows;
+
+    /**
+     * scratch buffer one column is encoded into
+     */
+    private final Bytes column = new Bytes();
+
+    /**
+     * Writes the header of a table file.
+     *
+     * @param channel     the file, positioned at its start, and not closed by the writer
+     * @param table       table name
+     * @param columns     the table's columns
+     * @param blockRows   rows per block
+     * @param bufferBytes size of the write buffer
+     * @throws IOException if the header cannot be written
+     */
+    ColumnarWriter(FileChannel channel, String table, List<Column> columns, int blockRows, int bufferBytes)
+            throws IOException {
+        this.channel = channel;
+        this.columns = columns;
+        this.blockRows = blockRows;
+        this.out = ByteBuffer.allocateDirect(bufferBytes);
+        this.numbers = new long[columns.size()][];
+        this.strings = new String[columns.size()][];
+        this.dictionaries = new ArrayList<>();
+        for (int c = 0; c < columns.size(); c++) {
+            if (columns.get(c).type() == Type.STRING) {
+                strings[c] = new String[blockRows];
+            } else {
+                numbers[c] = new long[blockRows];
+            }
+            dictionaries.add(columns.get(c).encoding() == Encoding.DICT ? new HashMap<>() : null);
+        }
+
+        Bytes header = new Bytes();
+        header.write(ColumnarFormat.MAGIC);
+        header.write(ColumnarFormat.VERSION);
+        string(header, table);
+        header.varint(columns.size());
+        for (Column c : columns) {
+            string(header, c.name());
+            header.write(c.type().ordinal());
+            header.write(c.encoding().ordinal());
+        }
+        put(header);
+    }
+
+    /**
+     * sets an INT column of the current row
+     */
+    void setInt(int column, int value) {
+        numbers[column][rows] = value;
+    }
+
+    /**
+     * sets a DATE column of the current row to an epoch day, or NULL_DAY
+     */
+    void setDate(int column, long epochDay) {
+        numbers[column][rows] = epochDay;
+    }
+
+    /**
+     * sets a STRING column of the current row
+     */
+    void setString(int column, String value) {
+        strings[column][rows] = value;
+    }
+
+    /**
+     * completes the current row, writing the block out once it is full
+     *
+     * @throws IOException if the block cannot be written
+     */
+    void endRow() throws IOException {
+        if (++rows == blockRows) {
+            flushBlock();
+        }
+    }
+
+    /**
+     * returns the rows written so far
+     */
+    long rows() {
+        return totalRows + rows;
+    }
+
+    /**
+     * Writes the last block, the end marker and the footer, and flushes the buffer to the channel.
+     *
+     * @throws IOException if the file cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+        flushBlock();
+        Bytes footer = new Bytes();
+        footer.varint(0);
+        footer.varint(totalRows);
+        footer.write(ColumnarFormat.MAGIC);
+        put(footer);
+        out.flip();
+        while (out.hasRemaining()) {
+            channel.write(out);
+        }
+        out.clear();
+    }
+
+    /**
+     * encodes the rows collected so far as one block
+     */
+    private void flushBlock() throws IOException {
+        if (rows == 0) {
+            return;
+        }
+        Bytes count = new Bytes();
+        count.varint(rows);
+        put(count);
+        for (int c = 0; c < columns.size(); c++) {
+            column.clear();
+            encode(c);
+            Bytes size = new Bytes();
+            size.varint(column.size);
+            put(size);
+            put(column);
+        }
+        totalRows += rows;
+        rows = 0;
+    }
+
+    /**
+     * encodes column c of the block into the scratch buffer
+     */
+    private void encode(int c) {
+        Column spec = columns.get(c);
+        switch (spec.encoding()) {
+            case DELTA -> {
+                long previous = 0;
+                long[] values = numbers[c];
+                for (int r = 0; r < rows; r++) {
+                    if (values[r] == NULL_DAY) {
+                        throw new IllegalStateException("Column " + spec.name() + " is null, which DELTA cannot encode");
+                    }
+                    column.varint(ColumnarFormat.zigZag(values[r] - previous));
+                    previous = values[r];
+                }
+            }
+            case PERIOD_END -> {
+                long[] from = numbers[c - 1];
+                long[] to = numbers[c];
+                for (int r = 0; r < rows; r++) {
+                    long value;
+                    if (to[r] == ColumnarFormat.CURRENT_TO_DAY) {
+                        value = 0;
+                    } else if (to[r] == NULL_DAY) {
+                        value = -1;
+                    } else {
+                        long days = to[r] - from[r];
+                        value = days >= 0 ? days + 1 : days - 1;
+                    }
+                    column.varint(ColumnarFormat.zigZag(value));
+                }
+            }
+            case DICT -> {
+                Map<String, Integer> codes = dictionaries.get(c);
+                String[] values = strings[c];
+                List<String> added = new ArrayList<>();
+                int[] rowCodes = new int[rows];
+                for (int r = 0; r < rows; r++) {
+                    if (values[r] == null) {
+                        continue;
+                    }
+                    Integer code = codes.get(values[r]);
+                    if (code == null) {
+                        code = codes.size();
+                        codes.put(values[r], code);
+                        added.add(values[r]);
+                    }
+                    rowCodes[r] = code + 1;
+                }
+                column.varint(added.size());
+                for (String s : added) {
+                    string(column, s);
+                }
+                for (int r = 0; r < rows; r++) {
+                    column.varint(rowCodes[r]);
+                }
+            }
+            case PLAIN -> {
+                String[] values = strings[c];
+                for (int r = 0; r < rows; r++) {
+                    if (values[r] == null) {
+                        column.varint(0);
+                    } else {
+                        byte[] bytes = values[r].getBytes(StandardCharsets.UTF_8);
+                        column.varint(bytes.length + 1L);
+                        column.write(bytes);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * appends bytes to the write buffer, writing it to the channel whenever it fills up
+     */
+    private void put(Bytes bytes) throws IOException {
+        int offset = 0;
+        while (offset < bytes.size) {
+            if (!out.hasRemaining()) {
+                out.flip();
+                while (out.hasRemaining()) {
+                    channel.write(out);
+                }
+                out.clear();
+            }
+            int n = Math.min(out.remaining(), bytes.size - offset);
+            out.put(bytes.data, offset, n);
+            offset += n;
+        }
+    }
+
+    private static void string(Bytes bytes, String value) {
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        bytes.varint(utf8.length);
+        bytes.write(utf8);
+    }
+}
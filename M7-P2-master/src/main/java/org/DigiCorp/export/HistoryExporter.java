@@ -0,0 +1,428 @@
+package org.DigiCorp.export;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import org.DigiCorp.dto.ExportReportDTO;
+import org.DigiCorp.dto.ExportTableDTO;
+import org.DigiCorp.exceptions.InvalidDataException;
+import org.DigiCorp.export.ColumnarFormat.Column;
+import org.DigiCorp.export.ColumnarFormat.Encoding;
+import org.DigiCorp.export.ColumnarFormat.Type;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+/**
+ * Exports the full history of the employees, salaries, titles, dept_emp and dept_manager tables for the data
+ * warehouse, one file per table in the columnar format (see ColumnarFormat, and ColumnarReader to read it).
+ * <p>
+ * Every table is read in primary key order through a forward-only cursor that fetches a few rows at a time,
+ * and the rows are encoded in blocks and written through a FileChannel with a large direct buffer, so memory
+ * stays bounded whatever the size of the tables. All tables are read in one read-only REPEATABLE READ
+ * transaction: the files are a consistent snapshot even while promotions commit.
+ * <p>
+ * An export is written to a directory named after its start time, with a .tmp suffix until every file has been
+ * written and synced, so the warehouse never picks up a partial export. Asked to, the export also writes each
+ * table as CSV next to its columnar file and reports the size and time of both.
+ */
+@Component
+public class HistoryExporter {
+
+    private static final Logger log = LoggerFactory.getLogger(HistoryExporter.class);
+
+    /**
+     * names the directory of an export after its start time
+     */
+    private static final DateTimeFormatter DIRECTORY_NAME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS");
+
+    /**
+     * the exported tables, in export order
+     */
+    private static final List<TableExport> TABLES = List.of(
+            new TableExport("employees",
+                    "SELECT emp_no, birth_date, first_name, last_name, gender, hire_date FROM employees ORDER BY emp_no",
+                    List.of(new Column("emp_no", Type.INT, Encoding.DELTA),
+                            new Column("birth_date", Type.DATE, Encoding.DELTA),
+                            new Column("first_name", Type.STRING, Encoding.PLAIN),
+                            new Column("last_name", Type.STRING, Encoding.PLAIN),
+                            new Column("gender", Type.STRING, Encoding.DICT),
+                            new Column("hire_date", Type.DATE, Encoding.DELTA))),
+            new TableExport("salaries",
+                    "SELECT emp_no, salary, from_date, to_date FROM salaries ORDER BY emp_no, from_date",
+                    List.of(new Column("emp_no", Type.INT, Encoding.DELTA),
+                            new Column("salary", Type.INT, Encoding.DELTA),
+                            new Column("from_date", Type.DATE, Encoding.DELTA),
+                            new Column("to_date", Type.DATE, Encoding.PERIOD_END))),
+            new TableExport("titles",
+                    "SELECT emp_no, title, from_date, to_date FROM titles ORDER BY emp_no, title, from_date",
+                    List.of(new Column("emp_no", Type.INT, Encoding.DELTA),
+                            new Column("title", Type.STRING, Encoding.DICT),
+                            new Column("from_date", Type.DATE, Encoding.DELTA),
+                            new Column("to_date", Type.DATE, Encoding.PERIOD_END))),
+            new TableExport("dept_emp",
+                    "SELECT emp_no, dept_no, from_date, to_date FROM dept_emp ORDER BY emp_no, dept_no",
+                    List.of(new Column("emp_no", Type.INT, Encoding.DELTA),
+                            new Column("dept_no", Type.STRING, Encoding.DICT),
+                            new Column("from_date", Type.DATE, Encoding.DELTA),
+                            new Column("to_date", Type.DATE, Encoding.PERIOD_END))),
+            new TableExport("dept_manager",
+                    "SELECT emp_no, dept_no, from_date, to_date FROM dept_manager ORDER BY emp_no, dept_no",
+                    List.of(new Column("emp_no", Type.INT, Encoding.DELTA),
+                            new Column("dept_no", Type.STRING, Encoding.DICT),
+                            new Column("from_date", Type.DATE, Encoding.DELTA),
+                            new Column("to_date", Type.DATE, Encoding.PERIOD_END))));
+
+    /**
+     * connections the tables are read through
+     */
+    private final DataSource dataSource;
+
+    /**
+     * directory the exports are written under
+     */
+    private final Path directory;
+
+    /**
+     * rows per columnar block
+     */
+    private final int blockRows;
+
+    /**
+     * size of the direct buffer every file is written through
+     */
+    private final int bufferBytes;
+
+    /**
+     * rows fetched from the database per round trip
+     */
+    private final int fetchSize;
+
+    /**
+     * true while an export runs, exports run one at a time
+     */
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    /**
+     * runs by outcome
+     */
+    private final Counter completedExports;
+    private final Counter failedExports;
+
+    /**
+     * time of a whole export
+     */
+    private final Timer exportTimer;
+
+    /**
+     * report of the last completed export, null until one completes
+     */
+    private volatile ExportReportDTO lastReport;
+
+    /**
+     * constructor, initializes the exporter and publishes its metrics
+     *
+     * @param dataSource    connections the tables are read through
+     * @param meterRegistry registry the export metrics are published to
+     * @param directory     directory the exports are written under
+     * @param blockRows     rows per columnar block
+     * @param bufferBytes   size of the buffer every file is written through
+     * @param fetchSize     rows fetched from the database per round trip
+     */
+    public HistoryExporter(DataSource dataSource, MeterRegistry meterRegistry,
+                           @Value("${employees.export.columnar.dir:data/export}") String directory,
+                           @Value("${employees.export.columnar.block-rows:65536}") int blockRows,
+                           @Value("${employees.export.columnar.buffer-bytes:1048576}") int bufferBytes,
+                           @Value("${employees.export.fetch-size:1000}") int fetchSize) {
+        this.dataSource = dataSource;
+        this.directory = Path.of(directory);
+        this.blockRows = Math.max(1, blockRows);
+        this.bufferBytes = Math.max(4096, bufferBytes);
+        this.fetchSize = fetchSize;
+
+        this.completedExports = exports(meterRegistry, "completed");
+        this.failedExports = exports(meterRegistry, "failed");
+        this.exportTimer = Timer.builder("employees.export.duration")
+                .description("Time to export the full history of every table")
+                .register(meterRegistry);
+    }
+
+    /**
+     * runs the nightly export, disabled unless employees.export.columnar.cron is set
+     */
+    @Scheduled(cron = "${employees.export.columnar.cron:-}")
+    public void scheduledExport() {
+        try {
+            export(false);
+        } catch (InvalidDataException e) {
+            log.warn("Scheduled history export did not run: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Exports every table to a new directory of columnar files.
+     *
+     * @param csv true to also write every table as CSV, and report its size and time against the columnar file
+     * @return the report of the export
+     * @throws InvalidDataException with status 409 if an export is already running, or 500 if the export failed,
+     *                              in which case its partial directory is removed
+     */
+    public ExportReportDTO export(boolean csv) throws InvalidDataException {
+        if (!running.compareAndSet(false, true)) {
+            throw new InvalidDataException("A history export is already running", 409);
+        }
+        long start = System.nanoTime();
+        String name = LocalDateTime.now().format(DIRECTORY_NAME);
+        Path target = directory.resolve(name);
+        Path partial = directory.resolve(name + ".tmp");
+        try {
+            Files.createDirectories(partial);
+            List<ExportTableDTO> tables = new ArrayList<>();
+            try (Connection connection = dataSource.getConnection()) {
+                connection.setReadOnly(true);
+                connection.setAutoCommit(false);
+                connection.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+                try {
+                    for (TableExport table : TABLES) {
+                        tables.add(exportTable(connection, table, partial, csv));
+                    }
+                } finally {
+                    connection.rollback();
+                }
+            }
+            Files.move(partial, target, StandardCopyOption.ATOMIC_MOVE);
+
+            ExportReportDTO report = new ExportReportDTO();
+            report.setDirectory(target.toString());
+            report.setTables(tables);
+            report.setColumnarBytes(tables.stream().mapToLong(ExportTableDTO::getColumnarBytes).sum());
+            report.setCsvBytes(tables.stream().mapToLong(ExportTableDTO::getCsvBytes).sum());
+            report.setElapsedMs((System.nanoTime() - start) / 1_000_000);
+            completedExports.increment();
+            lastReport = report;
+            log.info("History export to {}: {} rows, {} columnar bytes{} in {} ms", target,
+                    tables.stream().mapToLong(ExportTableDTO::getRows).sum(), report.getColumnarBytes(),
+                    csv ? " (" + report.getCsvBytes() + " as CSV)" : "", report.getElapsedMs());
+            return report;
+
+        } catch (IOException | SQLException | RuntimeException e) {
+            failedExports.increment();
+            log.warn("History export to {} failed", partial, e);
+            delete(partial);
+            throw new InvalidDataException("History export failed: " + e.getMessage(), 500);
+        } finally {
+            exportTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            running.set(false);
+        }
+    }
+
+    /**
+     * Retrieves the export counters and the sizes of the last completed export.
+     *
+     * @return map of counter name to value
+     */
+    public Map<String, Long> getStatistics() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        ExportReportDTO last = lastReport;
+        stats.put("running", running.get() ? 1L : 0L);
+        stats.put("completedExports", (long) completedExports.count());
+        stats.put("failedExports", (long) failedExports.count());
+        stats.put("lastRows", last == null ? 0 : last.getTables().stream().mapToLong(ExportTableDTO::getRows).sum());
+        stats.put("lastColumnarBytes", last == null ? 0 : last.getColumnarBytes());
+        stats.put("lastCsvBytes", last == null ? 0 : last.getCsvBytes());
+        stats.put("lastElapsedMs", last == null ? 0 : last.getElapsedMs());
+        return stats;
+    }
+
+    /**
+     * writes one table as a columnar file and, if asked for, as CSV
+     */
+    private ExportTableDTO exportTable(Connection connection, TableExport table, Path partial, boolean csv)
+            throws IOException, SQLException {
+        ExportTableDTO report = new ExportTableDTO();
+        report.setTable(table.name());
+
+        long start = System.nanoTime();
+        Path columnarPath = partial.resolve(table.name() + ColumnarFormat.EXTENSION);
+        try (FileChannel channel = FileChannel.open(columnarPath, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+             PreparedStatement statement = query(connection, table);
+             ResultSet rs = statement.executeQuery()) {
+            List<Column> columns = table.columns();
+            ColumnarWriter writer = new ColumnarWriter(channel, table.name(), columns, blockRows, bufferBytes);
+            while (rs.next()) {
+                for (int c = 0; c < columns.size(); c++) {
+                    switch (columns.get(c).type()) {
+                        case INT -> writer.setInt(c, rs.getInt(c + 1));
+                        case DATE -> {
+                            LocalDate date = rs.getObject(c + 1, LocalDate.class);
+                            writer.setDate(c, date == null ? ColumnarWriter.NULL_DAY : date.toEpochDay());
+                        }
+                        case STRING -> writer.setString(c, rs.getString(c + 1));
+                    }
+                }
+                writer.endRow();
+            }
+            writer.close();
+            channel.force(false);
+            report.setRows(writer.rows());
+            report.setColumnarBytes(channel.size());
+        }
+        report.setColumnarMs((System.nanoTime() - start) / 1_000_000);
+
+        if (csv) {
+            start = System.nanoTime();
+            report.setCsvBytes(exportCsv(connection, table, partial.resolve(table.name() + ".csv")));
+            report.setCsvMs((System.nanoTime() - start) / 1_000_000);
+        }
+        return report;
+    }
+
+    /**
+     * writes one table as CSV through the same kind of channel and buffer, for comparison
+     */
+    private long exportCsv(Connection connection, TableExport table, Path path) throws IOException, SQLException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+             PreparedStatement statement = query(connection, table);
+             ResultSet rs = statement.executeQuery()) {
+            List<Column> columns = table.columns();
+            ByteBuffer out = ByteBuffer.allocateDirect(bufferBytes);
+            StringBuilder line = new StringBuilder(128);
+            for (int c = 0; c < columns.size(); c++) {
+                line.append(c == 0 ? "" : ",").append(columns.get(c).name());
+            }
+            line.append('\n');
+            put(channel, out, line);
+            while (rs.next()) {
+                line.setLength(0);
+                for (int c = 0; c < columns.size(); c++) {
+                    if (c > 0) {
+                        line.append(',');
+                    }
+                    switch (columns.get(c).type()) {
+                        case INT -> line.append(rs.getInt(c + 1));
+                        case DATE -> {
+                            LocalDate date = rs.getObject(c + 1, LocalDate.class);
+                            if (date != null) {
+                                line.append(date);
+                            }
+                        }
+                        case STRING -> csvField(line, rs.getString(c + 1));
+                    }
+                }
+                line.append('\n');
+                put(channel, out, line);
+            }
+            out.flip();
+            while (out.hasRemaining()) {
+                channel.write(out);
+            }
+            channel.force(false);
+            return channel.size();
+        }
+    }
+
+    /**
+     * opens a forward-only, read-only cursor over a table
+     */
+    private PreparedStatement query(Connection connection, TableExport table) throws SQLException {
+        PreparedStatement statement = connection.prepareStatement(table.sql(),
+                ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        statement.setFetchSize(fetchSize);
+        return statement;
+    }
+
+    /**
+     * appends a line to the buffer, writing the buffer to the channel when the line does not fit
+     */
+    private static void put(FileChannel channel, ByteBuffer out, StringBuilder line) throws IOException {
+        byte[] bytes = line.toString().getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > out.remaining()) {
+            out.flip();
+            while (out.hasRemaining()) {
+                channel.write(out);
+            }
+            out.clear();
+        }
+        if (bytes.length > out.remaining()) {
+            channel.write(ByteBuffer.wrap(bytes));
+        } else {
+            out.put(bytes);
+        }
+    }
+
+    /**
+     * appends a string field, quoted if it holds a separator, a quote or a line break
+     */
+    private static void csvField(StringBuilder line, String value) {
+        if (value == null) {
+            return;
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            line.append(value);
+            return;
+        }
+        line.append('"').append(value.replace("\"", "\"\"")).append('"');
+    }
+
+    /**
+     * removes the partial directory of a failed export
+     */
+    private static void delete(Path partial) {
+        if (!Files.exists(partial)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(partial)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        } catch (IOException e) {
+            log.warn("Could not remove the partial export {}", partial, e);
+        }
+    }
+
+    private static Counter exports(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("employees.export.runs")
+                .description("History exports by outcome")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    /**
+     * one exported table
+     *
+     * @param name    table name, also the file name
+     * @param sql     query reading the whole table in primary key order, one select item per column
+     * @param columns the columns of the file
+     */
+    private record TableExport(String name, String sql, List<Column> columns) {
+    }
+}
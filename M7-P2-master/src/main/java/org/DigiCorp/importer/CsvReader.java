@@ -0,0 +1,157 @@
+package org.DigiCorp.importer;
+
+import org.DigiCorp.exceptions.InvalidDataException;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streaming reader of RFC 4180 CSV: comma separated fields, optionally enclosed in double quotes, a quote
+ * inside a quoted field written twice, records ended by LF or CRLF. Quoted fields may span lines.
+ * <p>
+ * Reads through a fixed-size buffer and holds one record at a time, so memory does not grow with the
+ * input; a record longer than the configured limit, e.g. behind an unterminated quote, fails the read
+ * instead of consuming the rest of the input.
+ */
+final class CsvReader {
+
+    /**
+     * characters read from the input at once
+     */
+    private static final int BUFFER_CHARS = 64 * 1024;
+
+    /**
+     * the input, read through buf
+     */
+    private final Reader in;
+
+    /**
+     * longest record accepted, in characters
+     */
+    private final int maxRecordChars;
+
+    /**
+     * chars read from the input and not consumed yet, from pos to limit
+     */
+    private final char[] buf = new char[BUFFER_CHARS];
+    private int pos;
+    private int limit;
+
+    /**
+     * the field being read
+     */
+    private final StringBuilder field = new StringBuilder();
+
+    /**
+     * number of the line being read, from 1
+     */
+    private long line = 1;
+
+    /**
+     * number of the line the last record returned started on
+     */
+    private long recordLine;
+
+    /**
+     * constructor, reads records from in
+     *
+     * @param in             the input, not closed by the reader
+     * @param maxRecordChars longest record accepted, in characters
+     */
+    CsvReader(Reader in, int maxRecordChars) {
+        this.in = in;
+        this.maxRecordChars = maxRecordChars;
+    }
+
+    /**
+     * Reads the next record. Blank lines are skipped.
+     *
+     * @return the fields of the record, or null at the end of the input
+     * @throws IOException          if the input cannot be read
+     * @throws InvalidDataException with status 400 if the record is too long or a quote is not closed
+     */
+    List<String> next() throws IOException, InvalidDataException {
+        int c;
+        // skip blank lines
+        while ((c = read()) == '\n' || c == '\r') {
+            if (c == '\n') {
+                line++;
+            }
+        }
+        if (c < 0) {
+            return null;
+        }
+
+        recordLine = line;
+        List<String> fields = new ArrayList<>();
+        int chars = 0;
+        boolean quoted = false;
+        boolean wasQuoted = false;
+        field.setLength(0);
+        while (true) {
+            if (++chars > maxRecordChars) {
+                throw new InvalidDataException("Line " + recordLine + ": record longer than "
+                        + maxRecordChars + " characters", 400);
+            }
+            if (quoted) {
+                if (c < 0) {
+                    throw new InvalidDataException("Line " + recordLine + ": quoted field is not closed", 400);
+                }
+                if (c == '"') {
+                    c = read();
+                    if (c != '"') {
+                        quoted = false;
+                        continue;
+                    }
+                } else if (c == '\n') {
+                    line++;
+                }
+                field.append((char) c);
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+                wasQuoted = false;
+            } else if (c == '\n' || c < 0) {
+                if (c == '\n') {
+                    line++;
+                }
+                int end = field.length();
+                if (!wasQuoted && end > 0 && field.charAt(end - 1) == '\r') {
+                    field.setLength(end - 1);
+                }
+                fields.add(field.toString());
+                return fields;
+            } else if (c == '"' && field.isEmpty() && !wasQuoted) {
+                quoted = true;
+                wasQuoted = true;
+            } else if (c != '\r' || !wasQuoted) {
+                field.append((char) c);
+            }
+            c = read();
+        }
+    }
+
+    /**
+     * returns the number of the line the last record returned started on
+     */
+    long recordLine() {
+        return recordLine;
+    }
+
+    /**
+     * returns the next char of the input, or -1 at its end
+     */
+    private int read() throws IOException {
+        if (pos == limit) {
+            limit = in.read(buf, 0, buf.length);
+            pos = 0;
+            if (limit <= 0) {
+                limit = 0;
+                return -1;
+            }
+        }
+        return buf[pos++];
+    }
+}
@@ -0,0 +1,724 @@
+package org.DigiCorp.importer;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import org.DigiCorp.cache.DepartmentCatalogue;
+import org.DigiCorp.dto.ImportRejectDTO;
+import org.DigiCorp.dto.ImportReportDTO;
+import org.DigiCorp.event.EmployeesImportedEvent;
+import org.DigiCorp.exceptions.InvalidDataException;
+import org.DigiCorp.util.Helper;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Loads CSV files into the employees, salaries, titles and dept_emp tables, e.g. when onboarding the staff
+ * of an acquired company.
+ * <p>
+ * The file is streamed: records are parsed as they arrive and only one chunk of rows is held at a time.
+ * Each record is validated on its own (see ImportTable) and rejected records are reported with their line
+ * and reason instead of failing the import. A chunk is checked against the database with two queries per
+ * thousand employees: history rows need an existing employee, whose row is locked the way promotions lock
+ * it, and no row may already exist; a history row must not overlap the employee's other rows, those in the
+ * table or accepted earlier in the chunk, nor add a second current row. The rest is written with multi-row
+ * INSERT statements and committed in one transaction; should the database still refuse the chunk, it is
+ * retried row by row to reject just the offending rows. Rows go through plain JDBC, bypassing Hibernate, so
+ * caches and read models are refreshed once, when the import stops (see EmployeesImportedEvent).
+ * <p>
+ * Progress is checkpointed to a file per job after every chunk. Uploading the same file again under the
+ * same job id resumes after the last committed chunk; rows of a chunk that was in doubt when the previous
+ * run stopped are skipped if they are already present.
+ */
+@Component
+public class EmployeeImporter {
+
+    private static final Logger log = LoggerFactory.getLogger(EmployeeImporter.class);
+
+    /**
+     * job ids are used as file names
+     */
+    private static final Pattern JOB_ID = Pattern.compile("[A-Za-z0-9._-]{1,64}");
+
+    /**
+     * maximum employee numbers bound to one IN list
+     */
+    private static final int IN_LIST_SIZE = 1000;
+
+    /**
+     * connections the chunks are written through
+     */
+    private final DataSource dataSource;
+
+    /**
+     * in-process department catalogue, checked for every dept_emp row
+     */
+    private final DepartmentCatalogue departmentCatalogue;
+
+    /**
+     * publishes the EmployeesImportedEvent
+     */
+    private final ApplicationEventPublisher eventPublisher;
+
+    /**
+     * directory of the checkpoint and rejects files
+     */
+    private final Path directory;
+
+    /**
+     * records per chunk when the request does not say
+     */
+    private final int defaultChunkSize;
+
+    /**
+     * largest chunk a request may ask for
+     */
+    private final int maxChunkSize;
+
+    /**
+     * rows written by one INSERT statement
+     */
+    private final int rowsPerStatement;
+
+    /**
+     * longest CSV record accepted, in characters
+     */
+    private final int maxRecordChars;
+
+    /**
+     * rejects listed in a report, the rest are only written to the rejects file
+     */
+    private final int maxRejectsReported;
+
+    /**
+     * ids of the jobs running now, a job runs at most once at a time
+     */
+    private final Set<String> running = ConcurrentHashMap.newKeySet();
+
+    /**
+     * rows by outcome
+     */
+    private final Counter insertedRows;
+    private final Counter rejectedRows;
+    private final Counter skippedRows;
+
+    /**
+     * runs by outcome
+     */
+    private final Counter completedJobs;
+    private final Counter failedJobs;
+
+    /**
+     * time to check and commit one chunk
+     */
+    private final Timer chunkTimer;
+
+    /**
+     * constructor, initializes the importer and publishes its metrics
+     *
+     * @param dataSource          connections the chunks are written through
+     * @param departmentCatalogue in-process department catalogue
+     * @param eventPublisher      publishes the EmployeesImportedEvent
+     * @param meterRegistry       registry the row, job and chunk metrics are published to
+     * @param directory           directory of the checkpoint and rejects files
+     * @param defaultChunkSize    records per chunk when the request does not say
+     * @param maxChunkSize        largest chunk a request may ask for
+     * @param rowsPerStatement    rows written by one INSERT statement
+     * @param maxRecordChars      longest CSV record accepted, in characters
+     * @param maxRejectsReported  rejects listed in a report
+     */
+    public EmployeeImporter(DataSource dataSource, DepartmentCatalogue departmentCatalogue,
+                            ApplicationEventPublisher eventPublisher, MeterRegistry meterRegistry,
+                            @Value("${employees.import.dir:data/import}") String directory,
+                            @Value("${employees.import.chunk-size:5000}") int defaultChunkSize,
+                            @Value("${employees.import.max-chunk-size:50000}") int maxChunkSize,
+                            @Value("${employees.import.rows-per-statement:500}") int rowsPerStatement,
+                            @Value("${employees.import.max-record-chars:4096}") int maxRecordChars,
+                            @Value("${employees.import.max-rejects-reported:100}") int maxRejectsReported) {
+        this.dataSource = dataSource;
+        this.departmentCatalogue = departmentCatalogue;
+        this.eventPublisher = eventPublisher;
+        this.directory = Path.of(directory);
+        this.defaultChunkSize = defaultChunkSize;
+        this.maxChunkSize = maxChunkSize;
+        this.rowsPerStatement = Math.max(1, rowsPerStatement);
+        this.maxRecordChars = maxRecordChars;
+        this.maxRejectsReported = maxRejectsReported;
+
+        this.insertedRows = rows(meterRegistry, "inserted");
+        this.rejectedRows = rows(meterRegistry, "rejected");
+        this.skippedRows = rows(meterRegistry, "skipped");
+        this.completedJobs = jobs(meterRegistry, "completed");
+        this.failedJobs = jobs(meterRegistry, "failed");
+        this.chunkTimer = Timer.builder("employees.import.chunk")
+                .description("Time to check and commit one chunk of a bulk import")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Imports a CSV file into one table, or resumes an earlier import of the same file.
+     * <p>
+     * The first record is the header, naming every column of the table in any order: emp_no, birth_date,
+     * first_name, last_name, gender, hire_date for employees; emp_no, salary, from_date, to_date for
+     * salaries; emp_no, title, from_date, to_date for titles; emp_no, dept_no, from_date, to_date for
+     * dept_emp. Dates are YYYY-MM-DD, an empty to_date marks the current row.
+     *
+     * @param tableName employees, salaries, titles or dept_emp
+     * @param jobId     id of the job, under which it is checkpointed and resumed
+     * @param chunkSize records committed per transaction, or null for the configured default
+     * @param csv       the file, read once, in order, and not closed
+     * @return the report of this run
+     * @throws InvalidDataException with status 400 for an unknown table, a bad job id, chunk size or header,
+     *                              or a file that does not match the job's checkpoint; 409 if the job is
+     *                              already running; 500 if the import stops part way, in which case it can
+     *                              be resumed
+     */
+    public ImportReportDTO importCsv(String tableName, String jobId, Integer chunkSize, Reader csv)
+            throws InvalidDataException {
+        ImportTable table = ImportTable.of(tableName);
+        if (jobId == null || !JOB_ID.matcher(jobId).matches()) {
+            throw new InvalidDataException("jobId must be 1 to 64 letters, digits, '.', '_' or '-'", 400);
+        }
+        int chunk = chunkSize == null ? defaultChunkSize : chunkSize;
+        if (chunk < 1 || chunk > maxChunkSize) {
+            throw new InvalidDataException("chunkSize must be between 1 and " + maxChunkSize, 400);
+        }
+        if (!running.add(jobId)) {
+            throw new InvalidDataException("Import job " + jobId + " is already running", 409);
+        }
+
+        ImportReportDTO report = new ImportReportDTO();
+        report.setJobId(jobId);
+        report.setTable(table.tableName());
+        report.setRejects(new ArrayList<>());
+        long start = System.nanoTime();
+        try {
+            run(table, jobId, chunk, new CsvReader(csv, maxRecordChars), report);
+            completedJobs.increment();
+        } catch (InvalidDataException e) {
+            failedJobs.increment();
+            throw e;
+        } catch (IOException | SQLException e) {
+            failedJobs.increment();
+            log.warn("Import job {} into {} stopped after {} records", jobId, table.tableName(),
+                    report.getResumedFrom() + report.getRecords(), e);
+            throw new InvalidDataException("Import job " + jobId + " stopped after " + report.getRecords()
+                    + " records of this run (" + report.getInserted() + " rows inserted): " + e.getMessage()
+                    + ". Upload the same file with the same jobId to resume.", 500);
+        } finally {
+            running.remove(jobId);
+            long elapsedNanos = System.nanoTime() - start;
+            report.setElapsedMs(elapsedNanos / 1_000_000);
+            report.setRowsPerSecond(report.getRecords() * 1e9 / Math.max(1, elapsedNanos));
+            if (report.getInserted() > 0) {
+                eventPublisher.publishEvent(new EmployeesImportedEvent(table.tableName(), report.getInserted()));
+            }
+        }
+        log.info("Import job {} into {}: {} records in {} ms ({} rows/s), {} inserted, {} rejected, {} skipped",
+                jobId, table.tableName(), report.getRecords(), report.getElapsedMs(),
+                (long) report.getRowsPerSecond(), report.getInserted(), report.getRejected(), report.getSkipped());
+        return report;
+    }
+
+    /**
+     * Retrieves the importer counters.
+     *
+     * @return map of counter name to value
+     */
+    public Map<String, Long> getStatistics() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("running", (long) running.size());
+        stats.put("completedJobs", (long) completedJobs.count());
+        stats.put("failedJobs", (long) failedJobs.count());
+        stats.put("chunks", chunkTimer.count());
+        stats.put("inserted", (long) insertedRows.count());
+        stats.put("rejected", (long) rejectedRows.count());
+        stats.put("skipped", (long) skippedRows.count());
+        return stats;
+    }
+
+    /**
+     * reads the header, resumes from the checkpoint and imports the remaining records chunk by chunk
+     */
+    private void run(ImportTable table, String jobId, int chunk, CsvReader csv, ImportReportDTO report)
+            throws InvalidDataException, IOException, SQLException {
+        List<String> headerFields = csv.next();
+        if (headerFields == null) {
+            throw new InvalidDataException("The file is empty, expected a header naming the columns", 400);
+        }
+        String header = normalizeHeader(headerFields);
+        int[] positions = positions(table, headerFields);
+
+        Files.createDirectories(directory);
+        Path checkpointPath = directory.resolve(jobId + ".checkpoint");
+        Path rejectsPath = directory.resolve(jobId + ".rejects.csv");
+        report.setRejectsFile(rejectsPath.toString());
+        ImportCheckpoint checkpoint = ImportCheckpoint.load(checkpointPath);
+        if (checkpoint == null) {
+            checkpoint = new ImportCheckpoint();
+            checkpoint.table = table.tableName();
+            checkpoint.header = header;
+        } else if (!checkpoint.table.equals(table.tableName()) || !checkpoint.header.equals(header)) {
+            throw new InvalidDataException("Import job " + jobId + " was started for table " + checkpoint.table
+                    + " with columns " + checkpoint.header + ": upload the same file to resume it, or use a new jobId", 400);
+        }
+        report.setResumedFrom(checkpoint.committed);
+        report.setComplete(checkpoint.complete);
+        report.setTotalInserted(checkpoint.inserted);
+        report.setTotalRejected(checkpoint.rejected);
+        if (checkpoint.complete) {
+            return;
+        }
+
+        for (long skipped = 0; skipped < checkpoint.committed; skipped++) {
+            if (csv.next() == null) {
+                throw new InvalidDataException("The file has " + skipped + " records but import job " + jobId
+                        + " already processed " + checkpoint.committed + ": upload the same file to resume it", 400);
+            }
+        }
+
+        try (FileChannel rejects = FileChannel.open(rejectsPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            // drop rejects written after the checkpoint, the records behind them are read again
+            rejects.truncate(checkpoint.rejectsBytes);
+            if (checkpoint.rejectsBytes == 0) {
+                write(rejects, "line,reason\n");
+            }
+            boolean inDoubt = checkpoint.pending > checkpoint.committed;
+
+            List<Row> rows = new ArrayList<>();
+            List<ImportRejectDTO> chunkRejects = new ArrayList<>();
+            while (true) {
+                int records = readChunk(table, csv, headerFields.size(), positions, chunk, rows, chunkRejects);
+                if (records == 0) {
+                    break;
+                }
+                checkpoint.pending = checkpoint.committed + records;
+                checkpoint.save(checkpointPath);
+
+                long chunkStart = System.nanoTime();
+                long[] outcome = writeChunk(table, rows, chunkRejects, inDoubt);
+                chunkTimer.record(System.nanoTime() - chunkStart, TimeUnit.NANOSECONDS);
+                inDoubt = false;
+
+                StringBuilder lines = new StringBuilder();
+                for (ImportRejectDTO reject : chunkRejects) {
+                    lines.append(reject.getLine()).append(",\"")
+                            .append(reject.getReason().replace("\"", "\"\"")).append("\"\n");
+                }
+                write(rejects, lines.toString());
+                rejects.force(false);
+
+                checkpoint.committed = checkpoint.pending;
+                checkpoint.inserted += outcome[0];
+                checkpoint.skipped += outcome[1];
+                checkpoint.rejected += chunkRejects.size();
+                checkpoint.rejectsBytes = rejects.size();
+                checkpoint.save(checkpointPath);
+
+                insertedRows.increment(outcome[0]);
+                skippedRows.increment(outcome[1]);
+                rejectedRows.increment(chunkRejects.size());
+                report.setRecords(report.getRecords() + records);
+                report.setInserted(report.getInserted() + outcome[0]);
+                report.setSkipped(report.getSkipped() + outcome[1]);
+                report.setRejected(report.getRejected() + chunkRejects.size());
+                report.setChunks(report.getChunks() + 1);
+                report.setTotalInserted(checkpoint.inserted);
+                report.setTotalRejected(checkpoint.rejected);
+                for (ImportRejectDTO reject : chunkRejects) {
+                    if (report.getRejects().size() < maxRejectsReported) {
+                        report.getRejects().add(reject);
+                    }
+                }
+                rows.clear();
+                chunkRejects.clear();
+            }
+        }
+
+        checkpoint.complete = true;
+        checkpoint.save(checkpointPath);
+        report.setComplete(true);
+    }
+
+    /**
+     * Reads and validates the next chunk of records.
+     *
+     * @param table      target table
+     * @param csv        the file, positioned after the last chunk
+     * @param fieldCount fields of the header, which every record must have
+     * @param positions  field of each column of the table
+     * @param chunk      maximum records read
+     * @param rows       receives the valid rows, each key once
+     * @param rejects    receives the invalid records
+     * @return records read, 0 at the end of the file
+     */
+    private int readChunk(ImportTable table, CsvReader csv, int fieldCount, int[] positions, int chunk,
+                          List<Row> rows, List<ImportRejectDTO> rejects) throws IOException, InvalidDataException {
+        Set<String> keys = new HashSet<>();
+        String[] fields = new String[positions.length];
+        int records = 0;
+        List<String> record;
+        while (records < chunk && (record = csv.next()) != null) {
+            records++;
+            long line = csv.recordLine();
+            if (record.size() != fieldCount) {
+                rejects.add(new ImportRejectDTO(line, "Expected " + fieldCount + " fields, found " + record.size()));
+                continue;
+            }
+            for (int i = 0; i < positions.length; i++) {
+                fields[i] = record.get(positions[i]);
+            }
+            try {
+                Object[] values = table.parse(fields, departmentCatalogue);
+                if (keys.add(table.keyOf(values))) {
+                    rows.add(new Row(line, values));
+                } else {
+                    rejects.add(new ImportRejectDTO(line, "Duplicate of an earlier row of the same chunk"));
+                }
+            } catch (InvalidDataException e) {
+                rejects.add(new ImportRejectDTO(line, e.getMessage()));
+            }
+        }
+        return records;
+    }
+
+    /**
+     * Checks a chunk against the database and commits the rows that pass.
+     *
+     * @param table   target table
+     * @param rows    valid rows of the chunk
+     * @param rejects receives the rows the database checks reject
+     * @param inDoubt true if a previous run may have committed this chunk, whose rows are then skipped
+     * @return rows inserted and rows skipped
+     * @throws SQLException if the chunk cannot be committed
+     */
+    private long[] writeChunk(ImportTable table, List<Row> rows, List<ImportRejectDTO> rejects, boolean inDoubt)
+            throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                long[] skipped = new long[1];
+                List<Row> fresh = checkRows(connection, table, rows, rejects, inDoubt, skipped);
+
+                long inserted;
+                try {
+                    insertAll(connection, table, fresh);
+                    inserted = fresh.size();
+                } catch (SQLException e) {
+                    // a row the checks above could not catch: find it, and only reject that one; the rollback
+                    // released the locks, so the rows are checked again against what committed meanwhile
+                    connection.rollback();
+                    fresh = checkRows(connection, table, fresh, rejects, false, skipped);
+                    inserted = insertEach(connection, table, fresh, rejects);
+                }
+                connection.commit();
+                rejects.sort((a, b) -> Long.compare(a.getLine(), b.getLine()));
+                return new long[]{inserted, skipped[0]};
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Checks rows against the database and against the rows before them in the chunk.
+     * <p>
+     * Employees are read, and locked for history rows, then the rows their histories already hold. A history
+     * row needs an existing employee and a free primary key, and its period must neither overlap another row
+     * of the employee, existing or accepted earlier in the chunk, nor add a second current row.
+     *
+     * @param connection connection of the chunk's transaction
+     * @param table      target table
+     * @param rows       rows to check
+     * @param rejects    receives the rows the checks reject
+     * @param inDoubt    true to skip rows already present instead of rejecting them
+     * @param skipped    incremented for every row skipped
+     * @return the rows to insert
+     */
+    private List<Row> checkRows(Connection connection, ImportTable table, List<Row> rows,
+                                List<ImportRejectDTO> rejects, boolean inDoubt, long[] skipped) throws SQLException {
+        Set<Integer> employees = existingEmployees(connection, table, rows);
+        Map<Integer, List<Object[]>> histories = table == ImportTable.EMPLOYEES ? Map.of()
+                : existingRows(connection, table, rows);
+        Set<String> keys = new HashSet<>();
+        for (List<Object[]> history : histories.values()) {
+            for (Object[] values : history) {
+                keys.add(table.keyOf(values));
+            }
+        }
+
+        List<Row> fresh = new ArrayList<>(rows.size());
+        for (Row row : rows) {
+            int empNo = (Integer) row.values[0];
+            boolean exists = table == ImportTable.EMPLOYEES ? employees.contains(empNo)
+                    : keys.contains(table.keyOf(row.values));
+            String conflict = table == ImportTable.EMPLOYEES ? null : periodConflict(row.values, histories.get(empNo));
+            if (table != ImportTable.EMPLOYEES && !employees.contains(empNo)) {
+                rejects.add(new ImportRejectDTO(row.line, "Employee " + empNo + " does not exist"));
+            } else if (exists && inDoubt) {
+                skipped[0]++;
+            } else if (exists) {
+                rejects.add(new ImportRejectDTO(row.line, table == ImportTable.EMPLOYEES
+                        ? "Employee " + empNo + " already exists" : "Row already exists"));
+            } else if (conflict != null) {
+                rejects.add(new ImportRejectDTO(row.line, conflict));
+            } else {
+                fresh.add(row);
+                if (table != ImportTable.EMPLOYEES) {
+                    // later rows of the chunk are checked against this one too
+                    histories.computeIfAbsent(empNo, e -> new ArrayList<>()).add(row.values);
+                    keys.add(table.keyOf(row.values));
+                }
+            }
+        }
+        return fresh;
+    }
+
+    /**
+     * Checks the period of a history row against the employee's other rows.
+     *
+     * @param values  the row
+     * @param history the employee's other rows in the table, or null if there are none
+     * @return the reason the row is rejected, or null if its period fits
+     */
+    private static String periodConflict(Object[] values, List<Object[]> history) {
+        if (history == null) {
+            return null;
+        }
+        LocalDate[] period = ImportTable.periodOf(values);
+        for (Object[] other : history) {
+            LocalDate[] otherPeriod = ImportTable.periodOf(other);
+            if (period[1].equals(Helper.CURRENT_TO_DATE) && otherPeriod[1].equals(Helper.CURRENT_TO_DATE)) {
+                return "Employee " + values[0] + " already has a current row, from " + otherPeriod[0];
+            }
+            // a period runs up to, not including, its to_date, so the next one may start on that day
+            if (period[0].isBefore(otherPeriod[1]) && otherPeriod[0].isBefore(period[1])) {
+                return "Period overlaps the row from " + otherPeriod[0] + " to " + otherPeriod[1];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Reads which employees of the rows exist. For history rows the employees' rows are locked, in emp_no
+     * order like promotions lock them, so a concurrent promotion cannot close a current row the chunk adds to.
+     */
+    private Set<Integer> existingEmployees(Connection connection, ImportTable table, List<Row> rows)
+            throws SQLException {
+        List<Integer> empNos = new ArrayList<>(empNos(rows));
+        Set<Integer> existing = new HashSet<>();
+        for (int from = 0; from < empNos.size(); from += IN_LIST_SIZE) {
+            List<Integer> slice = empNos.subList(from, Math.min(empNos.size(), from + IN_LIST_SIZE));
+            String sql = "SELECT emp_no FROM employees WHERE emp_no IN (" + ImportTable.placeholders(slice.size()) + ")"
+                    + (table == ImportTable.EMPLOYEES ? "" : " ORDER BY emp_no FOR UPDATE");
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                for (int i = 0; i < slice.size(); i++) {
+                    statement.setInt(i + 1, slice.get(i));
+                }
+                try (ResultSet rs = statement.executeQuery()) {
+                    while (rs.next()) {
+                        existing.add(rs.getInt(1));
+                    }
+                }
+            }
+        }
+        return existing;
+    }
+
+    /**
+     * reads the rows the table already holds for the employees of the chunk, by employee
+     */
+    private Map<Integer, List<Object[]>> existingRows(Connection connection, ImportTable table, List<Row> rows)
+            throws SQLException {
+        List<Integer> empNos = new ArrayList<>(empNos(rows));
+        Map<Integer, List<Object[]>> existing = new HashMap<>();
+        for (int from = 0; from < empNos.size(); from += IN_LIST_SIZE) {
+            List<Integer> slice = empNos.subList(from, Math.min(empNos.size(), from + IN_LIST_SIZE));
+            try (PreparedStatement statement = connection.prepareStatement(table.existingRowsSql(slice.size()))) {
+                for (int i = 0; i < slice.size(); i++) {
+                    statement.setInt(i + 1, slice.get(i));
+                }
+                try (ResultSet rs = statement.executeQuery()) {
+                    while (rs.next()) {
+                        Object[] values = table.valuesOf(rs);
+                        existing.computeIfAbsent((Integer) values[0], e -> new ArrayList<>()).add(values);
+                    }
+                }
+            }
+        }
+        return existing;
+    }
+
+    /**
+     * writes the rows with multi-row inserts of rowsPerStatement rows, the last one taking the remainder
+     */
+    private void insertAll(Connection connection, ImportTable table, List<Row> rows) throws SQLException {
+        int full = rows.size() / rowsPerStatement;
+        if (full > 0) {
+            try (PreparedStatement insert = connection.prepareStatement(table.insertSql(rowsPerStatement))) {
+                for (int s = 0; s < full; s++) {
+                    for (int r = 0; r < rowsPerStatement; r++) {
+                        table.bind(insert, r, rows.get(s * rowsPerStatement + r).values);
+                    }
+                    insert.executeUpdate();
+                }
+            }
+        }
+        int rest = rows.size() - full * rowsPerStatement;
+        if (rest > 0) {
+            try (PreparedStatement insert = connection.prepareStatement(table.insertSql(rest))) {
+                for (int r = 0; r < rest; r++) {
+                    table.bind(insert, r, rows.get(full * rowsPerStatement + r).values);
+                }
+                insert.executeUpdate();
+            }
+        }
+    }
+
+    /**
+     * writes the rows one at a time, each behind a savepoint, rejecting those the database refuses
+     *
+     * @return rows inserted
+     */
+    private long insertEach(Connection connection, ImportTable table, List<Row> rows, List<ImportRejectDTO> rejects)
+            throws SQLException {
+        long inserted = 0;
+        try (PreparedStatement insert = connection.prepareStatement(table.insertSql(1))) {
+            for (Row row : rows) {
+                Savepoint savepoint = connection.setSavepoint();
+                try {
+                    table.bind(insert, 0, row.values);
+                    insert.executeUpdate();
+                    connection.releaseSavepoint(savepoint);
+                    inserted++;
+                } catch (SQLException e) {
+                    connection.rollback(savepoint);
+                    rejects.add(new ImportRejectDTO(row.line, "Rejected by the database: " + e.getMessage()));
+                }
+            }
+        }
+        return inserted;
+    }
+
+    /**
+     * returns the distinct employee numbers of the rows, in ascending order
+     */
+    private static Set<Integer> empNos(List<Row> rows) {
+        Set<Integer> empNos = new TreeSet<>();
+        for (Row row : rows) {
+            empNos.add((Integer) row.values[0]);
+        }
+        return empNos;
+    }
+
+    /**
+     * returns the header's column names, trimmed, in lower case and comma separated
+     */
+    private static String normalizeHeader(List<String> headerFields) {
+        List<String> names = new ArrayList<>(headerFields.size());
+        for (String name : headerFields) {
+            names.add(columnName(name));
+        }
+        return String.join(",", names);
+    }
+
+    /**
+     * Maps the table's columns to fields of the header.
+     *
+     * @return for each column of the table, the position of its field
+     * @throws InvalidDataException with status 400 if a column is missing, repeated or unknown
+     */
+    private static int[] positions(ImportTable table, List<String> headerFields) throws InvalidDataException {
+        List<String> columns = Arrays.asList(table.columns());
+        int[] positions = new int[columns.size()];
+        Arrays.fill(positions, -1);
+        for (int i = 0; i < headerFields.size(); i++) {
+            String name = columnName(headerFields.get(i));
+            int column = columns.indexOf(name);
+            if (column < 0) {
+                throw new InvalidDataException("Unknown column '" + name + "' for table " + table.tableName()
+                        + ", expected " + String.join(", ", columns), 400);
+            }
+            if (positions[column] >= 0) {
+                throw new InvalidDataException("Column '" + name + "' appears twice", 400);
+            }
+            positions[column] = i;
+        }
+        for (int column = 0; column < positions.length; column++) {
+            if (positions[column] < 0) {
+                throw new InvalidDataException("Missing column '" + columns.get(column) + "' for table "
+                        + table.tableName(), 400);
+            }
+        }
+        return positions;
+    }
+
+    /**
+     * returns a header field as a column name, without a byte order mark
+     */
+    private static String columnName(String field) {
+        return field.replace("\uFEFF", "").trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static void write(FileChannel channel, String text) throws IOException {
+        ByteBuffer bytes = ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8));
+        while (bytes.hasRemaining()) {
+            channel.write(bytes, channel.size());
+        }
+    }
+
+    private static Counter rows(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("employees.import.rows")
+                .description("CSV records processed by bulk imports, by outcome")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    private static Counter jobs(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("employees.import.jobs")
+                .description("Runs of bulk import jobs, by outcome")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    /**
+     * a valid row and the line of the file it came from
+     */
+    private record Row(long line, Object[] values) {
+    }
+}
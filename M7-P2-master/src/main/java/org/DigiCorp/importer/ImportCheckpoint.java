@@ -0,0 +1,122 @@
+package org.DigiCorp.importer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Properties;
+
+/**
+ * Progress of one import job, saved after every chunk so a failed or interrupted import can be resumed by
+ * uploading the same file again under the same job id.
+ * <p>
+ * Records are counted from the first record after the header. committed records are in the database;
+ * pending is raised to the end of a chunk before the chunk commits, so a checkpoint with pending above
+ * committed means the process stopped while that chunk was in doubt. The file is replaced atomically, so
+ * it is always either the old or the new checkpoint.
+ */
+final class ImportCheckpoint {
+
+    /**
+     * table being imported
+     */
+    String table;
+
+    /**
+     * header line of the file, which a resumed upload must repeat
+     */
+    String header;
+
+    /**
+     * records committed to the database or rejected
+     */
+    long committed;
+
+    /**
+     * end of the chunk being committed, equal to committed when none is in doubt
+     */
+    long pending;
+
+    /**
+     * rows inserted, rejected, and skipped as already present, over every run of the job
+     */
+    long inserted;
+    long rejected;
+    long skipped;
+
+    /**
+     * size of the rejects file when the checkpoint was saved
+     */
+    long rejectsBytes;
+
+    /**
+     * true once the whole file has been imported
+     */
+    boolean complete;
+
+    /**
+     * Reads a checkpoint.
+     *
+     * @param path checkpoint file
+     * @return the checkpoint, or null if the file does not exist
+     * @throws IOException if the file cannot be read
+     */
+    static ImportCheckpoint load(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return null;
+        }
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(path)) {
+            properties.load(in);
+        }
+        ImportCheckpoint checkpoint = new ImportCheckpoint();
+        checkpoint.table = properties.getProperty("table");
+        checkpoint.header = properties.getProperty("header");
+        checkpoint.committed = Long.parseLong(properties.getProperty("committed"));
+        checkpoint.pending = Long.parseLong(properties.getProperty("pending"));
+        checkpoint.inserted = Long.parseLong(properties.getProperty("inserted"));
+        checkpoint.rejected = Long.parseLong(properties.getProperty("rejected"));
+        checkpoint.skipped = Long.parseLong(properties.getProperty("skipped"));
+        checkpoint.rejectsBytes = Long.parseLong(properties.getProperty("rejectsBytes"));
+        checkpoint.complete = Boolean.parseBoolean(properties.getProperty("complete"));
+        return checkpoint;
+    }
+
+    /**
+     * Writes the checkpoint through to the storage device and atomically replaces the previous one.
+     *
+     * @param path checkpoint file
+     * @throws IOException if the file cannot be written
+     */
+    void save(Path path) throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty("table", table);
+        properties.setProperty("header", header);
+        properties.setProperty("committed", Long.toString(committed));
+        properties.setProperty("pending", Long.toString(pending));
+        properties.setProperty("inserted", Long.toString(inserted));
+        properties.setProperty("rejected", Long.toString(rejected));
+        properties.setProperty("skipped", Long.toString(skipped));
+        properties.setProperty("rejectsBytes", Long.toString(rejectsBytes));
+        properties.setProperty("complete", Boolean.toString(complete));
+        StringWriter text = new StringWriter();
+        properties.store(text, null);
+
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer bytes = ByteBuffer.wrap(text.toString().getBytes(StandardCharsets.UTF_8));
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+            channel.force(true);
+        }
+        Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+}
@@ -0,0 +1,273 @@
+package org.DigiCorp.importer;
+
+import org.DigiCorp.cache.DepartmentCatalogue;
+import org.DigiCorp.exceptions.InvalidDataException;
+import org.DigiCorp.util.Helper;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.Locale;
+
+/**
+ * The tables EmployeeImporter loads, with their columns and the rules each row is validated against.
+ * <p>
+ * Rows are checked with the rules the promotion path applies (Helper's salary, title and date rules,
+ * titles normalized to Title Case) and the column constraints of the schema (name lengths, gender,
+ * known departments, from_date before to_date). An empty to_date marks the current row. That the
+ * employee exists, the primary key is free and a history row's period neither overlaps the employee's
+ * other rows nor adds a second current row is checked against the database and the rest of the chunk,
+ * per chunk.
+ */
+enum ImportTable {
+
+    EMPLOYEES("employees", new String[]{"emp_no", "birth_date", "first_name", "last_name", "gender", "hire_date"},
+            new int[]{0}) {
+        @Override
+        Object[] parse(String[] fields, DepartmentCatalogue departments) throws InvalidDataException {
+            String firstName = fields[2].trim();
+            String lastName = fields[3].trim();
+            if (firstName.isEmpty() || firstName.length() > 14) {
+                throw new InvalidDataException("first_name length invalid", 400);
+            }
+            if (lastName.isEmpty() || lastName.length() > 16) {
+                throw new InvalidDataException("last_name length invalid", 400);
+            }
+            String gender = fields[4].trim().toUpperCase(Locale.ROOT);
+            if (!gender.equals("M") && !gender.equals("F")) {
+                throw new InvalidDataException("gender must be M or F", 400);
+            }
+            return new Object[]{empNo(fields[0]), date(fields[1], "birth_date"), firstName, lastName, gender,
+                    date(fields[5], "hire_date")};
+        }
+    },
+
+    SALARIES("salaries", new String[]{"emp_no", "salary", "from_date", "to_date"}, new int[]{0, 2}) {
+        @Override
+        Object[] parse(String[] fields, DepartmentCatalogue departments) throws InvalidDataException {
+            int salary;
+            try {
+                salary = Integer.parseInt(fields[1].trim());
+            } catch (NumberFormatException e) {
+                throw new InvalidDataException("salary must be an integer", 400);
+            }
+            // same rule as Helper.validatePromotionRequest
+            if (salary < 1) {
+                throw new InvalidDataException("Salary must be positive", 400);
+            }
+            LocalDate[] period = period(fields[2], fields[3]);
+            return new Object[]{empNo(fields[0]), salary, period[0], period[1]};
+        }
+    },
+
+    TITLES("titles", new String[]{"emp_no", "title", "from_date", "to_date"}, new int[]{0, 1, 2}) {
+        @Override
+        Object[] parse(String[] fields, DepartmentCatalogue departments) throws InvalidDataException {
+            // same rule as Helper.validatePromotionRequest, then normalized the way promotions store titles
+            if (fields[1].isEmpty() || fields[1].length() > 50) {
+                throw new InvalidDataException("Title length invalid", 400);
+            }
+            String title = Helper.toTitleCaseFast(fields[1]);
+            if (title.isEmpty()) {
+                throw new InvalidDataException("Title length invalid", 400);
+            }
+            LocalDate[] period = period(fields[2], fields[3]);
+            return new Object[]{empNo(fields[0]), title, period[0], period[1]};
+        }
+    },
+
+    DEPT_EMP("dept_emp", new String[]{"emp_no", "dept_no", "from_date", "to_date"}, new int[]{0, 1}) {
+        @Override
+        Object[] parse(String[] fields, DepartmentCatalogue departments) throws InvalidDataException {
+            String deptNo = fields[1].trim().toLowerCase(Locale.ROOT);
+            if (!departments.exists(deptNo)) {
+                throw new InvalidDataException("Department " + deptNo + " does not exist", 400);
+            }
+            LocalDate[] period = period(fields[2], fields[3]);
+            return new Object[]{empNo(fields[0]), deptNo, period[0], period[1]};
+        }
+    };
+
+    /**
+     * table name, also the name used in the import endpoint
+     */
+    private final String tableName;
+
+    /**
+     * columns, in the order of the values of a parsed row; emp_no always comes first
+     */
+    private final String[] columns;
+
+    /**
+     * positions of the primary key columns
+     */
+    private final int[] keyColumns;
+
+    ImportTable(String tableName, String[] columns, int[] keyColumns) {
+        this.tableName = tableName;
+        this.columns = columns;
+        this.keyColumns = keyColumns;
+    }
+
+    /**
+     * Validates the fields of one record and converts them to column values.
+     *
+     * @param fields      the record's fields, in column order
+     * @param departments catalogue dept_no values are checked against
+     * @return the values to insert, in column order
+     * @throws InvalidDataException with the reason the record is rejected
+     */
+    abstract Object[] parse(String[] fields, DepartmentCatalogue departments) throws InvalidDataException;
+
+    /**
+     * Looks up a table by name.
+     *
+     * @param name table name, ignoring case
+     * @return the table
+     * @throws InvalidDataException with status 400 if the table cannot be imported
+     */
+    static ImportTable of(String name) throws InvalidDataException {
+        for (ImportTable table : values()) {
+            if (table.tableName.equalsIgnoreCase(name)) {
+                return table;
+            }
+        }
+        throw new InvalidDataException("Cannot import table '" + name
+                + "', expected one of employees, salaries, titles, dept_emp", 400);
+    }
+
+    /**
+     * returns the table name
+     */
+    String tableName() {
+        return tableName;
+    }
+
+    /**
+     * returns the columns, in the order of the values of a parsed row
+     */
+    String[] columns() {
+        return columns;
+    }
+
+    /**
+     * returns the primary key of a row, parsed or read by valuesOf, as a string
+     */
+    String keyOf(Object[] values) {
+        StringBuilder key = new StringBuilder();
+        for (int column : keyColumns) {
+            key.append(values[column]).append('|');
+        }
+        return key.toString();
+    }
+
+    /**
+     * returns the values of a row read by existingRowsSql, in the form parse returns them
+     */
+    Object[] valuesOf(ResultSet rs) throws SQLException {
+        Object[] values = new Object[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            values[i] = columns[i].equals("emp_no") || columns[i].equals("salary") ? (Object) rs.getInt(i + 1)
+                    : columns[i].endsWith("_date") ? (Object) rs.getObject(i + 1, LocalDate.class)
+                    : rs.getString(i + 1);
+        }
+        return values;
+    }
+
+    /**
+     * returns the from_date and to_date of a history row, its third and fourth values
+     */
+    static LocalDate[] periodOf(Object[] values) {
+        return new LocalDate[]{(LocalDate) values[2], (LocalDate) values[3]};
+    }
+
+    /**
+     * Builds the query reading every row of some employees.
+     *
+     * @param empNos number of employee numbers bound
+     * @return SELECT of the columns WHERE emp_no IN (?, ...)
+     */
+    String existingRowsSql(int empNos) {
+        return "SELECT " + String.join(", ", columns) + " FROM " + tableName + " WHERE emp_no IN ("
+                + placeholders(empNos) + ")";
+    }
+
+    /**
+     * Builds a multi-row insert.
+     *
+     * @param rows number of rows inserted by one execution
+     * @return INSERT INTO table (columns) VALUES (?, ...), ...
+     */
+    String insertSql(int rows) {
+        StringBuilder sql = new StringBuilder("INSERT INTO ").append(tableName)
+                .append(" (").append(String.join(", ", columns)).append(") VALUES ");
+        String row = "(" + placeholders(columns.length) + ")";
+        for (int i = 0; i < rows; i++) {
+            sql.append(i > 0 ? ", " : "").append(row);
+        }
+        return sql.toString();
+    }
+
+    /**
+     * Binds the values of one row of a multi-row insert.
+     *
+     * @param statement statement built by insertSql
+     * @param row       position of the row in the statement, from 0
+     * @param values    the row's values
+     * @throws SQLException if a value cannot be bound
+     */
+    void bind(PreparedStatement statement, int row, Object[] values) throws SQLException {
+        int index = row * values.length;
+        for (Object value : values) {
+            index++;
+            if (value instanceof Integer i) {
+                statement.setInt(index, i);
+            } else if (value instanceof LocalDate d) {
+                statement.setDate(index, Date.valueOf(d));
+            } else {
+                statement.setString(index, (String) value);
+            }
+        }
+    }
+
+    /**
+     * returns n comma separated placeholders
+     */
+    static String placeholders(int n) {
+        return "?, ".repeat(n - 1) + "?";
+    }
+
+    private static int empNo(String field) throws InvalidDataException {
+        try {
+            int empNo = Integer.parseInt(field.trim());
+            if (empNo > 0) {
+                return empNo;
+            }
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        throw new InvalidDataException("emp_no must be a positive integer", 400);
+    }
+
+    private static LocalDate date(String field, String column) throws InvalidDataException {
+        try {
+            return Helper.parseDate(field.trim());
+        } catch (InvalidDataException e) {
+            throw new InvalidDataException(column + ": " + e.getMessage(), 400);
+        }
+    }
+
+    /**
+     * parses from_date and to_date, an empty to_date standing for the current row
+     */
+    private static LocalDate[] period(String from, String to) throws InvalidDataException {
+        LocalDate fromDate = date(from, "from_date");
+        LocalDate toDate = to.isBlank() ? Helper.CURRENT_TO_DATE : date(to, "to_date");
+        if (!fromDate.isBefore(toDate)) {
+            throw new InvalidDataException("from_date must be before to_date", 400);
+        }
+        return new LocalDate[]{fromDate, toDate};
+    }
+}
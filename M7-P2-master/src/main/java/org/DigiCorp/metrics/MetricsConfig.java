@@ -0,0 +1,31 @@
+package org.DigiCorp.metrics;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Wires the application's metrics into Hibernate.
+ * <p>
+ * Endpoint timers (http.server.requests), DAO timers (@Timed on EmployeeDAO), connection pool metrics
+ * (hikaricp.*) and Hibernate statistics are published by Spring Boot's actuator; their histograms and
+ * the slow query log are configured in application.properties.
+ */
+@Configuration
+public class MetricsConfig {
+
+    /**
+     * Registers the request query counter with the session factory as statement inspector and interceptor.
+     *
+     * @param requestQueryCounter per-thread statement and entity load counter
+     * @return customizer adding the counter to the Hibernate properties
+     */
+    @Bean
+    public HibernatePropertiesCustomizer requestQueryCounterCustomizer(RequestQueryCounter requestQueryCounter) {
+        return properties -> {
+            properties.put(AvailableSettings.STATEMENT_INSPECTOR, requestQueryCounter);
+            properties.put(AvailableSettings.INTERCEPTOR, requestQueryCounter);
+        };
+    }
+}
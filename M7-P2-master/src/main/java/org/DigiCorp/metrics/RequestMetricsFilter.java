@@ -0,0 +1,123 @@
+package org.DigiCorp.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records per-request database work: the number of JDBC statements and entity loads each request caused,
+ * as distribution summaries tagged with the endpoint's URI pattern and HTTP method.
+ * <p>
+ * Slow requests are logged together with these counts, sampled so a burst of slow requests
+ * does not flood the log. Endpoint latency itself is recorded by Spring's http.server.requests timer.
+ * <p>
+ * Counting is bound to the request thread, so rows written by a streamed response body (which runs on an
+ * async thread after this filter returns) are not included.
+ */
+@Component
+public class RequestMetricsFilter extends OncePerRequestFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(RequestMetricsFilter.class);
+
+    /**
+     * collects the statement and entity load counts of the current request
+     */
+    private final RequestQueryCounter requestQueryCounter;
+
+    /**
+     * registry the per-request summaries are published to
+     */
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * requests taking at least this many milliseconds are candidates for the slow request log
+     */
+    private final long slowRequestMs;
+
+    /**
+     * fraction (0 to 1) of slow requests that are actually logged
+     */
+    private final double slowRequestSampleRate;
+
+    /**
+     * constructor, initializes the filter with its collaborators
+     *
+     * @param requestQueryCounter   per-thread statement and entity load counter
+     * @param meterRegistry         registry the per-request summaries are published to
+     * @param slowRequestMs         threshold of the slow request log in milliseconds
+     * @param slowRequestSampleRate fraction of slow requests that are logged
+     */
+    public RequestMetricsFilter(RequestQueryCounter requestQueryCounter, MeterRegistry meterRegistry,
+                                @Value("${employees.metrics.slow-request-ms:500}") long slowRequestMs,
+                                @Value("${employees.metrics.slow-request-sample-rate:0.1}") double slowRequestSampleRate) {
+        this.requestQueryCounter = requestQueryCounter;
+        this.meterRegistry = meterRegistry;
+        this.slowRequestMs = slowRequestMs;
+        this.slowRequestSampleRate = slowRequestSampleRate;
+    }
+
+    /**
+     * the metrics endpoints themselves are not measured
+     */
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return request.getRequestURI().startsWith(request.getContextPath() + "/actuator");
+    }
+
+    /**
+     * counts the database work of the request and records it once the request has been handled
+     */
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        long start = System.nanoTime();
+        requestQueryCounter.begin();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            RequestQueryCounter.Counts counts = requestQueryCounter.end();
+            long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+            // use the matched pattern rather than the raw URI, so path and query values do not explode the tags
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            String uri = pattern == null ? "UNKNOWN" : pattern.toString();
+
+            summary("employees.request.jdbc.statements", "JDBC statements executed per request",
+                    uri, request.getMethod()).record(counts.getStatements());
+            summary("employees.request.entity.loads", "Entities loaded per request",
+                    uri, request.getMethod()).record(counts.getEntityLoads());
+
+            if (elapsedMs >= slowRequestMs && ThreadLocalRandom.current().nextDouble() < slowRequestSampleRate) {
+                log.warn("Slow request {} {} took {} ms: {} statements, {} entity loads, status {}",
+                        request.getMethod(), uri, elapsedMs,
+                        counts.getStatements(), counts.getEntityLoads(), response.getStatus());
+            }
+        }
+    }
+
+    /**
+     * looks up (or registers on first use) the summary of one endpoint
+     */
+    private DistributionSummary summary(String name, String description, String uri, String method) {
+        return DistributionSummary.builder(name)
+                .description(description)
+                .tag("uri", uri)
+                .tag("method", method)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,92 @@
+package org.DigiCorp.metrics;
+
+import org.hibernate.Interceptor;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.hibernate.type.Type;
+import org.springframework.stereotype.Component;
+
+/**
+ * Counts the JDBC statements prepared and the entities loaded by Hibernate on the current thread.
+ * <p>
+ * Registered with the session factory both as StatementInspector and as Interceptor (see MetricsConfig),
+ * so every statement and every entity hydration passes through it. Counting only happens between
+ * begin() and end(), which RequestMetricsFilter calls around each HTTP request; work done outside a
+ * request (e.g. the scheduled department refresh) is ignored.
+ */
+@Component
+public class RequestQueryCounter implements StatementInspector, Interceptor {
+
+    /**
+     * counts of the request being served by the current thread, null outside a request
+     */
+    private static final ThreadLocal<Counts> CURRENT = new ThreadLocal<>();
+
+    /**
+     * Starts counting for the current thread.
+     */
+    public void begin() {
+        CURRENT.set(new Counts());
+    }
+
+    /**
+     * Stops counting for the current thread.
+     *
+     * @return the counts collected since begin(), or empty counts if begin() was not called
+     */
+    public Counts end() {
+        Counts counts = CURRENT.get();
+        CURRENT.remove();
+        return counts == null ? new Counts() : counts;
+    }
+
+    /**
+     * counts a JDBC statement, leaving the SQL unchanged
+     *
+     * @param sql the SQL about to be prepared
+     * @return the same SQL
+     */
+    @Override
+    public String inspect(String sql) {
+        Counts counts = CURRENT.get();
+        if (counts != null) {
+            counts.statements++;
+        }
+        return sql;
+    }
+
+    /**
+     * counts an entity hydrated into the persistence context, from the database or the second-level cache
+     *
+     * @return false, the entity state is not modified
+     */
+    @Override
+    public boolean onLoad(Object entity, Object id, Object[] state, String[] propertyNames, Type[] types) {
+        Counts counts = CURRENT.get();
+        if (counts != null) {
+            counts.entityLoads++;
+        }
+        return false;
+    }
+
+    /**
+     * statement and entity load counts of one request
+     */
+    public static final class Counts {
+        private long statements;
+        private long entityLoads;
+
+        /**
+         * @return number of JDBC statements prepared
+         */
+        public long getStatements() {
+            return statements;
+        }
+
+        /**
+         * @return number of entities loaded
+         */
+        public long getEntityLoads() {
+            return entityLoads;
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package org.DigiCorp.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Guards the virtual-thread execution mode against carrier thread pinning.
+ * <p>
+ * A virtual thread that blocks inside a synchronized block (e.g. in an older JDBC driver) pins its carrier
+ * thread, and with only a handful of carriers a few pinned requests stall the whole server. This monitor
+ * listens to the JFR jdk.VirtualThreadPinned event, counts every pin longer than the configured threshold
+ * as employees.threads.pinned and logs the stack of each distinct pinning site once.
+ * It also warns at startup if the JDBC driver predates virtual-thread support
+ * (MariaDB Connector/J replaced its synchronized blocks with locks in 3.3).
+ * <p>
+ * Only active when spring.threads.virtual.enabled=true.
+ */
+@Component
+@ConditionalOnThreading(Threading.VIRTUAL)
+@ConditionalOnProperty(name = "employees.threads.pinning-monitor.enabled", havingValue = "true", matchIfMissing = true)
+public class VirtualThreadPinningMonitor {
+
+    private static final Logger log = LoggerFactory.getLogger(VirtualThreadPinningMonitor.class);
+
+    /**
+     * JFR event emitted when a virtual thread parks or blocks while pinned to its carrier
+     */
+    private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+
+    /**
+     * number of stack frames logged per pinning site
+     */
+    private static final int LOGGED_FRAMES = 12;
+
+    /**
+     * data source whose driver is checked at startup
+     */
+    private final DataSource dataSource;
+
+    /**
+     * pins of at least this duration are counted and logged
+     */
+    private final Duration threshold;
+
+    /**
+     * counts pinning events
+     */
+    private final Counter pinnedCounter;
+
+    /**
+     * top frames of the pinning sites already logged, so each site is only logged once
+     */
+    private final Set<String> loggedSites = ConcurrentHashMap.newKeySet();
+
+    /**
+     * the JFR event stream, null until started
+     */
+    private RecordingStream stream;
+
+    /**
+     * constructor, initializes the monitor with its collaborators
+     *
+     * @param dataSource    data source whose driver is checked at startup
+     * @param meterRegistry registry the pinning counter is published to
+     * @param thresholdMs   pins of at least this many milliseconds are reported
+     */
+    public VirtualThreadPinningMonitor(DataSource dataSource, MeterRegistry meterRegistry,
+                                       @Value("${employees.threads.pinning-threshold-ms:20}") long thresholdMs) {
+        this.dataSource = dataSource;
+        this.threshold = Duration.ofMillis(thresholdMs);
+        this.pinnedCounter = Counter.builder("employees.threads.pinned")
+                .description("Virtual threads pinned to their carrier for longer than the threshold")
+                .register(meterRegistry);
+    }
+
+    /**
+     * checks the JDBC driver and starts listening to pinning events once the application has started
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        checkDriver();
+
+        stream = new RecordingStream();
+        stream.enable(PINNED_EVENT).withThreshold(threshold).withStackTrace();
+        stream.onEvent(PINNED_EVENT, this::onPinned);
+        stream.startAsync();
+    }
+
+    /**
+     * stops the JFR event stream
+     */
+    @PreDestroy
+    public void stop() {
+        if (stream != null) {
+            stream.close();
+        }
+    }
+
+    /**
+     * counts a pinning event, logging its stack the first time its site is seen
+     */
+    private void onPinned(RecordedEvent event) {
+        pinnedCounter.increment();
+
+        if (event.getStackTrace() == null) {
+            return;
+        }
+        List<RecordedFrame> frames = event.getStackTrace().getFrames();
+        StringBuilder stack = new StringBuilder();
+        for (int i = 0; i < Math.min(LOGGED_FRAMES, frames.size()); i++) {
+            RecordedFrame frame = frames.get(i);
+            stack.append("\n\tat ")
+                    .append(frame.getMethod().getType().getName()).append('.')
+                    .append(frame.getMethod().getName())
+                    .append(':').append(frame.getLineNumber());
+        }
+        if (loggedSites.add(stack.toString())) {
+            log.warn("Virtual thread pinned for {} ms{}", event.getDuration().toMillis(), stack);
+        }
+    }
+
+    /**
+     * warns if the JDBC driver is known to pin virtual threads
+     */
+    private void checkDriver() {
+        try (Connection connection = dataSource.getConnection()) {
+            DatabaseMetaData metaData = connection.getMetaData();
+            boolean mariaDb = metaData.getDriverName().toLowerCase().contains("mariadb");
+            boolean beforeLocks = metaData.getDriverMajorVersion() < 3
+                    || (metaData.getDriverMajorVersion() == 3 && metaData.getDriverMinorVersion() < 3);
+            if (mariaDb && beforeLocks) {
+                log.warn("{} {} synchronizes on connection I/O and will pin virtual threads, upgrade to 3.3 or later",
+                        metaData.getDriverName(), metaData.getDriverVersion());
+            }
+        } catch (SQLException e) {
+            log.warn("Could not check the JDBC driver for virtual thread support: {}", e.getMessage());
+        }
+    }
+}
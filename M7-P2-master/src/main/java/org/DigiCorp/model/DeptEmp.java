@@ -2,6 +2,8 @@ package org.DigiCorp.model;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.time.LocalDate;
 
@@ -11,6 +13,9 @@ import java.time.LocalDate;
  * it has a many-to-one mapping to employee entity and dept_no entity
  */
 @Entity
+// held in the second-level cache, see SecondLevelCacheManager for eviction on promotion
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Table(name = "dept_emp")
 // uses DeptEmpId class to represent composite primary key
 @IdClass(DeptEmpId.class)
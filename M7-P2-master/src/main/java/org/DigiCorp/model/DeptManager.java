@@ -2,6 +2,8 @@ package org.DigiCorp.model;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.time.LocalDate;
 
@@ -13,6 +15,9 @@ import java.time.LocalDate;
  * it has composite primary key DeptManagerId using empNo and deptNo
  */
 @Entity
+// held in the second-level cache, see SecondLevelCacheManager for eviction on promotion
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Table(name = "dept_manager")
 // class to represent composite primary key
 @IdClass(DeptManagerId.class)
@@ -1,6 +1,9 @@
 package org.DigiCorp.model;
 
 import jakarta.persistence.*;
+import org.DigiCorp.event.EmployeeEntityListener;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.time.LocalDate;
 import java.util.List;
@@ -10,11 +13,94 @@ import java.util.List;
  * and providing one-to-many mapping to salaries, titles, department and manager assignments.
  */
 @Entity
+// held in the second-level cache, see SecondLevelCacheManager for eviction on promotion
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+// publishes an EmployeeSavedEvent for new hires and renames, see EmployeeNameIndex
+@EntityListeners(EmployeeEntityListener.class)
 // named query to retrieve paginated list of employees in some given department
 @NamedQuery(name = "Employee.getDepartmentEmployeeRecords",
         query = "SELECT new org.DigiCorp.dto.EmployeeRecordDTO(e.empNo, e.hireDate, e.firstName, e.lastName) " +
                 "FROM DeptEmp de JOIN de.employee e " +
                 "WHERE de.deptNo = :deptNo ORDER BY e.empNo")
+// named query to retrieve the next slice of a department's employees after some empNo (keyset pagination)
+@NamedQuery(name = "Employee.getDepartmentEmployeeRecordsAfter",
+        query = "SELECT new org.DigiCorp.dto.EmployeeRecordDTO(e.empNo, e.hireDate, e.firstName, e.lastName) " +
+                "FROM DeptEmp de JOIN de.employee e " +
+                "WHERE de.deptNo = :deptNo AND e.empNo > :afterEmpNo ORDER BY e.empNo")
+// named query to retrieve the current members of some given department, used by the streaming export
+@NamedQuery(name = "Employee.getCurrentDepartmentEmployeeRecords",
+        query = "SELECT new org.DigiCorp.dto.EmployeeRecordDTO(e.empNo, e.hireDate, e.firstName, e.lastName) " +
+                "FROM DeptEmp de JOIN de.employee e " +
+                "WHERE de.deptNo = :deptNo AND de.toDate = :currentToDate ORDER BY e.empNo")
+// named query to retrieve the current salary, title and department of one employee as a flat projection
+@NamedQuery(name = "Employee.getEmployeeSummary",
+        query = "SELECT new org.DigiCorp.dto.EmployeeSummaryDTO(e.empNo, e.firstName, e.lastName, e.hireDate, " +
+                "t.title, s.salary, d.deptNo, d.deptName) " +
+                "FROM Employee e " +
+                "LEFT JOIN Salary s ON s.employee = e AND s.toDate = :currentToDate " +
+                "LEFT JOIN Title t ON t.employee = e AND t.toDate = :currentToDate " +
+                "LEFT JOIN DeptEmp de ON de.employee = e AND de.toDate = :currentToDate " +
+                "LEFT JOIN de.department d " +
+                "WHERE e.empNo = :empNo")
+// named queries loading a batch of employees together with one history collection each,
+// run one after another so a whole batch is hydrated with a fixed number of IN-list queries
+@NamedQuery(name = "Employee.fetchSalaryListByIds",
+        query = "SELECT e FROM Employee e LEFT JOIN FETCH e.salaryList WHERE e.empNo IN :empNos")
+@NamedQuery(name = "Employee.fetchTitleListByIds",
+        query = "SELECT e FROM Employee e LEFT JOIN FETCH e.titleList WHERE e.empNo IN :empNos")
+@NamedQuery(name = "Employee.fetchDeptEmpListByIds",
+        query = "SELECT e FROM Employee e LEFT JOIN FETCH e.deptEmpList WHERE e.empNo IN :empNos")
+@NamedQuery(name = "Employee.fetchDeptManagerListByIds",
+        query = "SELECT e FROM Employee e LEFT JOIN FETCH e.deptManagerList WHERE e.empNo IN :empNos")
+// locks the rows of employees about to be promoted, in empNo order so concurrent promotions cannot deadlock
+@NamedQuery(name = "Employee.lockByIds",
+        query = "SELECT e FROM Employee e WHERE e.empNo IN :empNos ORDER BY e.empNo")
+// named queries loading the current rows of every history table, used to build the current-state read model;
+// rows are ordered by fromDate so the latest of several current rows is applied last
+@NamedQuery(name = "Employee.getEmpNoRange",
+        query = "SELECT MIN(e.empNo), MAX(e.empNo) FROM Employee e")
+@NamedQuery(name = "Employee.getAllEmpNos",
+        query = "SELECT e.empNo FROM Employee e")
+@NamedQuery(name = "Employee.getCurrentSalaries",
+        query = "SELECT s.employee.empNo, s.salary FROM Salary s " +
+                "WHERE s.toDate = :currentToDate ORDER BY s.fromDate")
+@NamedQuery(name = "Employee.getCurrentTitles",
+        query = "SELECT t.employee.empNo, t.title FROM Title t " +
+                "WHERE t.toDate = :currentToDate ORDER BY t.fromDate")
+@NamedQuery(name = "Employee.getCurrentDeptEmps",
+        query = "SELECT de.employee.empNo, de.deptNo FROM DeptEmp de " +
+                "WHERE de.toDate = :currentToDate ORDER BY de.fromDate")
+@NamedQuery(name = "Employee.getCurrentDeptManagers",
+        query = "SELECT dm.employee.empNo FROM DeptManager dm WHERE dm.toDate = :currentToDate")
+// named queries loading the whole salary history into the columnar analytics store, in empNo order
+@NamedQuery(name = "Employee.countSalaries",
+        query = "SELECT COUNT(s) FROM Salary s")
+@NamedQuery(name = "Employee.getSalaryHistoryRows",
+        query = "SELECT s.employee.empNo, s.fromDate, s.toDate, s.salary FROM Salary s " +
+                "ORDER BY s.employee.empNo, s.fromDate")
+// named queries loading the title and department histories into the temporal history index, in empNo order
+@NamedQuery(name = "Employee.countTitles",
+        query = "SELECT COUNT(t) FROM Title t")
+@NamedQuery(name = "Employee.getTitleHistoryRows",
+        query = "SELECT t.employee.empNo, t.fromDate, t.toDate, t.title FROM Title t " +
+                "ORDER BY t.employee.empNo, t.fromDate")
+@NamedQuery(name = "Employee.countDeptEmps",
+        query = "SELECT COUNT(de) FROM DeptEmp de")
+@NamedQuery(name = "Employee.getDeptEmpHistoryRows",
+        query = "SELECT de.employee.empNo, de.fromDate, de.toDate, de.deptNo FROM DeptEmp de " +
+                "ORDER BY de.employee.empNo, de.fromDate")
+// named query loading every employee's name and hire date into the name search index
+@NamedQuery(name = "Employee.getAllEmployeeNames",
+        query = "SELECT e.empNo, e.firstName, e.lastName, e.hireDate FROM Employee e")
+// entity graph loading the complete history of an employee, used where every collection is read
+@NamedEntityGraph(name = "Employee.fullHistory",
+        attributeNodes = {
+                @NamedAttributeNode("salaryList"),
+                @NamedAttributeNode("titleList"),
+                @NamedAttributeNode("deptEmpList"),
+                @NamedAttributeNode("deptManagerList")
+        })
 @Table(name = "employees")
 public class Employee {
     /**
@@ -60,7 +146,8 @@ public class Employee {
      * list of employee's salary records
      * maps one-to-many relationship to Salary entity
      */
-    @OneToMany(mappedBy = "employee", fetch = FetchType.EAGER, cascade = CascadeType.ALL)
+    @OneToMany(mappedBy = "employee", fetch = FetchType.LAZY, cascade = CascadeType.ALL)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
     @OrderBy("toDate ASC, fromDate ASC")
     private List<Salary> salaryList;
 
@@ -68,7 +155,8 @@ public class Employee {
      * list of employee's title records
      * maps one-to-many relationship to Title entity
      */
-    @OneToMany(mappedBy = "employee", fetch = FetchType.EAGER, cascade = CascadeType.ALL)
+    @OneToMany(mappedBy = "employee", fetch = FetchType.LAZY, cascade = CascadeType.ALL)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
     @OrderBy("toDate ASC, fromDate ASC")
     private List<Title> titleList;
 
@@ -76,7 +164,8 @@ public class Employee {
      * list of employee's department assignment records
      * maps one-to-many relationship to DeptEmp entity
      */
-    @OneToMany(mappedBy = "employee", fetch = FetchType.EAGER, cascade = CascadeType.ALL)
+    @OneToMany(mappedBy = "employee", fetch = FetchType.LAZY, cascade = CascadeType.ALL)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
     @OrderBy("toDate ASC, fromDate ASC")
     private List<DeptEmp> deptEmpList;
 
@@ -84,7 +173,8 @@ public class Employee {
      * list of employee's manager assignment records
      * maps one-to-many relationship to DeptManager entity
      */
-    @OneToMany(mappedBy = "employee", fetch = FetchType.EAGER, cascade = CascadeType.ALL)
+    @OneToMany(mappedBy = "employee", fetch = FetchType.LAZY, cascade = CascadeType.ALL)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
     @OrderBy("toDate ASC, fromDate ASC")
     private List<DeptManager> deptManagerList;
 
@@ -2,6 +2,8 @@ package org.DigiCorp.model;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.time.LocalDate;
 
@@ -10,6 +12,9 @@ import java.time.LocalDate;
  * records for every employee and the dates they were active
  */
 @Entity
+// held in the second-level cache, see SecondLevelCacheManager for eviction on promotion
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Table(name = "salaries")
 // using SalaryId class to represent composite primary key
 @IdClass(SalaryId.class)
@@ -2,6 +2,8 @@ package org.DigiCorp.model;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.time.LocalDate;
 
@@ -12,6 +14,9 @@ import java.time.LocalDate;
  * Uses composite primary key TitleId composed of employee, title, fromDate
  */
 @Entity
+// held in the second-level cache, see SecondLevelCacheManager for eviction on promotion
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Table(name = "titles")
 // specifies class to represent composite primary key
 @IdClass(TitleId.class)
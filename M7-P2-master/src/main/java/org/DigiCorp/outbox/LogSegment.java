@@ -0,0 +1,225 @@
+package org.DigiCorp.outbox;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+/**
+ * One file of the promotion event log, mapped into memory as a whole.
+ * <p>
+ * A segment is a sequence of records, each aligned to 8 bytes, followed by zeroes up to the end of the
+ * file. A record is a 16 byte header and a body:
+ * <pre>
+ *   0  int length      bytes up to the next record, header and padding included; 0 where no record is
+ *   4  int state       PREPARED, COMMITTED or ABORTED
+ *   8  int crc         CRC32C of the body
+ *  12  int bodyLength  bytes of body
+ *  16  body
+ * </pre>
+ * A record is written body first and published by writing its length last, with release semantics, so a
+ * reader that sees a length, with acquire semantics, sees the whole record. The state is the only field
+ * changed afterwards, in place. All ints are little-endian.
+ * <p>
+ * Records are only ever written by the owner's single appender; any number of threads may read.
+ */
+final class LogSegment {
+
+    /**
+     * bytes of a record header
+     */
+    static final int HEADER = 16;
+
+    /**
+     * state of a record whose transaction has not completed yet
+     */
+    static final int PREPARED = 1;
+
+    /**
+     * state of a record whose transaction committed
+     */
+    static final int COMMITTED = 2;
+
+    /**
+     * state of a record whose transaction rolled back
+     */
+    static final int ABORTED = 3;
+
+    /**
+     * ordered access to the header ints, which are 4-byte aligned as records are 8-byte aligned
+     */
+    private static final VarHandle INT = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+
+    /**
+     * global log offset of the segment's first byte, also its file name
+     */
+    private final long baseOffset;
+
+    /**
+     * the segment file
+     */
+    private final Path path;
+
+    /**
+     * channel the file is mapped through, kept open until close
+     */
+    private final FileChannel channel;
+
+    /**
+     * the whole file
+     */
+    private final MappedByteBuffer buffer;
+
+    private LogSegment(long baseOffset, Path path, FileChannel channel, MappedByteBuffer buffer) {
+        this.baseOffset = baseOffset;
+        this.path = path;
+        this.channel = channel;
+        this.buffer = buffer;
+    }
+
+    /**
+     * Maps a segment file, creating it with the given size if it does not exist.
+     *
+     * @param path       segment file
+     * @param baseOffset global log offset of the segment's first byte
+     * @param capacity   size of a new file; an existing file keeps its own size
+     * @return the mapped segment
+     * @throws IOException if the file cannot be created or mapped
+     */
+    static LogSegment open(Path path, long baseOffset, int capacity) throws IOException {
+        FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            long size = channel.size() > 0 ? channel.size() : capacity;
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            return new LogSegment(baseOffset, path, channel, buffer);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * returns the global log offset of the segment's first byte
+     */
+    long baseOffset() {
+        return baseOffset;
+    }
+
+    /**
+     * returns the segment file
+     */
+    Path path() {
+        return path;
+    }
+
+    /**
+     * returns the size of the segment in bytes
+     */
+    int capacity() {
+        return buffer.capacity();
+    }
+
+    /**
+     * returns the length of the record at pos, or 0 if there is none (yet)
+     */
+    int length(int pos) {
+        return pos + HEADER > buffer.capacity() ? 0 : (int) INT.getAcquire(buffer, pos);
+    }
+
+    /**
+     * returns the state of the record at pos
+     */
+    int state(int pos) {
+        return (int) INT.getAcquire(buffer, pos + 4);
+    }
+
+    /**
+     * changes the state of the record at pos
+     */
+    void setState(int pos, int state) {
+        INT.setRelease(buffer, pos + 4, state);
+    }
+
+    /**
+     * Writes a record in state PREPARED and publishes it.
+     *
+     * @param pos    position of the record, 8-byte aligned
+     * @param body   record body
+     * @param length record length, HEADER + body rounded up to 8 bytes
+     */
+    void write(int pos, byte[] body, int length) {
+        buffer.put(pos + HEADER, body);
+        CRC32C crc = new CRC32C();
+        crc.update(body);
+        buffer.putInt(pos + 8, (int) crc.getValue());
+        buffer.putInt(pos + 12, body.length);
+        INT.setRelease(buffer, pos + 4, PREPARED);
+        INT.setRelease(buffer, pos, length);
+    }
+
+    /**
+     * returns a copy of the body of the record at pos
+     */
+    byte[] body(int pos) {
+        byte[] body = new byte[buffer.getInt(pos + 12)];
+        buffer.get(pos + HEADER, body);
+        return body;
+    }
+
+    /**
+     * Checks that a whole, uncorrupted record starts at pos: a torn write after a crash, or a position that
+     * is not the start of a record, fails the check.
+     *
+     * @param pos position to check
+     * @return true if the header is consistent and the body matches its checksum
+     */
+    boolean isValid(int pos) {
+        int length = length(pos);
+        if (length < HEADER || (length & 7) != 0 || (pos & 7) != 0 || pos + length > buffer.capacity()) {
+            return false;
+        }
+        int state = state(pos);
+        int bodyLength = buffer.getInt(pos + 12);
+        if (state < PREPARED || state > ABORTED || bodyLength < 0 || HEADER + bodyLength > length) {
+            return false;
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.slice(pos + HEADER, bodyLength));
+        return (int) crc.getValue() == buffer.getInt(pos + 8);
+    }
+
+    /**
+     * zeroes the segment from pos to its end, erasing whatever a crash left behind the last whole record
+     */
+    void truncate(int pos) {
+        byte[] zeroes = new byte[8192];
+        for (int at = pos; at < buffer.capacity(); at += zeroes.length) {
+            buffer.put(at, zeroes, 0, Math.min(zeroes.length, buffer.capacity() - at));
+        }
+        buffer.force(pos, buffer.capacity() - pos);
+    }
+
+    /**
+     * writes the bytes from to to of the segment through to the storage device
+     */
+    void force(int from, int to) {
+        buffer.force(from, to - from);
+    }
+
+    /**
+     * syncs the whole segment and closes its channel; the mapping itself is released by the garbage collector
+     *
+     * @throws IOException if the channel cannot be closed
+     */
+    void close() throws IOException {
+        buffer.force();
+        channel.close();
+    }
+}
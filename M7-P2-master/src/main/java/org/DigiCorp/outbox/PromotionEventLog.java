@@ -0,0 +1,814 @@
+package org.DigiCorp.outbox;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+import org.DigiCorp.dto.PromotionLogEventDTO;
+import org.DigiCorp.dto.PromotionLogPage;
+import org.DigiCorp.event.EmployeePromotedEvent;
+import org.DigiCorp.exceptions.InvalidDataException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Transactional outbox of committed promotions: an append-only log of compact binary promotion events that
+ * downstream systems tail from an offset, instead of polling the history tables.
+ * <p>
+ * The log is a directory of segment files, each memory-mapped and named after the global offset of its
+ * first byte; when a record no longer fits, a new segment starts where the previous one ended, so offsets
+ * are contiguous across segments. The events of a transaction are appended in state PREPARED just before it
+ * commits, while it still holds its employees' row locks, so the log order of two promotions of the same
+ * employee is their commit order. The commit then waits until the records are synced to disk, and once it
+ * has committed the records are flipped to COMMITTED in place, or to ABORTED if it rolled back after all.
+ * Readers only see COMMITTED records and stop at the first PREPARED one.
+ * <p>
+ * Syncing is a group commit: a single thread forces everything appended since its last sync in one go,
+ * so transactions committing together share one fsync. The state flips are synced lazily, with the next
+ * sync or every sync interval. After a crash, records left PREPARED are in doubt: their transaction may or
+ * may not have committed. They are resolved once the application is ready by looking for the history rows
+ * the promotion inserted, which exist if and only if it committed, since an employee cannot be promoted
+ * twice on the same date. A record torn by the crash is truncated away; its transaction cannot have
+ * committed, as the sync it waited for never completed.
+ * <p>
+ * Segments are kept forever; consumers that have read past a segment may archive it out of band.
+ */
+@Component
+public class PromotionEventLog {
+
+    private static final Logger log = LoggerFactory.getLogger(PromotionEventLog.class);
+
+    /**
+     * suffix of segment file names
+     */
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    /**
+     * smallest segment size accepted, far above the size of any record
+     */
+    private static final int MIN_SEGMENT_BYTES = 1 << 20;
+
+    /**
+     * longest a reader waits for new events
+     */
+    private static final long MAX_WAIT_MILLIS = 30_000;
+
+    /**
+     * longest a title or department number may be once encoded, as its length is stored in one byte
+     */
+    private static final int MAX_STRING_BYTES = 255;
+
+    /**
+     * counts the history rows a committed promotion inserted on its effective date
+     */
+    private static final String COMMITTED_ROWS_SQL =
+            "SELECT COUNT(*) FROM (" +
+                    "SELECT emp_no FROM salaries WHERE emp_no = :empNo AND from_date = :effectiveDate " +
+                    "UNION ALL SELECT emp_no FROM titles WHERE emp_no = :empNo AND from_date = :effectiveDate " +
+                    "UNION ALL SELECT emp_no FROM dept_emp WHERE emp_no = :empNo AND from_date = :effectiveDate" +
+                    ") promoted";
+
+    /**
+     * EntityManager injected by Spring, used only to resolve records left in doubt by a crash
+     */
+    @PersistenceContext
+    private EntityManager em;
+
+    /**
+     * runs the in-doubt lookups
+     */
+    private final TransactionTemplate readOnlyTransaction;
+
+    /**
+     * false to record nothing
+     */
+    private final boolean enabled;
+
+    /**
+     * directory of the segment files
+     */
+    private final Path directory;
+
+    /**
+     * size of new segment files in bytes
+     */
+    private final int segmentBytes;
+
+    /**
+     * how often the sync thread syncs state flips when no commit is waiting
+     */
+    private final long syncIntervalMs;
+
+    /**
+     * how long a commit waits for its records to be synced before it is rolled back
+     */
+    private final long syncTimeoutMs;
+
+    /**
+     * every segment by base offset
+     */
+    private final ConcurrentSkipListMap<Long, LogSegment> segments = new ConcurrentSkipListMap<>();
+
+    /**
+     * serializes appends
+     */
+    private final ReentrantLock appendLock = new ReentrantLock();
+
+    /**
+     * segment appended to, guarded by appendLock
+     */
+    private LogSegment active;
+
+    /**
+     * position of the next record in the active segment, guarded by appendLock
+     */
+    private int position;
+
+    /**
+     * global offset just past the last record appended
+     */
+    private volatile long endOffset;
+
+    /**
+     * guards the sync state below and wakes the sync thread and the commits waiting for it
+     */
+    private final ReentrantLock syncLock = new ReentrantLock();
+
+    /**
+     * signalled when records are appended
+     */
+    private final Condition appended = syncLock.newCondition();
+
+    /**
+     * signalled when a sync completes
+     */
+    private final Condition synced = syncLock.newCondition();
+
+    /**
+     * global offset up to which records are synced
+     */
+    private volatile long durableOffset;
+
+    /**
+     * lowest offset of a record whose state flipped since the last sync, Long.MAX_VALUE if none
+     */
+    private long dirtyFrom = Long.MAX_VALUE;
+
+    /**
+     * records appended since the last sync
+     */
+    private int appendedSinceSync;
+
+    /**
+     * guards nothing but wakes readers waiting for new events
+     */
+    private final ReentrantLock tailLock = new ReentrantLock();
+
+    /**
+     * signalled when records change state
+     */
+    private final Condition completed = tailLock.newCondition();
+
+    /**
+     * false once shutdown has begun
+     */
+    private volatile boolean running = true;
+
+    /**
+     * the thread syncing the log
+     */
+    private Thread syncer;
+
+    /**
+     * lock on the directory, held while the log is open so no other process appends to it
+     */
+    private FileChannel lockChannel;
+    private FileLock directoryLock;
+
+    /**
+     * offsets of the records found PREPARED when the log was opened, resolved once the application is ready
+     */
+    private final List<Long> inDoubt = new ArrayList<>();
+
+    /**
+     * time spent syncing the log
+     */
+    private final Timer syncTimer;
+
+    /**
+     * records covered by each sync
+     */
+    private final DistributionSummary syncBatch;
+
+    // counters
+    private final LongAdder prepared = new LongAdder();
+    private final LongAdder committed = new LongAdder();
+    private final LongAdder aborted = new LongAdder();
+    private final LongAdder eventsRead = new LongAdder();
+    private final LongAdder syncs = new LongAdder();
+    private final LongAdder resolved = new LongAdder();
+
+    /**
+     * constructor, opens the log and starts its sync thread
+     *
+     * @param transactionManager transaction manager, used to run the in-doubt lookups
+     * @param meterRegistry      registry the sync timer and batch sizes are published to
+     * @param enabled            false to record nothing
+     * @param directory          directory of the segment files, created if missing
+     * @param segmentBytes       size of new segment files in bytes
+     * @param syncIntervalMs     how often state flips are synced when no commit is waiting
+     * @param syncTimeoutMs      how long a commit waits for its records to be synced
+     */
+    public PromotionEventLog(PlatformTransactionManager transactionManager, MeterRegistry meterRegistry,
+                             @Value("${employees.promotion.log.enabled:true}") boolean enabled,
+                             @Value("${employees.promotion.log.dir:data/promotion-log}") String directory,
+                             @Value("${employees.promotion.log.segment-bytes:67108864}") int segmentBytes,
+                             @Value("${employees.promotion.log.sync-interval-ms:1000}") long syncIntervalMs,
+                             @Value("${employees.promotion.log.sync-timeout-ms:5000}") long syncTimeoutMs) {
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.enabled = enabled;
+        this.directory = Path.of(directory);
+        this.segmentBytes = Math.max(MIN_SEGMENT_BYTES, segmentBytes) & ~7;
+        this.syncIntervalMs = syncIntervalMs;
+        this.syncTimeoutMs = syncTimeoutMs;
+        this.syncTimer = Timer.builder("employees.promotion.log.sync")
+                .description("Time spent syncing the promotion event log to disk")
+                .register(meterRegistry);
+        this.syncBatch = DistributionSummary.builder("employees.promotion.log.sync.records")
+                .description("Promotion events made durable by one sync of the promotion event log")
+                .register(meterRegistry);
+
+        if (enabled) {
+            try {
+                open();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot open the promotion event log in " + this.directory, e);
+            }
+            syncer = Thread.ofPlatform()
+                    .name("promotion-log-sync")
+                    .daemon(true)
+                    .start(this::syncLoop);
+        }
+    }
+
+    /**
+     * Records a promotion: with the transaction it is part of, or at once if there is none.
+     * The events of one transaction are appended together just before it commits.
+     *
+     * @param event the promotion, published inside its transaction
+     */
+    @EventListener
+    public void onEmployeePromoted(EmployeePromotedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            Batch batch = new Batch();
+            batch.events.add(event);
+            batch.beforeCommit(false);
+            batch.afterCommit();
+            return;
+        }
+        Batch batch = (Batch) TransactionSynchronizationManager.getResource(this);
+        if (batch == null) {
+            batch = new Batch();
+            TransactionSynchronizationManager.bindResource(this, batch);
+            TransactionSynchronizationManager.registerSynchronization(batch);
+        }
+        batch.events.add(event);
+    }
+
+    /**
+     * Resolves the records a crash left PREPARED, looking for the history rows each promotion inserted.
+     * Readers wait at the first of them until then.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resolveInDoubt() {
+        if (inDoubt.isEmpty()) {
+            return;
+        }
+        for (long offset : inDoubt) {
+            Map.Entry<Long, LogSegment> entry = segments.floorEntry(offset);
+            int pos = (int) (offset - entry.getKey());
+            PromotionLogEventDTO event = decode(offset, entry.getValue().body(pos));
+            Number rows = readOnlyTransaction.execute(status -> (Number) em.createNativeQuery(COMMITTED_ROWS_SQL)
+                    .setParameter("empNo", event.getEmpNo())
+                    .setParameter("effectiveDate", event.getEffectiveDate())
+                    .getSingleResult());
+            boolean didCommit = rows != null && rows.longValue() > 0;
+            complete(entry.getValue(), pos, didCommit ? LogSegment.COMMITTED : LogSegment.ABORTED);
+            resolved.increment();
+            log.info("Promotion log record at {} for employee {} was left in doubt, resolved as {}",
+                    offset, event.getEmpNo(), didCommit ? "committed" : "aborted");
+        }
+        inDoubt.clear();
+    }
+
+    /**
+     * Reads committed promotions from an offset, in commit order.
+     * <p>
+     * Start from offset 0, then from the nextOffset of the previous page. With waitMs above zero and no
+     * event available yet, waits up to that long (at most 30 seconds) for one.
+     *
+     * @param offset offset of the first event, 0 or the nextOffset of a previous page
+     * @param limit  maximum number of events returned
+     * @param waitMs how long to wait for an event if none is available, 0 to return at once
+     * @return the events and the offset to continue from
+     * @throws InvalidDataException with status 404 if the log is disabled, or 400 if the offset is negative,
+     *                              past the end of the log or not the start of an event
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public PromotionLogPage read(long offset, int limit, long waitMs) throws InvalidDataException, InterruptedException {
+        if (!enabled) {
+            throw new InvalidDataException("Promotion log is disabled.", 404);
+        }
+        if (offset < 0 || offset > endOffset) {
+            throw new InvalidDataException("Offset must be between 0 and the end of the log, " + endOffset + ".", 400);
+        }
+        // records are 8-byte aligned, and their headers cannot be read at any other offset
+        if ((offset & 7) != 0) {
+            throw new InvalidDataException("Offset " + offset + " is not the start of an event.", 400);
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.min(Math.max(0, waitMs), MAX_WAIT_MILLIS));
+        while (true) {
+            List<PromotionLogEventDTO> events = new ArrayList<>(Math.min(limit, 1024));
+            long next = scan(offset, limit, events);
+            long remaining = deadline - System.nanoTime();
+            if (!events.isEmpty() || remaining <= 0 || !running) {
+                eventsRead.add(events.size());
+                return new PromotionLogPage(events, next);
+            }
+            // only aborted records were skipped, if any: keep going from past them
+            offset = next;
+            tailLock.lock();
+            try {
+                if (scan(offset, 1, new ArrayList<>()) == offset) {
+                    completed.awaitNanos(remaining);
+                }
+            } finally {
+                tailLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * returns the global offset just past the last record appended
+     *
+     * @return the end offset of the log, 0 if it is disabled
+     */
+    public long getEndOffset() {
+        return endOffset;
+    }
+
+    /**
+     * Retrieves the log counters.
+     *
+     * @return map of counter name to value
+     */
+    public Map<String, Long> getStatistics() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled ? 1L : 0L);
+        stats.put("segments", (long) segments.size());
+        stats.put("endOffset", endOffset);
+        stats.put("durableOffset", durableOffset);
+        stats.put("prepared", prepared.sum());
+        stats.put("committed", committed.sum());
+        stats.put("aborted", aborted.sum());
+        stats.put("inDoubtResolved", resolved.sum());
+        stats.put("syncs", syncs.sum());
+        stats.put("eventsRead", eventsRead.sum());
+        return stats;
+    }
+
+    /**
+     * stops the sync thread after a last sync and closes the segments
+     *
+     * @throws InterruptedException if interrupted while waiting for the sync thread
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (!enabled) {
+            return;
+        }
+        running = false;
+        syncLock.lock();
+        try {
+            appended.signalAll();
+            synced.signalAll();
+        } finally {
+            syncLock.unlock();
+        }
+        tailLock.lock();
+        try {
+            completed.signalAll();
+        } finally {
+            tailLock.unlock();
+        }
+        syncer.join(syncTimeoutMs);
+
+        appendLock.lock();
+        try {
+            for (LogSegment segment : segments.values()) {
+                segment.close();
+            }
+            directoryLock.release();
+            lockChannel.close();
+        } catch (IOException e) {
+            log.warn("Could not close the promotion event log", e);
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * locks the directory, maps its segments and recovers the end of the log
+     */
+    private void open() throws IOException {
+        Files.createDirectories(directory);
+        lockChannel = FileChannel.open(directory.resolve(".lock"),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        directoryLock = lockChannel.tryLock();
+        if (directoryLock == null) {
+            lockChannel.close();
+            throw new IOException("The promotion event log is in use by another process");
+        }
+
+        List<Long> bases;
+        try (Stream<Path> files = Files.list(directory)) {
+            bases = files.map(p -> p.getFileName().toString())
+                    .filter(name -> name.endsWith(SEGMENT_SUFFIX))
+                    .map(name -> Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length())))
+                    .sorted()
+                    .toList();
+        }
+        for (long base : bases) {
+            segments.put(base, LogSegment.open(segmentPath(base), base, segmentBytes));
+        }
+        if (segments.isEmpty()) {
+            segments.put(0L, LogSegment.open(segmentPath(0), 0, segmentBytes));
+        }
+
+        for (LogSegment segment : segments.values()) {
+            boolean last = segment == segments.lastEntry().getValue();
+            int pos = 0;
+            while (segment.length(pos) != 0) {
+                if (!segment.isValid(pos)) {
+                    if (!last) {
+                        throw new IOException("Promotion log segment " + segment.path() + " is corrupt at " + pos);
+                    }
+                    log.warn("Truncating the promotion event log at {}, after its last whole record",
+                            segment.baseOffset() + pos);
+                    segment.truncate(pos);
+                    break;
+                }
+                if (segment.state(pos) == LogSegment.PREPARED) {
+                    inDoubt.add(segment.baseOffset() + pos);
+                }
+                pos += segment.length(pos);
+            }
+            if (last) {
+                active = segment;
+                position = pos;
+            }
+        }
+        endOffset = active.baseOffset() + position;
+        durableOffset = endOffset;
+    }
+
+    /**
+     * Appends records in state PREPARED.
+     *
+     * @param events the promotions to record
+     * @return the offset of each record
+     */
+    private long[] prepare(List<EmployeePromotedEvent> events) {
+        long recordedAt = System.currentTimeMillis();
+        byte[][] bodies = new byte[events.size()][];
+        for (int i = 0; i < bodies.length; i++) {
+            bodies[i] = encode(events.get(i), recordedAt);
+        }
+
+        long[] offsets = new long[bodies.length];
+        appendLock.lock();
+        try {
+            if (!running) {
+                throw new IllegalStateException("The promotion event log is closed");
+            }
+            for (int i = 0; i < bodies.length; i++) {
+                int length = (LogSegment.HEADER + bodies[i].length + 7) & ~7;
+                if (position + length > active.capacity()) {
+                    roll();
+                }
+                active.write(position, bodies[i], length);
+                offsets[i] = active.baseOffset() + position;
+                position += length;
+            }
+            endOffset = active.baseOffset() + position;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot roll the promotion event log", e);
+        } finally {
+            appendLock.unlock();
+        }
+        prepared.add(bodies.length);
+
+        syncLock.lock();
+        try {
+            appendedSinceSync += bodies.length;
+            appended.signal();
+        } finally {
+            syncLock.unlock();
+        }
+        return offsets;
+    }
+
+    /**
+     * starts a new segment where the active one ends, called with appendLock held
+     */
+    private void roll() throws IOException {
+        long base = active.baseOffset() + position;
+        LogSegment segment = LogSegment.open(segmentPath(base), base, segmentBytes);
+        segments.put(base, segment);
+        active = segment;
+        position = 0;
+    }
+
+    /**
+     * waits until the log is synced up to offset
+     */
+    private void awaitDurable(long offset) {
+        long remaining = TimeUnit.MILLISECONDS.toNanos(syncTimeoutMs);
+        syncLock.lock();
+        try {
+            // the sync thread syncs everything appended before it exits, so shutdown needs no special case
+            while (durableOffset < offset) {
+                if (remaining <= 0) {
+                    throw new IllegalStateException("Timed out syncing the promotion event log");
+                }
+                remaining = synced.awaitNanos(remaining);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while syncing the promotion event log", e);
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    /**
+     * Flips records to their final state and wakes the readers.
+     *
+     * @param offsets records to flip
+     * @param state   COMMITTED or ABORTED
+     */
+    private void complete(long[] offsets, int state) {
+        for (long offset : offsets) {
+            Map.Entry<Long, LogSegment> entry = segments.floorEntry(offset);
+            complete(entry.getValue(), (int) (offset - entry.getKey()), state);
+        }
+    }
+
+    private void complete(LogSegment segment, int pos, int state) {
+        segment.setState(pos, state);
+        (state == LogSegment.COMMITTED ? committed : aborted).increment();
+
+        syncLock.lock();
+        try {
+            dirtyFrom = Math.min(dirtyFrom, segment.baseOffset() + pos);
+        } finally {
+            syncLock.unlock();
+        }
+        tailLock.lock();
+        try {
+            completed.signalAll();
+        } finally {
+            tailLock.unlock();
+        }
+    }
+
+    /**
+     * syncs whatever was appended or flipped, as soon as a commit waits for it or every sync interval
+     */
+    private void syncLoop() {
+        while (true) {
+            long from;
+            long to;
+            int records;
+            syncLock.lock();
+            try {
+                if (running && endOffset == durableOffset) {
+                    appended.await(syncIntervalMs, TimeUnit.MILLISECONDS);
+                }
+                if (!running && endOffset == durableOffset && dirtyFrom == Long.MAX_VALUE) {
+                    return;
+                }
+                to = endOffset;
+                from = Math.min(durableOffset, dirtyFrom);
+                records = appendedSinceSync;
+                dirtyFrom = Long.MAX_VALUE;
+                appendedSinceSync = 0;
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                syncLock.unlock();
+            }
+
+            if (from < to) {
+                try {
+                    syncTimer.record(() -> force(from, to));
+                    syncs.increment();
+                    if (records > 0) {
+                        syncBatch.record(records);
+                    }
+                } catch (RuntimeException e) {
+                    // commits waiting for this sync time out and roll back
+                    log.error("Could not sync the promotion event log", e);
+                    continue;
+                }
+            }
+
+            syncLock.lock();
+            try {
+                durableOffset = Math.max(durableOffset, to);
+                synced.signalAll();
+            } finally {
+                syncLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * forces the global byte range from to to to the storage device, across segments
+     */
+    private void force(long from, long to) {
+        Long first = segments.floorKey(from);
+        for (LogSegment segment : segments.subMap(first == null ? 0L : first, true, to, false).values()) {
+            long base = segment.baseOffset();
+            int start = (int) Math.max(0, from - base);
+            int end = (int) Math.min(segment.capacity(), to - base);
+            if (start < end) {
+                segment.force(start, end);
+            }
+        }
+    }
+
+    /**
+     * Collects up to limit committed events from offset, skipping aborted ones and stopping at the first
+     * record still in flight.
+     *
+     * @return the offset past the last record consumed
+     */
+    private long scan(long offset, int limit, List<PromotionLogEventDTO> events) throws InvalidDataException {
+        long at = offset;
+        boolean first = true;
+        while (events.size() < limit) {
+            Map.Entry<Long, LogSegment> entry = segments.floorEntry(at);
+            LogSegment segment = entry.getValue();
+            int pos = (int) (at - entry.getKey());
+            int length = segment.length(pos);
+            if (length == 0) {
+                break;
+            }
+            if (first && !segment.isValid(pos)) {
+                throw new InvalidDataException("Offset " + offset + " is not the start of an event.", 400);
+            }
+            first = false;
+            int state = segment.state(pos);
+            if (state == LogSegment.PREPARED) {
+                break;
+            }
+            if (state == LogSegment.COMMITTED) {
+                events.add(decode(at, segment.body(pos)));
+            }
+            at += length;
+        }
+        return at;
+    }
+
+    private Path segmentPath(long baseOffset) {
+        return directory.resolve(String.format("%020d", baseOffset) + SEGMENT_SUFFIX);
+    }
+
+    /**
+     * Encodes a promotion as a record body, little-endian: recordedAt millis (long), empNo, effective epoch
+     * day, old salary, new salary (ints), manager flags (byte: bit 0 before, bit 1 after), then old title,
+     * new title, old department and new department, each as a length byte and UTF-8 bytes.
+     */
+    private static byte[] encode(EmployeePromotedEvent event, long recordedAt) {
+        byte[][] strings = {
+                utf8(event.getOldTitle()), utf8(event.getNewTitle()),
+                utf8(event.getOldDeptNo()), utf8(event.getNewDeptNo())
+        };
+        int size = 8 + 4 * 4 + 1 + strings.length;
+        for (byte[] s : strings) {
+            size += s.length;
+        }
+        ByteBuffer body = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        body.putLong(recordedAt);
+        body.putInt(event.getEmpNo());
+        body.putInt((int) event.getEffectiveDate().toEpochDay());
+        body.putInt(event.getOldSalary());
+        body.putInt(event.getNewSalary());
+        body.put((byte) ((event.isManagerBefore() ? 1 : 0) | (event.isManagerAfter() ? 2 : 0)));
+        for (byte[] s : strings) {
+            body.put((byte) s.length);
+            body.put(s);
+        }
+        return body.array();
+    }
+
+    private static PromotionLogEventDTO decode(long offset, byte[] bytes) {
+        ByteBuffer body = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        Instant recordedAt = Instant.ofEpochMilli(body.getLong());
+        int empNo = body.getInt();
+        LocalDate effectiveDate = LocalDate.ofEpochDay(body.getInt());
+        int oldSalary = body.getInt();
+        int newSalary = body.getInt();
+        int flags = body.get();
+        String oldTitle = string(body);
+        String newTitle = string(body);
+        String oldDeptNo = string(body);
+        String newDeptNo = string(body);
+        return new PromotionLogEventDTO(offset, empNo, effectiveDate, oldSalary, newSalary, oldTitle, newTitle,
+                oldDeptNo, newDeptNo, (flags & 1) != 0, (flags & 2) != 0, recordedAt);
+    }
+
+    private static byte[] utf8(String s) {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > MAX_STRING_BYTES) {
+            throw new IllegalArgumentException("Cannot log a promotion with a value longer than "
+                    + MAX_STRING_BYTES + " bytes: " + s);
+        }
+        return bytes;
+    }
+
+    private static String string(ByteBuffer body) {
+        byte[] bytes = new byte[body.get() & 0xFF];
+        body.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * the promotions of one transaction, appended just before it commits and completed with it
+     */
+    private final class Batch implements TransactionSynchronization {
+        private final List<EmployeePromotedEvent> events = new ArrayList<>();
+        private long[] offsets;
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            offsets = prepare(events);
+            // throwing here rolls the transaction back, and afterCompletion aborts the records
+            awaitDurable(offsets[offsets.length - 1] + 1);
+        }
+
+        @Override
+        public void afterCommit() {
+            complete(offsets, LogSegment.COMMITTED);
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(PromotionEventLog.this);
+            if (status != STATUS_COMMITTED && offsets != null) {
+                complete(offsets, LogSegment.ABORTED);
+            }
+        }
+    }
+}
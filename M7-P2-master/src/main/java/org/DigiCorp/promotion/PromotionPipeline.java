@@ -0,0 +1,344 @@
+package org.DigiCorp.promotion;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+
+import org.DigiCorp.dao.EmployeeDAO;
+import org.DigiCorp.dto.EmployeePromotionRequest;
+import org.DigiCorp.dto.PromotionResult;
+import org.DigiCorp.dto.PromotionTicketDTO;
+import org.DigiCorp.exceptions.InvalidDataException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs promotions submitted asynchronously, off the request thread.
+ * <p>
+ * Promotions are sharded by empNo over a fixed number of lanes, each a bounded queue drained by a single
+ * thread. All promotions of an employee land on the same lane and run one after another in submission
+ * order, so they never conflict with each other, while lanes run in parallel across employees. A lane takes
+ * whatever has queued up, up to the batch size, and commits it through the bulk promotion path: one
+ * transaction per chunk, each request validated and reported on its own.
+ * <p>
+ * A full lane rejects the submission instead of blocking the request thread, so clients see backpressure
+ * as a 503 and retry later. Tickets are kept in memory for the configured time after their last change;
+ * promotions still queued when the application stops are run before the lanes exit.
+ */
+@Component
+public class PromotionPipeline {
+
+    private static final Logger log = LoggerFactory.getLogger(PromotionPipeline.class);
+
+    /**
+     * how long an idle lane waits for work before checking whether it should stop
+     */
+    private static final long POLL_MILLIS = 200;
+
+    /**
+     * how long shutdown waits for the lanes to drain their queues
+     */
+    private static final long SHUTDOWN_MILLIS = 30_000;
+
+    /**
+     * runs the promotions
+     */
+    private final EmployeeDAO employeeDAO;
+
+    /**
+     * maximum promotions a lane takes from its queue at once
+     */
+    private final int batchSize;
+
+    /**
+     * one bounded queue per lane
+     */
+    private final List<BlockingQueue<Ticket>> lanes = new ArrayList<>();
+
+    /**
+     * the thread draining each lane, started once the application is ready
+     */
+    private final List<Thread> workers = new ArrayList<>();
+
+    /**
+     * every ticket by id, expiring a while after its last change
+     */
+    private final Cache<String, Ticket> tickets;
+
+    /**
+     * false once shutdown has begun
+     */
+    private volatile boolean running = true;
+
+    /**
+     * submissions queued
+     */
+    private final Counter accepted;
+
+    /**
+     * submissions rejected because their lane was full or the application was stopping
+     */
+    private final Counter rejected;
+
+    /**
+     * promotions committed
+     */
+    private final Counter succeeded;
+
+    /**
+     * promotions that failed validation or could not be committed
+     */
+    private final Counter failed;
+
+    /**
+     * batches committed by the lanes
+     */
+    private final Counter batches;
+
+    /**
+     * constructor, initializes the lanes and publishes their metrics
+     *
+     * @param employeeDAO   runs the promotions
+     * @param meterRegistry registry the queue depth and outcome counters are published to
+     * @param laneCount     number of lanes, i.e. of promotions running in parallel
+     * @param queueCapacity maximum promotions waiting in each lane
+     * @param batchSize     maximum promotions a lane commits at once
+     * @param ticketTtl     how long a ticket can be polled after its last change, in minutes
+     */
+    public PromotionPipeline(EmployeeDAO employeeDAO, MeterRegistry meterRegistry,
+                             @Value("${employees.promotion.async.lanes:4}") int laneCount,
+                             @Value("${employees.promotion.async.queue-capacity:1000}") int queueCapacity,
+                             @Value("${employees.promotion.async.batch-size:100}") int batchSize,
+                             @Value("${employees.promotion.async.ticket-ttl-minutes:60}") long ticketTtl) {
+        this.employeeDAO = employeeDAO;
+        this.batchSize = batchSize;
+        for (int i = 0; i < laneCount; i++) {
+            lanes.add(new ArrayBlockingQueue<>(queueCapacity));
+        }
+        this.tickets = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofMinutes(ticketTtl))
+                .build();
+
+        Gauge.builder("employees.promotion.queue.depth", this, PromotionPipeline::queued)
+                .description("Promotions waiting in the async promotion lanes")
+                .register(meterRegistry);
+        this.accepted = outcome(meterRegistry, "accepted");
+        this.rejected = outcome(meterRegistry, "rejected");
+        this.succeeded = outcome(meterRegistry, "succeeded");
+        this.failed = outcome(meterRegistry, "failed");
+        this.batches = Counter.builder("employees.promotion.batches")
+                .description("Batches committed by the async promotion lanes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * starts one thread per lane once the application has started
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        for (int i = 0; i < lanes.size(); i++) {
+            BlockingQueue<Ticket> lane = lanes.get(i);
+            Thread worker = Thread.ofPlatform()
+                    .name("promotion-lane-" + i)
+                    .daemon(true)
+                    .start(() -> drain(lane));
+            workers.add(worker);
+        }
+    }
+
+    /**
+     * stops accepting promotions and lets the lanes finish what is queued
+     *
+     * @throws InterruptedException if interrupted while waiting for the lanes
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        long deadline = System.currentTimeMillis() + SHUTDOWN_MILLIS;
+        for (Thread worker : workers) {
+            worker.join(Math.max(1, deadline - System.currentTimeMillis()));
+            if (worker.isAlive()) {
+                log.warn("Promotion lane {} did not drain in time, {} promotions left queued",
+                        worker.getName(), queued());
+                worker.interrupt();
+            }
+        }
+    }
+
+    /**
+     * Queues a validated promotion on its employee's lane.
+     *
+     * @param request EmployeePromotionRequest payload, already validated
+     * @return the new ticket, in state QUEUED
+     * @throws InvalidDataException with status 503 if the lane is full or the application is stopping
+     */
+    public PromotionTicketDTO submit(EmployeePromotionRequest request) throws InvalidDataException {
+        if (!running) {
+            throw new InvalidDataException("Promotion queue is shutting down, please retry later.", 503);
+        }
+        Ticket ticket = new Ticket(UUID.randomUUID().toString(), request);
+        tickets.put(ticket.id, ticket);
+        if (!lanes.get(Math.floorMod(request.getEmpNo(), lanes.size())).offer(ticket)) {
+            tickets.invalidate(ticket.id);
+            rejected.increment();
+            throw new InvalidDataException("Promotion queue is full, please retry later.", 503);
+        }
+        accepted.increment();
+        return ticket.toDTO();
+    }
+
+    /**
+     * Retrieves the progress of a submitted promotion.
+     *
+     * @param ticketId ticket id returned on submission
+     * @return the ticket, or null if it is unknown or has expired
+     */
+    public PromotionTicketDTO find(String ticketId) {
+        Ticket ticket = tickets.getIfPresent(ticketId);
+        return ticket == null ? null : ticket.toDTO();
+    }
+
+    /**
+     * Retrieves the pipeline counters.
+     *
+     * @return map of counter name to value
+     */
+    public Map<String, Long> getStatistics() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("lanes", (long) lanes.size());
+        stats.put("queued", (long) queued());
+        stats.put("accepted", (long) accepted.count());
+        stats.put("rejected", (long) rejected.count());
+        stats.put("succeeded", (long) succeeded.count());
+        stats.put("failed", (long) failed.count());
+        stats.put("batches", (long) batches.count());
+        stats.put("tickets", tickets.estimatedSize());
+        return stats;
+    }
+
+    /**
+     * runs one lane until shutdown, then until its queue is empty
+     */
+    private void drain(BlockingQueue<Ticket> lane) {
+        List<Ticket> batch = new ArrayList<>(batchSize);
+        while (running || !lane.isEmpty()) {
+            try {
+                Ticket first = lane.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                lane.drainTo(batch, batchSize - 1);
+                process(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                // never let one batch stop the lane
+                log.error("Promotion lane {} failed", Thread.currentThread().getName(), e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * commits a batch of promotions and completes their tickets
+     */
+    private void process(List<Ticket> batch) {
+        List<EmployeePromotionRequest> requests = new ArrayList<>(batch.size());
+        for (Ticket ticket : batch) {
+            ticket.state = "RUNNING";
+            requests.add(ticket.request);
+        }
+
+        List<PromotionResult> results;
+        try {
+            results = employeeDAO.promoteEmployees(requests);
+        } catch (RuntimeException e) {
+            results = new ArrayList<>();
+            for (int i = 0; i < batch.size(); i++) {
+                results.add(PromotionResult.failure(i, requests.get(i).getEmpNo(), 500,
+                        "Unexpected error: " + e.getMessage()));
+            }
+        }
+        batches.increment();
+
+        for (int i = 0; i < batch.size(); i++) {
+            Ticket ticket = batch.get(i);
+            PromotionResult result = results.get(i);
+            ticket.complete(result);
+            (result.isSuccess() ? succeeded : failed).increment();
+            // restart the ticket's expiry from its completion
+            tickets.put(ticket.id, ticket);
+        }
+    }
+
+    /**
+     * returns the number of promotions waiting in all lanes
+     */
+    private int queued() {
+        int queued = 0;
+        for (BlockingQueue<Ticket> lane : lanes) {
+            queued += lane.size();
+        }
+        return queued;
+    }
+
+    private static Counter outcome(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("employees.promotion.async")
+                .description("Asynchronously submitted promotions, by outcome")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    /**
+     * one submitted promotion and its progress, written by its lane and read by pollers
+     */
+    private static final class Ticket {
+        private final String id;
+        private final EmployeePromotionRequest request;
+        private final Instant submittedAt = Instant.now();
+        private volatile String state = "QUEUED";
+        private volatile Integer status;
+        private volatile String message;
+        private volatile Instant completedAt;
+
+        private Ticket(String id, EmployeePromotionRequest request) {
+            this.id = id;
+            this.request = request;
+        }
+
+        private void complete(PromotionResult result) {
+            status = result.getStatus();
+            message = result.getMessage();
+            completedAt = Instant.now();
+            // written last, so a poller seeing the final state also sees the outcome
+            state = result.isSuccess() ? "SUCCEEDED" : "FAILED";
+        }
+
+        private PromotionTicketDTO toDTO() {
+            String current = state;
+            return new PromotionTicketDTO(id, request.getEmpNo(), current, status, message, submittedAt, completedAt);
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package org.DigiCorp.readmodel;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Static interval index over the department history rows of one department, each row the half-open day
+ * range [fromDay, toDay) of an assignment. Answers, in O(log n + k) for k rows reported:
+ * the rows overlapping a range of days, the rows starting in it and the rows ending in it.
+ * <p>
+ * Overlap is split into two disjoint parts: rows covering the first day of the range, found with a centered
+ * interval tree, and rows starting after it but within the range, found by binary search over the rows
+ * sorted by fromDay. Each tree node keeps the rows covering its center twice, sorted by fromDay ascending
+ * and by toDay descending, so a stabbing query walks one root-to-leaf path and stops scanning each node's
+ * list at the first row that does not cover the day.
+ * <p>
+ * Rows are identified by their row number in the owner's columns, which the tree reads but never changes.
+ * The tree is built once and immutable, so it is safe to query from any thread.
+ */
+final class DepartmentIntervalTree {
+
+    /**
+     * fromDay of every row of the owner's columns, indexed by row number
+     */
+    private final int[] fromDays;
+
+    /**
+     * toDay of every row of the owner's columns, indexed by row number
+     */
+    private final int[] toDays;
+
+    /**
+     * this department's rows sorted by fromDay
+     */
+    private final int[] byFrom;
+
+    /**
+     * this department's rows sorted by toDay
+     */
+    private final int[] byTo;
+
+    // tree nodes, in flat arrays indexed by node number; node 0 is the root
+    private final int[] centers;
+    private final int[] offsets;
+    private final int[] sizes;
+    private final int[] lefts;
+    private final int[] rights;
+    private int nodes;
+
+    /**
+     * rows covering each node's center, per node a segment at offsets[node] sorted by fromDay ascending
+     */
+    private final int[] nodeByFrom;
+
+    /**
+     * the same segments sorted by toDay descending
+     */
+    private final int[] nodeByTo;
+
+    /**
+     * next free slot of the node segments while building
+     */
+    private int filled;
+
+    /**
+     * builds the index over some rows of the owner's columns
+     *
+     * @param rows     row numbers of this department's rows, not modified
+     * @param fromDays fromDay column of the owner, indexed by row number
+     * @param toDays   toDay column of the owner, indexed by row number
+     */
+    DepartmentIntervalTree(int[] rows, int[] fromDays, int[] toDays) {
+        this.fromDays = fromDays;
+        this.toDays = toDays;
+        this.byFrom = sortBy(rows.clone(), fromDays, false);
+        this.byTo = sortBy(rows.clone(), toDays, false);
+
+        int capacity = Math.max(1, rows.length);
+        this.centers = new int[capacity];
+        this.offsets = new int[capacity];
+        this.sizes = new int[capacity];
+        this.lefts = new int[capacity];
+        this.rights = new int[capacity];
+        this.nodeByFrom = new int[rows.length];
+        this.nodeByTo = new int[rows.length];
+        build(byFrom);
+    }
+
+    /**
+     * Reports every row overlapping the days start to end, both inclusive.
+     *
+     * @param start first day
+     * @param end   last day
+     * @param rows  receives the row numbers, each once
+     */
+    void overlapping(int start, int end, IntConsumer rows) {
+        covering(start, rows);
+        if (start < end) {
+            starting(start + 1, end, rows);
+        }
+    }
+
+    /**
+     * Reports every row whose fromDay lies within start to end, both inclusive.
+     *
+     * @param start first day
+     * @param end   last day
+     * @param rows  receives the row numbers, in fromDay order
+     */
+    void starting(int start, int end, IntConsumer rows) {
+        for (int i = lowerBound(byFrom, fromDays, start); i < byFrom.length && fromDays[byFrom[i]] <= end; i++) {
+            rows.accept(byFrom[i]);
+        }
+    }
+
+    /**
+     * Reports every row whose toDay lies within start to end, both inclusive.
+     *
+     * @param start first day
+     * @param end   last day
+     * @param rows  receives the row numbers, in toDay order
+     */
+    void ending(int start, int end, IntConsumer rows) {
+        for (int i = lowerBound(byTo, toDays, start); i < byTo.length && toDays[byTo[i]] <= end; i++) {
+            rows.accept(byTo[i]);
+        }
+    }
+
+    /**
+     * returns the number of rows indexed
+     */
+    int size() {
+        return byFrom.length;
+    }
+
+    /**
+     * reports every row covering the day, walking one path down the tree
+     */
+    private void covering(int day, IntConsumer rows) {
+        int node = nodes == 0 ? -1 : 0;
+        while (node >= 0) {
+            int offset = offsets[node];
+            int end = offset + sizes[node];
+            if (day < centers[node]) {
+                // every row here ends after the center, so it covers the day if it started by then
+                for (int i = offset; i < end && fromDays[nodeByFrom[i]] <= day; i++) {
+                    rows.accept(nodeByFrom[i]);
+                }
+                node = lefts[node];
+            } else {
+                // every row here started by the center, so it covers the day if it ends after it
+                for (int i = offset; i < end && toDays[nodeByTo[i]] > day; i++) {
+                    rows.accept(nodeByTo[i]);
+                }
+                node = rights[node];
+            }
+        }
+    }
+
+    /**
+     * builds the subtree over rows sorted by fromDay and returns its node number, or -1 if there are no rows
+     */
+    private int build(int[] rows) {
+        if (rows.length == 0) {
+            return -1;
+        }
+        // the median start keeps at most half of the rows on either side; the median row itself always stays
+        // here, as do empty rows at the center, so every level makes progress
+        int center = fromDays[rows[rows.length / 2]];
+        int leftCount = 0;
+        int rightCount = 0;
+        for (int r : rows) {
+            if (toDays[r] <= center && fromDays[r] < center) {
+                leftCount++;
+            } else if (fromDays[r] > center) {
+                rightCount++;
+            }
+        }
+        int[] left = new int[leftCount];
+        int[] right = new int[rightCount];
+        int node = nodes++;
+        int offset = filled;
+        leftCount = 0;
+        rightCount = 0;
+        for (int r : rows) {
+            if (toDays[r] <= center && fromDays[r] < center) {
+                left[leftCount++] = r;
+            } else if (fromDays[r] > center) {
+                right[rightCount++] = r;
+            } else {
+                nodeByFrom[filled++] = r;
+            }
+        }
+        // rows arrive sorted by fromDay, so the node's own segment already is
+        System.arraycopy(nodeByFrom, offset, nodeByTo, offset, filled - offset);
+        sortBy(nodeByTo, offset, filled, toDays, true);
+
+        centers[node] = center;
+        offsets[node] = offset;
+        sizes[node] = filled - offset;
+        lefts[node] = build(left);
+        rights[node] = build(right);
+        return node;
+    }
+
+    /**
+     * returns the first position of rows, sorted by key, whose key is at least day
+     */
+    private static int lowerBound(int[] rows, int[] keys, int day) {
+        int lo = 0;
+        int hi = rows.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (keys[rows[mid]] < day) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private static int[] sortBy(int[] rows, int[] keys, boolean descending) {
+        sortBy(rows, 0, rows.length, keys, descending);
+        return rows;
+    }
+
+    /**
+     * sorts rows[from, to) by key, keeping row order among equal keys; (key, row) pairs are packed into longs
+     * so no boxing is needed
+     */
+    private static void sortBy(int[] rows, int from, int to, int[] keys, boolean descending) {
+        long[] packed = new long[to - from];
+        for (int i = from; i < to; i++) {
+            long key = descending ? -(long) keys[rows[i]] : keys[rows[i]];
+            packed[i - from] = (key << 32) | (i - from);
+        }
+        Arrays.sort(packed);
+        int[] sorted = new int[packed.length];
+        for (int i = 0; i < packed.length; i++) {
+            sorted[i] = rows[from + (int) packed[i]];
+        }
+        System.arraycopy(sorted, 0, rows, from, sorted.length);
+    }
+}
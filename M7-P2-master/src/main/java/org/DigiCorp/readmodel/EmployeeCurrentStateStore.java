@@ -0,0 +1,496 @@
+package org.DigiCorp.readmodel;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+import org.DigiCorp.dto.DepartmentStatsDTO;
+import org.DigiCorp.dto.EmployeeCurrentStateDTO;
+import org.DigiCorp.event.EmployeePromotedEvent;
+import org.DigiCorp.event.EmployeesImportedEvent;
+import org.DigiCorp.util.Helper;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.StampedLock;
+import java.util.stream.Stream;
+
+/**
+ * In-memory read model of every employee's current salary, title, department and manager flag.
+ * <p>
+ * Answering "what is this employee now" from the history tables means filtering four tables on
+ * to_date = '9999-01-01'. This store instead keeps the answer in primitive arrays indexed by
+ * empNo - minEmpNo (employee numbers are dense), with titles and departments interned to short codes,
+ * so a lookup is a handful of array reads and costs a few bytes per employee.
+ * <p>
+ * The store also maintains per-department headcount and salary aggregates of current employees.
+ * They are computed in one pass over the arrays when the store is built and adjusted whenever a promotion
+ * changes a salary or department, keeping a salary multiset per department so the minimum and maximum
+ * survive removals. Each change republishes an immutable DepartmentStatsDTO, so reads are a map lookup.
+ * <p>
+ * The store is built from the current rows of the history tables once the application has started and
+ * on demand through rebuild(). Promotions are applied from the EmployeePromotedEvent once their transaction
+ * has committed, so readers never see a promotion that may still roll back. Promotions committing while a
+ * rebuild is loading are replayed onto the new arrays before they replace the old ones; events carry absolute
+ * values, so replaying one the load already saw is harmless.
+ */
+@Component
+public class EmployeeCurrentStateStore {
+
+    /**
+     * flag: the employee exists
+     */
+    private static final byte PRESENT = 1;
+
+    /**
+     * flag: the employee holds a current salary, i.e. still works for the company
+     */
+    private static final byte CURRENT = 2;
+
+    /**
+     * flag: the employee currently manages a department
+     */
+    private static final byte MANAGER = 4;
+
+    /**
+     * code stored for a missing title or department
+     */
+    private static final short NONE = StringDictionary.NONE;
+
+    /**
+     * EntityManager injected by Spring, used only to (re)build the store
+     */
+    @PersistenceContext
+    private EntityManager em;
+
+    /**
+     * runs the load queries in one read-only transaction, so result streams keep their connection
+     */
+    private final TransactionTemplate readOnlyTransaction;
+
+    /**
+     * JDBC fetch size used while streaming the current rows
+     */
+    private final int fetchSize;
+
+    /**
+     * guards the arrays: writers (promotions, swaps) take the write lock, readers read optimistically
+     */
+    private final StampedLock lock = new StampedLock();
+
+    /**
+     * serializes rebuilds
+     */
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+
+    /**
+     * the current arrays, replaced as a whole on rebuild; null until the first build
+     */
+    private volatile State state;
+
+    /**
+     * promotions committed while a rebuild is loading, replayed onto the new arrays; null when not rebuilding
+     */
+    private List<EmployeePromotedEvent> pending;
+
+    /**
+     * lookups served
+     */
+    private final LongAdder lookups = new LongAdder();
+
+    /**
+     * promotions applied
+     */
+    private final LongAdder promotionsApplied = new LongAdder();
+
+    /**
+     * number of times the store has been (re)built
+     */
+    private final LongAdder rebuilds = new LongAdder();
+
+    /**
+     * duration of the last rebuild in milliseconds
+     */
+    private volatile long lastRebuildMillis;
+
+    /**
+     * constructor, initializes the store with its collaborators
+     *
+     * @param transactionManager transaction manager used for the load queries
+     * @param fetchSize          JDBC fetch size used while streaming the current rows
+     */
+    public EmployeeCurrentStateStore(PlatformTransactionManager transactionManager,
+                                     @Value("${employees.export.fetch-size:1000}") int fetchSize) {
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * builds the store once the application has started
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void preload() {
+        rebuild();
+    }
+
+    /**
+     * Retrieves an employee's current state.
+     *
+     * @param empNo employee number
+     * @return the employee's current state, or null if the employee does not exist
+     */
+    public EmployeeCurrentStateDTO find(int empNo) {
+        State current = loadedState();
+        lookups.increment();
+
+        while (true) {
+            long stamp = lock.tryOptimisticRead();
+            int i = empNo - current.minEmpNo;
+            if (i < 0 || i >= current.flags.length) {
+                return null;
+            }
+            byte flags = current.flags[i];
+            int salary = current.salaries[i];
+            String title = current.titles.name(current.titleCodes[i]);
+            String deptNo = current.departments.name(current.deptCodes[i]);
+
+            if (lock.validate(stamp)) {
+                if ((flags & PRESENT) == 0) {
+                    return null;
+                }
+                boolean employed = (flags & CURRENT) != 0;
+                return new EmployeeCurrentStateDTO(empNo, employed, employed ? salary : null,
+                        title, deptNo, (flags & MANAGER) != 0);
+            }
+            // a promotion was applied meanwhile, read again
+        }
+    }
+
+    /**
+     * Retrieves the current state of several employees.
+     *
+     * @param empNos employee numbers
+     * @return map keyed by every requested empNo, in request order, holding the current state or null
+     */
+    public Map<Integer, EmployeeCurrentStateDTO> findAll(List<Integer> empNos) {
+        Map<Integer, EmployeeCurrentStateDTO> states = new LinkedHashMap<>();
+        for (Integer empNo : empNos) {
+            states.put(empNo, find(empNo));
+        }
+        return states;
+    }
+
+    /**
+     * Retrieves the headcount and salary aggregates of a department's current employees.
+     *
+     * @param deptNo department number, as stored (e.g. 'd005')
+     * @return the department's stats, with zero headcount if it has no current employees
+     */
+    public DepartmentStatsDTO getDepartmentStats(String deptNo) {
+        DepartmentStatsDTO stats = loadedState().departmentStats.get(deptNo);
+        return stats == null ? DepartmentStatsDTO.empty(deptNo) : stats;
+    }
+
+    /**
+     * Applies a committed promotion.
+     *
+     * @param event the committed promotion
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onEmployeePromoted(EmployeePromotedEvent event) {
+        long stamp = lock.writeLock();
+        try {
+            if (state != null) {
+                apply(state, event);
+            }
+            if (pending != null) {
+                pending.add(event);
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        promotionsApplied.increment();
+    }
+
+    /**
+     * rebuilds the store once imported rows have committed, as imports bypass the promotion events; new employees
+     * also widen the employee number range the store is sized by
+     *
+     * @param event the finished import
+     */
+    @Order(Ordered.HIGHEST_PRECEDENCE + 1)
+    @EventListener
+    public void onEmployeesImported(EmployeesImportedEvent event) {
+        rebuild();
+    }
+
+    /**
+     * Rebuilds the store from the current rows of the history tables and atomically replaces the arrays.
+     *
+     * @return the store statistics after the rebuild
+     */
+    public Map<String, Long> rebuild() {
+        rebuildLock.lock();
+        try {
+            long start = System.nanoTime();
+            long stamp = lock.writeLock();
+            pending = new ArrayList<>();
+            lock.unlockWrite(stamp);
+
+            State loaded = null;
+            try {
+                loaded = readOnlyTransaction.execute(status -> load());
+            } finally {
+                stamp = lock.writeLock();
+                try {
+                    if (loaded != null) {
+                        for (EmployeePromotedEvent event : pending) {
+                            apply(loaded, event);
+                        }
+                        state = loaded;
+                    }
+                    pending = null;
+                } finally {
+                    lock.unlockWrite(stamp);
+                }
+            }
+
+            rebuilds.increment();
+            lastRebuildMillis = (System.nanoTime() - start) / 1_000_000;
+        } finally {
+            rebuildLock.unlock();
+        }
+        return getStatistics();
+    }
+
+    /**
+     * Retrieves the store counters.
+     *
+     * @return map of counter name to value
+     */
+    public Map<String, Long> getStatistics() {
+        State current = state;
+        long employees = 0;
+        long employed = 0;
+        long managers = 0;
+        if (current != null) {
+            for (byte flags : current.flags) {
+                employees += flags & PRESENT;
+                employed += (flags & CURRENT) != 0 ? 1 : 0;
+                managers += (flags & MANAGER) != 0 ? 1 : 0;
+            }
+        }
+
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("employees", employees);
+        stats.put("currentEmployees", employed);
+        stats.put("managers", managers);
+        stats.put("titles", current == null ? 0L : current.titles.size());
+        stats.put("lookups", lookups.sum());
+        stats.put("promotionsApplied", promotionsApplied.sum());
+        stats.put("rebuilds", rebuilds.sum());
+        stats.put("lastRebuildMillis", lastRebuildMillis);
+        return stats;
+    }
+
+    /**
+     * returns the current arrays, building them first if a request arrives before preload ran
+     */
+    private State loadedState() {
+        State current = state;
+        if (current == null) {
+            rebuild();
+            current = state;
+        }
+        return current;
+    }
+
+    /**
+     * writes the state after a promotion into the arrays and department aggregates, must hold the write lock
+     */
+    private static void apply(State target, EmployeePromotedEvent event) {
+        int i = event.getEmpNo() - target.minEmpNo;
+        if (i < 0 || i >= target.flags.length || (target.flags[i] & PRESENT) == 0) {
+            // unknown employee, the next rebuild picks it up
+            return;
+        }
+        String oldDeptNo = target.removeFromDepartment(i);
+
+        target.salaries[i] = event.getNewSalary();
+        target.titleCodes[i] = target.titles.code(event.getNewTitle());
+        target.deptCodes[i] = target.departments.code(event.getNewDeptNo());
+        target.flags[i] = (byte) (event.isManagerAfter() ? target.flags[i] | MANAGER : target.flags[i] & ~MANAGER);
+
+        String newDeptNo = target.addToDepartment(i);
+        target.publish(oldDeptNo);
+        target.publish(newDeptNo);
+    }
+
+    /**
+     * loads the current rows of every history table into new arrays
+     */
+    private State load() {
+        Object[] range = em.createNamedQuery("Employee.getEmpNoRange", Object[].class).getSingleResult();
+        if (range[0] == null) {
+            return new State(0, 0);
+        }
+        int min = (Integer) range[0];
+        State loaded = new State(min, (Integer) range[1] - min + 1);
+
+        try (Stream<Integer> rows = em.createNamedQuery("Employee.getAllEmpNos", Integer.class)
+                .setHint("org.hibernate.fetchSize", fetchSize)
+                .getResultStream()) {
+            rows.forEach(empNo -> loaded.flags[empNo - min] = PRESENT);
+        }
+
+        try (Stream<Object[]> rows = currentRows("Employee.getCurrentSalaries")) {
+            rows.forEach(row -> {
+                int i = (Integer) row[0] - min;
+                loaded.salaries[i] = (Integer) row[1];
+                loaded.flags[i] |= CURRENT;
+            });
+        }
+        try (Stream<Object[]> rows = currentRows("Employee.getCurrentTitles")) {
+            rows.forEach(row -> loaded.titleCodes[(Integer) row[0] - min] = loaded.titles.code((String) row[1]));
+        }
+        try (Stream<Object[]> rows = currentRows("Employee.getCurrentDeptEmps")) {
+            rows.forEach(row -> loaded.deptCodes[(Integer) row[0] - min] = loaded.departments.code((String) row[1]));
+        }
+        try (Stream<Integer> rows = em.createNamedQuery("Employee.getCurrentDeptManagers", Integer.class)
+                .setParameter("currentToDate", Helper.CURRENT_TO_DATE)
+                .setHint("org.hibernate.fetchSize", fetchSize)
+                .getResultStream()) {
+            rows.forEach(empNo -> loaded.flags[empNo - min] |= MANAGER);
+        }
+
+        // one pass over the arrays to compute the department aggregates
+        for (int i = 0; i < loaded.flags.length; i++) {
+            loaded.addToDepartment(i);
+        }
+        for (String deptNo : loaded.aggregates.keySet()) {
+            loaded.publish(deptNo);
+        }
+        return loaded;
+    }
+
+    /**
+     * streams the (empNo, value) current rows of one history table
+     */
+    private Stream<Object[]> currentRows(String queryName) {
+        return em.createNamedQuery(queryName, Object[].class)
+                .setParameter("currentToDate", Helper.CURRENT_TO_DATE)
+                .setHint("org.hibernate.fetchSize", fetchSize)
+                .getResultStream();
+    }
+
+    /**
+     * the arrays of one build, indexed by empNo - minEmpNo
+     */
+    private static final class State {
+        private final int minEmpNo;
+        private final byte[] flags;
+        private final int[] salaries;
+        private final short[] titleCodes;
+        private final short[] deptCodes;
+        private final StringDictionary titles = new StringDictionary();
+        private final StringDictionary departments = new StringDictionary();
+        private final Map<String, DepartmentAggregate> aggregates = new HashMap<>();
+        private final Map<String, DepartmentStatsDTO> departmentStats = new ConcurrentHashMap<>();
+
+        private State(int minEmpNo, int size) {
+            this.minEmpNo = minEmpNo;
+            this.flags = new byte[size];
+            this.salaries = new int[size];
+            this.titleCodes = new short[size];
+            this.deptCodes = new short[size];
+            Arrays.fill(titleCodes, NONE);
+            Arrays.fill(deptCodes, NONE);
+        }
+
+        /**
+         * adds employee i to its department's aggregate if it is a current employee of a department
+         *
+         * @return the department number, or null if the employee counts towards no department
+         */
+        private String addToDepartment(int i) {
+            String deptNo = countedDepartment(i);
+            if (deptNo != null) {
+                aggregates.computeIfAbsent(deptNo, d -> new DepartmentAggregate()).add(salaries[i]);
+            }
+            return deptNo;
+        }
+
+        /**
+         * removes employee i from its department's aggregate if it is a current employee of a department
+         *
+         * @return the department number, or null if the employee counted towards no department
+         */
+        private String removeFromDepartment(int i) {
+            String deptNo = countedDepartment(i);
+            if (deptNo != null) {
+                aggregates.get(deptNo).remove(salaries[i]);
+            }
+            return deptNo;
+        }
+
+        private String countedDepartment(int i) {
+            return (flags[i] & CURRENT) != 0 ? departments.name(deptCodes[i]) : null;
+        }
+
+        /**
+         * publishes the current aggregate of a department for readers
+         */
+        private void publish(String deptNo) {
+            if (deptNo != null) {
+                departmentStats.put(deptNo, aggregates.get(deptNo).toStats(deptNo));
+            }
+        }
+    }
+
+    /**
+     * headcount, payroll and salary multiset of one department's current employees
+     */
+    private static final class DepartmentAggregate {
+        private int headcount;
+        private long payroll;
+        private final TreeMap<Integer, Integer> salaryCounts = new TreeMap<>();
+
+        private void add(int salary) {
+            headcount++;
+            payroll += salary;
+            salaryCounts.merge(salary, 1, Integer::sum);
+        }
+
+        private void remove(int salary) {
+            headcount--;
+            payroll -= salary;
+            salaryCounts.computeIfPresent(salary, (s, count) -> count == 1 ? null : count - 1);
+        }
+
+        private DepartmentStatsDTO toStats(String deptNo) {
+            if (salaryCounts.isEmpty()) {
+                return DepartmentStatsDTO.empty(deptNo);
+            }
+            return new DepartmentStatsDTO(deptNo, headcount, payroll, salaryCounts.firstKey(), salaryCounts.lastKey());
+        }
+    }
+}
@@ -0,0 +1,670 @@
+package org.DigiCorp.readmodel;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+import org.DigiCorp.event.EmployeePromotedEvent;
+import org.DigiCorp.event.EmployeesImportedEvent;
+import org.DigiCorp.util.Helper;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntConsumer;
+import java.util.stream.Stream;
+
+/**
+ * In-memory temporal index of every employee's title and department history, answering point-in-time
+ * questions: what was an employee's title or department on some date, and who was in, joined or left a
+ * department over a range of dates.
+ * <p>
+ * Each history is held like the salary history store holds salaries: parallel primitive columns (empNo,
+ * fromDate and toDate as epoch days, interned title or department code) sorted by empNo then fromDate,
+ * with an offset index over empNo - minEmpNo. An employee's rows are contiguous and ordered, so the row
+ * in effect on a date is found by binary search over that slice.
+ * <p>
+ * For department membership, the department history rows of each department are also indexed by a
+ * DepartmentIntervalTree on their date ranges, which finds the rows overlapping, starting in or ending in a
+ * range of dates in O(log n + k).
+ * <p>
+ * The columns are immutable once loaded. A committed promotion that changes the title or department closes
+ * the current row and opens a new one in a per-employee delta history, consulted before the columns and
+ * folded in by the next rebuild. The delta histories are also indexed by the codes they hold, so a membership
+ * query only reads the deltas of employees who were ever in the department, however many were promoted. Promotions committing while a rebuild is loading are replayed onto the new
+ * columns before they replace the old ones; replaying a promotion the load already saw is ignored.
+ */
+@Component
+public class EmployeeHistoryIndex {
+
+    /**
+     * epoch day of the to_date marking a current row
+     */
+    private static final int CURRENT_TO_DAY = (int) Helper.CURRENT_TO_DATE.toEpochDay();
+
+    /**
+     * ints per row in a delta history: fromDay, toDay, code
+     */
+    private static final int DELTA_STRIDE = 3;
+
+    /**
+     * EntityManager injected by Spring, used only to (re)build the index
+     */
+    @PersistenceContext
+    private EntityManager em;
+
+    /**
+     * runs the load queries in one read-only transaction, so result streams keep their connection
+     */
+    private final TransactionTemplate readOnlyTransaction;
+
+    /**
+     * JDBC fetch size used while streaming the history rows
+     */
+    private final int fetchSize;
+
+    /**
+     * serializes promotions against the swap of a rebuild
+     */
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    /**
+     * serializes rebuilds
+     */
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+
+    /**
+     * the current columns and deltas, replaced as a whole on rebuild; null until the first build
+     */
+    private volatile Tables tables;
+
+    /**
+     * promotions committed while a rebuild is loading, replayed onto the new columns; null when not rebuilding
+     */
+    private List<EmployeePromotedEvent> pending;
+
+    /**
+     * point-in-time lookups served
+     */
+    private final LongAdder lookups = new LongAdder();
+
+    /**
+     * department membership queries served
+     */
+    private final LongAdder membershipQueries = new LongAdder();
+
+    /**
+     * title or department changes applied
+     */
+    private final LongAdder promotionsApplied = new LongAdder();
+
+    /**
+     * number of times the index has been (re)built
+     */
+    private final LongAdder rebuilds = new LongAdder();
+
+    /**
+     * duration of the last rebuild in milliseconds
+     */
+    private volatile long lastRebuildMillis;
+
+    /**
+     * constructor, initializes the index with its collaborators
+     *
+     * @param transactionManager transaction manager used for the load queries
+     * @param fetchSize          JDBC fetch size used while streaming the history rows
+     */
+    public EmployeeHistoryIndex(PlatformTransactionManager transactionManager,
+                                @Value("${employees.export.fetch-size:1000}") int fetchSize) {
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * builds the index once the application has started
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void preload() {
+        rebuild();
+    }
+
+    /**
+     * Retrieves the title an employee held on some date.
+     *
+     * @param empNo employee number
+     * @param asOf  the date
+     * @return the title, or null if the employee held none on that date
+     */
+    public String titleAsOf(int empNo, LocalDate asOf) {
+        Tables current = loadedTables();
+        lookups.increment();
+        return current.titleNames.name(current.titles.codeAsOf(empNo, (int) asOf.toEpochDay()));
+    }
+
+    /**
+     * Retrieves the department an employee worked in on some date.
+     *
+     * @param empNo employee number
+     * @param asOf  the date
+     * @return the department number, or null if the employee was in no department on that date
+     */
+    public String deptAsOf(int empNo, LocalDate asOf) {
+        Tables current = loadedTables();
+        lookups.increment();
+        return current.deptNames.name(current.depts.codeAsOf(empNo, (int) asOf.toEpochDay()));
+    }
+
+    /**
+     * Retrieves the employees who worked in, joined or left a department over a range of dates.
+     *
+     * @param deptNo     department number (e.g. 'd005')
+     * @param membership which assignments to the department are wanted
+     * @param start      first date of the range
+     * @param end        last date of the range, inclusive
+     * @return the employee numbers in ascending order, each once
+     */
+    public int[] departmentEmployees(String deptNo, Membership membership, LocalDate start, LocalDate end) {
+        Tables current = loadedTables();
+        membershipQueries.increment();
+        int startDay = (int) start.toEpochDay();
+        int endDay = (int) end.toEpochDay();
+        short code = current.deptNames.find(deptNo.toLowerCase(Locale.ROOT));
+        if (code == StringDictionary.NONE) {
+            return new int[0];
+        }
+
+        History depts = current.depts;
+        Map<Integer, int[]> deltas = depts.deltas;
+        boolean hasDeltas = !deltas.isEmpty();
+        EmployeeNumbers employees = new EmployeeNumbers();
+        if (code < current.departmentTrees.length) {
+            // promoted employees are resolved from their delta history below
+            IntConsumer rows = r -> {
+                int empNo = depts.empNos[r];
+                if (!(hasDeltas && deltas.containsKey(empNo))
+                        && membership.matches(depts.fromDays[r], depts.toDays[r], startDay, endDay)) {
+                    employees.add(empNo);
+                }
+            };
+            DepartmentIntervalTree tree = current.departmentTrees[code];
+            switch (membership) {
+                case DURING -> tree.overlapping(startDay, endDay, rows);
+                case JOINED -> tree.starting(startDay, endDay, rows);
+                case LEFT -> tree.ending(startDay, endDay, rows);
+            }
+        }
+        for (int empNo : depts.deltaEmployees(code)) {
+            int[] history = deltas.get(empNo);
+            if (history == null) {
+                // indexed by a promotion still being applied, answered from the columns above
+                continue;
+            }
+            for (int i = 0; i < history.length; i += DELTA_STRIDE) {
+                if (history[i + 2] == code && membership.matches(history[i], history[i + 1], startDay, endDay)) {
+                    employees.add(empNo);
+                    break;
+                }
+            }
+        }
+        return employees.sortedUnique();
+    }
+
+    /**
+     * Applies a committed promotion that changed the employee's title or department.
+     *
+     * @param event the committed promotion
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onEmployeePromoted(EmployeePromotedEvent event) {
+        if (!event.isTitleChanged() && !event.isDeptChanged()) {
+            return;
+        }
+        writeLock.lock();
+        try {
+            if (tables != null) {
+                apply(tables, event);
+            }
+            if (pending != null) {
+                pending.add(event);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+        promotionsApplied.increment();
+    }
+
+    /**
+     * rebuilds the index once imported title or department rows have committed, as imports bypass the promotion events
+     *
+     * @param event the finished import
+     */
+    @Order(Ordered.HIGHEST_PRECEDENCE + 1)
+    @EventListener
+    public void onEmployeesImported(EmployeesImportedEvent event) {
+        if (event.getTable().equals("titles") || event.getTable().equals("dept_emp")) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Rebuilds the index from the titles and dept_emp tables and atomically replaces it.
+     *
+     * @return the index statistics after the rebuild
+     */
+    public Map<String, Long> rebuild() {
+        rebuildLock.lock();
+        try {
+            long start = System.nanoTime();
+            writeLock.lock();
+            pending = new ArrayList<>();
+            writeLock.unlock();
+
+            Tables loaded = null;
+            try {
+                loaded = readOnlyTransaction.execute(status -> load());
+            } finally {
+                writeLock.lock();
+                try {
+                    if (loaded != null) {
+                        for (EmployeePromotedEvent event : pending) {
+                            apply(loaded, event);
+                        }
+                        tables = loaded;
+                    }
+                    pending = null;
+                } finally {
+                    writeLock.unlock();
+                }
+            }
+
+            rebuilds.increment();
+            lastRebuildMillis = (System.nanoTime() - start) / 1_000_000;
+        } finally {
+            rebuildLock.unlock();
+        }
+        return getStatistics();
+    }
+
+    /**
+     * Retrieves the index counters.
+     *
+     * @return map of counter name to value
+     */
+    public Map<String, Long> getStatistics() {
+        Tables current = tables;
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("titleRows", current == null ? 0L : current.titles.rows);
+        stats.put("deptEmpRows", current == null ? 0L : current.depts.rows);
+        stats.put("titles", current == null ? 0L : current.titleNames.size());
+        stats.put("departments", current == null ? 0L : current.deptNames.size());
+        stats.put("deltas", current == null ? 0L : current.titles.deltas.size() + current.depts.deltas.size());
+        stats.put("lookups", lookups.sum());
+        stats.put("membershipQueries", membershipQueries.sum());
+        stats.put("promotionsApplied", promotionsApplied.sum());
+        stats.put("rebuilds", rebuilds.sum());
+        stats.put("lastRebuildMillis", lastRebuildMillis);
+        return stats;
+    }
+
+    /**
+     * returns the current tables, building them first if a query arrives before preload ran
+     */
+    private Tables loadedTables() {
+        Tables current = tables;
+        if (current == null) {
+            rebuild();
+            current = tables;
+        }
+        return current;
+    }
+
+    /**
+     * records the employee's history after a title or department change in the deltas, must hold the write lock
+     */
+    private static void apply(Tables target, EmployeePromotedEvent event) {
+        int effectiveDay = (int) event.getEffectiveDate().toEpochDay();
+        if (event.isTitleChanged()) {
+            target.titles.change(event.getEmpNo(), effectiveDay, target.titleNames.code(event.getNewTitle()));
+        }
+        if (event.isDeptChanged()) {
+            target.depts.change(event.getEmpNo(), effectiveDay, target.deptNames.code(event.getNewDeptNo()));
+        }
+    }
+
+    /**
+     * loads both histories, in empNo then fromDate order, into new columns
+     */
+    private Tables load() {
+        Object[] range = em.createNamedQuery("Employee.getEmpNoRange", Object[].class).getSingleResult();
+        int min = range[0] == null ? 0 : (Integer) range[0];
+        int employees = range[0] == null ? 0 : (Integer) range[1] - min + 1;
+
+        StringDictionary titleNames = new StringDictionary();
+        StringDictionary deptNames = new StringDictionary();
+        History titles = loadHistory("Employee.countTitles", "Employee.getTitleHistoryRows", min, employees, titleNames);
+        History depts = loadHistory("Employee.countDeptEmps", "Employee.getDeptEmpHistoryRows", min, employees, deptNames);
+        return new Tables(min, titles, depts, titleNames, deptNames, departmentTrees(depts, deptNames.size()));
+    }
+
+    /**
+     * streams one history table into new columns
+     */
+    private History loadHistory(String countQuery, String rowsQuery, int min, int employees, StringDictionary names) {
+        long expected = em.createNamedQuery(countQuery, Long.class).getSingleResult();
+        HistoryBuilder builder = new HistoryBuilder(min, employees, (int) expected);
+        try (Stream<Object[]> rows = em.createNamedQuery(rowsQuery, Object[].class)
+                .setHint("org.hibernate.fetchSize", fetchSize)
+                .getResultStream()) {
+            rows.forEach(row -> builder.add((Integer) row[0],
+                    (int) ((LocalDate) row[1]).toEpochDay(),
+                    (int) ((LocalDate) row[2]).toEpochDay(),
+                    names.code((String) row[3])));
+        }
+        return builder.build();
+    }
+
+    /**
+     * groups the department history rows by department and indexes each group by date range
+     */
+    private static DepartmentIntervalTree[] departmentTrees(History depts, int departments) {
+        int[] counts = new int[departments];
+        for (int r = 0; r < depts.rows; r++) {
+            counts[depts.codes[r]]++;
+        }
+        int[][] rows = new int[departments][];
+        for (int d = 0; d < departments; d++) {
+            rows[d] = new int[counts[d]];
+            counts[d] = 0;
+        }
+        for (int r = 0; r < depts.rows; r++) {
+            short d = depts.codes[r];
+            rows[d][counts[d]++] = r;
+        }
+        DepartmentIntervalTree[] trees = new DepartmentIntervalTree[departments];
+        for (int d = 0; d < departments; d++) {
+            trees[d] = new DepartmentIntervalTree(rows[d], depts.fromDays, depts.toDays);
+        }
+        return trees;
+    }
+
+    /**
+     * returns the offset of the delta row covering day, or -1, by binary search over the fromDay-ordered rows
+     */
+    private static int findInDelta(int[] delta, int day) {
+        int lo = 0;
+        int hi = delta.length / DELTA_STRIDE - 1;
+        int found = -1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (delta[mid * DELTA_STRIDE] <= day) {
+                found = mid * DELTA_STRIDE;
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return found >= 0 && day < delta[found + 1] ? found : -1;
+    }
+
+    /**
+     * Kinds of department membership over a range of dates, matched against each assignment's date range.
+     */
+    public enum Membership {
+        /**
+         * assigned to the department on at least one day of the range
+         */
+        DURING,
+        /**
+         * assignment to the department started within the range
+         */
+        JOINED,
+        /**
+         * assignment to the department ended within the range; current assignments have not ended
+         */
+        LEFT;
+
+        /**
+         * returns true if the assignment [fromDay, toDay) matches over the days start to end, both inclusive
+         */
+        private boolean matches(int fromDay, int toDay, int start, int end) {
+            return switch (this) {
+                case DURING -> fromDay <= end && toDay > start;
+                case JOINED -> fromDay >= start && fromDay <= end;
+                case LEFT -> toDay >= start && toDay <= end && toDay != CURRENT_TO_DAY;
+            };
+        }
+    }
+
+    /**
+     * the columns of one build of both histories
+     */
+    private static final class Tables {
+        private final int minEmpNo;
+        private final History titles;
+        private final History depts;
+        private final StringDictionary titleNames;
+        private final StringDictionary deptNames;
+        // per department code, the interval index over the department history rows
+        private final DepartmentIntervalTree[] departmentTrees;
+
+        private Tables(int minEmpNo, History titles, History depts, StringDictionary titleNames,
+                       StringDictionary deptNames, DepartmentIntervalTree[] departmentTrees) {
+            this.minEmpNo = minEmpNo;
+            this.titles = titles;
+            this.depts = depts;
+            this.titleNames = titleNames;
+            this.deptNames = deptNames;
+            this.departmentTrees = departmentTrees;
+        }
+    }
+
+    /**
+     * one history table: columns sorted by empNo then fromDay, plus the histories changed by promotions since
+     */
+    private static final class History {
+        private final int minEmpNo;
+        // rows of employee e are offsets[e] (inclusive) to offsets[e + 1] (exclusive)
+        private final int[] offsets;
+        private final int[] empNos;
+        private final int[] fromDays;
+        private final int[] toDays;
+        private final short[] codes;
+        private final int rows;
+        // replacement histories of promoted employees, fromDay/toDay/code triples
+        private final Map<Integer, int[]> deltas = new ConcurrentHashMap<>();
+        // per code, the employees whose delta history holds a row with that code
+        private final Map<Short, Set<Integer>> deltaEmpNosByCode = new ConcurrentHashMap<>();
+
+        private History(int minEmpNo, int[] offsets, int[] empNos, int[] fromDays, int[] toDays,
+                        short[] codes, int rows) {
+            this.minEmpNo = minEmpNo;
+            this.offsets = offsets;
+            this.empNos = empNos;
+            this.fromDays = fromDays;
+            this.toDays = toDays;
+            this.codes = codes;
+            this.rows = rows;
+        }
+
+        /**
+         * returns the code in effect for an employee on a day, or NONE
+         */
+        private short codeAsOf(int empNo, int day) {
+            int[] delta = deltas.get(empNo);
+            if (delta != null) {
+                int r = findInDelta(delta, day);
+                return r < 0 ? StringDictionary.NONE : (short) delta[r + 2];
+            }
+            int e = empNo - minEmpNo;
+            if (e < 0 || e >= offsets.length - 1) {
+                return StringDictionary.NONE;
+            }
+            int lo = offsets[e];
+            int hi = offsets[e + 1] - 1;
+            int found = -1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                if (fromDays[mid] <= day) {
+                    found = mid;
+                    lo = mid + 1;
+                } else {
+                    hi = mid - 1;
+                }
+            }
+            return found >= 0 && day < toDays[found] ? codes[found] : StringDictionary.NONE;
+        }
+
+        /**
+         * closes the employee's current row and opens a new one with the given code, must hold the write lock
+         */
+        private void change(int empNo, int effectiveDay, short code) {
+            int e = empNo - minEmpNo;
+            if (e < 0 || e >= offsets.length - 1) {
+                // unknown employee, the next rebuild picks it up
+                return;
+            }
+            deltas.compute(empNo, (key, delta) -> {
+                int[] history = delta != null ? delta : copyHistory(e);
+                int last = history.length - DELTA_STRIDE;
+                if (last < 0 || history[last + 1] != CURRENT_TO_DAY) {
+                    // no current row to close, the next rebuild picks the change up
+                    return delta;
+                }
+                if (history[last] == effectiveDay && history[last + 2] == code) {
+                    // already loaded, the promotion is being replayed after a rebuild
+                    return delta;
+                }
+                int[] grown = Arrays.copyOf(history, history.length + DELTA_STRIDE);
+                grown[last + 1] = effectiveDay;
+                grown[last + 3] = effectiveDay;
+                grown[last + 4] = CURRENT_TO_DAY;
+                grown[last + 5] = code;
+                // indexed before the delta is published, so a query never misses a published delta
+                for (int i = 2; i < grown.length; i += DELTA_STRIDE) {
+                    deltaEmpNosByCode.computeIfAbsent((short) grown[i], c -> ConcurrentHashMap.newKeySet()).add(key);
+                }
+                return grown;
+            });
+        }
+
+        /**
+         * returns the employees whose delta history holds a row with the given code
+         */
+        private Set<Integer> deltaEmployees(short code) {
+            return deltaEmpNosByCode.getOrDefault(code, Set.of());
+        }
+
+        private int[] copyHistory(int e) {
+            int[] history = new int[(offsets[e + 1] - offsets[e]) * DELTA_STRIDE];
+            for (int r = offsets[e], i = 0; r < offsets[e + 1]; r++, i += DELTA_STRIDE) {
+                history[i] = fromDays[r];
+                history[i + 1] = toDays[r];
+                history[i + 2] = codes[r];
+            }
+            return history;
+        }
+    }
+
+    /**
+     * collects employee numbers, growing as needed
+     */
+    private static final class EmployeeNumbers {
+        private int[] empNos = new int[16];
+        private int size;
+
+        private void add(int empNo) {
+            if (size == empNos.length) {
+                empNos = Arrays.copyOf(empNos, size * 2);
+            }
+            empNos[size++] = empNo;
+        }
+
+        /**
+         * returns the collected numbers sorted, an employee with several matching rows kept once
+         */
+        private int[] sortedUnique() {
+            Arrays.sort(empNos, 0, size);
+            int unique = 0;
+            for (int i = 0; i < size; i++) {
+                if (unique == 0 || empNos[unique - 1] != empNos[i]) {
+                    empNos[unique++] = empNos[i];
+                }
+            }
+            return Arrays.copyOf(empNos, unique);
+        }
+    }
+
+    /**
+     * appends rows arriving in empNo order to new columns, growing them if the table grew after it was counted
+     */
+    private static final class HistoryBuilder {
+        private final int minEmpNo;
+        private final int[] offsets;
+        private int[] empNos;
+        private int[] fromDays;
+        private int[] toDays;
+        private short[] codes;
+        private int rows;
+        // employee index whose offset was set last
+        private int lastEmployee = -1;
+
+        private HistoryBuilder(int minEmpNo, int employees, int capacity) {
+            this.minEmpNo = minEmpNo;
+            this.offsets = new int[employees + 1];
+            this.empNos = new int[capacity];
+            this.fromDays = new int[capacity];
+            this.toDays = new int[capacity];
+            this.codes = new short[capacity];
+        }
+
+        private void add(int empNo, int fromDay, int toDay, short code) {
+            int e = empNo - minEmpNo;
+            if (e < 0 || e >= offsets.length - 1) {
+                // employee hired after the range was read, the next rebuild picks it up
+                return;
+            }
+            if (rows == empNos.length) {
+                int capacity = Math.max(16, rows + (rows >> 1));
+                empNos = Arrays.copyOf(empNos, capacity);
+                fromDays = Arrays.copyOf(fromDays, capacity);
+                toDays = Arrays.copyOf(toDays, capacity);
+                codes = Arrays.copyOf(codes, capacity);
+            }
+            // employees without rows in between start (and end) where this one starts
+            while (lastEmployee < e) {
+                offsets[++lastEmployee] = rows;
+            }
+            empNos[rows] = empNo;
+            fromDays[rows] = fromDay;
+            toDays[rows] = toDay;
+            codes[rows] = code;
+            rows++;
+        }
+
+        private History build() {
+            while (lastEmployee < offsets.length - 1) {
+                offsets[++lastEmployee] = rows;
+            }
+            return new History(minEmpNo, offsets, empNos, fromDays, toDays, codes, rows);
+        }
+    }
+}
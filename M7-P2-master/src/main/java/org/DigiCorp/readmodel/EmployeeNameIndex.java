@@ -0,0 +1,471 @@
+package org.DigiCorp.readmodel;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+import org.DigiCorp.dto.EmployeeRecordDTO;
+import org.DigiCorp.event.EmployeeSavedEvent;
+import org.DigiCorp.event.EmployeesImportedEvent;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * In-memory inverted index over employee first and last names, answering prefix and substring searches
+ * without a LIKE '%name%' table scan.
+ * <p>
+ * Names are split into lower-case tokens, and a sorted map holds one posting list (sorted empNos) per
+ * distinct token. The employees table has a few thousand distinct names spread over hundreds of thousands
+ * of employees, so a prefix search is a range of the sorted map, and a substring search scans the distinct
+ * tokens rather than the employees. Multi-word queries are driven by their longest word; every other word
+ * is checked against the candidate's own name tokens.
+ * <p>
+ * Results are ranked by how the driving word matched a name token: exact tokens first, then tokens starting
+ * with the word, then (substring mode) tokens containing it; within a rank alphabetically by token and then
+ * by empNo. The search stops as soon as the limit is reached.
+ * <p>
+ * The index is built once the application has started and on demand through rebuild(). New hires and
+ * renames are applied from the EmployeeSavedEvent once their transaction has committed. Changes committing
+ * while a rebuild is loading are replayed onto the new index before it replaces the old one.
+ */
+@Component
+public class EmployeeNameIndex {
+
+    /**
+     * EntityManager injected by Spring, used only to (re)build the index
+     */
+    @PersistenceContext
+    private EntityManager em;
+
+    /**
+     * runs the load query in a read-only transaction, so the result stream keeps its connection
+     */
+    private final TransactionTemplate readOnlyTransaction;
+
+    /**
+     * JDBC fetch size used while streaming the employee names
+     */
+    private final int fetchSize;
+
+    /**
+     * serializes changes against the swap of a rebuild
+     */
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    /**
+     * serializes rebuilds
+     */
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+
+    /**
+     * the current index, replaced as a whole on rebuild; null until the first build
+     */
+    private volatile Index index;
+
+    /**
+     * changes committed while a rebuild is loading, replayed onto the new index; null when not rebuilding
+     */
+    private List<EmployeeSavedEvent> pending;
+
+    /**
+     * searches served
+     */
+    private final LongAdder searches = new LongAdder();
+
+    /**
+     * new hires and renames applied
+     */
+    private final LongAdder updatesApplied = new LongAdder();
+
+    /**
+     * number of times the index has been (re)built
+     */
+    private final LongAdder rebuilds = new LongAdder();
+
+    /**
+     * duration of the last rebuild in milliseconds
+     */
+    private volatile long lastRebuildMillis;
+
+    /**
+     * constructor, initializes the index with its collaborators
+     *
+     * @param transactionManager transaction manager used for the load query
+     * @param fetchSize          JDBC fetch size used while streaming the employee names
+     */
+    public EmployeeNameIndex(PlatformTransactionManager transactionManager,
+                             @Value("${employees.export.fetch-size:1000}") int fetchSize) {
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * builds the index once the application has started
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void preload() {
+        rebuild();
+    }
+
+    /**
+     * Searches employees by name.
+     *
+     * @param query     one or more words, each matched against the employee's first and last name
+     * @param substring false to match words as name prefixes, true to match them anywhere in a name
+     * @param limit     maximum number of employees returned
+     * @return the matching employees, best match first
+     */
+    public List<EmployeeRecordDTO> search(String query, boolean substring, int limit) {
+        Index current = loadedIndex();
+        searches.increment();
+
+        String[] words = tokenize(query);
+        List<EmployeeRecordDTO> results = new ArrayList<>();
+        if (words.length == 0 || limit <= 0) {
+            return results;
+        }
+        String driving = words[0];
+        for (String word : words) {
+            if (word.length() > driving.length()) {
+                driving = word;
+            }
+        }
+
+        Set<Integer> seen = new HashSet<>();
+        for (String token : matchingTokens(current, driving, substring)) {
+            int[] empNos = current.postings.get(token);
+            if (empNos == null) {
+                // removed by a concurrent rename
+                continue;
+            }
+            for (int empNo : empNos) {
+                Person person = current.people.get(empNo);
+                if (person != null && person.matches(words, substring) && seen.add(empNo)) {
+                    results.add(new EmployeeRecordDTO(empNo, person.hireDate, person.firstName, person.lastName));
+                    if (results.size() == limit) {
+                        return results;
+                    }
+                }
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Retrieves an employee's name and hire date.
+     *
+     * @param empNo employee number
+     * @return the employee's record, or null if the employee does not exist
+     */
+    public EmployeeRecordDTO find(int empNo) {
+        Person person = loadedIndex().people.get(empNo);
+        return person == null ? null : new EmployeeRecordDTO(empNo, person.hireDate, person.firstName, person.lastName);
+    }
+
+    /**
+     * Applies a committed new hire or rename.
+     *
+     * @param event the committed change
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onEmployeeSaved(EmployeeSavedEvent event) {
+        writeLock.lock();
+        try {
+            if (index != null) {
+                index.put(event.getEmpNo(), event.getFirstName(), event.getLastName(), event.getHireDate());
+            }
+            if (pending != null) {
+                pending.add(event);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+        updatesApplied.increment();
+    }
+
+    /**
+     * rebuilds the index once imported employees have committed, as imports bypass the entity listener
+     *
+     * @param event the finished import
+     */
+    @Order(Ordered.HIGHEST_PRECEDENCE + 1)
+    @EventListener
+    public void onEmployeesImported(EmployeesImportedEvent event) {
+        if (!event.isHistory()) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Rebuilds the index from the employees table and atomically replaces it.
+     *
+     * @return the index statistics after the rebuild
+     */
+    public Map<String, Long> rebuild() {
+        rebuildLock.lock();
+        try {
+            long start = System.nanoTime();
+            writeLock.lock();
+            pending = new ArrayList<>();
+            writeLock.unlock();
+
+            Index loaded = null;
+            try {
+                loaded = readOnlyTransaction.execute(status -> load());
+            } finally {
+                writeLock.lock();
+                try {
+                    if (loaded != null) {
+                        for (EmployeeSavedEvent event : pending) {
+                            loaded.put(event.getEmpNo(), event.getFirstName(), event.getLastName(),
+                                    event.getHireDate());
+                        }
+                        index = loaded;
+                    }
+                    pending = null;
+                } finally {
+                    writeLock.unlock();
+                }
+            }
+
+            rebuilds.increment();
+            lastRebuildMillis = (System.nanoTime() - start) / 1_000_000;
+        } finally {
+            rebuildLock.unlock();
+        }
+        return getStatistics();
+    }
+
+    /**
+     * Retrieves the index counters.
+     *
+     * @return map of counter name to value
+     */
+    public Map<String, Long> getStatistics() {
+        Index current = index;
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("employees", current == null ? 0L : current.people.size());
+        stats.put("tokens", current == null ? 0L : current.postings.size());
+        stats.put("searches", searches.sum());
+        stats.put("updatesApplied", updatesApplied.sum());
+        stats.put("rebuilds", rebuilds.sum());
+        stats.put("lastRebuildMillis", lastRebuildMillis);
+        return stats;
+    }
+
+    /**
+     * returns the current index, building it first if a search arrives before preload ran
+     */
+    private Index loadedIndex() {
+        Index current = index;
+        if (current == null) {
+            rebuild();
+            current = index;
+        }
+        return current;
+    }
+
+    /**
+     * returns the tokens matching a word, in rank order: the word itself, then tokens starting with it,
+     * then (substring mode) tokens containing it
+     */
+    private static List<String> matchingTokens(Index current, String word, boolean substring) {
+        List<String> tokens = new ArrayList<>();
+        if (current.postings.containsKey(word)) {
+            tokens.add(word);
+        }
+        // every token starting with the word sorts between the word and the word followed by the highest char
+        NavigableMap<String, int[]> prefixed = current.postings.subMap(word, false, word + Character.MAX_VALUE, false);
+        tokens.addAll(prefixed.keySet());
+        if (substring) {
+            for (String token : current.postings.keySet()) {
+                if (!token.startsWith(word) && token.contains(word)) {
+                    tokens.add(token);
+                }
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * loads every employee's name into a new index
+     */
+    private Index load() {
+        Index loaded = new Index();
+        Map<String, PostingsBuilder> builders = new HashMap<>();
+        try (Stream<Object[]> rows = em.createNamedQuery("Employee.getAllEmployeeNames", Object[].class)
+                .setHint("org.hibernate.fetchSize", fetchSize)
+                .getResultStream()) {
+            rows.forEach(row -> {
+                int empNo = (Integer) row[0];
+                Person person = loaded.person((String) row[1], (String) row[2], (LocalDate) row[3]);
+                loaded.people.put(empNo, person);
+                for (String token : person.tokens) {
+                    builders.computeIfAbsent(token, t -> new PostingsBuilder()).add(empNo);
+                }
+            });
+        }
+        builders.forEach((token, builder) -> loaded.postings.put(token, builder.build()));
+        return loaded;
+    }
+
+    /**
+     * splits a name or query into distinct lower-case words
+     */
+    private static String[] tokenize(String name) {
+        if (name == null) {
+            return new String[0];
+        }
+        return Arrays.stream(name.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+"))
+                .filter(word -> !word.isEmpty())
+                .distinct()
+                .toArray(String[]::new);
+    }
+
+    /**
+     * the index of one build: people by empNo and the posting list of every name token
+     */
+    private static final class Index {
+        private final Map<Integer, Person> people = new ConcurrentHashMap<>();
+        // posting lists are sorted and never modified, a change replaces the array
+        private final ConcurrentSkipListMap<String, int[]> postings = new ConcurrentSkipListMap<>();
+        // interns names and tokens, only used by writers
+        private final Map<String, String> strings = new HashMap<>();
+
+        private Person person(String firstName, String lastName, LocalDate hireDate) {
+            String[] tokens = tokenize(firstName + " " + lastName);
+            for (int i = 0; i < tokens.length; i++) {
+                tokens[i] = intern(tokens[i]);
+            }
+            return new Person(intern(firstName), intern(lastName), hireDate, tokens);
+        }
+
+        private String intern(String value) {
+            return value == null ? null : strings.computeIfAbsent(value, v -> v);
+        }
+
+        /**
+         * adds or renames one employee, must hold the write lock
+         */
+        private void put(int empNo, String firstName, String lastName, LocalDate hireDate) {
+            Person now = person(firstName, lastName, hireDate);
+            Person before = people.put(empNo, now);
+            List<String> oldTokens = before == null ? List.of() : Arrays.asList(before.tokens);
+            List<String> newTokens = Arrays.asList(now.tokens);
+            for (String token : oldTokens) {
+                if (!newTokens.contains(token)) {
+                    int[] remaining = PostingsBuilder.remove(postings.get(token), empNo);
+                    if (remaining.length == 0) {
+                        postings.remove(token);
+                    } else {
+                        postings.put(token, remaining);
+                    }
+                }
+            }
+            for (String token : newTokens) {
+                if (!oldTokens.contains(token)) {
+                    postings.put(token, PostingsBuilder.insert(postings.get(token), empNo));
+                }
+            }
+        }
+    }
+
+    /**
+     * one employee's name, hire date and name tokens
+     */
+    private record Person(String firstName, String lastName, LocalDate hireDate, String[] tokens) {
+
+        /**
+         * true if every query word matches one of the employee's name tokens
+         */
+        private boolean matches(String[] words, boolean substring) {
+            for (String word : words) {
+                boolean found = false;
+                for (String token : tokens) {
+                    if (substring ? token.contains(word) : token.startsWith(word)) {
+                        found = true;
+                        break;
+                    }
+                }
+                if (!found) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * collects one token's empNos during a load, and edits sorted posting lists afterwards
+     */
+    private static final class PostingsBuilder {
+        private int[] empNos = new int[8];
+        private int size;
+
+        private void add(int empNo) {
+            if (size == empNos.length) {
+                empNos = Arrays.copyOf(empNos, size * 2);
+            }
+            empNos[size++] = empNo;
+        }
+
+        private int[] build() {
+            int[] sorted = Arrays.copyOf(empNos, size);
+            Arrays.sort(sorted);
+            return sorted;
+        }
+
+        private static int[] insert(int[] postings, int empNo) {
+            if (postings == null) {
+                return new int[]{empNo};
+            }
+            int i = Arrays.binarySearch(postings, empNo);
+            if (i >= 0) {
+                return postings;
+            }
+            int at = -i - 1;
+            int[] grown = new int[postings.length + 1];
+            System.arraycopy(postings, 0, grown, 0, at);
+            grown[at] = empNo;
+            System.arraycopy(postings, at, grown, at + 1, postings.length - at);
+            return grown;
+        }
+
+        private static int[] remove(int[] postings, int empNo) {
+            int i = postings == null ? -1 : Arrays.binarySearch(postings, empNo);
+            if (i < 0) {
+                return postings == null ? new int[0] : postings;
+            }
+            int[] shrunk = new int[postings.length - 1];
+            System.arraycopy(postings, 0, shrunk, 0, i);
+            System.arraycopy(postings, i + 1, shrunk, i, postings.length - i - 1);
+            return shrunk;
+        }
+    }
+}
@@ -0,0 +1,369 @@
+package org.DigiCorp.readmodel;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Mergeable quantile sketch of int values (a KLL sketch), for the read models that serve percentiles
+ * without keeping every value.
+ * <p>
+ * Values are kept in levels of compactors: a value at level h stands for 2^h values. New values go to level 0.
+ * When the sketch holds more values than its capacity, the lowest full level is sorted and every other value,
+ * starting at a random offset, moves one level up with twice the weight, the others are dropped. Level h
+ * holds up to k * (2/3)^(top - h) values (at least 8), so the sketch keeps O(k) values however many it has
+ * seen. Sketches built over disjoint parts of the data merge into a sketch of the whole by concatenating
+ * their levels and compacting, which is what lets a read model build them in parallel.
+ * <p>
+ * Until the first compaction the sketch holds every value and its answers are exact. After that, the rank
+ * of every value is estimated within rankError(k) of the number of values seen, with 99% confidence.
+ * <p>
+ * A sketch cannot forget a value. Read models that remove values keep a second sketch of the removed values
+ * and query the difference through a Snapshot, whose error is then relative to the values added plus removed.
+ * Sketches are not thread-safe: the owner updates them under its write lock and publishes Snapshots to readers.
+ */
+final class QuantileSketch {
+
+    /**
+     * smallest capacity of a level
+     */
+    private static final int MIN_WIDTH = 8;
+
+    /**
+     * capacity of a level relative to the level above it
+     */
+    private static final double DECAY = 2.0 / 3.0;
+
+    /**
+     * accuracy parameter, the capacity of the top level
+     */
+    private final int k;
+
+    /**
+     * picks the offset of each compaction
+     */
+    private final SplittableRandom random;
+
+    /**
+     * values of each level, level h holding values of weight 2^h
+     */
+    private int[][] levels;
+
+    /**
+     * number of values held in each level
+     */
+    private int[] sizes;
+
+    /**
+     * number of levels in use
+     */
+    private int height = 1;
+
+    /**
+     * capacity of all the levels together, recomputed when a level is added
+     */
+    private int capacity;
+
+    /**
+     * number of values held
+     */
+    private int retained;
+
+    /**
+     * number of values seen, i.e. the total weight of the values held
+     */
+    private long count;
+
+    /**
+     * true once a compaction has dropped values, i.e. once answers are estimates
+     */
+    private boolean compacted;
+
+    /**
+     * constructor, creates an empty sketch
+     *
+     * @param k    accuracy parameter, at least 8; 200 estimates ranks within about 1.3%
+     * @param seed seed of the compaction offsets, so sketches built from the same values are identical
+     */
+    QuantileSketch(int k, long seed) {
+        this.k = Math.max(MIN_WIDTH, k);
+        this.random = new SplittableRandom(seed);
+        this.levels = new int[][]{new int[this.k]};
+        this.sizes = new int[1];
+        this.capacity = levelCapacity(0);
+    }
+
+    /**
+     * Returns the bound on the rank error of a sketch: the rank of a value is estimated within this fraction of
+     * the values seen, with 99% confidence. This is the empirical bound Apache DataSketches publishes for its KLL
+     * sketch, which uses the same level capacities.
+     *
+     * @param k accuracy parameter
+     * @return normalized rank error, e.g. 0.0133 for k = 200
+     */
+    static double rankError(int k) {
+        return 2.296 / Math.pow(Math.max(MIN_WIDTH, k), 0.9723);
+    }
+
+    /**
+     * adds a value
+     */
+    void add(int value) {
+        append(0, value);
+        count++;
+        if (retained > capacity) {
+            compress();
+        }
+    }
+
+    /**
+     * adds every value seen by another sketch, which is left unchanged
+     */
+    void merge(QuantileSketch other) {
+        for (int h = 0; h < other.height; h++) {
+            for (int i = 0; i < other.sizes[h]; i++) {
+                append(h, other.levels[h][i]);
+            }
+        }
+        count += other.count;
+        compacted |= other.compacted;
+        compress();
+    }
+
+    /**
+     * returns the number of values seen
+     */
+    long count() {
+        return count;
+    }
+
+    /**
+     * returns the number of values held
+     */
+    int retained() {
+        return retained;
+    }
+
+    /**
+     * returns the accuracy parameter
+     */
+    int k() {
+        return k;
+    }
+
+    /**
+     * returns true if the sketch still holds every value it has seen
+     */
+    boolean isExact() {
+        return !compacted;
+    }
+
+    /**
+     * Creates an immutable view of the values added to one sketch and not removed through another.
+     *
+     * @param added   values added
+     * @param removed values removed, each of which was added before
+     * @return the snapshot
+     */
+    static Snapshot snapshot(QuantileSketch added, QuantileSketch removed) {
+        // one sortable key per value held: the value, then its level, then whether it was removed
+        long[] keys = new long[added.retained + removed.retained];
+        int n = added.keys(keys, 0, 0);
+        removed.keys(keys, n, 1);
+        Arrays.sort(keys);
+
+        int[] values = new int[keys.length];
+        long[] ranks = new long[keys.length];
+        long total = added.count - removed.count;
+        long running = 0;
+        long rank = 0;
+        int distinct = 0;
+        for (int i = 0; i < keys.length; i++) {
+            int value = (int) (keys[i] >> 8);
+            long weight = 1L << ((keys[i] >> 1) & 63);
+            running += (keys[i] & 1) == 0 ? weight : -weight;
+            if (i + 1 < keys.length && (int) (keys[i + 1] >> 8) == value) {
+                continue;
+            }
+            // the difference of two estimates may dip or overshoot locally, ranks must not
+            rank = Math.max(rank, Math.min(total, running));
+            values[distinct] = value;
+            ranks[distinct++] = rank;
+        }
+
+        double error = added.compacted || removed.compacted
+                ? rankError(added.k) * (added.count + removed.count) / Math.max(1, total)
+                : 0;
+        return new Snapshot(Arrays.copyOf(values, distinct), Arrays.copyOf(ranks, distinct), Math.max(0, total),
+                Math.min(1, error));
+    }
+
+    /**
+     * writes the sort key of every value held into keys from index at, returning the index after the last
+     */
+    private int keys(long[] keys, int at, int removed) {
+        for (int h = 0; h < height; h++) {
+            for (int i = 0; i < sizes[h]; i++) {
+                keys[at++] = ((long) levels[h][i] << 8) | ((long) h << 1) | removed;
+            }
+        }
+        return at;
+    }
+
+    /**
+     * appends a value to a level, adding levels up to it if needed
+     */
+    private void append(int h, int value) {
+        while (h >= height) {
+            addLevel();
+        }
+        if (sizes[h] == levels[h].length) {
+            levels[h] = Arrays.copyOf(levels[h], levels[h].length * 2);
+        }
+        levels[h][sizes[h]++] = value;
+        retained++;
+    }
+
+    /**
+     * compacts the lowest full level until the sketch is within its capacity
+     */
+    private void compress() {
+        while (retained > capacity) {
+            int h = 0;
+            while (sizes[h] < levelCapacity(h)) {
+                h++;
+            }
+            compact(h);
+        }
+    }
+
+    /**
+     * moves every other value of a level one level up, keeping one value back if the level holds an odd number
+     */
+    private void compact(int h) {
+        if (h == height - 1) {
+            addLevel();
+        }
+        int[] values = levels[h];
+        int size = sizes[h];
+        Arrays.sort(values, 0, size);
+        int kept = size & 1;
+        for (int i = kept + (random.nextBoolean() ? 1 : 0); i < size; i += 2) {
+            append(h + 1, values[i]);
+        }
+        // the value kept back, if any, is the smallest, already at the front
+        sizes[h] = kept;
+        retained -= size - kept;
+        compacted = true;
+    }
+
+    /**
+     * adds an empty level on top, which lowers the capacity of every level below it
+     */
+    private void addLevel() {
+        if (height == levels.length) {
+            levels = Arrays.copyOf(levels, height * 2);
+            sizes = Arrays.copyOf(sizes, height * 2);
+        }
+        levels[height] = new int[MIN_WIDTH];
+        height++;
+        int total = 0;
+        for (int h = 0; h < height; h++) {
+            total += levelCapacity(h);
+        }
+        capacity = total;
+    }
+
+    /**
+     * returns the capacity of a level given the current number of levels
+     */
+    private int levelCapacity(int h) {
+        return Math.max(MIN_WIDTH, (int) Math.ceil(k * Math.pow(DECAY, height - 1 - h)));
+    }
+
+    /**
+     * Immutable view of a sketch, or of the difference of an added and a removed sketch: the distinct values
+     * held in ascending order with the estimated number of values at or below each.
+     */
+    static final class Snapshot {
+
+        /**
+         * distinct values held, ascending
+         */
+        private final int[] values;
+
+        /**
+         * estimated number of values at or below each value, non-decreasing
+         */
+        private final long[] ranks;
+
+        /**
+         * number of values
+         */
+        private final long count;
+
+        /**
+         * bound on the rank error of the estimates as a fraction of count, 0 if they are exact
+         */
+        private final double rankError;
+
+        private Snapshot(int[] values, long[] ranks, long count, double rankError) {
+            this.values = values;
+            this.ranks = ranks;
+            this.count = count;
+            this.rankError = rankError;
+        }
+
+        /**
+         * returns the number of values
+         */
+        long count() {
+            return count;
+        }
+
+        /**
+         * returns the bound on the rank error of the estimates as a fraction of count, 0 if they are exact
+         */
+        double rankError() {
+            return rankError;
+        }
+
+        /**
+         * returns the smallest value whose estimated rank reaches fraction q of the values (the nearest-rank
+         * percentile), null if there are no values
+         */
+        Integer quantile(double q) {
+            if (count == 0) {
+                return null;
+            }
+            long target = Math.max(1, (long) Math.ceil(q * count));
+            int low = 0;
+            int high = values.length - 1;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (ranks[mid] >= target) {
+                    high = mid;
+                } else {
+                    low = mid + 1;
+                }
+            }
+            return values[low];
+        }
+
+        /**
+         * returns the estimated number of values at or below a value
+         */
+        long rank(long value) {
+            int low = 0;
+            int high = values.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (values[mid] <= value) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low == 0 ? 0 : ranks[low - 1];
+        }
+    }
+}
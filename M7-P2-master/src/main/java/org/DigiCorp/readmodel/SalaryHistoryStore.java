@@ -0,0 +1,580 @@
+package org.DigiCorp.readmodel;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+import org.DigiCorp.dto.SalaryPeriodDTO;
+import org.DigiCorp.dto.SalaryScanResultDTO;
+import org.DigiCorp.event.EmployeePromotedEvent;
+import org.DigiCorp.event.EmployeesImportedEvent;
+import org.DigiCorp.util.Helper;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * In-memory columnar copy of the whole salary history, for analytics queries.
+ * <p>
+ * Loaded as Salary entities, each history row costs an entity, two LocalDates and a reference to its
+ * Employee. This store instead keeps every row in four parallel int columns (empNo, fromDate and toDate
+ * as epoch days, salary), 16 bytes per row, sorted by empNo then fromDate. An offset index indexed by
+ * empNo - minEmpNo points at each employee's first row, so an employee's history is a contiguous slice
+ * and a range scan is a sequential pass over the columns. The columns live on the heap by default, or in
+ * direct memory with employees.salary-history.off-heap=true to keep them out of the collector's way.
+ * <p>
+ * The columns are immutable once loaded. A committed promotion that changes a salary closes the employee's
+ * current row and opens a new one; the store records the employee's complete replacement history in a small
+ * delta map that readers consult before the columns. The deltas are folded into the columns by the next
+ * rebuild. Promotions committing while a rebuild is loading are replayed onto the new columns before they
+ * replace the old ones; replaying a promotion the load already saw is detected and ignored.
+ */
+@Component
+public class SalaryHistoryStore {
+
+    /**
+     * epoch day of the to_date marking a current row
+     */
+    private static final int CURRENT_TO_DAY = (int) Helper.CURRENT_TO_DATE.toEpochDay();
+
+    /**
+     * ints per row in a delta history: fromDay, toDay, salary
+     */
+    private static final int DELTA_STRIDE = 3;
+
+    /**
+     * EntityManager injected by Spring, used only to (re)build the store
+     */
+    @PersistenceContext
+    private EntityManager em;
+
+    /**
+     * runs the load queries in one read-only transaction, so the result stream keeps its connection
+     */
+    private final TransactionTemplate readOnlyTransaction;
+
+    /**
+     * JDBC fetch size used while streaming the history rows
+     */
+    private final int fetchSize;
+
+    /**
+     * true to allocate the columns in direct memory
+     */
+    private final boolean offHeap;
+
+    /**
+     * true to build the store once the application has started, otherwise on the first query
+     */
+    private final boolean preload;
+
+    /**
+     * serializes promotions against the swap of a rebuild
+     */
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    /**
+     * serializes rebuilds
+     */
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+
+    /**
+     * the current columns and deltas, replaced as a whole on rebuild; null until the first build
+     */
+    private volatile Columns columns;
+
+    /**
+     * promotions committed while a rebuild is loading, replayed onto the new columns; null when not rebuilding
+     */
+    private List<EmployeePromotedEvent> pending;
+
+    /**
+     * queries served
+     */
+    private final LongAdder queries = new LongAdder();
+
+    /**
+     * salary changes applied
+     */
+    private final LongAdder promotionsApplied = new LongAdder();
+
+    /**
+     * number of times the store has been (re)built
+     */
+    private final LongAdder rebuilds = new LongAdder();
+
+    /**
+     * duration of the last rebuild in milliseconds
+     */
+    private volatile long lastRebuildMillis;
+
+    /**
+     * constructor, initializes the store with its collaborators
+     *
+     * @param transactionManager transaction manager used for the load queries
+     * @param fetchSize          JDBC fetch size used while streaming the history rows
+     * @param offHeap            true to allocate the columns in direct memory
+     * @param preload            true to build the store once the application has started
+     */
+    public SalaryHistoryStore(PlatformTransactionManager transactionManager,
+                              @Value("${employees.export.fetch-size:1000}") int fetchSize,
+                              @Value("${employees.salary-history.off-heap:false}") boolean offHeap,
+                              @Value("${employees.salary-history.preload:true}") boolean preload) {
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.fetchSize = fetchSize;
+        this.offHeap = offHeap;
+        this.preload = preload;
+    }
+
+    /**
+     * builds the store once the application has started, unless preloading is disabled
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void preload() {
+        if (preload) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Retrieves an employee's complete salary history.
+     *
+     * @param empNo employee number
+     * @return the salary periods in fromDate order, or null if the employee has no salary history
+     */
+    public List<SalaryPeriodDTO> history(int empNo) {
+        Columns current = loadedColumns();
+        queries.increment();
+
+        int[] delta = current.deltas.get(empNo);
+        if (delta != null) {
+            List<SalaryPeriodDTO> periods = new ArrayList<>(delta.length / DELTA_STRIDE);
+            for (int r = 0; r < delta.length; r += DELTA_STRIDE) {
+                periods.add(period(empNo, delta[r], delta[r + 1], delta[r + 2]));
+            }
+            return periods;
+        }
+
+        int e = empNo - current.minEmpNo;
+        if (e < 0 || e >= current.employees() || current.offsets[e] == current.offsets[e + 1]) {
+            return null;
+        }
+        List<SalaryPeriodDTO> periods = new ArrayList<>(current.offsets[e + 1] - current.offsets[e]);
+        for (int r = current.offsets[e]; r < current.offsets[e + 1]; r++) {
+            periods.add(current.period(r));
+        }
+        return periods;
+    }
+
+    /**
+     * Retrieves the salary an employee earned on some date.
+     *
+     * @param empNo employee number
+     * @param asOf  the date
+     * @return the salary period covering asOf, or null if the employee earned no salary on that date
+     */
+    public SalaryPeriodDTO salaryAsOf(int empNo, LocalDate asOf) {
+        Columns current = loadedColumns();
+        queries.increment();
+        int day = (int) asOf.toEpochDay();
+
+        int[] delta = current.deltas.get(empNo);
+        if (delta != null) {
+            int r = findInDelta(delta, day);
+            return r < 0 ? null : period(empNo, delta[r], delta[r + 1], delta[r + 2]);
+        }
+
+        int e = empNo - current.minEmpNo;
+        if (e < 0 || e >= current.employees()) {
+            return null;
+        }
+        int r = current.find(e, day);
+        return r < 0 ? null : current.period(r);
+    }
+
+    /**
+     * Scans the salaries every employee earned on some date and keeps those within a range.
+     *
+     * @param asOf      the date
+     * @param minSalary lowest salary included
+     * @param maxSalary highest salary included
+     * @param limit     maximum number of matching periods returned, the count and total cover every match
+     * @return the number and total of matching salaries, and the first matching periods in empNo order
+     */
+    public SalaryScanResultDTO scan(LocalDate asOf, int minSalary, int maxSalary, int limit) {
+        Columns current = loadedColumns();
+        queries.increment();
+        int day = (int) asOf.toEpochDay();
+        boolean hasDeltas = !current.deltas.isEmpty();
+
+        long count = 0;
+        long total = 0;
+        List<SalaryPeriodDTO> matches = new ArrayList<>(Math.min(limit, 1024));
+        for (int e = 0; e < current.employees(); e++) {
+            int[] delta = hasDeltas ? current.deltas.get(current.minEmpNo + e) : null;
+            int salary;
+            int r;
+            if (delta != null) {
+                r = findInDelta(delta, day);
+                if (r < 0) {
+                    continue;
+                }
+                salary = delta[r + 2];
+            } else {
+                r = current.find(e, day);
+                if (r < 0) {
+                    continue;
+                }
+                salary = current.salaries.get(r);
+            }
+
+            if (salary >= minSalary && salary <= maxSalary) {
+                count++;
+                total += salary;
+                if (matches.size() < limit) {
+                    matches.add(delta != null
+                            ? period(current.minEmpNo + e, delta[r], delta[r + 1], salary)
+                            : current.period(r));
+                }
+            }
+        }
+        return new SalaryScanResultDTO(asOf, minSalary, maxSalary, count, total, matches);
+    }
+
+    /**
+     * Applies a committed promotion that changed the employee's salary.
+     *
+     * @param event the committed promotion
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onEmployeePromoted(EmployeePromotedEvent event) {
+        if (!event.isSalaryChanged()) {
+            return;
+        }
+        writeLock.lock();
+        try {
+            if (columns != null) {
+                apply(columns, event);
+            }
+            if (pending != null) {
+                pending.add(event);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+        promotionsApplied.increment();
+    }
+
+    /**
+     * rebuilds the store once imported salaries have committed, unless it has not been built yet
+     *
+     * @param event the finished import
+     */
+    @Order(Ordered.HIGHEST_PRECEDENCE + 1)
+    @EventListener
+    public void onEmployeesImported(EmployeesImportedEvent event) {
+        if (event.getTable().equals("salaries") && columns != null) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Rebuilds the store from the salaries table and atomically replaces the columns.
+     *
+     * @return the store statistics after the rebuild
+     */
+    public Map<String, Long> rebuild() {
+        rebuildLock.lock();
+        try {
+            long start = System.nanoTime();
+            writeLock.lock();
+            pending = new ArrayList<>();
+            writeLock.unlock();
+
+            Columns loaded = null;
+            try {
+                loaded = readOnlyTransaction.execute(status -> load());
+            } finally {
+                writeLock.lock();
+                try {
+                    if (loaded != null) {
+                        for (EmployeePromotedEvent event : pending) {
+                            apply(loaded, event);
+                        }
+                        columns = loaded;
+                    }
+                    pending = null;
+                } finally {
+                    writeLock.unlock();
+                }
+            }
+
+            rebuilds.increment();
+            lastRebuildMillis = (System.nanoTime() - start) / 1_000_000;
+        } finally {
+            rebuildLock.unlock();
+        }
+        return getStatistics();
+    }
+
+    /**
+     * Retrieves the store counters.
+     *
+     * @return map of counter name to value
+     */
+    public Map<String, Long> getStatistics() {
+        Columns current = columns;
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("rows", current == null ? 0L : current.rows);
+        stats.put("employees", current == null ? 0L : current.employeesWithHistory());
+        stats.put("deltas", current == null ? 0L : current.deltas.size());
+        stats.put("columnBytes", current == null ? 0L : (long) current.salaries.capacity() * Integer.BYTES * 4);
+        stats.put("indexBytes", current == null ? 0L : (long) current.offsets.length * Integer.BYTES);
+        stats.put("offHeap", offHeap ? 1L : 0L);
+        stats.put("queries", queries.sum());
+        stats.put("promotionsApplied", promotionsApplied.sum());
+        stats.put("rebuilds", rebuilds.sum());
+        stats.put("lastRebuildMillis", lastRebuildMillis);
+        return stats;
+    }
+
+    /**
+     * returns the current columns, building them first if a query arrives before preload ran
+     */
+    private Columns loadedColumns() {
+        Columns current = columns;
+        if (current == null) {
+            rebuild();
+            current = columns;
+        }
+        return current;
+    }
+
+    /**
+     * records the employee's history after a salary change in the delta map, must hold the write lock
+     */
+    private static void apply(Columns target, EmployeePromotedEvent event) {
+        int e = event.getEmpNo() - target.minEmpNo;
+        if (e < 0 || e >= target.employees()) {
+            // unknown employee, the next rebuild picks it up
+            return;
+        }
+        int effectiveDay = (int) event.getEffectiveDate().toEpochDay();
+
+        target.deltas.compute(event.getEmpNo(), (empNo, delta) -> {
+            int[] history = delta != null ? delta : target.copyHistory(e);
+            int last = history.length - DELTA_STRIDE;
+            if (last < 0 || history[last + 1] != CURRENT_TO_DAY) {
+                // no current salary to close, the next rebuild picks the change up
+                return delta;
+            }
+            if (history[last] == effectiveDay && history[last + 2] == event.getNewSalary()) {
+                // already loaded, the promotion is being replayed after a rebuild
+                return delta;
+            }
+            int[] grown = Arrays.copyOf(history, history.length + DELTA_STRIDE);
+            grown[last + 1] = effectiveDay;
+            grown[last + 3] = effectiveDay;
+            grown[last + 4] = CURRENT_TO_DAY;
+            grown[last + 5] = event.getNewSalary();
+            return grown;
+        });
+    }
+
+    /**
+     * loads every salary row, in empNo then fromDate order, into new columns
+     */
+    private Columns load() {
+        Object[] range = em.createNamedQuery("Employee.getEmpNoRange", Object[].class).getSingleResult();
+        if (range[0] == null) {
+            return new Columns(0, new int[1], allocate(0), allocate(0), allocate(0), allocate(0), 0);
+        }
+        int min = (Integer) range[0];
+        int employees = (Integer) range[1] - min + 1;
+        long expected = em.createNamedQuery("Employee.countSalaries", Long.class).getSingleResult();
+
+        ColumnsBuilder builder = new ColumnsBuilder(min, employees, (int) expected);
+        try (Stream<Object[]> rows = em.createNamedQuery("Employee.getSalaryHistoryRows", Object[].class)
+                .setHint("org.hibernate.fetchSize", fetchSize)
+                .getResultStream()) {
+            rows.forEach(row -> builder.add((Integer) row[0],
+                    (int) ((LocalDate) row[1]).toEpochDay(),
+                    (int) ((LocalDate) row[2]).toEpochDay(),
+                    (Integer) row[3]));
+        }
+        return builder.build();
+    }
+
+    /**
+     * allocates an int column on the heap or in direct memory
+     */
+    private IntBuffer allocate(int capacity) {
+        return offHeap
+                ? ByteBuffer.allocateDirect(capacity * Integer.BYTES).order(ByteOrder.nativeOrder()).asIntBuffer()
+                : IntBuffer.allocate(capacity);
+    }
+
+    /**
+     * returns the offset of the delta row covering day, or -1
+     */
+    private static int findInDelta(int[] delta, int day) {
+        for (int r = delta.length - DELTA_STRIDE; r >= 0; r -= DELTA_STRIDE) {
+            if (delta[r] <= day) {
+                return day < delta[r + 1] ? r : -1;
+            }
+        }
+        return -1;
+    }
+
+    private static SalaryPeriodDTO period(int empNo, int fromDay, int toDay, int salary) {
+        return new SalaryPeriodDTO(empNo, LocalDate.ofEpochDay(fromDay), LocalDate.ofEpochDay(toDay), salary);
+    }
+
+    /**
+     * the columns of one build, plus the histories changed by promotions since
+     */
+    private static final class Columns {
+        private final int minEmpNo;
+        // rows of employee e are offsets[e] (inclusive) to offsets[e + 1] (exclusive)
+        private final int[] offsets;
+        private final IntBuffer empNos;
+        private final IntBuffer fromDays;
+        private final IntBuffer toDays;
+        private final IntBuffer salaries;
+        private final int rows;
+        // replacement histories of promoted employees, fromDay/toDay/salary triples
+        private final Map<Integer, int[]> deltas = new ConcurrentHashMap<>();
+
+        private Columns(int minEmpNo, int[] offsets, IntBuffer empNos, IntBuffer fromDays,
+                        IntBuffer toDays, IntBuffer salaries, int rows) {
+            this.minEmpNo = minEmpNo;
+            this.offsets = offsets;
+            this.empNos = empNos;
+            this.fromDays = fromDays;
+            this.toDays = toDays;
+            this.salaries = salaries;
+            this.rows = rows;
+        }
+
+        private int employees() {
+            return offsets.length - 1;
+        }
+
+        private long employeesWithHistory() {
+            long count = 0;
+            for (int e = 0; e < employees(); e++) {
+                count += offsets[e] < offsets[e + 1] ? 1 : 0;
+            }
+            return count;
+        }
+
+        /**
+         * returns the row of employee e covering day, or -1; rows are in fromDate order and do not overlap
+         */
+        private int find(int e, int day) {
+            for (int r = offsets[e + 1] - 1; r >= offsets[e]; r--) {
+                if (fromDays.get(r) <= day) {
+                    return day < toDays.get(r) ? r : -1;
+                }
+            }
+            return -1;
+        }
+
+        private int[] copyHistory(int e) {
+            int[] history = new int[(offsets[e + 1] - offsets[e]) * DELTA_STRIDE];
+            for (int r = offsets[e], i = 0; r < offsets[e + 1]; r++, i += DELTA_STRIDE) {
+                history[i] = fromDays.get(r);
+                history[i + 1] = toDays.get(r);
+                history[i + 2] = salaries.get(r);
+            }
+            return history;
+        }
+
+        private SalaryPeriodDTO period(int r) {
+            return SalaryHistoryStore.period(empNos.get(r), fromDays.get(r), toDays.get(r), salaries.get(r));
+        }
+    }
+
+    /**
+     * appends rows arriving in empNo order to the columns, growing them if the table grew after it was counted
+     */
+    private final class ColumnsBuilder {
+        private final int minEmpNo;
+        private final int[] offsets;
+        private IntBuffer empNos;
+        private IntBuffer fromDays;
+        private IntBuffer toDays;
+        private IntBuffer salaries;
+        private int rows;
+        // employee index whose offset was set last
+        private int lastEmployee = -1;
+
+        private ColumnsBuilder(int minEmpNo, int employees, int capacity) {
+            this.minEmpNo = minEmpNo;
+            this.offsets = new int[employees + 1];
+            this.empNos = allocate(capacity);
+            this.fromDays = allocate(capacity);
+            this.toDays = allocate(capacity);
+            this.salaries = allocate(capacity);
+        }
+
+        private void add(int empNo, int fromDay, int toDay, int salary) {
+            int e = empNo - minEmpNo;
+            if (e < 0 || e >= offsets.length - 1) {
+                // employee hired after the range was read, the next rebuild picks it up
+                return;
+            }
+            if (rows == salaries.capacity()) {
+                int capacity = Math.max(16, rows + (rows >> 1));
+                empNos = grow(empNos, capacity);
+                fromDays = grow(fromDays, capacity);
+                toDays = grow(toDays, capacity);
+                salaries = grow(salaries, capacity);
+            }
+            // employees without rows in between start (and end) where this one starts
+            while (lastEmployee < e) {
+                offsets[++lastEmployee] = rows;
+            }
+            empNos.put(rows, empNo);
+            fromDays.put(rows, fromDay);
+            toDays.put(rows, toDay);
+            salaries.put(rows, salary);
+            rows++;
+        }
+
+        private IntBuffer grow(IntBuffer column, int capacity) {
+            IntBuffer grown = allocate(capacity);
+            grown.put(0, column, 0, rows);
+            return grown;
+        }
+
+        private Columns build() {
+            while (lastEmployee < offsets.length - 1) {
+                offsets[++lastEmployee] = rows;
+            }
+            return new Columns(minEmpNo, offsets, empNos, fromDays, toDays, salaries, rows);
+        }
+    }
+}
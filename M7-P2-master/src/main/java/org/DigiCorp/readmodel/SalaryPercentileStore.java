@@ -0,0 +1,639 @@
+package org.DigiCorp.readmodel;
+
+import org.DigiCorp.dto.SalaryBucketDTO;
+import org.DigiCorp.dto.SalaryPercentilesDTO;
+import org.DigiCorp.event.EmployeePromotedEvent;
+import org.DigiCorp.event.EmployeesImportedEvent;
+import org.DigiCorp.util.Helper;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-memory salary percentiles and histograms of current employees, per department and per title.
+ * <p>
+ * Percentiles over the current rows of the salary history need every salary of the group sorted, which the
+ * database does over millions of rows per request. This store instead keeps a QuantileSketch of the current
+ * salaries of every department and every title: a few hundred values each, whatever the headcount, from which
+ * p25/p50/p75/p90 and a histogram are read in microseconds. Each estimate is within a rank error of about 1.3%
+ * of the group's headcount (k = 200); small groups are kept whole and answered exactly.
+ * <p>
+ * The store is built in one parallel pass once the application has started, and on demand through rebuild().
+ * The employee number range is cut into slices loaded by a pool of threads, each on its own connection, each
+ * slice sketching its own employees; the slice sketches are then merged per group. The current salary, title
+ * and department loaded for every employee are kept in primitive arrays indexed by empNo - minEmpNo.
+ * <p>
+ * Promotions are applied from the EmployeePromotedEvent once their transaction has committed: the salary the
+ * arrays hold for the employee is added to the removed-salaries sketch of its old groups and the new salary to
+ * its new groups. Sketches cannot forget values, so each promotion widens the error bound of the groups it
+ * touches a little (it is relative to salaries added plus removed) until the next rebuild. Promotions committing
+ * while a rebuild is loading are replayed onto the new sketches before they replace the old ones; the arrays
+ * tell whether the load already saw a promotion.
+ */
+@Component
+public class SalaryPercentileStore {
+
+    /**
+     * groupBy value of the department sketches
+     */
+    public static final String BY_DEPARTMENT = "department";
+
+    /**
+     * groupBy value of the title sketches
+     */
+    public static final String BY_TITLE = "title";
+
+    /**
+     * percentiles served, as fractions
+     */
+    private static final double[] PERCENTILES = {0.25, 0.50, 0.75, 0.90};
+
+    /**
+     * slices per loading thread, so a slow slice does not hold up the whole pass
+     */
+    private static final int SLICES_PER_THREAD = 4;
+
+    /**
+     * fewest employees per slice
+     */
+    private static final int MIN_SLICE = 1024;
+
+    /**
+     * connections the current rows are loaded through
+     */
+    private final DataSource dataSource;
+
+    /**
+     * accuracy parameter of every sketch
+     */
+    private final int k;
+
+    /**
+     * threads of the parallel load
+     */
+    private final int threads;
+
+    /**
+     * JDBC fetch size used while streaming the current rows
+     */
+    private final int fetchSize;
+
+    /**
+     * histogram buckets served when a request does not ask for a number, and the most a request can ask for
+     */
+    private final int defaultBuckets;
+    private final int maxBuckets;
+
+    /**
+     * serializes promotions against each other, against snapshots and against the swap of a rebuild
+     */
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    /**
+     * serializes rebuilds
+     */
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+
+    /**
+     * the current arrays and sketches, replaced as a whole on rebuild; null until the first build
+     */
+    private volatile State state;
+
+    /**
+     * promotions committed while a rebuild is loading, replayed onto the new sketches; null when not rebuilding
+     */
+    private List<EmployeePromotedEvent> pending;
+
+    /**
+     * percentile queries served
+     */
+    private final LongAdder queries = new LongAdder();
+
+    /**
+     * promotions applied
+     */
+    private final LongAdder promotionsApplied = new LongAdder();
+
+    /**
+     * number of times the store has been (re)built
+     */
+    private final LongAdder rebuilds = new LongAdder();
+
+    /**
+     * duration of the last rebuild in milliseconds
+     */
+    private volatile long lastRebuildMillis;
+
+    /**
+     * constructor, initializes the store with its collaborators
+     *
+     * @param dataSource     connections the current rows are loaded through
+     * @param k              accuracy parameter of every sketch
+     * @param threads        threads of the parallel load, 0 for one per processor
+     * @param fetchSize      JDBC fetch size used while streaming the current rows
+     * @param defaultBuckets histogram buckets served when a request does not ask for a number
+     * @param maxBuckets     most histogram buckets a request can ask for
+     */
+    public SalaryPercentileStore(DataSource dataSource,
+                                 @Value("${employees.salary-percentiles.k:200}") int k,
+                                 @Value("${employees.salary-percentiles.threads:0}") int threads,
+                                 @Value("${employees.export.fetch-size:1000}") int fetchSize,
+                                 @Value("${employees.salary-percentiles.buckets:10}") int defaultBuckets,
+                                 @Value("${employees.salary-percentiles.max-buckets:100}") int maxBuckets) {
+        this.dataSource = dataSource;
+        this.k = k;
+        this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.fetchSize = fetchSize;
+        this.maxBuckets = Math.max(1, maxBuckets);
+        this.defaultBuckets = Math.min(this.maxBuckets, Math.max(1, defaultBuckets));
+    }
+
+    /**
+     * builds the store once the application has started
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void preload() {
+        rebuild();
+    }
+
+    /**
+     * Retrieves the salary percentiles and histogram of a department's current employees.
+     *
+     * @param deptNo  department number, as stored (e.g. 'd005')
+     * @param buckets histogram buckets, null for the default; capped to employees.salary-percentiles.max-buckets
+     * @return the department's percentiles, with zero headcount if it has no current employees
+     */
+    public SalaryPercentilesDTO getDepartmentPercentiles(String deptNo, Integer buckets) {
+        return percentiles(BY_DEPARTMENT, deptNo, loadedState().byDepartment.get(deptNo), buckets);
+    }
+
+    /**
+     * Retrieves the salary percentiles and histogram of the current holders of a title.
+     *
+     * @param title   job title, as stored (e.g. 'Senior Engineer')
+     * @param buckets histogram buckets, null for the default; capped to employees.salary-percentiles.max-buckets
+     * @return the title's percentiles, or null if no employee has ever been loaded or promoted with the title
+     */
+    public SalaryPercentilesDTO getTitlePercentiles(String title, Integer buckets) {
+        Group group = loadedState().byTitle.get(title);
+        return group == null ? null : percentiles(BY_TITLE, title, group, buckets);
+    }
+
+    /**
+     * Retrieves the salary percentiles and histogram of every title held by a current employee since the last build.
+     *
+     * @param buckets histogram buckets, null for the default; capped to employees.salary-percentiles.max-buckets
+     * @return the percentiles of every title, in title order
+     */
+    public List<SalaryPercentilesDTO> getAllTitlePercentiles(Integer buckets) {
+        List<SalaryPercentilesDTO> percentiles = new ArrayList<>();
+        for (Map.Entry<String, Group> group : new TreeMap<>(loadedState().byTitle).entrySet()) {
+            percentiles.add(percentiles(BY_TITLE, group.getKey(), group.getValue(), buckets));
+        }
+        return percentiles;
+    }
+
+    /**
+     * Applies a committed promotion.
+     *
+     * @param event the committed promotion
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onEmployeePromoted(EmployeePromotedEvent event) {
+        writeLock.lock();
+        try {
+            if (state != null) {
+                apply(state, event);
+            }
+            if (pending != null) {
+                pending.add(event);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+        promotionsApplied.increment();
+    }
+
+    /**
+     * rebuilds the store once imported salaries, titles or department assignments have committed, as imports
+     * bypass the promotion events; imported employees only count once they have one
+     *
+     * @param event the finished import
+     */
+    @Order(Ordered.HIGHEST_PRECEDENCE + 1)
+    @EventListener
+    public void onEmployeesImported(EmployeesImportedEvent event) {
+        if (!event.getTable().equals("employees") && state != null) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Rebuilds every sketch from the current rows of the history tables and atomically replaces them.
+     *
+     * @return the store statistics after the rebuild
+     */
+    public Map<String, Long> rebuild() {
+        rebuildLock.lock();
+        try {
+            long start = System.nanoTime();
+            writeLock.lock();
+            pending = new ArrayList<>();
+            writeLock.unlock();
+
+            State loaded = null;
+            try {
+                loaded = load();
+            } finally {
+                writeLock.lock();
+                try {
+                    if (loaded != null) {
+                        for (EmployeePromotedEvent event : pending) {
+                            apply(loaded, event);
+                        }
+                        state = loaded;
+                    }
+                    pending = null;
+                } finally {
+                    writeLock.unlock();
+                }
+            }
+
+            rebuilds.increment();
+            lastRebuildMillis = (System.nanoTime() - start) / 1_000_000;
+        } finally {
+            rebuildLock.unlock();
+        }
+        return getStatistics();
+    }
+
+    /**
+     * Retrieves the store counters.
+     *
+     * @return map of counter name to value
+     */
+    public Map<String, Long> getStatistics() {
+        State current = state;
+        long employees = 0;
+        long retained = 0;
+        long removed = 0;
+        if (current != null) {
+            for (int salary : current.salaries) {
+                employees += salary > 0 ? 1 : 0;
+            }
+            for (Group group : current.byDepartment.values()) {
+                retained += group.added.retained() + group.removed.retained();
+                removed += group.removed.count();
+            }
+            for (Group group : current.byTitle.values()) {
+                retained += group.added.retained() + group.removed.retained();
+                removed += group.removed.count();
+            }
+        }
+
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("currentEmployees", employees);
+        stats.put("departments", current == null ? 0L : current.byDepartment.size());
+        stats.put("titles", current == null ? 0L : current.byTitle.size());
+        stats.put("retainedSalaries", retained);
+        stats.put("removedSalaries", removed);
+        stats.put("queries", queries.sum());
+        stats.put("promotionsApplied", promotionsApplied.sum());
+        stats.put("rebuilds", rebuilds.sum());
+        stats.put("lastRebuildMillis", lastRebuildMillis);
+        return stats;
+    }
+
+    /**
+     * returns the current sketches, building them first if a request arrives before preload ran
+     */
+    private State loadedState() {
+        State current = state;
+        if (current == null) {
+            rebuild();
+            current = state;
+        }
+        return current;
+    }
+
+    /**
+     * reads the percentiles and histogram of a group from its snapshot, taking one if a promotion changed it
+     */
+    private SalaryPercentilesDTO percentiles(String groupBy, String name, Group group, Integer buckets) {
+        queries.increment();
+        if (group == null) {
+            return new SalaryPercentilesDTO(groupBy, name, 0, null, null, null, null, 0);
+        }
+        QuantileSketch.Snapshot snapshot = group.snapshot;
+        if (snapshot == null) {
+            writeLock.lock();
+            try {
+                snapshot = group.snapshot();
+            } finally {
+                writeLock.unlock();
+            }
+        }
+
+        Integer[] values = new Integer[PERCENTILES.length];
+        for (int i = 0; i < PERCENTILES.length; i++) {
+            values[i] = snapshot.quantile(PERCENTILES[i]);
+        }
+        SalaryPercentilesDTO percentiles = new SalaryPercentilesDTO(groupBy, name, snapshot.count(),
+                values[0], values[1], values[2], values[3], snapshot.rankError());
+        if (snapshot.count() > 0) {
+            percentiles.setHistogram(histogram(snapshot, buckets == null ? defaultBuckets
+                    : Math.min(maxBuckets, Math.max(1, buckets))));
+        }
+        return percentiles;
+    }
+
+    /**
+     * cuts the range from the lowest to the highest salary into equal-width buckets and estimates the headcount
+     * of each from the ranks of its bounds
+     */
+    private static List<SalaryBucketDTO> histogram(QuantileSketch.Snapshot snapshot, int buckets) {
+        long lowest = snapshot.quantile(0);
+        long highest = snapshot.quantile(1);
+        long width = Math.max(1, (highest - lowest + buckets) / buckets);
+        List<SalaryBucketDTO> histogram = new ArrayList<>(buckets);
+        long below = 0;
+        for (long from = lowest; from <= highest; from += width) {
+            long to = Math.min(highest, from + width - 1);
+            long rank = snapshot.rank(to);
+            histogram.add(new SalaryBucketDTO((int) from, (int) to, rank - below));
+            below = rank;
+        }
+        return histogram;
+    }
+
+    /**
+     * moves a committed promotion's employee from the groups the arrays hold to its new ones, must hold the write
+     * lock; does nothing if the arrays already hold the promotion's outcome
+     */
+    private static void apply(State target, EmployeePromotedEvent event) {
+        int i = event.getEmpNo() - target.minEmpNo;
+        if (i < 0 || i >= target.salaries.length || target.salaries[i] == 0) {
+            // not a current employee when loaded, the next rebuild picks it up
+            return;
+        }
+        short titleCode = target.titles.code(event.getNewTitle());
+        short deptCode = target.departments.code(event.getNewDeptNo());
+        if (target.salaries[i] == event.getNewSalary() && target.titleCodes[i] == titleCode
+                && target.deptCodes[i] == deptCode) {
+            return;
+        }
+        target.update(i, false);
+        target.salaries[i] = event.getNewSalary();
+        target.titleCodes[i] = titleCode;
+        target.deptCodes[i] = deptCode;
+        target.update(i, true);
+    }
+
+    /**
+     * loads the current rows in parallel slices of the employee number range and merges the slice sketches
+     */
+    private State load() {
+        try {
+            int[] range = empNoRange();
+            State loaded = new State(range[0], range[1] - range[0] + 1, k);
+            int size = loaded.salaries.length;
+            int slices = Math.max(1, Math.min(threads * SLICES_PER_THREAD, size / MIN_SLICE));
+            int sliceSize = (size + slices - 1) / slices;
+
+            List<Future<Slice>> futures = new ArrayList<>();
+            try (ExecutorService pool = Executors.newFixedThreadPool(threads,
+                    Thread.ofPlatform().name("salary-percentiles-", 0).daemon(true).factory())) {
+                for (int from = 0; from < size; from += sliceSize) {
+                    int sliceFrom = from;
+                    int sliceTo = Math.min(size, from + sliceSize);
+                    futures.add(pool.submit(() -> loadSlice(loaded, sliceFrom, sliceTo)));
+                }
+                // merged in slice order, so the same rows always give the same sketches
+                for (Future<Slice> future : futures) {
+                    Slice slice = future.get();
+                    slice.byDeptCode.forEach((code, sketch) ->
+                            loaded.group(loaded.byDepartment, loaded.departments.name(code)).added.merge(sketch));
+                    slice.byTitleCode.forEach((code, sketch) ->
+                            loaded.group(loaded.byTitle, loaded.titles.name(code)).added.merge(sketch));
+                }
+            }
+            return loaded;
+
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not load the current salaries", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Could not load the current salaries", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while loading the current salaries", e);
+        }
+    }
+
+    /**
+     * returns the lowest and highest employee number, or an empty range if there are no employees
+     */
+    private int[] empNoRange() throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(
+                     "SELECT MIN(emp_no), MAX(emp_no) FROM employees");
+             ResultSet rs = statement.executeQuery()) {
+            rs.next();
+            int min = rs.getInt(1);
+            return rs.wasNull() ? new int[]{0, -1} : new int[]{min, rs.getInt(2)};
+        }
+    }
+
+    /**
+     * loads the current salary, title and department of the employees at indexes [from, to) into the arrays,
+     * on a connection of its own, and sketches their salaries per department and per title
+     */
+    private Slice loadSlice(State target, int from, int to) throws SQLException {
+        int minEmpNo = target.minEmpNo + from;
+        int maxEmpNo = target.minEmpNo + to - 1;
+        Map<String, Short> titleCodes = new HashMap<>();
+        Map<String, Short> deptCodes = new HashMap<>();
+
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setReadOnly(true);
+            connection.setAutoCommit(false);
+            connection.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+            try {
+                // ordered by fromDate so the latest of several current rows wins, as in the other read models
+                try (ResultSet rs = currentRows(connection, "SELECT emp_no, salary FROM salaries", minEmpNo, maxEmpNo)) {
+                    while (rs.next()) {
+                        target.salaries[rs.getInt(1) - target.minEmpNo] = rs.getInt(2);
+                    }
+                }
+                try (ResultSet rs = currentRows(connection, "SELECT emp_no, title FROM titles", minEmpNo, maxEmpNo)) {
+                    while (rs.next()) {
+                        target.titleCodes[rs.getInt(1) - target.minEmpNo] =
+                                titleCodes.computeIfAbsent(rs.getString(2), name -> intern(target.titles, name));
+                    }
+                }
+                try (ResultSet rs = currentRows(connection, "SELECT emp_no, dept_no FROM dept_emp", minEmpNo, maxEmpNo)) {
+                    while (rs.next()) {
+                        target.deptCodes[rs.getInt(1) - target.minEmpNo] =
+                                deptCodes.computeIfAbsent(rs.getString(2), name -> intern(target.departments, name));
+                    }
+                }
+            } finally {
+                connection.rollback();
+            }
+        }
+
+        Slice slice = new Slice();
+        for (int i = from; i < to; i++) {
+            int salary = target.salaries[i];
+            if (salary == 0) {
+                continue;
+            }
+            if (target.deptCodes[i] != StringDictionary.NONE) {
+                slice.byDeptCode.computeIfAbsent(target.deptCodes[i], code -> new QuantileSketch(k, from))
+                        .add(salary);
+            }
+            if (target.titleCodes[i] != StringDictionary.NONE) {
+                slice.byTitleCode.computeIfAbsent(target.titleCodes[i], code -> new QuantileSketch(k, from))
+                        .add(salary);
+            }
+        }
+        return slice;
+    }
+
+    /**
+     * streams the current rows of a history table for a range of employees, the query selecting emp_no first
+     */
+    private ResultSet currentRows(Connection connection, String select, int minEmpNo, int maxEmpNo)
+            throws SQLException {
+        PreparedStatement statement = connection.prepareStatement(select
+                        + " WHERE emp_no BETWEEN ? AND ? AND to_date = ? ORDER BY emp_no, from_date",
+                ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        statement.closeOnCompletion();
+        statement.setFetchSize(fetchSize);
+        statement.setInt(1, minEmpNo);
+        statement.setInt(2, maxEmpNo);
+        statement.setObject(3, Helper.CURRENT_TO_DATE);
+        return statement.executeQuery();
+    }
+
+    /**
+     * interns a name for a loading thread, the dictionary taking one writer at a time
+     */
+    private static short intern(StringDictionary dictionary, String name) {
+        synchronized (dictionary) {
+            return dictionary.code(name);
+        }
+    }
+
+    /**
+     * the arrays and sketches of one build, the arrays indexed by empNo - minEmpNo
+     */
+    private static final class State {
+        private final int minEmpNo;
+        private final int k;
+        private final int[] salaries;
+        private final short[] titleCodes;
+        private final short[] deptCodes;
+        private final StringDictionary titles = new StringDictionary();
+        private final StringDictionary departments = new StringDictionary();
+        private final Map<String, Group> byDepartment = new ConcurrentHashMap<>();
+        private final Map<String, Group> byTitle = new ConcurrentHashMap<>();
+
+        private State(int minEmpNo, int size, int k) {
+            this.minEmpNo = minEmpNo;
+            this.k = k;
+            this.salaries = new int[size];
+            this.titleCodes = new short[size];
+            this.deptCodes = new short[size];
+            Arrays.fill(titleCodes, StringDictionary.NONE);
+            Arrays.fill(deptCodes, StringDictionary.NONE);
+        }
+
+        /**
+         * returns the group of a name, creating it if it is new
+         */
+        private Group group(Map<String, Group> groups, String name) {
+            return groups.computeIfAbsent(name, n -> new Group(k, n.hashCode()));
+        }
+
+        /**
+         * adds employee i's salary to, or removes it from, its department and title
+         */
+        private void update(int i, boolean add) {
+            if (deptCodes[i] != StringDictionary.NONE) {
+                group(byDepartment, departments.name(deptCodes[i])).update(salaries[i], add);
+            }
+            if (titleCodes[i] != StringDictionary.NONE) {
+                group(byTitle, titles.name(titleCodes[i])).update(salaries[i], add);
+            }
+        }
+    }
+
+    /**
+     * sketches of the salaries added to and removed from one department or title, with the snapshot readers use
+     */
+    private static final class Group {
+        private final QuantileSketch added;
+        private final QuantileSketch removed;
+        private volatile QuantileSketch.Snapshot snapshot;
+
+        private Group(int k, long seed) {
+            this.added = new QuantileSketch(k, seed);
+            this.removed = new QuantileSketch(k, ~seed);
+        }
+
+        /**
+         * records a salary joining or leaving the group, must hold the write lock
+         */
+        private void update(int salary, boolean add) {
+            (add ? added : removed).add(salary);
+            snapshot = null;
+        }
+
+        /**
+         * returns the snapshot, taking it if a promotion changed the group since the last one, must hold the
+         * write lock
+         */
+        private QuantileSketch.Snapshot snapshot() {
+            QuantileSketch.Snapshot current = snapshot;
+            if (current == null) {
+                current = QuantileSketch.snapshot(added, removed);
+                snapshot = current;
+            }
+            return current;
+        }
+    }
+
+    /**
+     * sketches of one slice of employees, keyed by department and title code
+     */
+    private static final class Slice {
+        private final Map<Short, QuantileSketch> byDeptCode = new HashMap<>();
+        private final Map<Short, QuantileSketch> byTitleCode = new HashMap<>();
+    }
+}
@@ -0,0 +1,73 @@
+package org.DigiCorp.readmodel;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Interns a small set of strings (titles, department numbers) to short codes, for the read models that
+ * keep them in primitive arrays.
+ * Codes are only added by one writer at a time (under the owner's write lock); the name array is replaced
+ * when it grows, so lock-free readers always see a consistent array.
+ */
+final class StringDictionary {
+
+    /**
+     * code stored for a missing value
+     */
+    static final short NONE = -1;
+
+    /**
+     * code of every interned string, written by one writer at a time and read by lookups
+     */
+    private final Map<String, Short> codes = new ConcurrentHashMap<>();
+
+    /**
+     * interned strings indexed by code, replaced as a whole when it grows
+     */
+    private volatile String[] names = new String[16];
+
+    /**
+     * returns the code of a string, interning it if it is new; NONE for null
+     */
+    short code(String name) {
+        if (name == null) {
+            return NONE;
+        }
+        Short code = codes.get(name);
+        if (code == null) {
+            if (codes.size() == Short.MAX_VALUE) {
+                throw new IllegalStateException("More than " + Short.MAX_VALUE + " distinct values");
+            }
+            code = (short) codes.size();
+            String[] grown = code < names.length ? names : Arrays.copyOf(names, names.length * 2);
+            grown[code] = name;
+            names = grown;
+            codes.put(name, code);
+        }
+        return code;
+    }
+
+    /**
+     * returns the code of a string without interning it, NONE if it was never interned
+     */
+    short find(String name) {
+        Short code = name == null ? null : codes.get(name);
+        return code == null ? NONE : code;
+    }
+
+    /**
+     * returns the string of a code, null for NONE
+     */
+    String name(short code) {
+        String[] current = names;
+        return code >= 0 && code < current.length ? current[code] : null;
+    }
+
+    /**
+     * returns the number of interned strings
+     */
+    int size() {
+        return codes.size();
+    }
+}
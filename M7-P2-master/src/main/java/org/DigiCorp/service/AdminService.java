@@ -0,0 +1,443 @@
+package org.DigiCorp.service;
+
+import org.DigiCorp.cache.DepartmentCatalogue;
+import org.DigiCorp.cache.EmployeeVersionRegistry;
+import org.DigiCorp.cache.JsonResponseCache;
+import org.DigiCorp.cache.SecondLevelCacheManager;
+import org.DigiCorp.dto.ExportReportDTO;
+import org.DigiCorp.dto.ImportReportDTO;
+import org.DigiCorp.exceptions.InvalidDataException;
+import org.DigiCorp.export.HistoryExporter;
+import org.DigiCorp.importer.EmployeeImporter;
+import org.DigiCorp.outbox.PromotionEventLog;
+import org.DigiCorp.promotion.PromotionPipeline;
+import org.DigiCorp.readmodel.EmployeeCurrentStateStore;
+import org.DigiCorp.readmodel.EmployeeHistoryIndex;
+import org.DigiCorp.readmodel.EmployeeNameIndex;
+import org.DigiCorp.readmodel.SalaryHistoryStore;
+import org.DigiCorp.readmodel.SalaryPercentileStore;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * Class defines the operational REST endpoints: cache refresh triggers, statistics, bulk imports and exports.
+ * All paths are rooted under /admin
+ */
+@RestController
+@RequestMapping("/admin")
+public class AdminService {
+
+    /**
+     * in-process department catalogue
+     */
+    private final DepartmentCatalogue departmentCatalogue;
+
+    /**
+     * Hibernate second-level and query cache manager
+     */
+    private final SecondLevelCacheManager secondLevelCacheManager;
+
+    /**
+     * in-memory current-state read model
+     */
+    private final EmployeeCurrentStateStore currentStateStore;
+
+    /**
+     * in-memory columnar salary history
+     */
+    private final SalaryHistoryStore salaryHistoryStore;
+
+    /**
+     * in-memory employee name index
+     */
+    private final EmployeeNameIndex nameIndex;
+
+    /**
+     * in-memory title and department history index
+     */
+    private final EmployeeHistoryIndex historyIndex;
+
+    /**
+     * in-memory salary percentile sketches
+     */
+    private final SalaryPercentileStore salaryPercentileStore;
+
+    /**
+     * per-employee and catalogue versions behind the ETags
+     */
+    private final EmployeeVersionRegistry versionRegistry;
+
+    /**
+     * already-serialized JSON response cache
+     */
+    private final JsonResponseCache jsonCache;
+
+    /**
+     * runs promotions submitted asynchronously
+     */
+    private final PromotionPipeline promotionPipeline;
+
+    /**
+     * log of committed promotions for downstream consumers
+     */
+    private final PromotionEventLog promotionEventLog;
+
+    /**
+     * bulk CSV importer
+     */
+    private final EmployeeImporter employeeImporter;
+
+    /**
+     * full-history columnar exporter
+     */
+    private final HistoryExporter historyExporter;
+
+    /**
+     * default constructor, initializes the admin service object for use
+     */
+    public AdminService(DepartmentCatalogue departmentCatalogue,
+                        SecondLevelCacheManager secondLevelCacheManager,
+                        EmployeeCurrentStateStore currentStateStore,
+                        SalaryHistoryStore salaryHistoryStore,
+                        EmployeeNameIndex nameIndex,
+                        EmployeeHistoryIndex historyIndex,
+                        SalaryPercentileStore salaryPercentileStore,
+                        EmployeeVersionRegistry versionRegistry,
+                        JsonResponseCache jsonCache,
+                        PromotionPipeline promotionPipeline,
+                        PromotionEventLog promotionEventLog,
+                        EmployeeImporter employeeImporter,
+                        HistoryExporter historyExporter) {
+        this.departmentCatalogue = departmentCatalogue;
+        this.secondLevelCacheManager = secondLevelCacheManager;
+        this.currentStateStore = currentStateStore;
+        this.salaryHistoryStore = salaryHistoryStore;
+        this.nameIndex = nameIndex;
+        this.historyIndex = historyIndex;
+        this.salaryPercentileStore = salaryPercentileStore;
+        this.versionRegistry = versionRegistry;
+        this.jsonCache = jsonCache;
+        this.promotionPipeline = promotionPipeline;
+        this.promotionEventLog = promotionEventLog;
+        this.employeeImporter = employeeImporter;
+        this.historyExporter = historyExporter;
+    }
+
+    /**
+     * Reloads the department catalogue from the database
+     *
+     * Usage (POST): http://localhost:8080/admin/departments/refresh
+     *
+     * @return the catalogue statistics after the refresh
+     */
+    @PostMapping("/departments/refresh")
+    public ResponseEntity<Map<String, Long>> refreshDepartments() {
+        departmentCatalogue.refresh();
+        return ResponseEntity.ok(departmentCatalogue.getStatistics());
+    }
+
+    /**
+     * Retrieves the department catalogue statistics: size, version, hit and miss counters
+     *
+     * Usage (GET): http://localhost:8080/admin/departments/stats
+     *
+     * @return map of counter name to value
+     */
+    @GetMapping("/departments/stats")
+    public ResponseEntity<Map<String, Long>> getDepartmentStats() {
+        return ResponseEntity.ok(departmentCatalogue.getStatistics());
+    }
+
+    /**
+     * Retrieves the Hibernate second-level and query cache statistics, overall and per region
+     *
+     * Usage (GET): http://localhost:8080/admin/cache/stats
+     *
+     * @return map of statistic name to value
+     */
+    @GetMapping("/cache/stats")
+    public ResponseEntity<Map<String, Object>> getCacheStats() {
+        return ResponseEntity.ok(secondLevelCacheManager.getStatistics());
+    }
+
+    /**
+     * Evicts every entry of the Hibernate second-level and query cache
+     *
+     * Usage (POST): http://localhost:8080/admin/cache/evict
+     *
+     * @return the cache statistics after eviction
+     */
+    @PostMapping("/cache/evict")
+    public ResponseEntity<Map<String, Object>> evictCache() {
+        secondLevelCacheManager.evictAll();
+        return ResponseEntity.ok(secondLevelCacheManager.getStatistics());
+    }
+
+    /**
+     * Rebuilds the current-state read model from the history tables
+     *
+     * Usage (POST): http://localhost:8080/admin/current-state/rebuild
+     *
+     * @return the read model statistics after the rebuild
+     */
+    @PostMapping("/current-state/rebuild")
+    public ResponseEntity<Map<String, Long>> rebuildCurrentState() {
+        return ResponseEntity.ok(currentStateStore.rebuild());
+    }
+
+    /**
+     * Retrieves the current-state read model statistics: size, lookups, promotions applied and rebuilds
+     *
+     * Usage (GET): http://localhost:8080/admin/current-state/stats
+     *
+     * @return map of counter name to value
+     */
+    @GetMapping("/current-state/stats")
+    public ResponseEntity<Map<String, Long>> getCurrentStateStats() {
+        return ResponseEntity.ok(currentStateStore.getStatistics());
+    }
+
+    /**
+     * Rebuilds the columnar salary history from the salaries table, folding in every promotion since the last build
+     *
+     * Usage (POST): http://localhost:8080/admin/salary-history/rebuild
+     *
+     * @return the salary history statistics after the rebuild
+     */
+    @PostMapping("/salary-history/rebuild")
+    public ResponseEntity<Map<String, Long>> rebuildSalaryHistory() {
+        return ResponseEntity.ok(salaryHistoryStore.rebuild());
+    }
+
+    /**
+     * Retrieves the columnar salary history statistics: rows, memory, pending deltas, queries and rebuilds
+     *
+     * Usage (GET): http://localhost:8080/admin/salary-history/stats
+     *
+     * @return map of counter name to value
+     */
+    @GetMapping("/salary-history/stats")
+    public ResponseEntity<Map<String, Long>> getSalaryHistoryStats() {
+        return ResponseEntity.ok(salaryHistoryStore.getStatistics());
+    }
+
+    /**
+     * Rebuilds the employee name index from the employees table
+     *
+     * Usage (POST): http://localhost:8080/admin/name-index/rebuild
+     *
+     * @return the name index statistics after the rebuild
+     */
+    @PostMapping("/name-index/rebuild")
+    public ResponseEntity<Map<String, Long>> rebuildNameIndex() {
+        return ResponseEntity.ok(nameIndex.rebuild());
+    }
+
+    /**
+     * Retrieves the employee name index statistics: employees, distinct name tokens, searches and rebuilds
+     *
+     * Usage (GET): http://localhost:8080/admin/name-index/stats
+     *
+     * @return map of counter name to value
+     */
+    @GetMapping("/name-index/stats")
+    public ResponseEntity<Map<String, Long>> getNameIndexStats() {
+        return ResponseEntity.ok(nameIndex.getStatistics());
+    }
+
+    /**
+     * Rebuilds the title and department history index from the titles and dept_emp tables
+     *
+     * Usage (POST): http://localhost:8080/admin/history-index/rebuild
+     *
+     * @return the history index statistics after the rebuild
+     */
+    @PostMapping("/history-index/rebuild")
+    public ResponseEntity<Map<String, Long>> rebuildHistoryIndex() {
+        return ResponseEntity.ok(historyIndex.rebuild());
+    }
+
+    /**
+     * Retrieves the history index statistics: rows, promotions applied, lookups, membership queries and rebuilds
+     *
+     * Usage (GET): http://localhost:8080/admin/history-index/stats
+     *
+     * @return map of counter name to value
+     */
+    @GetMapping("/history-index/stats")
+    public ResponseEntity<Map<String, Long>> getHistoryIndexStats() {
+        return ResponseEntity.ok(historyIndex.getStatistics());
+    }
+
+    /**
+     * Rebuilds the salary percentile sketches from the current rows of the history tables, resetting the error
+     * bound promotions have widened since the last build
+     *
+     * Usage (POST): http://localhost:8080/admin/salary-percentiles/rebuild
+     *
+     * @return the salary percentile statistics after the rebuild
+     */
+    @PostMapping("/salary-percentiles/rebuild")
+    public ResponseEntity<Map<String, Long>> rebuildSalaryPercentiles() {
+        return ResponseEntity.ok(salaryPercentileStore.rebuild());
+    }
+
+    /**
+     * Retrieves the salary percentile statistics: groups, salaries retained and removed, queries and rebuilds
+     *
+     * Usage (GET): http://localhost:8080/admin/salary-percentiles/stats
+     *
+     * @return map of counter name to value
+     */
+    @GetMapping("/salary-percentiles/stats")
+    public ResponseEntity<Map<String, Long>> getSalaryPercentileStats() {
+        return ResponseEntity.ok(salaryPercentileStore.getStatistics());
+    }
+
+    /**
+     * Retrieves the ETag version statistics: employees changed since startup, version bumps and department version
+     *
+     * Usage (GET): http://localhost:8080/admin/etags/stats
+     *
+     * @return map of counter name to value
+     */
+    @GetMapping("/etags/stats")
+    public ResponseEntity<Map<String, Long>> getETagStats() {
+        return ResponseEntity.ok(versionRegistry.getStatistics());
+    }
+
+    /**
+     * Retrieves the JSON response cache statistics: entries, bytes, hits, misses and evictions
+     *
+     * Usage (GET): http://localhost:8080/admin/json-cache/stats
+     *
+     * @return map of counter name to value
+     */
+    @GetMapping("/json-cache/stats")
+    public ResponseEntity<Map<String, Long>> getJsonCacheStats() {
+        return ResponseEntity.ok(jsonCache.getStatistics());
+    }
+
+    /**
+     * Evicts every entry of the JSON response cache
+     *
+     * Usage (POST): http://localhost:8080/admin/json-cache/evict
+     *
+     * @return the JSON response cache statistics after eviction
+     */
+    @PostMapping("/json-cache/evict")
+    public ResponseEntity<Map<String, Long>> evictJsonCache() {
+        jsonCache.evictAll();
+        return ResponseEntity.ok(jsonCache.getStatistics());
+    }
+
+    /**
+     * Retrieves the async promotion pipeline statistics: lanes, queued, accepted, rejected, outcomes and batches
+     *
+     * Usage (GET): http://localhost:8080/admin/promotion-pipeline/stats
+     *
+     * @return map of counter name to value
+     */
+    @GetMapping("/promotion-pipeline/stats")
+    public ResponseEntity<Map<String, Long>> getPromotionPipelineStats() {
+        return ResponseEntity.ok(promotionPipeline.getStatistics());
+    }
+
+    /**
+     * Retrieves the promotion event log statistics: segments, end and durable offsets, records by state and syncs
+     *
+     * Usage (GET): http://localhost:8080/admin/promotion-log/stats
+     *
+     * @return map of counter name to value
+     */
+    @GetMapping("/promotion-log/stats")
+    public ResponseEntity<Map<String, Long>> getPromotionLogStats() {
+        return ResponseEntity.ok(promotionEventLog.getStatistics());
+    }
+
+    /**
+     * Imports a CSV file into the employees, salaries, titles or dept_emp table. The request body is the file,
+     * streamed as it arrives: a header naming the table's columns, then one record per row.
+     * Invalid records are rejected one by one and listed in the report; valid rows are committed in chunks.
+     * A failed or interrupted import is resumed by posting the same file again with the same jobId.
+     *
+     * Usage (POST): curl -X POST -H 'Content-Type: text/csv' --data-binary @salaries.csv \
+     *     'http://localhost:8080/admin/import/salaries?jobId=acme-salaries&chunkSize=5000'
+     *
+     * @param table     employees, salaries, titles or dept_emp
+     * @param jobId     id of the import job, letters, digits, '.', '_' or '-'
+     * @param chunkSize records per transaction, optional and defaults to employees.import.chunk-size
+     * @param body      the CSV file, UTF-8
+     * @return JSON ImportReportDTO with rows/sec and rejects, HTTP 400 for a bad table, jobId, chunk size or
+     * header, 409 if the job is already running, or 500 if the import stopped part way and can be resumed
+     */
+    @PostMapping("/import/{table}")
+    public ResponseEntity<?> importCsv(@PathVariable("table") String table,
+                                       @RequestParam("jobId") String jobId,
+                                       @RequestParam(value = "chunkSize", required = false) Integer chunkSize,
+                                       InputStream body) {
+        try {
+            ImportReportDTO report = employeeImporter.importCsv(table, jobId, chunkSize,
+                    new InputStreamReader(body, StandardCharsets.UTF_8));
+            return ResponseEntity.ok(report);
+
+        } catch (InvalidDataException e) {
+            return ResponseEntity
+                    .status(e.getStatusCode())
+                    .body(e.getMessage());
+        }
+    }
+
+    /**
+     * Retrieves the bulk import statistics: running jobs, jobs by outcome, chunks and rows by outcome
+     *
+     * Usage (GET): http://localhost:8080/admin/import/stats
+     *
+     * @return map of counter name to value
+     */
+    @GetMapping("/import/stats")
+    public ResponseEntity<Map<String, Long>> getImportStats() {
+        return ResponseEntity.ok(employeeImporter.getStatistics());
+    }
+
+    /**
+     * Exports the full history of the employees, salaries, titles, dept_emp and dept_manager tables to a new
+     * server-side directory, one columnar file per table, readable with ColumnarReader.
+     * With csv=true every table is also written as CSV and the report compares sizes and times.
+     *
+     * Usage (POST): http://localhost:8080/admin/export/columnar?csv=true
+     *
+     * @param csv also write every table as CSV, optional and defaults to false
+     * @return JSON ExportReportDTO with rows, bytes and milliseconds per table, HTTP 409 if an export is
+     * already running, or 500 if the export failed
+     */
+    @PostMapping("/export/columnar")
+    public ResponseEntity<?> exportColumnar(@RequestParam(value = "csv", defaultValue = "false") boolean csv) {
+        try {
+            ExportReportDTO report = historyExporter.export(csv);
+            return ResponseEntity.ok(report);
+
+        } catch (InvalidDataException e) {
+            return ResponseEntity
+                    .status(e.getStatusCode())
+                    .body(e.getMessage());
+        }
+    }
+
+    /**
+     * Retrieves the history export statistics: exports by outcome and the sizes of the last export
+     *
+     * Usage (GET): http://localhost:8080/admin/export/stats
+     *
+     * @return map of counter name to value
+     */
+    @GetMapping("/export/stats")
+    public ResponseEntity<Map<String, Long>> getExportStats() {
+        return ResponseEntity.ok(historyExporter.getStatistics());
+    }
+}
@@ -1,18 +1,43 @@
 package org.DigiCorp.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.DigiCorp.cache.JsonResponseCache;
+import org.DigiCorp.dto.DepartmentStatsDTO;
+import org.DigiCorp.dto.EmployeeCurrentStateDTO;
 import org.DigiCorp.dto.EmployeePromotionRequest;
 import org.DigiCorp.dto.EmployeeRecordDTO;
+import org.DigiCorp.dto.EmployeeRecordPage;
+import org.DigiCorp.dto.EmployeeSummaryDTO;
+import org.DigiCorp.dto.PromotionLogPage;
+import org.DigiCorp.dto.PromotionResult;
+import org.DigiCorp.dto.PromotionTicketDTO;
+import org.DigiCorp.dto.SalaryPercentilesDTO;
 import org.DigiCorp.exceptions.InvalidDataException;
 import org.DigiCorp.model.Department;
 import org.DigiCorp.util.Helper;
 import org.DigiCorp.model.Employee;
 import org.DigiCorp.dao.EmployeeDAO;
+import org.DigiCorp.outbox.PromotionEventLog;
+import org.DigiCorp.promotion.PromotionPipeline;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
 import java.time.format.DateTimeParseException;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Class defines the REST endpoints.
@@ -27,25 +52,193 @@ public class EmployeeService {
      */
     private final EmployeeDAO employeeDAO;
 
+    /**
+     * JSON mapper shared with the rest of the application, used for streamed responses
+     */
+    private final ObjectMapper objectMapper;
+
+    /**
+     * already-serialized JSON of the department list, employee records and department pages
+     */
+    private final JsonResponseCache jsonCache;
+
+    /**
+     * runs promotions submitted asynchronously
+     */
+    private final PromotionPipeline promotionPipeline;
+
+    /**
+     * log of committed promotions, tailed by downstream consumers
+     */
+    private final PromotionEventLog promotionEventLog;
+
+    /**
+     * maximum number of employees that may be requested in one batch lookup
+     */
+    private final int maxBatchSize;
+
+    /**
+     * maximum number of promotion requests accepted by one bulk promotion
+     */
+    private final int maxBulkPromotionSize;
+
     /**
      * default constructor, initializes the employee service object for use
      */
-    public EmployeeService(EmployeeDAO employeeDAO) {
+    public EmployeeService(EmployeeDAO employeeDAO, ObjectMapper objectMapper, JsonResponseCache jsonCache,
+                           PromotionPipeline promotionPipeline, PromotionEventLog promotionEventLog,
+                           @Value("${employees.batch.max-size:1000}") int maxBatchSize,
+                           @Value("${employees.promotion.bulk-max-size:50000}") int maxBulkPromotionSize) {
         this.employeeDAO = employeeDAO;
+        this.objectMapper = objectMapper;
+        this.jsonCache = jsonCache;
+        this.promotionPipeline = promotionPipeline;
+        this.promotionEventLog = promotionEventLog;
+        this.maxBatchSize = maxBatchSize;
+        this.maxBulkPromotionSize = maxBulkPromotionSize;
     }
 
     /**
      * Endpoint #1: Get all departments
      * Retrieves a list of all Department records available
+     * The response carries a strong ETag derived from the department catalogue version; a request whose
+     * If-None-Match still lists it gets HTTP 304 without a body.
      * Usage (GET): http://localhost:8090/M7_P2_war_exploded/api/employees/getAllDepartments
      *
-     * @return A Response containing a JSON list of Department objects
+     * The serialized list is cached and written as is, gzip-compressed if the client accepts it.
+     *
+     * @param ifNoneMatch    entity tags of the copies the client holds, optional
+     * @param acceptEncoding content codings the client accepts, optional
+     * @return A Response containing a JSON list of Department objects, or HTTP 304 if the client's copy is current
      */
     @GetMapping("/getAllDepartments")
-    public ResponseEntity<List<Department>> getAllDepartments() {
-        // call service to retrieve a list of all departments
-        List<Department> list = employeeDAO.findAllDepartments();
-        return ResponseEntity.ok(list);
+    public ResponseEntity<byte[]> getAllDepartments(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        // the tag is read before the list, so it can never be newer than the content it is sent with
+        String etag = employeeDAO.getDepartmentsETag();
+        // the department list always exists, so * matches it too
+        if (notModified(ifNoneMatch, etag) || Helper.etagWildcard(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(CacheControl.noCache()).build();
+        }
+
+        JsonResponseCache.Entry json = jsonCache.get("departments", etag);
+        if (json == null) {
+            // call service to retrieve a list of all departments
+            List<Department> list = employeeDAO.findAllDepartments();
+            json = jsonCache.put("departments", etag, list);
+        }
+        return cachedJson(json, etag, acceptEncoding);
+    }
+
+    /**
+     * Retrieves the headcount, payroll and average/min/max current salary of one department.
+     * Aggregates are kept up to date in memory on every promotion, so no query runs per request.
+     *
+     * Usage (GET): http://localhost:8080/employees/getDepartmentStats?departmentNo=d005
+     *
+     * @param departmentNo the department we wish to retrieve stats for
+     * @return JSON DepartmentStatsDTO if success or HTTP 404 if the department does not exist
+     */
+    @GetMapping("/getDepartmentStats")
+    public ResponseEntity<?> getDepartmentStats(@RequestParam("departmentNo") String departmentNo) {
+        try {
+            DepartmentStatsDTO stats = employeeDAO.getDepartmentStats(departmentNo);
+            return ResponseEntity.ok(stats);
+
+        } catch (InvalidDataException e) {
+            return ResponseEntity
+                    .status(e.getStatusCode())
+                    .body(e.getMessage());
+        }
+    }
+
+    /**
+     * Retrieves the headcount, payroll and average/min/max current salary of every department.
+     *
+     * Usage (GET): http://localhost:8080/employees/getAllDepartmentStats
+     *
+     * @return A Response containing a JSON list of DepartmentStatsDTO objects
+     */
+    @GetMapping("/getAllDepartmentStats")
+    public ResponseEntity<List<DepartmentStatsDTO>> getAllDepartmentStats() {
+        return ResponseEntity.ok(employeeDAO.getAllDepartmentStats());
+    }
+
+    /**
+     * Retrieves the p25/p50/p75/p90 current salary and a salary histogram of one department or one title.
+     * Figures are estimated from in-memory sketches kept up to date on every promotion, within the rankError
+     * the response carries, so no query runs per request.
+     *
+     * Usage (GET): http://localhost:8080/employees/getSalaryPercentiles?departmentNo=d005&buckets=10
+     *              http://localhost:8080/employees/getSalaryPercentiles?title=Senior%20Engineer
+     *
+     * @param departmentNo the department we wish to retrieve percentiles for, or
+     * @param title        the title we wish to retrieve percentiles for
+     * @param buckets      number of histogram buckets, optional and defaults to employees.salary-percentiles.buckets
+     * @return JSON SalaryPercentilesDTO if success, HTTP 400 unless exactly one of departmentNo and title is given,
+     * or 404 if the department does not exist or no current employee holds the title
+     */
+    @GetMapping("/getSalaryPercentiles")
+    public ResponseEntity<?> getSalaryPercentiles(
+            @RequestParam(value = "departmentNo", required = false) String departmentNo,
+            @RequestParam(value = "title", required = false) String title,
+            @RequestParam(value = "buckets", required = false) Integer buckets) {
+
+        // CHECK: exactly one group, and at least one bucket
+        if ((departmentNo == null) == (title == null)) {
+            return ResponseEntity
+                    .badRequest()
+                    .body("Please provide either a departmentNo or a title!");
+        }
+        if (buckets != null && buckets < 1) {
+            return ResponseEntity
+                    .badRequest()
+                    .body("Buckets must be at least 1!");
+        }
+
+        try {
+            SalaryPercentilesDTO percentiles = departmentNo != null
+                    ? employeeDAO.getDepartmentSalaryPercentiles(departmentNo, buckets)
+                    : employeeDAO.getTitleSalaryPercentiles(title, buckets);
+            return ResponseEntity.ok(percentiles);
+
+        } catch (InvalidDataException e) {
+            return ResponseEntity
+                    .status(e.getStatusCode())
+                    .body(e.getMessage());
+        }
+    }
+
+    /**
+     * Retrieves the p25/p50/p75/p90 current salary and a salary histogram of every department or every title.
+     *
+     * Usage (GET): http://localhost:8080/employees/getAllSalaryPercentiles?groupBy=title
+     *
+     * @param groupBy 'department' or 'title'. optional and defaults to department
+     * @param buckets number of histogram buckets, optional and defaults to employees.salary-percentiles.buckets
+     * @return JSON list of SalaryPercentilesDTO if success or HTTP 400 upon validation failure
+     */
+    @GetMapping("/getAllSalaryPercentiles")
+    public ResponseEntity<?> getAllSalaryPercentiles(
+            @RequestParam(value = "groupBy", defaultValue = "department") String groupBy,
+            @RequestParam(value = "buckets", required = false) Integer buckets) {
+
+        // CHECK: at least one bucket
+        if (buckets != null && buckets < 1) {
+            return ResponseEntity
+                    .badRequest()
+                    .body("Buckets must be at least 1!");
+        }
+
+        try {
+            return ResponseEntity.ok(employeeDAO.getAllSalaryPercentiles(groupBy, buckets));
+
+        } catch (InvalidDataException e) {
+            return ResponseEntity
+                    .status(e.getStatusCode())
+                    .body(e.getMessage());
+        }
     }
 
     /**
@@ -53,11 +246,37 @@ public class EmployeeService {
      *
      * Usage (GET): http://localhost:8090/M7_P2_war_exploded/api/employees/getEmployeeRecord/?empNo=99999
      *
-     * @param empNo The employee number to be retrieved, supplied as a Query Parameter.
-     * @return Returns Employee JSON object or a string failure message if the employee does not exist
+     * The response carries a strong ETag that changes whenever the employee is promoted or changed; a request
+     * whose If-None-Match still lists it gets HTTP 304 without the employee being loaded. If-None-Match: *
+     * gets HTTP 304 only once the employee is known to exist.
+     * The serialized record is cached and written as is, gzip-compressed if the client accepts it.
+     *
+     * @param empNo          The employee number to be retrieved, supplied as a Query Parameter.
+     * @param ifNoneMatch    entity tags of the copies the client holds, optional
+     * @param acceptEncoding content codings the client accepts, optional
+     * @return Returns Employee JSON object, HTTP 304 if the client's copy is current,
+     * or a string failure message if the employee does not exist
      */
     @GetMapping("/getEmployeeRecord")
-    public ResponseEntity<?> getEmployeeRecord(@RequestParam("empNo") int empNo) {
+    public ResponseEntity<?> getEmployeeRecord(
+            @RequestParam("empNo") int empNo,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        // the tag is read before the record, so it can never be newer than the content it is sent with
+        String etag = employeeDAO.getEmployeeETag(empNo);
+        if (notModified(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(CacheControl.noCache()).build();
+        }
+
+        // popular employees are served from the serialized response cache
+        JsonResponseCache.Entry json = jsonCache.get(JsonResponseCache.employeeKey(empNo), etag);
+        if (json != null) {
+            if (Helper.etagWildcard(ifNoneMatch)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(CacheControl.noCache()).build();
+            }
+            return cachedJson(json, etag, acceptEncoding);
+        }
+
         // Retrieve employee record
         Employee emp = employeeDAO.getEmployeeRecords(empNo);
         if (emp == null) {
@@ -65,8 +284,259 @@ public class EmployeeService {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Requested Employee Record not found");
         }
 
-        // return the requested Employee if all ok
-        return ResponseEntity.ok(emp);
+        // return the requested Employee if all ok, keeping its serialized form for the next request
+        json = jsonCache.put(JsonResponseCache.employeeKey(empNo), etag, emp);
+        if (Helper.etagWildcard(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(CacheControl.noCache()).build();
+        }
+        return cachedJson(json, etag, acceptEncoding);
+    }
+
+    /**
+     * Retrieves several full Employee records in a single round trip.
+     * The response maps every requested empNo to its Employee record, or to null if that employee does not exist.
+     *
+     * Usage (POST): http://localhost:8080/employees/getEmployeeRecords
+     * Input JSON format:
+     * [10001, 10002, 99999]
+     *
+     * @param empNos JSON array of employee numbers, at most employees.batch.max-size entries
+     * @return JSON object keyed by empNo if success or HTTP 400 upon validation failure
+     */
+    @PostMapping("/getEmployeeRecords")
+    public ResponseEntity<?> getEmployeeRecords(@RequestBody List<Integer> empNos) {
+        // CHECK: at least one and at most maxBatchSize employee numbers, none of them null
+        if (empNos == null || empNos.isEmpty() || empNos.contains(null)) {
+            return ResponseEntity
+                    .badRequest()
+                    .body("Please provide a non-empty list of employee numbers");
+        }
+        if (empNos.size() > maxBatchSize) {
+            return ResponseEntity
+                    .badRequest()
+                    .body("At most " + maxBatchSize + " employee numbers can be requested at once");
+        }
+
+        Map<Integer, Employee> records = employeeDAO.getEmployeeRecords(empNos);
+        return ResponseEntity.ok(records);
+    }
+
+    /**
+     * Retrieves a lightweight summary of an employee: name, hire date and current title,
+     * salary and department, read in a single query without loading any history.
+     *
+     * Usage (GET): http://localhost:8090/M7_P2_war_exploded/api/employees/getEmployeeSummary?empNo=10001
+     *
+     * Supplying 'asOf' returns the title, salary and department the employee held on that date instead,
+     * answered from the in-memory history read models; each is null where none applied on the date.
+     * Usage (GET): http://localhost:8080/employees/getEmployeeSummary?empNo=10001&asOf=1995-06-01
+     *
+     * Carries the same kind of ETag as endpoint #2 and answers HTTP 304 the same way, for If-None-Match: *
+     * only once the employee is known to exist.
+     *
+     * @param empNo       The employee number to be retrieved, supplied as a Query Parameter.
+     * @param asOf        The date in YYYY-MM-DD format. optional and defaults to the current state
+     * @param ifNoneMatch entity tags of the copies the client holds, optional
+     * @return Returns EmployeeSummaryDTO JSON object, HTTP 304 if the client's copy is current,
+     * HTTP 400 for a malformed date, or a string failure message if the employee does not exist
+     */
+    @GetMapping("/getEmployeeSummary")
+    public ResponseEntity<?> getEmployeeSummary(
+            @RequestParam("empNo") int empNo,
+            @RequestParam(value = "asOf", required = false) String asOf,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        String etag = employeeDAO.getEmployeeETag(empNo);
+        if (notModified(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(CacheControl.noCache()).build();
+        }
+
+        if (asOf != null) {
+            try {
+                EmployeeSummaryDTO summary = employeeDAO.getEmployeeSummaryAsOf(empNo, Helper.parseDate(asOf));
+                if (Helper.etagWildcard(ifNoneMatch)) {
+                    return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(CacheControl.noCache()).build();
+                }
+                return ResponseEntity.ok().eTag(etag).cacheControl(CacheControl.noCache()).body(summary);
+
+            } catch (InvalidDataException e) {
+                return ResponseEntity
+                        .status(e.getStatusCode())
+                        .body(e.getMessage());
+            }
+        }
+
+        EmployeeSummaryDTO summary = employeeDAO.getEmployeeSummary(empNo);
+        if (summary == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Requested Employee Record not found");
+        }
+        if (Helper.etagWildcard(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(CacheControl.noCache()).build();
+        }
+        return ResponseEntity.ok().eTag(etag).cacheControl(CacheControl.noCache()).body(summary);
+    }
+
+    /**
+     * Retrieves an employee's current salary, title, department and manager flag from the in-memory
+     * current-state read model, kept in step with every committed promotion.
+     *
+     * Usage (GET): http://localhost:8080/employees/getCurrentState?empNo=10001
+     *
+     * @param empNo The employee number to be retrieved, supplied as a Query Parameter.
+     * @return Returns EmployeeCurrentStateDTO JSON object or a string failure message if the employee does not exist
+     */
+    @GetMapping("/getCurrentState")
+    public ResponseEntity<?> getCurrentState(@RequestParam("empNo") int empNo) {
+        EmployeeCurrentStateDTO state = employeeDAO.getEmployeeCurrentState(empNo);
+        if (state == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Requested Employee Record not found");
+        }
+        return ResponseEntity.ok(state);
+    }
+
+    /**
+     * Retrieves the current state of several employees in a single round trip.
+     * The response maps every requested empNo to its current state, or to null if that employee does not exist.
+     *
+     * Usage (POST): http://localhost:8080/employees/getCurrentStates
+     * Input JSON format:
+     * [10001, 10002, 99999]
+     *
+     * @param empNos JSON array of employee numbers, at most employees.batch.max-size entries
+     * @return JSON object keyed by empNo if success or HTTP 400 upon validation failure
+     */
+    @PostMapping("/getCurrentStates")
+    public ResponseEntity<?> getCurrentStates(@RequestBody List<Integer> empNos) {
+        // CHECK: at least one and at most maxBatchSize employee numbers, none of them null
+        if (empNos == null || empNos.isEmpty() || empNos.contains(null)) {
+            return ResponseEntity
+                    .badRequest()
+                    .body("Please provide a non-empty list of employee numbers");
+        }
+        if (empNos.size() > maxBatchSize) {
+            return ResponseEntity
+                    .badRequest()
+                    .body("At most " + maxBatchSize + " employee numbers can be requested at once");
+        }
+
+        return ResponseEntity.ok(employeeDAO.getEmployeeCurrentStates(empNos));
+    }
+
+    /**
+     * Searches employees by first and last name using the in-memory name index.
+     * Every word of the query has to match the employee's first or last name; results are ranked
+     * exact name matches first, then alphabetically by the matched name, then by empNo.
+     *
+     * Usages (GET): (1) prefix search (2) substring search
+     * (1) http://localhost:8080/employees/searchEmployees?name=geo fac
+     * (2) http://localhost:8080/employees/searchEmployees?name=acel&mode=substring&limit=50
+     *
+     * @param name  one or more words to search for
+     * @param mode  'prefix' or 'substring'. optional and defaults to prefix
+     * @param limit maximum number of results, 1 to 100. optional and defaults to 20
+     * @return JSON list of EmployeeRecordDTO if success or HTTP 400 upon validation failure
+     */
+    @GetMapping("/searchEmployees")
+    public ResponseEntity<?> searchEmployees(
+            @RequestParam("name") String name,
+            @RequestParam(value = "mode", defaultValue = "prefix") String mode,
+            @RequestParam(value = "limit", defaultValue = "20") int limit) {
+
+        // CHECK: limit has to be between 1 and 100
+        if (limit < 1 || limit > 100) {
+            return ResponseEntity
+                    .badRequest()
+                    .body("Limit must be between 1 and 100!");
+        }
+
+        try {
+            return ResponseEntity.ok(employeeDAO.searchEmployees(name, mode, limit));
+
+        } catch (InvalidDataException e) {
+            return ResponseEntity
+                    .status(e.getStatusCode())
+                    .body(e.getMessage());
+        }
+    }
+
+    /**
+     * Retrieves an employee's complete salary history from the in-memory columnar salary history.
+     *
+     * Usage (GET): http://localhost:8080/employees/getSalaryHistory?empNo=10001
+     *
+     * @param empNo The employee number to be retrieved, supplied as a Query Parameter.
+     * @return JSON list of SalaryPeriodDTO if success or HTTP 404 if the employee has no salary history
+     */
+    @GetMapping("/getSalaryHistory")
+    public ResponseEntity<?> getSalaryHistory(@RequestParam("empNo") int empNo) {
+        try {
+            return ResponseEntity.ok(employeeDAO.getSalaryHistory(empNo));
+
+        } catch (InvalidDataException e) {
+            return ResponseEntity
+                    .status(e.getStatusCode())
+                    .body(e.getMessage());
+        }
+    }
+
+    /**
+     * Retrieves the salary an employee earned on some date.
+     *
+     * Usage (GET): http://localhost:8080/employees/getSalaryAsOf?empNo=10001&date=1995-06-01
+     *
+     * @param empNo The employee number, supplied as a Query Parameter.
+     * @param date  The date in YYYY-MM-DD format, supplied as a Query Parameter.
+     * @return JSON SalaryPeriodDTO if success, HTTP 400 for a malformed date
+     * or HTTP 404 if the employee earned no salary on that date
+     */
+    @GetMapping("/getSalaryAsOf")
+    public ResponseEntity<?> getSalaryAsOf(@RequestParam("empNo") int empNo,
+                                           @RequestParam("date") String date) {
+        try {
+            return ResponseEntity.ok(employeeDAO.getSalaryAsOf(empNo, Helper.parseDate(date)));
+
+        } catch (InvalidDataException e) {
+            return ResponseEntity
+                    .status(e.getStatusCode())
+                    .body(e.getMessage());
+        }
+    }
+
+    /**
+     * Scans the salary every employee earned on some date and reports how many fell within a range,
+     * their total, and the first matching salary periods in empNo order.
+     * The scan runs over the in-memory columnar salary history, without a database round trip.
+     *
+     * Usage (GET): http://localhost:8080/employees/scanSalaries?asOf=1995-06-01&minSalary=60000&maxSalary=70000&limit=10
+     *
+     * @param asOf      The date in YYYY-MM-DD format. optional and defaults to today
+     * @param minSalary Lowest salary included. optional and defaults to 0
+     * @param maxSalary Highest salary included. optional and defaults to no upper bound
+     * @param limit     Maximum number of matching salary periods returned, 0 to 1000. optional and defaults to 100
+     * @return JSON SalaryScanResultDTO if success or HTTP 400 upon validation failure
+     */
+    @GetMapping("/scanSalaries")
+    public ResponseEntity<?> scanSalaries(
+            @RequestParam(value = "asOf", required = false) String asOf,
+            @RequestParam(value = "minSalary", defaultValue = "0") int minSalary,
+            @RequestParam(value = "maxSalary", defaultValue = "" + Integer.MAX_VALUE) int maxSalary,
+            @RequestParam(value = "limit", defaultValue = "100") int limit) {
+
+        // CHECK: limit has to be between 0 and 1000
+        if (limit < 0 || limit > 1000) {
+            return ResponseEntity
+                    .badRequest()
+                    .body("Limit must be between 0 and 1000!");
+        }
+
+        try {
+            LocalDate date = asOf == null ? LocalDate.now() : Helper.parseDate(asOf);
+            return ResponseEntity.ok(employeeDAO.scanSalaries(date, minSalary, maxSalary, limit));
+
+        } catch (InvalidDataException e) {
+            return ResponseEntity
+                    .status(e.getStatusCode())
+                    .body(e.getMessage());
+        }
     }
 
     /**
@@ -76,19 +546,65 @@ public class EmployeeService {
      * limited to 20 entries.
      * If department does not exist, page number invalid, or current page index has no employees,
      * exceptions are caught and handled.
+     * <p>
+     * Supplying 'after' and/or 'limit' switches to cursor mode, which seeks on empNo rather than
+     * skipping rows, so latency stays flat however deep the client scrolls. The response then is an
+     * EmployeeRecordPage whose nextCursor is passed back as 'after' for the following slice.
+     * <p>
+     * Supplying 'mode' lists, in the same cursor form, everyone who worked in ('during'), joined or left the
+     * department between 'start' and 'end', answered from the interval index over the in-memory department
+     * history. 'asOf' is short for mode=during with start and end both set to that date.
      *
-     * Usages (GET): (1) defaulted to page 1 (2) specifying page number
+     * Usages (GET): (1) defaulted to page 1 (2) specifying page number (3) cursor mode (4) as-of mode
+     * (5) membership mode
      * (1) http://localhost:8090/M7_P2_war_exploded/api/employees/getAllEmployeeRecords/?departmentNo=d003
      * (2) http://localhost:8090/M7_P2_war_exploded/api/employees/getAllEmployeeRecords/?departmentNo=d003&page=10
+     * (3) http://localhost:8090/M7_P2_war_exploded/api/employees/getAllEmployeeRecords/?departmentNo=d003&after=ZToxMDAxMA&limit=50
+     * (4) http://localhost:8080/employees/getAllEmployeeRecords?departmentNo=d003&asOf=1995-06-01&limit=50
+     * (5) http://localhost:8080/employees/getAllEmployeeRecords?departmentNo=d003&mode=joined&start=1990-01-01&end=1990-12-31
      *
      * @param departmentNo name of the department we wish to retrieve employees from
      * @param page         1-indexed page number of the list we want. optional and defaults to 1
-     * @return JSON list of EmployeeRecordDTO if success or some HTTP errors upon validation failure
+     * @param after        opaque cursor returned as nextCursor by the previous slice. optional
+     * @param limit        slice size in cursor mode, 1 to 100. optional and defaults to 20
+     * @param asOf         date in YYYY-MM-DD format whose department members are listed. optional
+     * @param mode         'during', 'joined' or 'left' to list members by date range. optional
+     * @param start        first date of the range in YYYY-MM-DD format, required with mode
+     * @param end          last date of the range in YYYY-MM-DD format. optional and defaults to start
+     * @param acceptEncoding content codings the client accepts, optional; cached pages are sent gzipped if accepted
+     * @return JSON list of EmployeeRecordDTO (page mode) or EmployeeRecordPage (cursor mode) if success
+     * or some HTTP errors upon validation failure
      */
     @GetMapping("/getAllEmployeeRecords")
     public ResponseEntity<?> getAllEmployeeRecords(
             @RequestParam("departmentNo") String departmentNo,
-            @RequestParam(value = "page", defaultValue = "1") int page) {
+            @RequestParam(value = "page", defaultValue = "1") int page,
+            @RequestParam(value = "after", required = false) String after,
+            @RequestParam(value = "limit", required = false) Integer limit,
+            @RequestParam(value = "asOf", required = false) String asOf,
+            @RequestParam(value = "mode", required = false) String mode,
+            @RequestParam(value = "start", required = false) String start,
+            @RequestParam(value = "end", required = false) String end,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+
+        // an as-of date is a membership range of a single day
+        if (asOf != null && mode == null) {
+            mode = "during";
+            start = asOf;
+            end = asOf;
+        }
+        // CHECK: a membership mode needs the start of its range
+        if (mode != null && start == null) {
+            return ResponseEntity
+                    .badRequest()
+                    .body("Please provide a start date.");
+        }
+
+        // cursor mode is selected whenever a cursor, slice size or membership mode is supplied
+        if (after != null || limit != null || mode != null) {
+            return getEmployeeRecordsByCursor(departmentNo, after, limit == null ? 20 : limit,
+                    mode, start, end == null ? start : end);
+        }
 
         // CHECK: page number has to be greater than or equal to 1
         if (page < 1) {
@@ -98,6 +614,14 @@ public class EmployeeService {
         }
 
         try {
+            // pages are served from the serialized response cache while the department's members are unchanged
+            String key = JsonResponseCache.departmentPageKey(departmentNo, page);
+            String version = jsonCache.departmentPagesVersion(departmentNo);
+            JsonResponseCache.Entry json = jsonCache.get(key, version);
+            if (json != null) {
+                return cachedJson(json, null, acceptEncoding);
+            }
+
             // retrieve the list of employee records
             List<EmployeeRecordDTO> empRecords =
                     employeeDAO.getAllEmployeeRecordsList(departmentNo, page);
@@ -107,7 +631,87 @@ public class EmployeeService {
                 return ResponseEntity.ok("Page index contains no employee records!");
             }
 
-            return ResponseEntity.ok(empRecords);
+            return cachedJson(jsonCache.put(key, version, empRecords), null, acceptEncoding);
+
+        } catch (InvalidDataException e) {
+            return ResponseEntity
+                    .status(e.getStatusCode())
+                    .body(e.getMessage());
+        }
+    }
+
+    /**
+     * Checks whether the client's copy, plain or gzip-encoded, is still current.
+     *
+     * @param ifNoneMatch the If-None-Match header supplied by the client, may be null
+     * @param etag        the quoted entity tag of the current plain representation
+     * @return true if the client's copy is current
+     */
+    private static boolean notModified(String ifNoneMatch, String etag) {
+        return Helper.etagMatches(ifNoneMatch, etag) || Helper.etagMatches(ifNoneMatch, gzipETag(etag));
+    }
+
+    /**
+     * returns the entity tag of the gzip-encoded representation of a body
+     */
+    private static String gzipETag(String etag) {
+        return etag.substring(0, etag.length() - 1) + "-gzip\"";
+    }
+
+    /**
+     * Writes a cached JSON body as is, or its gzip copy if the client accepts gzip.
+     *
+     * @param json           the cached response
+     * @param etag           the entity tag to send, or null for none
+     * @param acceptEncoding content codings the client accepts, may be null
+     * @return the response carrying the cached bytes
+     */
+    private ResponseEntity<byte[]> cachedJson(JsonResponseCache.Entry json, String etag, String acceptEncoding) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .varyBy(HttpHeaders.ACCEPT_ENCODING);
+        if (etag != null) {
+            response.eTag(etag).cacheControl(CacheControl.noCache());
+        }
+        if (json.getGzip() != null && Helper.acceptsGzip(acceptEncoding)) {
+            if (etag != null) {
+                // a strong tag identifies one representation, so the gzip body gets its own
+                response.eTag(gzipETag(etag));
+            }
+            return response.header(HttpHeaders.CONTENT_ENCODING, "gzip")
+                    .contentLength(json.getGzip().length)
+                    .body(json.getGzip());
+        }
+        return response.contentLength(json.getJson().length).body(json.getJson());
+    }
+
+    /**
+     * Cursor mode of endpoint #3, seeks past the employee number encoded in the cursor.
+     *
+     * @param departmentNo name of the department we wish to retrieve employees from
+     * @param after        opaque cursor from the previous slice, or null to start from the beginning
+     * @param limit        maximum number of records in the slice
+     * @param mode         membership mode, or null for everyone who ever worked there
+     * @param start        first date of the membership range, null without a mode
+     * @param end          last date of the membership range, null without a mode
+     * @return JSON EmployeeRecordPage if success or some HTTP errors upon validation failure
+     */
+    private ResponseEntity<?> getEmployeeRecordsByCursor(String departmentNo, String after, int limit,
+                                                         String mode, String start, String end) {
+        // CHECK: slice size has to be between 1 and 100
+        if (limit < 1 || limit > 100) {
+            return ResponseEntity
+                    .badRequest()
+                    .body("Limit must be between 1 and 100!");
+        }
+
+        try {
+            int afterEmpNo = after == null || after.isEmpty() ? 0 : Helper.decodeCursor(after);
+            if (mode != null) {
+                return ResponseEntity.ok(employeeDAO.getEmployeeRecordsByMembership(
+                        departmentNo, mode, Helper.parseDate(start), Helper.parseDate(end), afterEmpNo, limit));
+            }
+            return ResponseEntity.ok(employeeDAO.getEmployeeRecordsAfter(departmentNo, afterEmpNo, limit));
 
         } catch (InvalidDataException e) {
             return ResponseEntity
@@ -116,6 +720,61 @@ public class EmployeeService {
         }
     }
 
+    /**
+     * Streams every employee record of a department as newline-delimited JSON (one EmployeeRecordDTO per line).
+     * Rows are written straight from a forward-only database scroll to the response, so a whole
+     * department can be pulled in one request with constant memory on the server.
+     *
+     * Usages (GET): (1) all employees that ever worked in the department (2) current members only
+     * (1) http://localhost:8080/employees/exportEmployeeRecords?departmentNo=d005
+     * (2) http://localhost:8080/employees/exportEmployeeRecords?departmentNo=d005&currentOnly=true
+     *
+     * @param departmentNo name of the department we wish to export employees from
+     * @param currentOnly  true to only export current members. optional and defaults to false
+     * @return NDJSON stream of EmployeeRecordDTO if success or some HTTP errors upon validation failure
+     */
+    @GetMapping("/exportEmployeeRecords")
+    public ResponseEntity<StreamingResponseBody> exportEmployeeRecords(
+            @RequestParam("departmentNo") String departmentNo,
+            @RequestParam(value = "currentOnly", defaultValue = "false") boolean currentOnly) {
+
+        try {
+            // validate the department before the response is committed
+            String deptNo = employeeDAO.getDepartment(departmentNo).getDeptNo();
+            ObjectWriter writer = objectMapper.writer();
+
+            StreamingResponseBody body = outputStream -> {
+                BufferedOutputStream out = new BufferedOutputStream(outputStream, 64 * 1024);
+                try {
+                    employeeDAO.streamEmployeeRecords(deptNo, currentOnly, record -> {
+                        try {
+                            out.write(writer.writeValueAsBytes(record));
+                            out.write('\n');
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    });
+                } catch (UncheckedIOException e) {
+                    // client went away or the write failed, stop scrolling
+                    throw e.getCause();
+                }
+                out.flush();
+            };
+
+            return ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_NDJSON)
+                    .body(body);
+
+        } catch (InvalidDataException e) {
+            // streaming endpoints can only return a stream, so write the message through one
+            byte[] message = e.getMessage().getBytes(StandardCharsets.UTF_8);
+            return ResponseEntity
+                    .status(e.getStatusCode())
+                    .contentType(MediaType.TEXT_PLAIN)
+                    .body(outputStream -> outputStream.write(message));
+        }
+    }
+
     /**
      * Endpoint #4: Promote Employee
      * Processes a request to update an employee's salary/department/title in a single transaction.
@@ -129,20 +788,36 @@ public class EmployeeService {
      *     "newTitle": "Senior Engineer",
      *     "promotionDate": "2024-12-17"
      * }
+     * <p>
+     * With async=true the request is only validated, then queued on its employee's promotion lane: the
+     * response is HTTP 202 Accepted with a PromotionTicketDTO, whose progress is polled at the Location
+     * returned. A full queue answers HTTP 503 with Retry-After.
+     * Usage (POST): http://localhost:8080/employees/promote?async=true
      *
      * @param request EmployeePromotionRequest JSON payload containing the employee ID and new details.
-     * @return Returns HTTP 201 Created on success, HTTP 400/404 on validation/data error,
-     * or HTTP 500 on unexpected internal errors.
+     * @param async   true to queue the promotion and return at once. optional and defaults to false
+     * @return Returns HTTP 201 Created on success (202 Accepted in async mode), HTTP 400/404 on validation/data
+     * error, HTTP 409 if concurrent promotions of the employee kept it locked, HTTP 503 if the async queue is
+     * full, or HTTP 500 on unexpected internal errors.
      */
     @PostMapping("/promote")
     public ResponseEntity<?> promoteEmployee(
-            @RequestBody EmployeePromotionRequest request) {
+            @RequestBody EmployeePromotionRequest request,
+            @RequestParam(value = "async", defaultValue = "false") boolean async) {
 
         // try to process promotion request, throw & catch errors if unsuccessful
         try {
             // call helper method to validate, throws exception if invalid
             Helper.validatePromotionRequest(request);
 
+            if (async) {
+                PromotionTicketDTO ticket = promotionPipeline.submit(request);
+                return ResponseEntity
+                        .accepted()
+                        .location(URI.create("/employees/promotionStatus?ticketId=" + ticket.getTicketId()))
+                        .body(ticket);
+            }
+
             // call your service to promote the employee
             employeeDAO.promoteEmployee(request);
 
@@ -158,6 +833,13 @@ public class EmployeeService {
                     .body("Date must be in YYYY-MM-DD format.");
         }
         catch (InvalidDataException e) {
+            // a full async queue is temporary, tell the client when to come back
+            if (e.getStatusCode() == HttpStatus.SERVICE_UNAVAILABLE.value()) {
+                return ResponseEntity
+                        .status(e.getStatusCode())
+                        .header(HttpHeaders.RETRY_AFTER, "1")
+                        .body(e.getMessage());
+            }
             // catch exceptions we throw if promotion fails, return a response
             return ResponseEntity
                     .status(e.getStatusCode())
@@ -170,4 +852,90 @@ public class EmployeeService {
                     .body("Unexpected error: " + e.getMessage());
         }
     }
+
+    /**
+     * Retrieves the progress of a promotion submitted with async=true: QUEUED, RUNNING, or SUCCEEDED/FAILED
+     * with the status code and message the synchronous endpoint would have returned.
+     *
+     * Usage (GET): http://localhost:8080/employees/promotionStatus?ticketId=5f0c6a0e-8f0a-4f4e-9a53-1f1d1a3c2b7e
+     *
+     * @param ticketId ticket id returned on submission
+     * @return JSON PromotionTicketDTO, or HTTP 404 if the ticket is unknown or has expired
+     */
+    @GetMapping("/promotionStatus")
+    public ResponseEntity<?> getPromotionStatus(@RequestParam("ticketId") String ticketId) {
+        PromotionTicketDTO ticket = promotionPipeline.find(ticketId);
+        if (ticket == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("Promotion ticket not found");
+        }
+        return ResponseEntity.ok(ticket);
+    }
+
+    /**
+     * Tails the log of committed promotions, for downstream systems that need to follow changes without
+     * polling the history tables. Each event carries the employee's salary, title and department before and
+     * after the promotion; events come in commit order.
+     * Start from offset 0, then pass the nextOffset of each response. With waitMs, the request waits up to
+     * that long (30 seconds at most) for a promotion to commit if there is none to return yet.
+     *
+     * Usage (GET): http://localhost:8080/employees/promotionLog?offset=0&limit=100&waitMs=10000
+     *
+     * @param offset offset to read from. optional and defaults to 0
+     * @param limit  maximum number of events to return. optional and defaults to 100, at most 1000
+     * @param waitMs how long to wait for an event if none is available. optional and defaults to 0
+     * @return JSON PromotionLogPage, HTTP 400 if the offset or limit is invalid, or HTTP 404 if the log is disabled
+     */
+    @GetMapping("/promotionLog")
+    public ResponseEntity<?> getPromotionLog(
+            @RequestParam(value = "offset", defaultValue = "0") long offset,
+            @RequestParam(value = "limit", defaultValue = "100") int limit,
+            @RequestParam(value = "waitMs", defaultValue = "0") long waitMs) {
+        if (limit < 1 || limit > 1000) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Limit must be between 1 and 1000.");
+        }
+        try {
+            PromotionLogPage page = promotionEventLog.read(offset, limit, waitMs);
+            return ResponseEntity.ok(page);
+        } catch (InvalidDataException e) {
+            return ResponseEntity
+                    .status(e.getStatusCode())
+                    .body(e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body("Interrupted while waiting for promotions");
+        }
+    }
+
+    /**
+     * Bulk promotion: processes many promotion requests in one call.
+     * Every request goes through the same validation and business rules as endpoint #4; requests are
+     * committed in chunks, and one invalid request does not roll back the others.
+     *
+     * Usage (POST): http://localhost:8080/employees/promoteBulk
+     * Input JSON format: an array of endpoint #4 payloads
+     * [
+     *     {"empNo":11004, "newDeptNo":"d007", "newSalary": 65349, "newTitle": "Senior Engineer", "promotionDate": "2024-12-17"},
+     *     {"empNo":11005, "newDeptNo":"d005", "newSalary": 70000, "newTitle": "Engineer"}
+     * ]
+     *
+     * @param requests JSON array of EmployeePromotionRequest payloads
+     * @return HTTP 200 with one PromotionResult per request, or HTTP 400 if the array is empty or too large
+     */
+    @PostMapping("/promoteBulk")
+    public ResponseEntity<?> promoteEmployees(@RequestBody List<EmployeePromotionRequest> requests) {
+        // CHECK: at least one and at most maxBulkPromotionSize requests
+        if (requests == null || requests.isEmpty() || requests.contains(null)) {
+            return ResponseEntity
+                    .badRequest()
+                    .body("Please provide a non-empty list of promotion requests");
+        }
+        if (requests.size() > maxBulkPromotionSize) {
+            return ResponseEntity
+                    .badRequest()
+                    .body("At most " + maxBulkPromotionSize + " promotion requests can be submitted at once");
+        }
+
+        List<PromotionResult> results = employeeDAO.promoteEmployees(requests);
+        return ResponseEntity.ok(results);
+    }
 }
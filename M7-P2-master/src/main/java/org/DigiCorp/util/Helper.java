@@ -3,7 +3,10 @@ package org.DigiCorp.util;
 import org.DigiCorp.dto.EmployeePromotionRequest;
 import org.DigiCorp.exceptions.InvalidDataException;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
 
 /**
  * Utility class providing helper methods for common operations, such as
@@ -11,6 +14,10 @@ import java.time.LocalDate;
  */
 public class Helper {
 
+    /**
+     * placeholder to_date marking the current (ongoing) row of every history table
+     */
+    public static final LocalDate CURRENT_TO_DATE = LocalDate.of(9999, 1, 1);
 
     /**
      * Converts the input string into Title Case
@@ -31,6 +38,182 @@ public class Helper {
     }
 
 
+    /**
+     * Converts the input string into Title Case, producing the same result as toTitleCase
+     * without the regex split and per-word substrings.
+     * <p>
+     * Returns the input itself when it is already in Title Case, and otherwise allocates only the
+     * result. Inputs containing non-ASCII characters are handed to toTitleCase so locale-aware
+     * case mapping is kept; ASCII letters are mapped locale-independently.
+     *
+     * @param inputString The string to be converted.
+     * @return The string in Title Case format, with leading/trailing whitespace removed.
+     */
+    public static String toTitleCaseFast(String inputString) {
+        int length = inputString.length();
+
+        // first pass: check whether anything needs to change
+        boolean unchanged = true;
+        boolean inWord = false;
+        for (int i = 0; i < length; i++) {
+            char c = inputString.charAt(i);
+            if (c >= 0x80) {
+                return toTitleCase(inputString);
+            }
+            if (isWhitespace(c)) {
+                // leading, repeated, trailing or non-space separators are all rewritten
+                if (!inWord || c != ' ' || i == length - 1) {
+                    unchanged = false;
+                }
+                inWord = false;
+            } else {
+                char expected = inWord ? Character.toLowerCase(c) : Character.toUpperCase(c);
+                if (expected != c) {
+                    unchanged = false;
+                }
+                inWord = true;
+            }
+        }
+        if (unchanged) {
+            return inputString;
+        }
+
+        // second pass: write the words, separated by single spaces
+        char[] out = new char[length];
+        int n = 0;
+        inWord = false;
+        for (int i = 0; i < length; i++) {
+            char c = inputString.charAt(i);
+            if (isWhitespace(c)) {
+                inWord = false;
+            } else if (!inWord) {
+                if (n > 0) {
+                    out[n++] = ' ';
+                }
+                out[n++] = Character.toUpperCase(c);
+                inWord = true;
+            } else {
+                out[n++] = Character.toLowerCase(c);
+            }
+        }
+        return new String(out, 0, n);
+    }
+
+    /**
+     * checks for the characters matched by the regex class \s
+     */
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    /**
+     * Encodes the last employee number of a slice into an opaque cursor string
+     * used for keyset pagination.
+     *
+     * @param lastEmpNo The employee number of the last record returned.
+     * @return URL-safe opaque cursor string.
+     */
+    public static String encodeCursor(int lastEmpNo) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(("e:" + lastEmpNo).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Decodes an opaque cursor previously produced by encodeCursor.
+     *
+     * @param cursor The opaque cursor string supplied by the client.
+     * @return The employee number to seek after.
+     * @throws InvalidDataException If the cursor is malformed.
+     */
+    public static int decodeCursor(String cursor) throws InvalidDataException {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.US_ASCII);
+            if (!decoded.startsWith("e:")) {
+                throw new InvalidDataException("Invalid cursor", 400);
+            }
+            return Integer.parseInt(decoded.substring(2));
+        } catch (IllegalArgumentException e) {
+            // covers both bad Base64 and NumberFormatException
+            throw new InvalidDataException("Invalid cursor", 400);
+        }
+    }
+
+    /**
+     * Parses a date supplied as a request parameter.
+     *
+     * @param date The date string supplied by the client, in YYYY-MM-DD format.
+     * @return The parsed LocalDate.
+     * @throws InvalidDataException If the date is not in YYYY-MM-DD format.
+     */
+    public static LocalDate parseDate(String date) throws InvalidDataException {
+        try {
+            return LocalDate.parse(date);
+        } catch (DateTimeParseException e) {
+            throw new InvalidDataException("Date must be in YYYY-MM-DD format.", 400);
+        }
+    }
+
+    /**
+     * Checks whether an If-None-Match request header lists an entity tag.
+     * Uses the weak comparison that If-None-Match calls for, so a W/ prefix is ignored.
+     * A * header matches any current representation, but only the caller knows whether there is one,
+     * so it is left to etagWildcard.
+     *
+     * @param ifNoneMatch The If-None-Match header supplied by the client, may be null.
+     * @param etag        The quoted entity tag of the current representation.
+     * @return true if the header lists the tag.
+     */
+    public static boolean etagMatches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks whether an If-None-Match request header is *, matching any current representation.
+     *
+     * @param ifNoneMatch The If-None-Match header supplied by the client, may be null.
+     * @return true if the header is *.
+     */
+    public static boolean etagWildcard(String ifNoneMatch) {
+        return ifNoneMatch != null && ifNoneMatch.trim().equals("*");
+    }
+
+    /**
+     * Checks whether an Accept-Encoding request header accepts gzip.
+     *
+     * @param acceptEncoding The Accept-Encoding header supplied by the client, may be null.
+     * @return true if gzip is listed without q=0.
+     */
+    public static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String candidate : acceptEncoding.split(",")) {
+            String[] parts = candidate.trim().split(";");
+            if (parts[0].trim().equalsIgnoreCase("gzip")) {
+                for (int i = 1; i < parts.length; i++) {
+                    String param = parts[i].replace(" ", "");
+                    if (param.matches("q=0(\\.0*)?")) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Performs input validation on EmployeePromotionRequest payload.
      * Checks include ensuring these four fields (empNo, newTitle, newDeptNo, newSalary) are present (not null),
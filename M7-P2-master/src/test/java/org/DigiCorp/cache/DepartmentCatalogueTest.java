@@ -0,0 +1,47 @@
+package org.DigiCorp.cache;
+
+import org.DigiCorp.fixture.EmbeddedEmployeesContext;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Integration tests of DepartmentCatalogue lookups: known departments come from the snapshot, and a department the
+ * database does not know is asked for once until the catalogue is refreshed.
+ */
+@EmbeddedEmployeesContext
+class DepartmentCatalogueTest {
+
+    @Autowired
+    private DepartmentCatalogue catalogue;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Test
+    void knownDepartmentsAreFoundIgnoringCase() {
+        long misses = catalogue.getStatistics().get("misses");
+
+        assertThat(catalogue.find("D001").getDeptNo()).isEqualTo("d001");
+        assertThat(catalogue.exists("d009")).isTrue();
+        assertThat(catalogue.getStatistics().get("misses")).isEqualTo(misses);
+    }
+
+    @Test
+    void unknownDepartmentsAreLookedUpOnceUntilTheNextRefresh() {
+        long misses = catalogue.getStatistics().get("misses");
+
+        for (int i = 0; i < 100; i++) {
+            assertThat(catalogue.exists(i % 2 == 0 ? "d990" : "D990")).isFalse();
+        }
+        assertThat(catalogue.getStatistics().get("misses")).isEqualTo(misses + 1);
+
+        // added behind the catalogue's back, it shows once the catalogue is refreshed
+        jdbc.update("INSERT INTO departments (dept_no, dept_name) VALUES ('d990', 'Catalogue Test')");
+        assertThat(catalogue.exists("d990")).isFalse();
+        catalogue.refresh();
+        assertThat(catalogue.find("d990").getDeptName()).isEqualTo("Catalogue Test");
+    }
+}
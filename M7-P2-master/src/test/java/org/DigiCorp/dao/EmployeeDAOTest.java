@@ -0,0 +1,283 @@
+package org.DigiCorp.dao;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import jakarta.persistence.EntityManagerFactory;
+import org.DigiCorp.cache.SecondLevelCacheManager;
+import org.DigiCorp.dto.EmployeePromotionRequest;
+import org.DigiCorp.dto.EmployeeRecordDTO;
+import org.DigiCorp.dto.EmployeeRecordPage;
+import org.DigiCorp.dto.PromotionResult;
+import org.DigiCorp.exceptions.InvalidDataException;
+import org.DigiCorp.fixture.EmbeddedEmployees;
+import org.DigiCorp.fixture.EmbeddedEmployeesContext;
+import org.DigiCorp.util.Helper;
+import org.hibernate.cache.jcache.internal.JCacheRegionFactory;
+import org.hibernate.cache.spi.RegionFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.cache.Cache;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Integration tests of EmployeeDAO's keyset pagination and promotion rules over the embedded dataset.
+ */
+@EmbeddedEmployeesContext
+class EmployeeDAOTest {
+
+    /**
+     * date of the promotions, after every date of the dataset
+     */
+    private static final LocalDate PROMOTION_DATE = LocalDate.of(2005, 1, 1);
+
+    /**
+     * next employee number the promotion tests may pick from, this class promotes employees 11001 to 12000
+     */
+    private static final AtomicInteger NEXT_EMP_NO = new AtomicInteger(EmbeddedEmployees.FIRST_EMP_NO + 1000);
+
+    @Autowired
+    private EmployeeDAO dao;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private SecondLevelCacheManager secondLevelCacheManager;
+
+    @Autowired
+    private EntityManagerFactory emf;
+
+    @Test
+    void keysetPagesCoverTheDepartmentInOrder() throws InvalidDataException {
+        List<Integer> expected = jdbc.queryForList(
+                "SELECT emp_no FROM dept_emp WHERE dept_no = 'd005' ORDER BY emp_no", Integer.class);
+
+        List<Integer> seen = new ArrayList<>();
+        int after = 0;
+        int pages = 0;
+        while (true) {
+            EmployeeRecordPage page = dao.getEmployeeRecordsAfter("d005", after, 97);
+            page.getRecords().stream().map(EmployeeRecordDTO::getEmpNo).forEach(seen::add);
+            pages++;
+            if (page.getNextCursor() == null) {
+                break;
+            }
+            assertThat(page.getRecords()).hasSize(97);
+            after = Helper.decodeCursor(page.getNextCursor());
+            assertThat(after).isEqualTo(page.getRecords().getLast().getEmpNo());
+        }
+
+        assertThat(expected).hasSizeGreaterThan(97);
+        assertThat(seen).isEqualTo(expected);
+        assertThat(pages).isEqualTo((expected.size() + 96) / 97);
+    }
+
+    @Test
+    void keysetPageOfUnknownDepartmentIsNotFound() {
+        assertThatThrownBy(() -> dao.getEmployeeRecordsAfter("d999", 0, 20))
+                .isInstanceOfSatisfying(InvalidDataException.class, e -> assertThat(e.getStatusCode()).isEqualTo(404));
+    }
+
+    @Test
+    void departmentQueryRegionsAreBoundedByTheirTemplate() throws InvalidDataException {
+        dao.getEmployeeRecordsAfter("d003", 0, 20);
+
+        Cache<Object, Object> region = ((JCacheRegionFactory) emf.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry().getService(RegionFactory.class)).getCacheManager()
+                .getCache(secondLevelCacheManager.departmentQueryRegion("d003"));
+        // a class literal cannot carry the type arguments getConfiguration asks for
+        @SuppressWarnings("unchecked")
+        CaffeineConfiguration<Object, Object> configuration = region.getConfiguration(CaffeineConfiguration.class);
+        assertThat(configuration.getMaximumSize()).hasValue(10_000L);
+        assertThat(configuration.getExpireAfterWrite()).hasValue(Duration.ofMinutes(10).toNanos());
+    }
+
+    @Test
+    void promotionClosesCurrentRowsAndOpensNewOnes() throws InvalidDataException {
+        int empNo = currentEmployee();
+        String deptNo = newDepartment(empNo);
+        int salary = currentSalary(empNo) + 1000;
+
+        dao.promoteEmployee(request(empNo, "Senior Staff", salary, deptNo, PROMOTION_DATE));
+
+        assertThat(jdbc.queryForObject("SELECT salary FROM salaries WHERE emp_no = ? AND to_date = DATE '9999-01-01'",
+                Integer.class, empNo)).isEqualTo(salary);
+        assertThat(jdbc.queryForObject("SELECT title FROM titles WHERE emp_no = ? AND to_date = DATE '9999-01-01'",
+                String.class, empNo)).isEqualTo("Senior Staff");
+        assertThat(jdbc.queryForObject("SELECT dept_no FROM dept_emp WHERE emp_no = ? AND to_date = DATE '9999-01-01'",
+                String.class, empNo)).isEqualTo(deptNo);
+        for (String table : List.of("salaries", "titles", "dept_emp")) {
+            assertThat(jdbc.queryForObject("SELECT COUNT(*) FROM " + table + " WHERE emp_no = ? AND to_date = ?",
+                    Integer.class, empNo, PROMOTION_DATE)).as(table).isEqualTo(1);
+        }
+    }
+
+    @Test
+    void promotionOnlyChangesWhatDiffers() throws InvalidDataException {
+        int empNo = currentEmployee();
+        int titles = count("titles", empNo);
+        int deptEmps = count("dept_emp", empNo);
+
+        dao.promoteEmployee(request(empNo, currentTitle(empNo), currentSalary(empNo) + 500, currentDept(empNo),
+                PROMOTION_DATE));
+
+        assertThat(count("titles", empNo)).isEqualTo(titles);
+        assertThat(count("dept_emp", empNo)).isEqualTo(deptEmps);
+        assertThat(jdbc.queryForObject("SELECT COUNT(*) FROM salaries WHERE emp_no = ? AND from_date = ?",
+                Integer.class, empNo, PROMOTION_DATE)).isEqualTo(1);
+    }
+
+    @Test
+    void promotionsBreakingTheRulesAreRejectedWithoutChanges() throws InvalidDataException {
+        int empNo = currentEmployee();
+        int salary = currentSalary(empNo);
+        String title = currentTitle(empNo);
+        String deptNo = currentDept(empNo);
+        LocalDate hired = jdbc.queryForObject("SELECT MIN(from_date) FROM salaries WHERE emp_no = ?",
+                LocalDate.class, empNo);
+        int rows = count("salaries", empNo) + count("titles", empNo) + count("dept_emp", empNo);
+
+        assertRejected(request(empNo, title, salary, deptNo, PROMOTION_DATE), 400);
+        assertRejected(request(empNo, title, salary + 1, deptNo, hired.minusDays(1)), 400);
+        assertRejected(request(empNo, title, salary + 1, "d999", PROMOTION_DATE), 404);
+        assertRejected(request(9_999_999, title, salary + 1, deptNo, PROMOTION_DATE), 404);
+
+        assertThat(count("salaries", empNo) + count("titles", empNo) + count("dept_emp", empNo)).isEqualTo(rows);
+
+        // a second promotion on the same date, or back to a department the employee left, is rejected too
+        String newDeptNo = newDepartment(empNo);
+        dao.promoteEmployee(request(empNo, title, salary + 1, newDeptNo, PROMOTION_DATE));
+        assertRejected(request(empNo, title, salary + 2, newDeptNo, PROMOTION_DATE), 400);
+        assertRejected(request(empNo, title, salary + 2, deptNo, PROMOTION_DATE.plusDays(1)), 400);
+    }
+
+    @Test
+    void promotionClosesEveryCurrentRow() throws InvalidDataException {
+        int empNo = currentEmployee();
+        LocalDate salaryFrom = jdbc.queryForObject(
+                "SELECT from_date FROM salaries WHERE emp_no = ? AND to_date = DATE '9999-01-01'", LocalDate.class, empNo);
+        // a second current title, as an import could leave before it checked for one
+        jdbc.update("INSERT INTO titles (emp_no, title, from_date, to_date) VALUES (?, 'Legacy', ?, DATE '9999-01-01')",
+                empNo, salaryFrom);
+
+        dao.promoteEmployee(request(empNo, "Senior Engineer", currentSalary(empNo) + 1, currentDept(empNo),
+                PROMOTION_DATE));
+
+        assertThat(jdbc.queryForList("SELECT title FROM titles WHERE emp_no = ? AND to_date = DATE '9999-01-01'",
+                String.class, empNo)).containsExactly("Senior Engineer");
+        assertThat(jdbc.queryForObject("SELECT to_date FROM titles WHERE emp_no = ? AND title = 'Legacy'",
+                LocalDate.class, empNo)).isEqualTo(PROMOTION_DATE);
+    }
+
+    @Test
+    void promotionBeforeTheStartOfACurrentRowIsRejected() throws InvalidDataException {
+        int empNo = currentEmployee();
+        LocalDate latestStart = jdbc.queryForObject("SELECT MAX(from_date) FROM ("
+                        + "SELECT from_date FROM salaries WHERE emp_no = ? UNION ALL "
+                        + "SELECT from_date FROM titles WHERE emp_no = ? UNION ALL "
+                        + "SELECT from_date FROM dept_emp WHERE emp_no = ?) h",
+                LocalDate.class, empNo, empNo, empNo);
+        // the current title starts after every other row, and the promotion falls in between
+        jdbc.update("UPDATE titles SET from_date = ? WHERE emp_no = ? AND to_date = DATE '9999-01-01'",
+                latestStart.plusDays(10), empNo);
+        int rows = count("salaries", empNo) + count("titles", empNo) + count("dept_emp", empNo);
+
+        assertThatThrownBy(() -> dao.promoteEmployee(request(empNo, "Senior Engineer", currentSalary(empNo),
+                currentDept(empNo), latestStart.plusDays(5))))
+                .isInstanceOfSatisfying(InvalidDataException.class, e -> {
+                    assertThat(e.getStatusCode()).isEqualTo(400);
+                    assertThat(e.getMessage()).contains("start of the employee's current salary, title or department");
+                });
+
+        assertThat(count("salaries", empNo) + count("titles", empNo) + count("dept_emp", empNo)).isEqualTo(rows);
+        assertThat(jdbc.queryForObject("SELECT from_date FROM titles WHERE emp_no = ? AND to_date = DATE '9999-01-01'",
+                LocalDate.class, empNo)).isEqualTo(latestStart.plusDays(10));
+    }
+
+    @Test
+    void bulkPromotionReportsEveryRequestInOrder() {
+        int first = currentEmployee();
+        int second = currentEmployee();
+        List<EmployeePromotionRequest> requests = List.of(
+                request(first, currentTitle(first), currentSalary(first) + 100, currentDept(first), PROMOTION_DATE),
+                request(9_999_999, "Staff", 50_000, "d001", PROMOTION_DATE),
+                request(second, currentTitle(second), -1, currentDept(second), PROMOTION_DATE),
+                request(second, currentTitle(second), currentSalary(second) + 100, currentDept(second),
+                        PROMOTION_DATE));
+
+        List<PromotionResult> results = dao.promoteEmployees(requests);
+
+        assertThat(results).extracting(PromotionResult::getIndex).containsExactly(0, 1, 2, 3);
+        assertThat(results).extracting(PromotionResult::isSuccess).containsExactly(true, false, false, true);
+        assertThat(results).extracting(PromotionResult::getStatus).containsExactly(201, 404, 400, 201);
+    }
+
+    /**
+     * asserts a promotion is rejected with a status
+     */
+    private void assertRejected(EmployeePromotionRequest request, int status) {
+        assertThatThrownBy(() -> dao.promoteEmployee(request))
+                .isInstanceOfSatisfying(InvalidDataException.class,
+                        e -> assertThat(e.getStatusCode()).isEqualTo(status));
+    }
+
+    /**
+     * picks the next current employee of this class who is not a manager
+     */
+    private int currentEmployee() {
+        Integer empNo = jdbc.queryForObject("SELECT MIN(s.emp_no) FROM salaries s"
+                + " JOIN titles t ON t.emp_no = s.emp_no AND t.to_date = DATE '9999-01-01' AND t.title <> 'Manager'"
+                + " WHERE s.to_date = DATE '9999-01-01' AND s.emp_no >= ?", Integer.class, NEXT_EMP_NO.get());
+        assertThat(empNo).isLessThan(EmbeddedEmployees.FIRST_EMP_NO + 2000);
+        NEXT_EMP_NO.set(empNo + 1);
+        return empNo;
+    }
+
+    /**
+     * returns a department the employee never worked in
+     */
+    private String newDepartment(int empNo) {
+        List<String> worked = jdbc.queryForList("SELECT dept_no FROM dept_emp WHERE emp_no = ?", String.class, empNo);
+        for (int d = 1; d <= EmbeddedEmployees.DEPARTMENTS; d++) {
+            if (!worked.contains(EmbeddedEmployees.deptNo(d))) {
+                return EmbeddedEmployees.deptNo(d);
+            }
+        }
+        throw new AssertionError("employee " + empNo + " worked in every department");
+    }
+
+    private int currentSalary(int empNo) {
+        return jdbc.queryForObject("SELECT salary FROM salaries WHERE emp_no = ? AND to_date = DATE '9999-01-01'",
+                Integer.class, empNo);
+    }
+
+    private String currentTitle(int empNo) {
+        return jdbc.queryForObject("SELECT title FROM titles WHERE emp_no = ? AND to_date = DATE '9999-01-01'",
+                String.class, empNo);
+    }
+
+    private String currentDept(int empNo) {
+        return jdbc.queryForObject("SELECT dept_no FROM dept_emp WHERE emp_no = ? AND to_date = DATE '9999-01-01'",
+                String.class, empNo);
+    }
+
+    private int count(String table, int empNo) {
+        return jdbc.queryForObject("SELECT COUNT(*) FROM " + table + " WHERE emp_no = ?", Integer.class, empNo);
+    }
+
+    private static EmployeePromotionRequest request(Integer empNo, String title, Integer salary, String deptNo,
+                                                    LocalDate date) {
+        EmployeePromotionRequest request = new EmployeePromotionRequest(empNo, title, salary, deptNo);
+        request.setPromotionDate(date);
+        return request;
+    }
+}
@@ -0,0 +1,130 @@
+package org.DigiCorp.dao;
+
+import org.DigiCorp.dto.EmployeePromotionRequest;
+import org.DigiCorp.dto.PromotionResult;
+import org.DigiCorp.exceptions.InvalidDataException;
+import org.DigiCorp.fixture.EmbeddedEmployees;
+import org.DigiCorp.fixture.EmbeddedEmployeesContext;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Hammers a few employees with concurrent promotions, single and bulk, and checks their histories stay intact:
+ * exactly one current salary, title and department row each, and no overlapping periods.
+ * <p>
+ * As in PromotionStressRunner, promotion dates come from a shared sequence handing every date out twice, so
+ * requests race to close the same current rows and same-date promotions race as well. Employees keep their
+ * department, which they could not return to once left, so requests change salary and title only.
+ */
+@EmbeddedEmployeesContext
+class PromotionConcurrencyTest {
+
+    private static final int THREADS = 16;
+    private static final int REQUESTS_PER_THREAD = 25;
+    private static final int HOT = 3;
+
+    /**
+     * first promotion date, after every date the other tests promote on
+     */
+    private static final LocalDate FIRST_DATE = LocalDate.of(2010, 1, 1);
+
+    /**
+     * history tables checked after the run
+     */
+    private static final List<String> HISTORIES = List.of("salaries", "titles", "dept_emp");
+
+    private static final List<String> TITLES = List.of("Engineer", "Senior Engineer", "Staff", "Senior Staff");
+
+    @Autowired
+    private EmployeeDAO dao;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Test
+    void concurrentPromotionsKeepOneCurrentRowAndNoOverlaps() throws Exception {
+        // current employees who are not managers, from the 12501 to 13000 range no other test promotes
+        List<Integer> hot = jdbc.queryForList("SELECT s.emp_no FROM salaries s"
+                        + " JOIN titles t ON t.emp_no = s.emp_no AND t.to_date = DATE '9999-01-01' AND t.title <> 'Manager'"
+                        + " WHERE s.to_date = DATE '9999-01-01' AND s.emp_no >= ? ORDER BY s.emp_no LIMIT " + HOT,
+                Integer.class, EmbeddedEmployees.FIRST_EMP_NO + 2500);
+        Map<Integer, String> departments = new ConcurrentHashMap<>();
+        for (int empNo : hot) {
+            departments.put(empNo, jdbc.queryForObject(
+                    "SELECT dept_no FROM dept_emp WHERE emp_no = ? AND to_date = DATE '9999-01-01'", String.class, empNo));
+        }
+
+        AtomicInteger sequence = new AtomicInteger();
+        Map<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> clients = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                boolean bulk = t % 4 == 0;
+                clients.add(executor.submit(() -> {
+                    for (int r = 0; r < REQUESTS_PER_THREAD; r++) {
+                        int n = sequence.getAndIncrement();
+                        int empNo = hot.get(n % HOT);
+                        EmployeePromotionRequest request = new EmployeePromotionRequest(empNo,
+                                TITLES.get(n % TITLES.size()), 40_000 + n, departments.get(empNo));
+                        request.setPromotionDate(FIRST_DATE.plusDays(n / 2));
+                        if (bulk) {
+                            for (PromotionResult result : dao.promoteEmployees(List.of(request))) {
+                                statuses.computeIfAbsent(result.getStatus(), s -> new LongAdder()).increment();
+                            }
+                            continue;
+                        }
+                        try {
+                            dao.promoteEmployee(request);
+                            statuses.computeIfAbsent(201, s -> new LongAdder()).increment();
+                        } catch (InvalidDataException e) {
+                            statuses.computeIfAbsent(e.getStatusCode(), s -> new LongAdder()).increment();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> client : clients) {
+                client.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // late or same-date promotions are rejected, lock conflicts may outlast the retries; nothing else fails
+        assertThat(statuses.keySet()).isSubsetOf(Set.of(201, 400, 409));
+        assertThat(statuses.get(201).sum()).isPositive();
+        assertThat(statuses.values().stream().mapToLong(LongAdder::sum).sum())
+                .isEqualTo(THREADS * REQUESTS_PER_THREAD);
+
+        for (int empNo : hot) {
+            for (String table : HISTORIES) {
+                List<LocalDate[]> periods = jdbc.query(
+                        "SELECT from_date, to_date FROM " + table + " WHERE emp_no = ? ORDER BY from_date, to_date",
+                        (rs, i) -> new LocalDate[]{rs.getObject(1, LocalDate.class), rs.getObject(2, LocalDate.class)},
+                        empNo);
+                assertThat(periods.stream().filter(p -> p[1].equals(LocalDate.of(9999, 1, 1))))
+                        .as("current %s rows of %d", table, empNo).hasSize(1);
+                for (int i = 1; i < periods.size(); i++) {
+                    assertThat(periods.get(i)[0]).as("%s of %d from %s", table, empNo, periods.get(i)[0])
+                            .isAfterOrEqualTo(periods.get(i - 1)[1]);
+                }
+            }
+        }
+    }
+}
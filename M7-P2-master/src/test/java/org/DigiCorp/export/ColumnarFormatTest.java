@@ -0,0 +1,215 @@
+package org.DigiCorp.export;
+
+import org.DigiCorp.export.ColumnarFormat.Column;
+import org.DigiCorp.export.ColumnarFormat.Encoding;
+import org.DigiCorp.export.ColumnarFormat.Type;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Round trips of the columnar format: a table written by ColumnarWriter over several small blocks, with
+ * every encoding, reads back through ColumnarReader value for value.
+ */
+class ColumnarFormatTest {
+
+    /**
+     * one column per encoding, the PERIOD_END column right after the from_date it is relative to
+     */
+    private static final List<Column> COLUMNS = List.of(
+            new Column("emp_no", Type.INT, Encoding.DELTA),
+            new Column("salary", Type.INT, Encoding.DELTA),
+            new Column("from_date", Type.DATE, Encoding.DELTA),
+            new Column("to_date", Type.DATE, Encoding.PERIOD_END),
+            new Column("title", Type.STRING, Encoding.DICT),
+            new Column("note", Type.STRING, Encoding.PLAIN));
+
+    /**
+     * rows per block, so the table spans several blocks and ends with a partial one
+     */
+    private static final int BLOCK_ROWS = 7;
+
+    private static final long CURRENT_TO_DAY = LocalDate.of(9999, 1, 1).toEpochDay();
+
+    @TempDir
+    private Path dir;
+
+    @Test
+    void everyValueReadsBackAcrossBlocks() throws IOException {
+        // five full blocks and a partial one
+        List<Row> rows = rows(BLOCK_ROWS * 5 + 3);
+        Path file = dir.resolve("history" + ColumnarFormat.EXTENSION);
+        // a write buffer smaller than a block, so blocks are written out in pieces
+        write(file, rows, 64);
+
+        try (ColumnarReader reader = ColumnarReader.open(file)) {
+            assertThat(reader.getTable()).isEqualTo("history");
+            assertThat(reader.getColumns()).isEqualTo(COLUMNS);
+            int empNo = reader.columnIndex("emp_no");
+            int salary = reader.columnIndex("salary");
+            int from = reader.columnIndex("from_date");
+            int to = reader.columnIndex("to_date");
+            int title = reader.columnIndex("title");
+            int note = reader.columnIndex("note");
+
+            List<Row> read = new ArrayList<>();
+            while (reader.next()) {
+                read.add(new Row(reader.getInt(empNo), reader.getInt(salary), reader.getEpochDay(from),
+                        reader.getEpochDay(to), reader.getString(title), reader.getString(note)));
+                assertThat(reader.getDate(to)).isEqualTo(reader.getEpochDay(to) == ColumnarWriter.NULL_DAY
+                        ? null : LocalDate.ofEpochDay(reader.getEpochDay(to)));
+            }
+            assertThat(reader.next()).isFalse();
+            assertThat(read).containsExactlyElementsOf(rows);
+        }
+    }
+
+    @Test
+    void dictionaryCodesHoldAcrossBlocks() throws IOException {
+        // a title first seen in the last block, after titles coded in the first ones
+        List<Row> rows = new ArrayList<>();
+        for (int r = 0; r < BLOCK_ROWS * 3 + 2; r++) {
+            String title = r < BLOCK_ROWS * 3 ? (r % 2 == 0 ? "Engineer" : "Ingénieur") : "Директор";
+            rows.add(new Row(10001 + r, 40000, 9000 + r, CURRENT_TO_DAY, title, null));
+        }
+        Path file = dir.resolve("titles" + ColumnarFormat.EXTENSION);
+        write(file, rows, 4096);
+
+        try (ColumnarReader reader = ColumnarReader.open(file)) {
+            List<String> titles = new ArrayList<>();
+            while (reader.next()) {
+                titles.add(reader.getString(reader.columnIndex("title")));
+            }
+            assertThat(titles).containsExactlyElementsOf(rows.stream().map(Row::title).toList());
+        }
+    }
+
+    @Test
+    void emptyTableReadsNoRows() throws IOException {
+        Path file = dir.resolve("empty" + ColumnarFormat.EXTENSION);
+        write(file, List.of(), 4096);
+
+        try (ColumnarReader reader = ColumnarReader.open(file)) {
+            assertThat(reader.next()).isFalse();
+        }
+    }
+
+    @Test
+    void deltaColumnRejectsNull() throws IOException {
+        Path file = dir.resolve("null" + ColumnarFormat.EXTENSION);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            ColumnarWriter writer = new ColumnarWriter(channel, "null", COLUMNS, BLOCK_ROWS, 4096);
+            set(writer, new Row(10001, 40000, ColumnarWriter.NULL_DAY, CURRENT_TO_DAY, "Staff", null));
+            writer.endRow();
+
+            assertThatThrownBy(writer::close)
+                    .isInstanceOf(IllegalStateException.class)
+                    .hasMessageContaining("from_date");
+        }
+    }
+
+    @Test
+    void truncatedFileIsReported() throws IOException {
+        Path file = dir.resolve("truncated" + ColumnarFormat.EXTENSION);
+        write(file, rows(BLOCK_ROWS * 2), 4096);
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 8));
+
+        try (ColumnarReader reader = ColumnarReader.open(file)) {
+            assertThatThrownBy(() -> {
+                while (reader.next()) {
+                    reader.getInt(0);
+                }
+            }).isInstanceOf(IllegalStateException.class);
+        }
+    }
+
+    @Test
+    void varintsAndZigZagRoundTripExtremes() {
+        ColumnarFormat.Bytes bytes = new ColumnarFormat.Bytes();
+        long[] values = {0, 1, -1, 63, -64, 64, 127, 128, Integer.MAX_VALUE, Integer.MIN_VALUE,
+                Long.MAX_VALUE, Long.MIN_VALUE};
+        for (long value : values) {
+            bytes.varint(ColumnarFormat.zigZag(value));
+        }
+        ByteBuffer in = ByteBuffer.wrap(bytes.data, 0, bytes.size);
+        for (long value : values) {
+            assertThat(ColumnarFormat.unZigZag(ColumnarFormat.readVarint(in))).isEqualTo(value);
+        }
+        assertThat(in.hasRemaining()).isFalse();
+        // small magnitudes, of either sign, take one byte
+        assertThat(ColumnarFormat.zigZag(-64)).isLessThan(128);
+        assertThat(ColumnarFormat.zigZag(63)).isLessThan(128);
+    }
+
+    /**
+     * returns rows covering the cases of every encoding: falling and extreme ints, current, null, same-day,
+     * later and earlier to_dates, null, repeated and non-ASCII strings, and empty strings
+     */
+    private static List<Row> rows(int count) {
+        Random random = new Random(7);
+        String[] titles = {"Engineer", "Senior Engineer", "Ingénieur principal", "技術リーダー", "Staff"};
+        String[] notes = {"", "plain", "naïve café", "Ελληνικά", "emoji 🚀", "a,b;\"c\"\n"};
+        List<Row> rows = new ArrayList<>();
+        for (int r = 0; r < count; r++) {
+            int empNo = r == 3 ? Integer.MAX_VALUE : r == 4 ? Integer.MIN_VALUE : 10001 + r / 2;
+            int salary = 40000 + random.nextInt(60000) - (r % 3 == 0 ? 70000 : 0);
+            long from = LocalDate.of(1985, 1, 1).toEpochDay() + random.nextInt(7000);
+            long to = switch (r % 5) {
+                case 0 -> CURRENT_TO_DAY;
+                case 1 -> ColumnarWriter.NULL_DAY;
+                case 2 -> from;
+                case 3 -> from + 1 + random.nextInt(3000);
+                default -> from - 1 - random.nextInt(30);
+            };
+            String title = r % 6 == 5 ? null : titles[random.nextInt(titles.length)];
+            String note = r % 4 == 3 ? null : notes[random.nextInt(notes.length)];
+            rows.add(new Row(empNo, salary, from, to, title, note));
+        }
+        return rows;
+    }
+
+    /**
+     * writes rows as a table named after the file
+     */
+    private static void write(Path file, List<Row> rows, int bufferBytes) throws IOException {
+        String table = file.getFileName().toString().replace(ColumnarFormat.EXTENSION, "");
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+             ColumnarWriter writer = new ColumnarWriter(channel, table, COLUMNS, BLOCK_ROWS, bufferBytes)) {
+            for (Row row : rows) {
+                set(writer, row);
+                writer.endRow();
+            }
+            assertThat(writer.rows()).isEqualTo(rows.size());
+        }
+    }
+
+    private static void set(ColumnarWriter writer, Row row) {
+        writer.setInt(0, row.empNo());
+        writer.setInt(1, row.salary());
+        writer.setDate(2, row.fromDay());
+        writer.setDate(3, row.toDay());
+        writer.setString(4, row.title());
+        writer.setString(5, row.note());
+    }
+
+    /**
+     * one row of the test table
+     */
+    private record Row(int empNo, int salary, long fromDay, long toDay, String title, String note) {
+    }
+}
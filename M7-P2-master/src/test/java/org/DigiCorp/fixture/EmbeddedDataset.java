@@ -0,0 +1,101 @@
+package org.DigiCorp.fixture;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.event.EventListener;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.Map;
+
+/**
+ * Generates the EmployeesDataset into the embedded database once Hibernate has created the schema and before
+ * the application is ready, if employees.embedded.dataset.scale is above 0.
+ * <p>
+ * The caches and read models are built when the application is ready, so they are built once over the
+ * generated rows, as they would be over a loaded MariaDB database, rather than built over empty tables and
+ * rebuilt for every table generated. Registered as a bean by EmbeddedEmployees.start() and by
+ * EmbeddedEmployeesContext, never by component scanning.
+ */
+public class EmbeddedDataset {
+
+    /**
+     * properties of the dataset: size relative to the employees sample database, seed, and inserting threads
+     */
+    public static final String SCALE = "employees.embedded.dataset.scale";
+    public static final String SEED = "employees.embedded.dataset.seed";
+    public static final String THREADS = "employees.embedded.dataset.threads";
+
+    private final DataSource dataSource;
+    private final double scale;
+    private final long seed;
+    private final int threads;
+
+    /**
+     * rows generated per table, and how long generating them took
+     */
+    private volatile Map<String, Long> rows = Map.of();
+    private volatile long millis;
+
+    /**
+     * Constructs the dataset loader.
+     *
+     * @param dataSource the application's data source
+     * @param scale      dataset size relative to the employees sample database, 0 for none
+     * @param seed       seed of the random generators, the same seed giving the same rows
+     * @param threads    threads inserting the rows, 0 for one per processor
+     */
+    public EmbeddedDataset(DataSource dataSource,
+                           @Value("${" + SCALE + ":0}") double scale,
+                           @Value("${" + SEED + ":42}") long seed,
+                           @Value("${" + THREADS + ":0}") int threads) {
+        this.dataSource = dataSource;
+        this.scale = scale;
+        this.seed = seed;
+        this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * generates the dataset once the schema exists, before the read models are built
+     *
+     * @throws SQLException         if an insert fails
+     * @throws InterruptedException if interrupted while waiting for the inserting threads
+     */
+    @EventListener(ApplicationStartedEvent.class)
+    public void generate() throws SQLException, InterruptedException {
+        if (scale <= 0) {
+            return;
+        }
+        long start = System.nanoTime();
+        rows = EmployeesDataset.generate(EmbeddedEmployees.unwrapped(dataSource), scale, seed, threads);
+        millis = (System.nanoTime() - start) / 1_000_000;
+    }
+
+    /**
+     * @return rows generated per table, in EmployeesDataset.TABLES order, empty if no dataset was generated
+     */
+    public Map<String, Long> getRows() {
+        return rows;
+    }
+
+    /**
+     * @return total rows generated
+     */
+    public long getTotalRows() {
+        return rows.values().stream().mapToLong(Long::longValue).sum();
+    }
+
+    /**
+     * @return how long generating the rows took, in milliseconds
+     */
+    public long getMillis() {
+        return millis;
+    }
+
+    /**
+     * @return number of employees generated, numbered from EmployeesDataset.FIRST_EMP_NO
+     */
+    public int getEmployees() {
+        return rows.getOrDefault("employees", 0L).intValue();
+    }
+}
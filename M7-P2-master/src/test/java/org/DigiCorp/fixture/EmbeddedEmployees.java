@@ -0,0 +1,275 @@
+package org.DigiCorp.fixture;
+
+import org.DigiCorp.M7P2Application;
+import org.DigiCorp.cache.DepartmentCatalogue;
+
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Runs the application against an in-memory H2 database (MariaDB mode) seeded with synthetic employees,
+ * for the integration tests and the load runners: a few simple histories with seed(), or a dataset shaped
+ * like the employees sample database generated at startup by EmbeddedDataset.
+ * <p>
+ * An embedded database answers in microseconds, which hides the cost of blocking on a real server.
+ * A simulated per-statement latency can therefore be added: every statement execution sleeps first,
+ * while holding its pooled connection, as it would while waiting on MariaDB over the network.
+ */
+public final class EmbeddedEmployees {
+
+    /**
+     * profile of the embedded database settings, application-embedded.properties
+     */
+    public static final String PROFILE = "embedded";
+
+    /**
+     * departments created by seed(), d001 to d009
+     */
+    public static final int DEPARTMENTS = 9;
+
+    /**
+     * first employee number created by seed()
+     */
+    public static final int FIRST_EMP_NO = 10001;
+
+    /**
+     * rows per JDBC batch while seeding
+     */
+    private static final int SEED_BATCH = 1000;
+
+    /**
+     * statement methods that reach the database, delayed by the simulated latency
+     */
+    private static final Set<String> EXECUTE_METHODS =
+            Set.of("execute", "executeQuery", "executeUpdate", "executeBatch", "executeLargeUpdate");
+
+    private EmbeddedEmployees() {
+    }
+
+    /**
+     * Starts the application on a random port against a fresh in-memory database, with the embedded profile
+     * (application-embedded.properties). A dataset is generated before the application is ready if the
+     * properties set employees.embedded.dataset.scale, see EmbeddedDataset.
+     *
+     * @param name       name of the in-memory database, unique per run
+     * @param latencyMs  simulated latency added to every statement execution, 0 for none
+     * @param properties extra application properties, overriding the defaults
+     * @return the running application context
+     */
+    public static ConfigurableApplicationContext start(String name, long latencyMs, Map<String, Object> properties) {
+        Map<String, Object> defaults = new LinkedHashMap<>();
+        defaults.put("employees.embedded.name", name);
+        defaults.put("server.port", "0");
+        defaults.putAll(properties);
+
+        // passed as command line arguments, which take precedence over the properties files
+        String[] args = defaults.entrySet().stream()
+                .map(e -> "--" + e.getKey() + "=" + e.getValue())
+                .toArray(String[]::new);
+
+        SpringApplicationBuilder builder = new SpringApplicationBuilder(M7P2Application.class, EmbeddedDataset.class)
+                .profiles(PROFILE);
+        if (latencyMs > 0) {
+            builder.initializers(context ->
+                    context.getBeanFactory().addBeanPostProcessor(new LatencyPostProcessor(latencyMs)));
+        }
+        return builder.run(args);
+    }
+
+    /**
+     * Returns the port the application's web server listens on.
+     *
+     * @param context running application context
+     * @return the local port
+     */
+    public static int port(ConfigurableApplicationContext context) {
+        return ((WebServerApplicationContext) context).getWebServer().getPort();
+    }
+
+    /**
+     * Seeds DEPARTMENTS departments and the given number of employees, each with a current title,
+     * department and salary history, then reloads the department catalogue.
+     *
+     * @param context   running application context
+     * @param employees number of employees to create, numbered from FIRST_EMP_NO
+     * @throws SQLException if an insert fails
+     */
+    public static void seed(ConfigurableApplicationContext context, int employees) throws SQLException {
+        Random random = new Random(42);
+        LocalDate current = LocalDate.of(9999, 1, 1);
+
+        try (Connection connection = unwrapped(context.getBean(DataSource.class)).getConnection()) {
+            connection.setAutoCommit(false);
+
+            try (PreparedStatement departments = connection.prepareStatement(
+                    "INSERT INTO departments (dept_no, dept_name) VALUES (?, ?)")) {
+                for (int d = 1; d <= DEPARTMENTS; d++) {
+                    departments.setString(1, deptNo(d));
+                    departments.setString(2, "Department " + d);
+                    departments.addBatch();
+                }
+                departments.executeBatch();
+            }
+
+            try (PreparedStatement employee = connection.prepareStatement(
+                    "INSERT INTO employees (emp_no, birth_date, first_name, last_name, gender, hire_date) VALUES (?, ?, ?, ?, ?, ?)");
+                 PreparedStatement salary = connection.prepareStatement(
+                         "INSERT INTO salaries (emp_no, salary, from_date, to_date) VALUES (?, ?, ?, ?)");
+                 PreparedStatement title = connection.prepareStatement(
+                         "INSERT INTO titles (emp_no, title, from_date, to_date) VALUES (?, ?, ?, ?)");
+                 PreparedStatement deptEmp = connection.prepareStatement(
+                         "INSERT INTO dept_emp (emp_no, dept_no, from_date, to_date) VALUES (?, ?, ?, ?)")) {
+
+                for (int i = 0; i < employees; i++) {
+                    int empNo = FIRST_EMP_NO + i;
+                    LocalDate hireDate = LocalDate.of(1985, 1, 1).plusDays(random.nextInt(5000));
+
+                    employee.setInt(1, empNo);
+                    employee.setDate(2, Date.valueOf(hireDate.minusYears(25 + random.nextInt(20))));
+                    employee.setString(3, "First" + empNo);
+                    employee.setString(4, "Last" + empNo);
+                    employee.setString(5, random.nextBoolean() ? "M" : "F");
+                    employee.setDate(6, Date.valueOf(hireDate));
+                    employee.addBatch();
+
+                    // one to three yearly salary rows, the last one current
+                    int raises = 1 + random.nextInt(3);
+                    int amount = 40000 + random.nextInt(40000);
+                    for (int r = 0; r < raises; r++) {
+                        LocalDate from = hireDate.plusYears(r);
+                        salary.setInt(1, empNo);
+                        salary.setInt(2, amount);
+                        salary.setDate(3, Date.valueOf(from));
+                        salary.setDate(4, Date.valueOf(r == raises - 1 ? current : from.plusYears(1)));
+                        salary.addBatch();
+                        amount += 1000 + random.nextInt(3000);
+                    }
+
+                    title.setInt(1, empNo);
+                    title.setString(2, random.nextInt(4) == 0 ? "Senior Engineer" : "Engineer");
+                    title.setDate(3, Date.valueOf(hireDate));
+                    title.setDate(4, Date.valueOf(current));
+                    title.addBatch();
+
+                    deptEmp.setInt(1, empNo);
+                    deptEmp.setString(2, deptNo(1 + random.nextInt(DEPARTMENTS)));
+                    deptEmp.setDate(3, Date.valueOf(hireDate));
+                    deptEmp.setDate(4, Date.valueOf(current));
+                    deptEmp.addBatch();
+
+                    if ((i + 1) % SEED_BATCH == 0 || i == employees - 1) {
+                        employee.executeBatch();
+                        salary.executeBatch();
+                        title.executeBatch();
+                        deptEmp.executeBatch();
+                    }
+                }
+            }
+            connection.commit();
+        }
+
+        context.getBean(DepartmentCatalogue.class).refresh();
+    }
+
+    /**
+     * department number of the d-th seeded department
+     *
+     * @param d department index, 1 to DEPARTMENTS
+     * @return department number, e.g. 'd005'
+     */
+    public static String deptNo(int d) {
+        return String.format("d%03d", d);
+    }
+
+    /**
+     * returns the underlying data source, so seeding is not slowed down by the simulated latency
+     */
+    static DataSource unwrapped(DataSource dataSource) throws SQLException {
+        return Proxy.isProxyClass(dataSource.getClass())
+                ? ((LatencyHandler) Proxy.getInvocationHandler(dataSource)).target(DataSource.class)
+                : dataSource;
+    }
+
+    /**
+     * wraps the application's DataSource so every statement execution is delayed
+     */
+    private static final class LatencyPostProcessor implements BeanPostProcessor {
+        private final long latencyMs;
+
+        private LatencyPostProcessor(long latencyMs) {
+            this.latencyMs = latencyMs;
+        }
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
+            if (bean instanceof DataSource) {
+                return LatencyHandler.wrap(bean, DataSource.class, latencyMs);
+            }
+            return bean;
+        }
+    }
+
+    /**
+     * proxies DataSource, Connection and Statement, sleeping before each statement execution
+     */
+    private static final class LatencyHandler implements InvocationHandler {
+        private final Object target;
+        private final long latencyMs;
+
+        private LatencyHandler(Object target, long latencyMs) {
+            this.target = target;
+            this.latencyMs = latencyMs;
+        }
+
+        static <T> T wrap(Object target, Class<T> type, long latencyMs) {
+            return type.cast(Proxy.newProxyInstance(EmbeddedEmployees.class.getClassLoader(),
+                    new Class<?>[]{type}, new LatencyHandler(target, latencyMs)));
+        }
+
+        <T> T target(Class<T> type) {
+            return type.cast(target);
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (EXECUTE_METHODS.contains(method.getName())) {
+                Thread.sleep(latencyMs);
+            }
+
+            Object result;
+            try {
+                result = method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+
+            // keep wrapping the objects statements are executed through
+            Class<?> returnType = method.getReturnType();
+            if (result != null && (returnType == Connection.class || returnType == Statement.class
+                    || returnType == PreparedStatement.class || returnType == CallableStatement.class)) {
+                return wrap(result, returnType, latencyMs);
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package org.DigiCorp.fixture;
+
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Runs an integration test class against the application on the embedded profile, over an EmployeesDataset
+ * of 3,000 employees (scale 0.01, seed 42) generated before the application is ready.
+ * <p>
+ * Test classes carrying the annotation share one application context, and so one database: tests that
+ * change rows must work on employees of their own and leave the invariants the other tests check intact.
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@SpringBootTest(properties = {
+        EmbeddedDataset.SCALE + "=0.01",
+        EmbeddedDataset.SEED + "=42",
+        EmbeddedDataset.THREADS + "=1"})
+@AutoConfigureMockMvc
+@ActiveProfiles(EmbeddedEmployees.PROFILE)
+@Import(EmbeddedDataset.class)
+public @interface EmbeddedEmployeesContext {
+}
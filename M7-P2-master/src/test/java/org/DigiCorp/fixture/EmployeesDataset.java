@@ -0,0 +1,449 @@
+package org.DigiCorp.fixture;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Generates a synthetic dataset shaped like the MySQL employees sample database, for the integration tests
+ * and the runners that need the entity mappings and queries exercised without a MariaDB server, at small
+ * or realistic scale.
+ * <p>
+ * At scale 1 there are 300,000 employees hired from 1985 to 1999, of whom one in five has left by the end of
+ * the data on 2002-08-01, about 2.8 million yearly salary rows, 440,000 title rows (most Engineers and Staff
+ * are promoted once) and 330,000 dept_emp rows (one employee in ten moves department once) across the nine
+ * departments of the sample database, each with two successive managers. Histories follow the rules the
+ * application relies on: periods of a history follow one another without overlapping, and an employee who
+ * has not left has exactly one current salary, title and department, ending 9999-01-01.
+ * <p>
+ * The data is deterministic: every employee is drawn from a random generator seeded with the dataset seed
+ * and its employee number alone, so the same seed and scale give the same rows whatever the number of
+ * threads. Employees are generated in slices of consecutive employee numbers, each slice inserted by one of
+ * the threads through its own connection with batches of multi-row INSERT statements and committed as one
+ * transaction. Dates are bound as LocalDate: converting them to java.sql.Date goes through the legacy
+ * calendar code, which cost a fifth of the generation time.
+ */
+public final class EmployeesDataset {
+
+    /**
+     * employees at scale 1
+     */
+    public static final int EMPLOYEES = 300_000;
+
+    /**
+     * first employee number, as in the sample database
+     */
+    public static final int FIRST_EMP_NO = 10001;
+
+    /**
+     * the tables written, in insert order
+     */
+    public static final List<String> TABLES = List.of("departments", "employees", "salaries", "titles", "dept_emp", "dept_manager");
+
+    /**
+     * departments of the sample database, and the relative number of employees in each
+     */
+    private static final String[] DEPARTMENT_NAMES = {"Marketing", "Finance", "Human Resources", "Production",
+            "Development", "Quality Management", "Sales", "Research", "Customer Service"};
+    private static final int[] DEPARTMENT_WEIGHTS = {20, 17, 18, 73, 86, 20, 52, 21, 24};
+
+    /**
+     * first titles, their relative frequency, and the title an employee holding one may be promoted to
+     */
+    private static final String[] TITLES = {"Engineer", "Staff", "Assistant Engineer", "Technique Leader",
+            "Senior Engineer", "Senior Staff"};
+    private static final int[] TITLE_WEIGHTS = {36, 34, 6, 6, 10, 8};
+    private static final String[] PROMOTIONS = {"Senior Engineer", "Senior Staff", "Engineer", null, null, null};
+
+    /**
+     * syllables first and last names are made of, 1,200 first names and 1,600 last names
+     */
+    private static final String[] FIRST_HEADS = {"Al", "Be", "Ca", "Da", "El", "Fa", "Ge", "Ha", "Il", "Jo",
+            "Ka", "La", "Ma", "Na", "Ol", "Pa", "Ra", "Sa", "Ta", "Ul", "Va", "Wi", "Xe", "Yo", "Za", "Ar", "Bo",
+            "Ce", "Di", "Ev", "Fi", "Gu", "Ho", "Is", "Ju", "Ki", "Lu", "Mo", "Ne", "Or"};
+    private static final String[] FIRST_TAILS = {"na", "ro", "lia", "den", "mar", "ton", "sha", "vin", "rie",
+            "bert", "ko", "nio", "ssa", "drik", "lan", "mir", "tte", "zio", "ya", "ric", "nne", "las", "mon",
+            "vid", "tha", "ris", "no", "sse", "lio", "ren"};
+    private static final String[] LAST_HEADS = {"Bam", "Fac", "Kob", "Sim", "Pet", "Mal", "Rot", "Son", "Haf",
+            "Gen", "Lor", "Wal", "Bah", "Zie", "Ced", "Mon", "Pei", "Nit", "Sch", "Str", "Tem", "Vel", "Han",
+            "Aum", "Dem", "Erd", "Gar", "Hir", "Jan", "Kal", "Lun", "Mer", "Nog", "Oku", "Pro", "Rah", "Sel",
+            "Tok", "Ung", "Yos"};
+    private static final String[] LAST_TAILS = {"ford", "ello", "lick", "mel", "tis", "zahn", "inger", "enson",
+            "erlach", "sch", "ini", "berg", "mann", "ke", "rati", "aki", "ski", "ovic", "etti", "stad", "holm",
+            "ley", "rick", "ander", "ossa", "uchi", "ardt", "owitz", "ier", "ens", "lund", "wood", "ard", "ton",
+            "ez", "ata", "ulli", "ada", "iri", "awa"};
+
+    /**
+     * dates bounding the data
+     */
+    private static final LocalDate FIRST_HIRE = LocalDate.of(1985, 1, 1);
+    private static final LocalDate LAST_HIRE = LocalDate.of(1999, 12, 31);
+    private static final LocalDate END_OF_DATA = LocalDate.of(2002, 8, 1);
+    private static final LocalDate CURRENT = LocalDate.of(9999, 1, 1);
+
+    /**
+     * employees per transaction, employees whose rows are sent to the database at a time, and rows per INSERT
+     */
+    private static final int SLICE = 1_000;
+    private static final int BATCH = 1_000;
+    private static final int ROWS_PER_STATEMENT = 100;
+
+    private EmployeesDataset() {
+    }
+
+    /**
+     * Inserts the departments, employees and their histories into empty tables.
+     *
+     * @param dataSource connections the rows are inserted through
+     * @param scale      dataset size relative to the sample database, e.g. 0.1 for 30,000 employees
+     * @param seed       seed of the random generators, the same seed giving the same rows
+     * @param threads    number of slices inserted at a time
+     * @return rows inserted per table, in TABLES order
+     * @throws SQLException         if an insert fails
+     * @throws InterruptedException if interrupted while waiting for the threads
+     */
+    public static Map<String, Long> generate(DataSource dataSource, double scale, long seed, int threads)
+            throws SQLException, InterruptedException {
+        int employees = employees(scale);
+        AtomicLongArray rows = new AtomicLongArray(TABLES.size());
+
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement departments = connection.prepareStatement(
+                     "INSERT INTO departments (dept_no, dept_name) VALUES (?, ?)")) {
+            for (int d = 0; d < DEPARTMENT_NAMES.length; d++) {
+                departments.setString(1, deptNo(d));
+                departments.setString(2, DEPARTMENT_NAMES[d]);
+                departments.addBatch();
+            }
+            departments.executeBatch();
+            rows.addAndGet(0, DEPARTMENT_NAMES.length);
+        }
+
+        AtomicInteger nextSlice = new AtomicInteger();
+        int slices = (employees + SLICE - 1) / SLICE;
+        List<Future<?>> workers = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, threads))) {
+            for (int t = 0; t < Math.max(1, threads); t++) {
+                workers.add(executor.submit(() -> {
+                    int slice;
+                    while ((slice = nextSlice.getAndIncrement()) < slices) {
+                        int from = FIRST_EMP_NO + slice * SLICE;
+                        insertSlice(dataSource, seed, from, Math.min(from + SLICE, FIRST_EMP_NO + employees), rows);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof SQLException sql) {
+                throw sql;
+            }
+            throw new IllegalStateException("Dataset generation failed", e.getCause());
+        }
+
+        rows.addAndGet(5, insertManagers(dataSource, seed, employees));
+
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (int t = 0; t < TABLES.size(); t++) {
+            counts.put(TABLES.get(t), rows.get(t));
+        }
+        return counts;
+    }
+
+    /**
+     * number of employees at some scale
+     *
+     * @param scale dataset size relative to the sample database
+     * @return employees generated, at least 1
+     */
+    public static int employees(double scale) {
+        return Math.max(1, (int) Math.round(EMPLOYEES * scale));
+    }
+
+    /**
+     * department number of the d-th department, from 0
+     */
+    private static String deptNo(int d) {
+        return String.format("d%03d", d + 1);
+    }
+
+    /**
+     * inserts the employees numbered from to to - 1, with their histories, in one transaction
+     */
+    private static void insertSlice(DataSource dataSource, long seed, int from, int to, AtomicLongArray rows)
+            throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(false);
+            try (MultiRowInsert employee = new MultiRowInsert(connection, "employees",
+                    "emp_no", "birth_date", "first_name", "last_name", "gender", "hire_date");
+                 MultiRowInsert salary = new MultiRowInsert(connection, "salaries", "emp_no", "salary", "from_date", "to_date");
+                 MultiRowInsert title = new MultiRowInsert(connection, "titles", "emp_no", "title", "from_date", "to_date");
+                 MultiRowInsert deptEmp = new MultiRowInsert(connection, "dept_emp", "emp_no", "dept_no", "from_date", "to_date")) {
+
+                long[] counts = new long[TABLES.size()];
+                for (int empNo = from; empNo < to; empNo++) {
+                    Person p = person(seed, empNo);
+
+                    employee.add(empNo, p.birthDate, p.firstName, p.lastName, p.gender,
+                            p.hireDate);
+                    counts[1]++;
+
+                    // a salary row per year of employment, with a raise every year
+                    int amount = p.startingSalary;
+                    for (LocalDate start = p.hireDate; start.isBefore(p.lastDay); start = start.plusYears(1)) {
+                        LocalDate next = start.plusYears(1);
+                        salary.add(empNo, amount, start, next.isBefore(p.lastDay) ? next : p.endDate);
+                        amount += p.random.nextInt(p.startingSalary / 16 + 1);
+                        counts[2]++;
+                    }
+
+                    if (p.promotionDate == null) {
+                        title.add(empNo, p.title, p.hireDate, p.endDate);
+                        counts[3]++;
+                    } else {
+                        title.add(empNo, p.title, p.hireDate, p.promotionDate);
+                        title.add(empNo, PROMOTIONS[p.titleIndex], p.promotionDate, p.endDate);
+                        counts[3] += 2;
+                    }
+
+                    if (p.moveDate == null) {
+                        deptEmp.add(empNo, deptNo(p.department), p.hireDate, p.endDate);
+                        counts[4]++;
+                    } else {
+                        deptEmp.add(empNo, deptNo(p.department), p.hireDate, p.moveDate);
+                        deptEmp.add(empNo, deptNo(p.newDepartment), p.moveDate, p.endDate);
+                        counts[4] += 2;
+                    }
+
+                    // employees first, their histories reference them
+                    if ((empNo - from + 1) % BATCH == 0 || empNo == to - 1) {
+                        employee.flush();
+                        salary.flush();
+                        title.flush();
+                        deptEmp.flush();
+                    }
+                }
+                connection.commit();
+                for (int t = 0; t < counts.length; t++) {
+                    rows.addAndGet(t, counts[t]);
+                }
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * inserts two successive managers per department: employees of the department hired before 1990 who
+     * never left it, the first from its hire date and the second from 1992, as long as the dataset has them
+     */
+    private static long insertManagers(DataSource dataSource, long seed, int employees) throws SQLException {
+        LocalDate handover = LocalDate.of(1992, 1, 1);
+        LocalDate hiredBefore = LocalDate.of(1990, 1, 1);
+        int[][] managers = new int[DEPARTMENT_NAMES.length][2];
+        int[] found = new int[DEPARTMENT_NAMES.length];
+        int remaining = DEPARTMENT_NAMES.length * 2;
+        for (int empNo = FIRST_EMP_NO; empNo < FIRST_EMP_NO + employees && remaining > 0; empNo++) {
+            Person p = person(seed, empNo);
+            if (p.hireDate.isBefore(hiredBefore) && p.moveDate == null && p.endDate.equals(CURRENT)
+                    && found[p.department] < 2) {
+                managers[p.department][found[p.department]++] = empNo;
+                remaining--;
+            }
+        }
+
+        long rows = 0;
+        try (Connection connection = dataSource.getConnection();
+             MultiRowInsert manager = new MultiRowInsert(connection, "dept_manager", "emp_no", "dept_no", "from_date", "to_date")) {
+            for (int d = 0; d < DEPARTMENT_NAMES.length; d++) {
+                if (found[d] > 0) {
+                    LocalDate hired = person(seed, managers[d][0]).hireDate;
+                    manager.add(managers[d][0], deptNo(d), hired, found[d] == 2 ? handover : CURRENT);
+                    rows++;
+                }
+                if (found[d] == 2) {
+                    manager.add(managers[d][1], deptNo(d), handover, CURRENT);
+                    rows++;
+                }
+            }
+            manager.flush();
+        }
+        return rows;
+    }
+
+    /**
+     * draws one employee, from the seed and the employee number alone
+     */
+    private static Person person(long seed, int empNo) {
+        SplittableRandom random = new SplittableRandom(seed * 0x9E3779B97F4A7C15L + empNo);
+        Person p = new Person(random);
+
+        p.hireDate = FIRST_HIRE.plusDays(random.nextLong(ChronoUnit.DAYS.between(FIRST_HIRE, LAST_HIRE) + 1));
+        p.birthDate = p.hireDate.minusYears(20 + random.nextInt(15)).minusDays(random.nextInt(365));
+        p.firstName = FIRST_HEADS[random.nextInt(FIRST_HEADS.length)] + FIRST_TAILS[random.nextInt(FIRST_TAILS.length)];
+        p.lastName = LAST_HEADS[random.nextInt(LAST_HEADS.length)] + LAST_TAILS[random.nextInt(LAST_TAILS.length)];
+        p.gender = random.nextInt(5) < 3 ? "M" : "F";
+        p.startingSalary = 38000 + random.nextInt(32000);
+
+        // one in five has left, on a day between the hire date and the end of the data
+        if (random.nextInt(5) == 0) {
+            p.lastDay = p.hireDate.plusDays(1 + random.nextLong(ChronoUnit.DAYS.between(p.hireDate, END_OF_DATA)));
+            p.endDate = p.lastDay;
+        } else {
+            p.lastDay = END_OF_DATA;
+            p.endDate = CURRENT;
+        }
+        long days = ChronoUnit.DAYS.between(p.hireDate, p.lastDay);
+
+        p.titleIndex = pick(random, TITLE_WEIGHTS);
+        p.title = TITLES[p.titleIndex];
+        if (PROMOTIONS[p.titleIndex] != null && days > 365 && random.nextInt(100) < 65) {
+            p.promotionDate = p.hireDate.plusDays(365 + random.nextLong(days - 365));
+        }
+
+        p.department = pick(random, DEPARTMENT_WEIGHTS);
+        if (days > 180 && random.nextInt(10) == 0) {
+            p.moveDate = p.hireDate.plusDays(180 + random.nextLong(days - 180));
+            p.newDepartment = (p.department + 1 + random.nextInt(DEPARTMENT_NAMES.length - 1)) % DEPARTMENT_NAMES.length;
+        }
+        return p;
+    }
+
+    /**
+     * draws an index with probability proportional to its weight
+     */
+    private static int pick(SplittableRandom random, int[] weights) {
+        int total = 0;
+        for (int w : weights) {
+            total += w;
+        }
+        int r = random.nextInt(total);
+        for (int i = 0; i < weights.length; i++) {
+            r -= weights[i];
+            if (r < 0) {
+                return i;
+            }
+        }
+        return weights.length - 1;
+    }
+
+    /**
+     * one generated employee; salaries are drawn from its random generator while they are inserted
+     */
+    private static final class Person {
+        final SplittableRandom random;
+        LocalDate birthDate;
+        LocalDate hireDate;
+        String firstName;
+        String lastName;
+        String gender;
+        int startingSalary;
+        /**
+         * last day employed, and to_date of the employee's last rows: the last day, or 9999-01-01 if current
+         */
+        LocalDate lastDay;
+        LocalDate endDate;
+        int titleIndex;
+        String title;
+        LocalDate promotionDate;
+        int department;
+        LocalDate moveDate;
+        int newDepartment;
+
+        Person(SplittableRandom random) {
+            this.random = random;
+        }
+    }
+
+    /**
+     * Buffers the rows of one table and inserts them ROWS_PER_STATEMENT at a time with a multi-row INSERT,
+     * which H2 executes faster than a batch of single-row statements. Nothing reaches the database before
+     * flush(), so rows can be flushed in foreign key order.
+     */
+    private static final class MultiRowInsert implements AutoCloseable {
+        private final Connection connection;
+        private final String table;
+        private final String[] columns;
+
+        /**
+         * statement inserting ROWS_PER_STATEMENT rows, batched until flush()
+         */
+        private final PreparedStatement full;
+
+        /**
+         * values of the rows not yet bound to a statement
+         */
+        private final Object[] values;
+        private int size;
+
+        MultiRowInsert(Connection connection, String table, String... columns) throws SQLException {
+            this.connection = connection;
+            this.table = table;
+            this.columns = columns;
+            this.values = new Object[ROWS_PER_STATEMENT * columns.length];
+            this.full = connection.prepareStatement(sql(ROWS_PER_STATEMENT));
+        }
+
+        /**
+         * adds a row, its values in column order
+         */
+        void add(Object... row) throws SQLException {
+            System.arraycopy(row, 0, values, size, row.length);
+            size += row.length;
+            if (size == values.length) {
+                bind(full, size);
+                full.addBatch();
+                size = 0;
+            }
+        }
+
+        /**
+         * inserts every row added so far
+         */
+        void flush() throws SQLException {
+            full.executeBatch();
+            if (size > 0) {
+                try (PreparedStatement rest = connection.prepareStatement(sql(size / columns.length))) {
+                    bind(rest, size);
+                    rest.executeUpdate();
+                }
+                size = 0;
+            }
+        }
+
+        @Override
+        public void close() throws SQLException {
+            full.close();
+        }
+
+        private void bind(PreparedStatement statement, int count) throws SQLException {
+            for (int i = 0; i < count; i++) {
+                statement.setObject(i + 1, values[i]);
+            }
+        }
+
+        private String sql(int rows) {
+            String row = "(" + String.join(", ", Collections.nCopies(columns.length, "?")) + ")";
+            return "INSERT INTO " + table + " (" + String.join(", ", columns) + ") VALUES "
+                    + String.join(", ", Collections.nCopies(rows, row));
+        }
+    }
+}
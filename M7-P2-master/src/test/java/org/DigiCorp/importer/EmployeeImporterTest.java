@@ -0,0 +1,99 @@
+package org.DigiCorp.importer;
+
+import org.DigiCorp.dto.ImportRejectDTO;
+import org.DigiCorp.dto.ImportReportDTO;
+import org.DigiCorp.exceptions.InvalidDataException;
+import org.DigiCorp.fixture.EmbeddedEmployeesContext;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.StringReader;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Integration tests of the history checks of EmployeeImporter: rows overlapping the employee's other rows, in the
+ * table or earlier in the file, and second current rows are rejected with their line.
+ */
+@EmbeddedEmployeesContext
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class EmployeeImporterTest {
+
+    @Autowired
+    private EmployeeImporter importer;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    /**
+     * imports the employees of the tests, numbered above the dataset's
+     */
+    @BeforeAll
+    void importEmployees() throws InvalidDataException {
+        ImportReportDTO report = importer.importCsv("employees", "importer-test-employees", null, new StringReader("""
+                emp_no,birth_date,first_name,last_name,gender,hire_date
+                900001,1970-01-01,Ada,Importer,F,2000-01-01
+                900002,1971-02-02,Alan,Importer,M,2000-01-01
+                900003,1972-03-03,Grace,Importer,F,2000-01-01
+                """));
+        assertThat(report.getInserted()).isEqualTo(3);
+    }
+
+    @Test
+    void historyRowsOverlappingEarlierChunksOrTheSameChunkAreRejected() throws InvalidDataException {
+        // chunks of two records: lines 2-3, 4-5 and 6-7
+        ImportReportDTO report = importer.importCsv("salaries", "importer-test-salaries", 2, new StringReader("""
+                emp_no,salary,from_date,to_date
+                900001,50000,2000-01-01,2001-01-01
+                900001,52000,2001-01-01,
+                900001,53000,2000-06-01,2000-09-01
+                900002,60000,2000-01-01,2001-01-01
+                900002,61000,2000-12-01,
+                900001,54000,2002-01-01,
+                """));
+
+        assertThat(report.getInserted()).isEqualTo(3);
+        assertThat(report.getRejects()).extracting(ImportRejectDTO::getLine).containsExactly(4L, 6L, 7L);
+        assertThat(report.getRejects().get(0).getReason()).startsWith("Period overlaps the row from 2000-01-01");
+        assertThat(report.getRejects().get(1).getReason()).startsWith("Period overlaps the row from 2000-01-01");
+        assertThat(report.getRejects().get(2).getReason()).startsWith("Employee 900001 already has a current row");
+        assertOneCurrentRow("salaries", 900001);
+    }
+
+    @Test
+    void secondCurrentRowsAreRejectedAgainstTheTableAndTheFile() throws InvalidDataException {
+        importer.importCsv("titles", "importer-test-titles-1", null, new StringReader("""
+                emp_no,title,from_date,to_date
+                900003,Staff,2000-01-01,
+                """));
+
+        ImportReportDTO report = importer.importCsv("titles", "importer-test-titles-2", null, new StringReader("""
+                emp_no,title,from_date,to_date
+                900003,Senior Staff,2004-01-01,
+                900002,Engineer,2000-01-01,2003-01-01
+                900002,Senior Engineer,2003-01-01,
+                900002,Technique Leader,2005-01-01,
+                """));
+
+        assertThat(report.getInserted()).isEqualTo(2);
+        assertThat(report.getRejects()).extracting(ImportRejectDTO::getLine).containsExactly(2L, 5L);
+        assertThat(report.getRejects()).extracting(ImportRejectDTO::getReason).containsExactly(
+                "Employee 900003 already has a current row, from 2000-01-01",
+                "Employee 900002 already has a current row, from 2003-01-01");
+        assertOneCurrentRow("titles", 900002);
+        assertOneCurrentRow("titles", 900003);
+    }
+
+    /**
+     * asserts an employee has exactly one current row in a history table
+     */
+    private void assertOneCurrentRow(String table, int empNo) {
+        List<Integer> current = jdbc.queryForList("SELECT emp_no FROM " + table
+                + " WHERE emp_no = ? AND to_date = DATE '9999-01-01'", Integer.class, empNo);
+        assertThat(current).as("current %s rows of %d", table, empNo).hasSize(1);
+    }
+}
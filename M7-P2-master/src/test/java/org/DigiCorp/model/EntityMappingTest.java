@@ -0,0 +1,101 @@
+package org.DigiCorp.model;
+
+import org.DigiCorp.dao.EmployeeDAO;
+import org.DigiCorp.fixture.EmbeddedEmployees;
+import org.DigiCorp.fixture.EmbeddedEmployeesContext;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Integration tests of the entity mappings: employees loaded through EmployeeDAO hold exactly the rows of the
+ * embedded dataset, in the order the collections declare.
+ */
+@EmbeddedEmployeesContext
+class EntityMappingTest {
+
+    /**
+     * history columns read for each collection, ordered as the collections are (toDate, then fromDate)
+     */
+    private static final Map<String, String> HISTORY_QUERIES = Map.of(
+            "salaries", "SELECT from_date, to_date, salary FROM salaries WHERE emp_no = ? ORDER BY to_date, from_date",
+            "titles", "SELECT from_date, to_date, title FROM titles WHERE emp_no = ? ORDER BY to_date, from_date",
+            "dept_emp", "SELECT from_date, to_date, dept_no FROM dept_emp WHERE emp_no = ? ORDER BY to_date, from_date",
+            "dept_manager",
+            "SELECT from_date, to_date, dept_no FROM dept_manager WHERE emp_no = ? ORDER BY to_date, from_date");
+
+    @Autowired
+    private EmployeeDAO dao;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Test
+    void employeeHoldsItsRowAndEveryHistory() {
+        // a department manager, so every collection has rows; employees below 11001 are never promoted by the tests
+        int empNo = jdbc.queryForObject("SELECT MIN(emp_no) FROM dept_manager WHERE emp_no < ?", Integer.class,
+                EmbeddedEmployees.FIRST_EMP_NO + 1000);
+
+        Employee emp = dao.getEmployeeRecords(empNo);
+
+        Map<String, Object> row = jdbc.queryForMap("SELECT * FROM employees WHERE emp_no = ?", empNo);
+        assertThat(emp.getEmpNo()).isEqualTo(empNo);
+        assertThat(emp.getFirstName()).isEqualTo(row.get("first_name"));
+        assertThat(emp.getLastName()).isEqualTo(row.get("last_name"));
+        assertThat(emp.getGender()).isEqualTo(String.valueOf(row.get("gender")));
+        assertThat(emp.getBirthDate()).isEqualTo(jdbc.queryForObject(
+                "SELECT birth_date FROM employees WHERE emp_no = ?", LocalDate.class, empNo));
+        assertThat(emp.getHireDate()).isEqualTo(jdbc.queryForObject(
+                "SELECT hire_date FROM employees WHERE emp_no = ?", LocalDate.class, empNo));
+        assertHistories(emp);
+    }
+
+    @Test
+    void batchLoadMatchesSingleLoadsAndKeepsMissingEmployees() {
+        List<Integer> empNos = List.of(EmbeddedEmployees.FIRST_EMP_NO + 17, 9_999_999, EmbeddedEmployees.FIRST_EMP_NO + 3,
+                EmbeddedEmployees.FIRST_EMP_NO + 512);
+
+        Map<Integer, Employee> employees = dao.getEmployeeRecords(empNos);
+
+        assertThat(employees.keySet()).containsExactlyElementsOf(empNos);
+        assertThat(employees.get(9_999_999)).isNull();
+        for (int empNo : List.of(empNos.get(0), empNos.get(2), empNos.get(3))) {
+            assertThat(employees.get(empNo).getEmpNo()).isEqualTo(empNo);
+            assertHistories(employees.get(empNo));
+        }
+        assertThat(dao.getEmployeeRecords(9_999_999)).isNull();
+    }
+
+    /**
+     * asserts each history collection of an employee holds the table's rows, in order
+     */
+    private void assertHistories(Employee emp) {
+        Map<String, List<String>> loaded = new LinkedHashMap<>();
+        loaded.put("salaries", emp.getSalaryList().stream()
+                .map(s -> s.getFromDate() + " " + s.getToDate() + " " + s.getSalary()).toList());
+        loaded.put("titles", emp.getTitleList().stream()
+                .map(t -> t.getFromDate() + " " + t.getToDate() + " " + t.getTitle()).toList());
+        loaded.put("dept_emp", emp.getDeptEmpList().stream()
+                .map(d -> d.getFromDate() + " " + d.getToDate() + " " + d.getDeptNo()).toList());
+        loaded.put("dept_manager", emp.getDeptManagerList().stream()
+                .map(d -> d.getFromDate() + " " + d.getToDate() + " " + d.getDeptNo()).toList());
+
+        for (Map.Entry<String, List<String>> history : loaded.entrySet()) {
+            List<String> expected = jdbc.query(HISTORY_QUERIES.get(history.getKey()),
+                    (rs, i) -> rs.getObject(1, LocalDate.class) + " "
+                            + rs.getObject(2, LocalDate.class) + " " + rs.getString(3),
+                    emp.getEmpNo());
+            assertThat(history.getValue()).as(history.getKey() + " of " + emp.getEmpNo()).isEqualTo(expected);
+        }
+        assertThat(emp.getSalaryList()).isNotEmpty().allMatch(s -> s.getEmployee() == emp);
+        assertThat(emp.getTitleList()).isNotEmpty();
+        assertThat(emp.getDeptEmpList()).isNotEmpty();
+    }
+}
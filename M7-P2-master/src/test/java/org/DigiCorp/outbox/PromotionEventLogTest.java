@@ -0,0 +1,310 @@
+package org.DigiCorp.outbox;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.DigiCorp.dao.EmployeeDAO;
+import org.DigiCorp.dto.EmployeePromotionRequest;
+import org.DigiCorp.dto.PromotionLogEventDTO;
+import org.DigiCorp.dto.PromotionLogPage;
+import org.DigiCorp.event.EmployeePromotedEvent;
+import org.DigiCorp.exceptions.InvalidDataException;
+import org.DigiCorp.fixture.EmbeddedEmployees;
+import org.DigiCorp.fixture.EmbeddedEmployeesContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Integration tests of the promotion event log: the application's log records committed promotions only, and
+ * logs opened over a directory of their own recover from what a crash can leave behind.
+ */
+@EmbeddedEmployeesContext
+class PromotionEventLogTest {
+
+    /**
+     * employees this class promotes, after the ranges of EmployeeDAOTest and ReadModelsTest
+     */
+    private static final int PROMOTED_FROM = EmbeddedEmployees.FIRST_EMP_NO + 2300;
+    private static final int PROMOTED_TO = EmbeddedEmployees.FIRST_EMP_NO + 2400;
+
+    @Autowired
+    private PromotionEventLog promotionLog;
+
+    @Autowired
+    private EmployeeDAO dao;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private AutowireCapableBeanFactory beanFactory;
+
+    @TempDir
+    private Path dir;
+
+    /**
+     * log over dir, opened by openLog() and not the application's
+     */
+    private PromotionEventLog eventLog;
+
+    @AfterEach
+    void closeLog() throws InterruptedException {
+        if (eventLog != null) {
+            eventLog.stop();
+            eventLog = null;
+        }
+    }
+
+    @Test
+    void onlyCommittedPromotionsAreReadInCommitOrder() throws Exception {
+        List<Integer> empNos = promotable().subList(0, 3);
+        LocalDate date = LocalDate.of(2008, 6, 1);
+        long from = promotionLog.getEndOffset();
+        long aborted = promotionLog.getStatistics().get("aborted");
+
+        promote(empNos.get(0), date);
+        // rolled back after its events were prepared, as when the sync of the log times out
+        assertThatThrownBy(() -> new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            try {
+                promote(empNos.get(1), date);
+            } catch (InvalidDataException e) {
+                throw new IllegalStateException(e);
+            }
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    throw new IllegalStateException("commit failed");
+                }
+            });
+        })).hasMessage("commit failed");
+        promote(empNos.get(2), date);
+
+        assertThat(jdbc.queryForObject("SELECT COUNT(*) FROM salaries WHERE emp_no = ? AND from_date = ?",
+                Integer.class, empNos.get(1), date)).isZero();
+        assertThat(promotionLog.getStatistics().get("aborted")).isEqualTo(aborted + 1);
+
+        PromotionLogPage first = promotionLog.read(from, 1, 0);
+        assertThat(first.getEvents()).extracting(PromotionLogEventDTO::getEmpNo).containsExactly(empNos.get(0));
+        assertThat(first.getEvents().getFirst().getOffset()).isEqualTo(from);
+        assertThat(first.getEvents().getFirst().getEffectiveDate()).isEqualTo(date);
+        // the aborted record lies between the two committed ones and is skipped
+        PromotionLogPage second = promotionLog.read(first.getNextOffset(), 10, 0);
+        assertThat(second.getEvents()).extracting(PromotionLogEventDTO::getEmpNo).containsExactly(empNos.get(2));
+        assertThat(second.getEvents().getFirst().getOffset()).isGreaterThan(first.getNextOffset());
+        assertThat(second.getNextOffset()).isEqualTo(promotionLog.getEndOffset());
+    }
+
+    @Test
+    void readRejectsOffsetsThatAreNotTheStartOfAnEvent() throws Exception {
+        openLog();
+        for (int i = 0; i < 3; i++) {
+            eventLog.onEmployeePromoted(event(20001 + i, LocalDate.of(2008, 1, 1), "Engineer"));
+        }
+        List<PromotionLogEventDTO> events = readAll();
+        assertThat(events).hasSize(3);
+        long second = events.get(1).getOffset();
+        long end = eventLog.getEndOffset();
+
+        for (long offset : new long[]{-8, 3, second + 4, second + 8, end + 8}) {
+            assertThatThrownBy(() -> eventLog.read(offset, 10, 0))
+                    .as("offset %d", offset)
+                    .isInstanceOfSatisfying(InvalidDataException.class,
+                            e -> assertThat(e.getStatusCode()).isEqualTo(400));
+        }
+        assertThat(eventLog.read(second, 10, 0).getEvents()).extracting(PromotionLogEventDTO::getEmpNo)
+                .containsExactly(20002, 20003);
+        PromotionLogPage atEnd = eventLog.read(end, 10, 0);
+        assertThat(atEnd.getEvents()).isEmpty();
+        assertThat(atEnd.getNextOffset()).isEqualTo(end);
+    }
+
+    @Test
+    void reopeningTruncatesACorruptedLastRecord() throws Exception {
+        openLog();
+        for (int i = 0; i < 3; i++) {
+            eventLog.onEmployeePromoted(event(20001 + i, LocalDate.of(2008, 1, 1), "Engineer"));
+        }
+        long last = readAll().getLast().getOffset();
+        closeLog();
+
+        // a byte of the last body, as a crash in the middle of writing it could leave it
+        try (FileChannel file = FileChannel.open(segment(0), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer b = ByteBuffer.allocate(1);
+            long at = last + LogSegment.HEADER + 10;
+            file.read(b, at);
+            file.write(ByteBuffer.wrap(new byte[]{(byte) ~b.get(0)}), at);
+        }
+        openLog();
+
+        assertThat(eventLog.getEndOffset()).isEqualTo(last);
+        assertThat(readAll()).extracting(PromotionLogEventDTO::getEmpNo).containsExactly(20001, 20002);
+        eventLog.onEmployeePromoted(event(20004, LocalDate.of(2008, 1, 1), "Engineer"));
+        assertThat(eventLog.read(last, 10, 0).getEvents()).extracting(PromotionLogEventDTO::getEmpNo)
+                .containsExactly(20004);
+    }
+
+    @Test
+    void preparedRecordsAreResolvedByTheirHistoryRows() throws Exception {
+        List<Integer> empNos = promotable().subList(3, 5);
+        LocalDate date = LocalDate.of(2008, 7, 1);
+        promote(empNos.get(0), date);
+
+        openLog();
+        eventLog.onEmployeePromoted(event(empNos.get(0), date, "Engineer"));
+        eventLog.onEmployeePromoted(event(empNos.get(1), date, "Engineer"));
+        List<PromotionLogEventDTO> events = readAll();
+        closeLog();
+
+        // left PREPARED by a crash between the sync and the flip of the records
+        try (FileChannel file = FileChannel.open(segment(0), StandardOpenOption.WRITE)) {
+            for (PromotionLogEventDTO event : events) {
+                file.write(ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putInt(0, LogSegment.PREPARED),
+                        event.getOffset() + 4);
+            }
+        }
+        openLog();
+
+        // readers wait at the first record in doubt
+        PromotionLogPage waiting = eventLog.read(0, 10, 0);
+        assertThat(waiting.getEvents()).isEmpty();
+        assertThat(waiting.getNextOffset()).isZero();
+
+        eventLog.resolveInDoubt();
+
+        assertThat(readAll()).extracting(PromotionLogEventDTO::getEmpNo).containsExactly(empNos.get(0));
+        assertThat(eventLog.getStatistics())
+                .containsEntry("inDoubtResolved", 2L)
+                .containsEntry("committed", 1L)
+                .containsEntry("aborted", 1L);
+
+        // the resolution is durable
+        openLog();
+        assertThat(readAll()).extracting(PromotionLogEventDTO::getEmpNo).containsExactly(empNos.get(0));
+        assertThat(eventLog.getStatistics()).containsEntry("inDoubtResolved", 0L);
+    }
+
+    @Test
+    void offsetsStayContiguousAcrossASegmentRoll() throws Exception {
+        openLog();
+        // long titles, so a few thousand records fill the smallest segment
+        String title = "Senior Engineer ".repeat(15);
+        int count = 4_000;
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        for (int start = 0; start < count; start += 500) {
+            int first = start;
+            transaction.executeWithoutResult(status -> {
+                for (int i = first; i < first + 500; i++) {
+                    eventLog.onEmployeePromoted(event(20001 + i, LocalDate.of(2008, 1, 1), title));
+                }
+            });
+        }
+
+        List<PromotionLogEventDTO> events = readAll();
+        assertThat(eventLog.getStatistics()).containsEntry("segments", 2L);
+        assertThat(events).hasSize(count);
+        long length = events.get(1).getOffset() - events.get(0).getOffset();
+        for (int i = 1; i < count; i++) {
+            assertThat(events.get(i).getEmpNo()).isEqualTo(20001 + i);
+            assertThat(events.get(i).getOffset() - events.get(i - 1).getOffset()).as("event %d", i).isEqualTo(length);
+        }
+        assertThat(eventLog.getEndOffset()).isEqualTo(events.getLast().getOffset() + length);
+
+        // the second segment is named after the offset of its first record
+        long base;
+        try (Stream<Path> files = Files.list(dir)) {
+            base = files.map(p -> p.getFileName().toString())
+                    .filter(name -> name.endsWith(".log"))
+                    .mapToLong(name -> Long.parseLong(name.substring(0, name.length() - 4)))
+                    .max().orElseThrow();
+        }
+        assertThat(base).isPositive().isLessThanOrEqualTo(1 << 20);
+        assertThat(events).extracting(PromotionLogEventDTO::getOffset).contains(base);
+
+        long end = eventLog.getEndOffset();
+        openLog();
+        assertThat(eventLog.getEndOffset()).isEqualTo(end);
+        assertThat(readAll()).hasSize(count);
+    }
+
+    /**
+     * stops the log over dir, if any, and opens it again, as a restart of the application would
+     */
+    private void openLog() throws InterruptedException {
+        closeLog();
+        eventLog = new PromotionEventLog(transactionManager, new SimpleMeterRegistry(), true, dir.toString(),
+                0, 1000, 5000);
+        // the entity manager the in-doubt lookups run on
+        beanFactory.autowireBean(eventLog);
+    }
+
+    /**
+     * reads every committed event of the log over dir
+     */
+    private List<PromotionLogEventDTO> readAll() throws InvalidDataException, InterruptedException {
+        List<PromotionLogEventDTO> events = new ArrayList<>();
+        long offset = 0;
+        while (true) {
+            PromotionLogPage page = eventLog.read(offset, 1000, 0);
+            events.addAll(page.getEvents());
+            if (page.getNextOffset() == offset) {
+                return events;
+            }
+            offset = page.getNextOffset();
+        }
+    }
+
+    private Path segment(long baseOffset) {
+        return dir.resolve(String.format("%020d", baseOffset) + ".log");
+    }
+
+    /**
+     * returns current employees who are not managers, from the range this class promotes
+     */
+    private List<Integer> promotable() {
+        return jdbc.queryForList("SELECT s.emp_no FROM salaries s"
+                + " JOIN titles t ON t.emp_no = s.emp_no AND t.to_date = DATE '9999-01-01' AND t.title <> 'Manager'"
+                + " WHERE s.to_date = DATE '9999-01-01' AND s.emp_no BETWEEN ? AND ? ORDER BY s.emp_no",
+                Integer.class, PROMOTED_FROM, PROMOTED_TO);
+    }
+
+    /**
+     * raises an employee's salary on a date, keeping their title and department
+     */
+    private void promote(int empNo, LocalDate date) throws InvalidDataException {
+        String title = jdbc.queryForObject(
+                "SELECT title FROM titles WHERE emp_no = ? AND to_date = DATE '9999-01-01'", String.class, empNo);
+        String deptNo = jdbc.queryForObject(
+                "SELECT dept_no FROM dept_emp WHERE emp_no = ? AND to_date = DATE '9999-01-01'", String.class, empNo);
+        EmployeePromotionRequest request = new EmployeePromotionRequest(empNo, title, 150_000, deptNo);
+        request.setPromotionDate(date);
+        dao.promoteEmployee(request);
+    }
+
+    private static EmployeePromotedEvent event(int empNo, LocalDate date, String newTitle) {
+        return new EmployeePromotedEvent(empNo, date, 50_000, 60_000, "Engineer", newTitle, "d001", "d001",
+                false, false);
+    }
+}
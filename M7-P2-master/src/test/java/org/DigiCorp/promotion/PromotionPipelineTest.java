@@ -0,0 +1,201 @@
+package org.DigiCorp.promotion;
+
+import com.jayway.jsonpath.JsonPath;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.DigiCorp.dao.EmployeeDAO;
+import org.DigiCorp.dto.EmployeePromotionRequest;
+import org.DigiCorp.dto.PromotionTicketDTO;
+import org.DigiCorp.exceptions.InvalidDataException;
+import org.DigiCorp.fixture.EmbeddedEmployees;
+import org.DigiCorp.fixture.EmbeddedEmployeesContext;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.hamcrest.Matchers.startsWith;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Integration tests of asynchronous promotions: a ticket is polled to the outcome the synchronous endpoint would
+ * have returned, an employee's promotions run in submission order, and a full lane rejects without a trace.
+ */
+@EmbeddedEmployeesContext
+class PromotionPipelineTest {
+
+    /**
+     * employees this class promotes, after the range of PromotionEventLogTest
+     */
+    private static final int PROMOTED_FROM = EmbeddedEmployees.FIRST_EMP_NO + 2400;
+    private static final int PROMOTED_TO = EmbeddedEmployees.FIRST_EMP_NO + 2500;
+
+    /**
+     * longest a ticket is polled for before the test fails
+     */
+    private static final long POLL_MILLIS = 10_000;
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private PromotionPipeline pipeline;
+
+    @Autowired
+    private EmployeeDAO dao;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Test
+    void acceptedTicketIsPolledToItsOutcome() throws Exception {
+        int empNo = promotable().getFirst();
+        String body = String.format("{\"empNo\": %d, \"newTitle\": \"%s\", \"newSalary\": 140000, "
+                + "\"newDeptNo\": \"%s\", \"promotionDate\": \"2008-09-01\"}", empNo, title(empNo), deptNo(empNo));
+
+        String response = mvc.perform(post("/employees/promote").param("async", "true")
+                        .contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.empNo").value(empNo))
+                .andReturn().getResponse().getContentAsString();
+        String ticketId = JsonPath.read(response, "$.ticketId");
+
+        PromotionTicketDTO ticket = await(pipeline, ticketId);
+        assertThat(ticket.getState()).isEqualTo("SUCCEEDED");
+        assertThat(ticket.getStatus()).isEqualTo(201);
+        assertThat(ticket.getCompletedAt()).isAfterOrEqualTo(ticket.getSubmittedAt());
+        assertThat(jdbc.queryForObject("SELECT salary FROM salaries WHERE emp_no = ? AND to_date = DATE '9999-01-01'",
+                Integer.class, empNo)).isEqualTo(140_000);
+        mvc.perform(get("/employees/promotionStatus").param("ticketId", ticketId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.state").value("SUCCEEDED"))
+                .andExpect(jsonPath("$.status").value(201));
+
+        // a promotion failing once run is reported on its ticket, as the synchronous endpoint would answer
+        response = mvc.perform(post("/employees/promote").param("async", "true")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"empNo\": 9999999, \"newTitle\": \"Staff\", \"newSalary\": 1, \"newDeptNo\": \"d001\"}"))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string(HttpHeaders.LOCATION, startsWith("/employees/promotionStatus?ticketId=")))
+                .andReturn().getResponse().getContentAsString();
+        ticket = await(pipeline, JsonPath.read(response, "$.ticketId"));
+        assertThat(ticket.getState()).isEqualTo("FAILED");
+        assertThat(ticket.getStatus()).isEqualTo(404);
+
+        mvc.perform(get("/employees/promotionStatus").param("ticketId", "unknown"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void promotionsOfAnEmployeeRunInSubmissionOrder() throws Exception {
+        int empNo = promotable().get(1);
+        String title = title(empNo);
+        String deptNo = deptNo(empNo);
+        List<String> ticketIds = new ArrayList<>();
+        // each one dated after the previous: run out of order, a promotion would start before the current rows
+        for (int month = 1; month <= 6; month++) {
+            EmployeePromotionRequest request = new EmployeePromotionRequest(empNo, title, 100_000 + month, deptNo);
+            request.setPromotionDate(LocalDate.of(2009, month, 1));
+            ticketIds.add(pipeline.submit(request).getTicketId());
+        }
+
+        for (String ticketId : ticketIds) {
+            PromotionTicketDTO ticket = await(pipeline, ticketId);
+            assertThat(ticket.getState()).as(ticket.getMessage()).isEqualTo("SUCCEEDED");
+        }
+        assertThat(jdbc.queryForList("SELECT salary FROM salaries WHERE emp_no = ? AND from_date >= DATE '2009-01-01'"
+                + " ORDER BY from_date", Integer.class, empNo))
+                .containsExactly(100_001, 100_002, 100_003, 100_004, 100_005, 100_006);
+    }
+
+    @Test
+    void fullLaneRejectsWithoutKeepingTheTicket() throws Exception {
+        List<Integer> empNos = promotable();
+        // past the employees the other tests promote
+        List<Integer> unused = empNos.subList(2, empNos.size());
+        int even = unused.stream().filter(e -> e % 2 == 0).findFirst().orElseThrow();
+        int odd = unused.stream().filter(e -> e % 2 == 1).findFirst().orElseThrow();
+        // two lanes of one promotion each, not drained until started
+        PromotionPipeline lanes = new PromotionPipeline(dao, new SimpleMeterRegistry(), 2, 1, 100, 60);
+        try {
+            PromotionTicketDTO queued = lanes.submit(request(even, 120_000));
+            assertThat(queued.getState()).isEqualTo("QUEUED");
+
+            assertThatThrownBy(() -> lanes.submit(request(even, 121_000)))
+                    .isInstanceOfSatisfying(InvalidDataException.class,
+                            e -> assertThat(e.getStatusCode()).isEqualTo(503));
+            assertThat(lanes.getStatistics())
+                    .containsEntry("queued", 1L)
+                    .containsEntry("accepted", 1L)
+                    .containsEntry("rejected", 1L)
+                    .containsEntry("tickets", 1L);
+
+            // the other lane still has room
+            PromotionTicketDTO other = lanes.submit(request(odd, 122_000));
+            assertThat(lanes.getStatistics()).containsEntry("tickets", 2L);
+
+            lanes.start();
+            assertThat(await(lanes, queued.getTicketId()).getState()).isEqualTo("SUCCEEDED");
+            assertThat(await(lanes, other.getTicketId()).getState()).isEqualTo("SUCCEEDED");
+            assertThat(jdbc.queryForObject("SELECT salary FROM salaries WHERE emp_no = ? AND to_date = DATE '9999-01-01'",
+                    Integer.class, even)).isEqualTo(120_000);
+        } finally {
+            lanes.stop();
+        }
+    }
+
+    /**
+     * polls a ticket until its promotion has run
+     */
+    private static PromotionTicketDTO await(PromotionPipeline pipeline, String ticketId) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + POLL_MILLIS;
+        while (true) {
+            PromotionTicketDTO ticket = pipeline.find(ticketId);
+            assertThat(ticket).as(ticketId).isNotNull();
+            if (ticket.getCompletedAt() != null || System.currentTimeMillis() > deadline) {
+                return ticket;
+            }
+            Thread.sleep(20);
+        }
+    }
+
+    /**
+     * returns current employees who are not managers, from the range this class promotes
+     */
+    private List<Integer> promotable() {
+        return jdbc.queryForList("SELECT s.emp_no FROM salaries s"
+                + " JOIN titles t ON t.emp_no = s.emp_no AND t.to_date = DATE '9999-01-01' AND t.title <> 'Manager'"
+                + " WHERE s.to_date = DATE '9999-01-01' AND s.emp_no BETWEEN ? AND ? ORDER BY s.emp_no",
+                Integer.class, PROMOTED_FROM, PROMOTED_TO);
+    }
+
+    /**
+     * returns a raise of an employee's salary on 2008-10-01, keeping their title and department
+     */
+    private EmployeePromotionRequest request(int empNo, int salary) {
+        EmployeePromotionRequest request = new EmployeePromotionRequest(empNo, title(empNo), salary, deptNo(empNo));
+        request.setPromotionDate(LocalDate.of(2008, 10, 1));
+        return request;
+    }
+
+    private String title(int empNo) {
+        return jdbc.queryForObject("SELECT title FROM titles WHERE emp_no = ? AND to_date = DATE '9999-01-01'",
+                String.class, empNo);
+    }
+
+    private String deptNo(int empNo) {
+        return jdbc.queryForObject("SELECT dept_no FROM dept_emp WHERE emp_no = ? AND to_date = DATE '9999-01-01'",
+                String.class, empNo);
+    }
+}
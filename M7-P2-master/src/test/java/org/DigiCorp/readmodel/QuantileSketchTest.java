@@ -0,0 +1,170 @@
+package org.DigiCorp.readmodel;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Unit tests of QuantileSketch: exact answers until the first compaction, merges of disjoint parts matching a
+ * sketch of the whole, and snapshots of added minus removed values staying within the bound they report.
+ */
+class QuantileSketchTest {
+
+    private static final int K = 200;
+
+    @Test
+    void answersAreExactBelowCapacity() {
+        List<Integer> values = shuffled(0, 150, 1);
+        // duplicates, which share one rank
+        values.addAll(List.of(7, 7, 42));
+        QuantileSketch sketch = new QuantileSketch(K, 1);
+        values.forEach(sketch::add);
+
+        assertThat(sketch.isExact()).isTrue();
+        assertThat(sketch.retained()).isEqualTo(values.size());
+        QuantileSketch.Snapshot snapshot = snapshot(sketch);
+        assertThat(snapshot.rankError()).isZero();
+        assertThat(snapshot.count()).isEqualTo(values.size());
+
+        int[] sorted = values.stream().mapToInt(Integer::intValue).sorted().toArray();
+        for (int i = 1; i <= sorted.length; i++) {
+            double q = i / (double) sorted.length;
+            assertThat(snapshot.quantile(q)).as("quantile %s", q).isEqualTo(sorted[(int) Math.ceil(q * sorted.length) - 1]);
+        }
+        for (int value = -1; value <= 151; value++) {
+            assertThat(snapshot.rank(value)).as("rank of %d", value).isEqualTo(exactRank(sorted, value));
+        }
+
+        // one value past the capacity of a single level compacts
+        for (int i = sketch.retained(); i <= K; i++) {
+            sketch.add(i);
+        }
+        assertThat(sketch.isExact()).isFalse();
+        assertThat(snapshot(sketch).rankError()).isEqualTo(QuantileSketch.rankError(K));
+    }
+
+    @Test
+    void mergedHalvesMatchOneSketchOfTheWhole() {
+        int n = 100_000;
+        List<Integer> values = shuffled(0, n, 2);
+        QuantileSketch whole = new QuantileSketch(K, 1);
+        QuantileSketch first = new QuantileSketch(K, 2);
+        QuantileSketch second = new QuantileSketch(K, 3);
+        for (int i = 0; i < n; i++) {
+            whole.add(values.get(i));
+            (i < n / 2 ? first : second).add(values.get(i));
+        }
+        long secondCount = second.count();
+        first.merge(second);
+
+        assertThat(first.count()).isEqualTo(n);
+        assertThat(second.count()).isEqualTo(secondCount);
+        assertThat(first.retained()).isLessThan(K * 4);
+        QuantileSketch.Snapshot merged = snapshot(first);
+        QuantileSketch.Snapshot single = snapshot(whole);
+        double bound = QuantileSketch.rankError(K) * n;
+        for (int value = 0; value < n; value += 499) {
+            // the values are 0 to n - 1, so value has exact rank value + 1
+            assertThat((double) Math.abs(merged.rank(value) - (value + 1))).as("merged rank of %d", value)
+                    .isLessThanOrEqualTo(bound);
+            assertThat((double) Math.abs(merged.rank(value) - single.rank(value))).as("rank of %d", value)
+                    .isLessThanOrEqualTo(bound);
+        }
+    }
+
+    @Test
+    void quantilesAfterRemovalsStayWithinTheReportedBound() {
+        int n = 60_000;
+        QuantileSketch added = new QuantileSketch(K, 1);
+        QuantileSketch removed = new QuantileSketch(K, 2);
+        shuffled(0, n, 3).forEach(added::add);
+        // every third value removed, most of them from the lower half
+        List<Integer> kept = new ArrayList<>();
+        for (int value = 0; value < n; value++) {
+            if (value % 3 == 0 || (value < n / 2 && value % 3 == 1)) {
+                removed.add(value);
+            } else {
+                kept.add(value);
+            }
+        }
+        int[] remaining = kept.stream().mapToInt(Integer::intValue).toArray();
+
+        QuantileSketch.Snapshot snapshot = QuantileSketch.snapshot(added, removed);
+
+        assertThat(snapshot.count()).isEqualTo(remaining.length);
+        assertThat(snapshot.rankError()).isGreaterThan(QuantileSketch.rankError(K)).isLessThan(1);
+        double bound = snapshot.rankError() * snapshot.count();
+        for (int p = 1; p <= 100; p++) {
+            double q = p / 100.0;
+            int value = snapshot.quantile(q);
+            long target = (long) Math.ceil(q * remaining.length);
+            assertThat((double) Math.abs(exactRank(remaining, value) - target)).as("quantile %s", q)
+                    .isLessThanOrEqualTo(bound + 1);
+        }
+        long previous = 0;
+        for (int value = -1; value <= n; value += 97) {
+            long rank = snapshot.rank(value);
+            // clamped: never decreasing, never past the number of values
+            assertThat(rank).isBetween(previous, snapshot.count());
+            assertThat((double) Math.abs(rank - exactRank(remaining, value))).as("rank of %d", value)
+                    .isLessThanOrEqualTo(bound);
+            previous = rank;
+        }
+        assertThat(snapshot.rank(Integer.MAX_VALUE)).isEqualTo(snapshot.count());
+    }
+
+    @Test
+    void removingEveryValueLeavesAnEmptySnapshot() {
+        QuantileSketch added = new QuantileSketch(K, 1);
+        QuantileSketch removed = new QuantileSketch(K, 2);
+        for (int value : shuffled(0, 5_000, 4)) {
+            added.add(value);
+            removed.add(value);
+        }
+
+        QuantileSketch.Snapshot snapshot = QuantileSketch.snapshot(added, removed);
+
+        assertThat(snapshot.count()).isZero();
+        assertThat(snapshot.quantile(0.5)).isNull();
+        assertThat(snapshot.rank(2_500)).isZero();
+    }
+
+    /**
+     * returns the snapshot of a sketch nothing was removed from
+     */
+    private static QuantileSketch.Snapshot snapshot(QuantileSketch sketch) {
+        return QuantileSketch.snapshot(sketch, new QuantileSketch(sketch.k(), 0));
+    }
+
+    /**
+     * returns the values from to until, excluded, in a seeded random order
+     */
+    private static List<Integer> shuffled(int from, int until, long seed) {
+        List<Integer> values = new ArrayList<>();
+        for (int value = from; value < until; value++) {
+            values.add(value);
+        }
+        Collections.shuffle(values, new Random(seed));
+        return values;
+    }
+
+    /**
+     * returns the number of sorted values at or below a value
+     */
+    private static long exactRank(int[] sorted, int value) {
+        int index = Arrays.binarySearch(sorted, value);
+        if (index < 0) {
+            return -index - 1;
+        }
+        while (index + 1 < sorted.length && sorted[index + 1] == value) {
+            index++;
+        }
+        return index + 1;
+    }
+}
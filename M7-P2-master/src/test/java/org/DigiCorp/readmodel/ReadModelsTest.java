@@ -0,0 +1,267 @@
+package org.DigiCorp.readmodel;
+
+import org.DigiCorp.cache.DepartmentCatalogue;
+import org.DigiCorp.dao.EmployeeDAO;
+import org.DigiCorp.dto.EmployeeCurrentStateDTO;
+import org.DigiCorp.dto.EmployeePromotionRequest;
+import org.DigiCorp.dto.EmployeeRecordDTO;
+import org.DigiCorp.dto.SalaryPercentilesDTO;
+import org.DigiCorp.dto.SalaryPeriodDTO;
+import org.DigiCorp.exceptions.InvalidDataException;
+import org.DigiCorp.fixture.EmbeddedEmployees;
+import org.DigiCorp.fixture.EmbeddedEmployeesContext;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Integration tests of the in-memory read models: each must answer as the tables they are built from do, both
+ * after the startup build and once a promotion has committed.
+ */
+@EmbeddedEmployeesContext
+class ReadModelsTest {
+
+    /**
+     * employees checked against the tables, never promoted by the tests
+     */
+    private static final int FIRST = EmbeddedEmployees.FIRST_EMP_NO;
+    private static final int LAST = EmbeddedEmployees.FIRST_EMP_NO + 300;
+
+    /**
+     * employees this class promotes start here, after the 11001 to 12000 range of EmployeeDAOTest
+     */
+    private static final int PROMOTED_FROM = EmbeddedEmployees.FIRST_EMP_NO + 2000;
+
+    @Autowired
+    private EmployeeCurrentStateStore currentState;
+
+    @Autowired
+    private SalaryHistoryStore salaryHistory;
+
+    @Autowired
+    private EmployeeHistoryIndex historyIndex;
+
+    @Autowired
+    private EmployeeNameIndex nameIndex;
+
+    @Autowired
+    private SalaryPercentileStore percentiles;
+
+    @Autowired
+    private EmployeeDAO dao;
+
+    @Autowired
+    private DepartmentCatalogue departmentCatalogue;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Test
+    void currentStateMatchesTheCurrentRows() {
+        for (int empNo = FIRST; empNo < LAST; empNo++) {
+            assertCurrentState(empNo);
+        }
+        assertThat(currentState.find(9_999_999)).isNull();
+    }
+
+    @Test
+    void salaryHistoryMatchesTheSalaryRows() {
+        for (int empNo = FIRST; empNo < LAST; empNo++) {
+            List<String> expected = jdbc.query(
+                    "SELECT from_date, to_date, salary FROM salaries WHERE emp_no = ? ORDER BY from_date",
+                    (rs, i) -> rs.getObject(1, LocalDate.class) + " " + rs.getObject(2, LocalDate.class)
+                            + " " + rs.getInt(3), empNo);
+            assertThat(salaryHistory.history(empNo).stream()
+                    .map(p -> p.getFromDate() + " " + p.getToDate() + " " + p.getSalary()).toList())
+                    .as("salaries of " + empNo).isEqualTo(expected);
+
+            SalaryPeriodDTO first = salaryHistory.salaryAsOf(empNo, LocalDate.parse(expected.getFirst().split(" ")[0]));
+            assertThat(first.getSalary()).isEqualTo(Integer.parseInt(expected.getFirst().split(" ")[2]));
+        }
+        assertThat(salaryHistory.history(9_999_999)).isNull();
+    }
+
+    @Test
+    void historyIndexMatchesTheTitleAndDepartmentRows() {
+        LocalDate asOf = LocalDate.of(1995, 6, 30);
+        for (int empNo = FIRST; empNo < LAST; empNo++) {
+            assertThat(historyIndex.titleAsOf(empNo, asOf)).as("title of " + empNo).isEqualTo(single(
+                    "SELECT title FROM titles WHERE emp_no = ? AND from_date <= ? AND to_date > ?", empNo, asOf,
+                    asOf));
+            assertThat(historyIndex.deptAsOf(empNo, asOf)).as("department of " + empNo).isEqualTo(single(
+                    "SELECT dept_no FROM dept_emp WHERE emp_no = ? AND from_date <= ? AND to_date > ?", empNo, asOf,
+                    asOf));
+        }
+
+        LocalDate start = LocalDate.of(1995, 1, 1);
+        LocalDate end = LocalDate.of(1995, 12, 31);
+        for (int d = 1; d <= EmbeddedEmployees.DEPARTMENTS; d++) {
+            String deptNo = EmbeddedEmployees.deptNo(d);
+            assertThat(historyIndex.departmentEmployees(deptNo, EmployeeHistoryIndex.Membership.DURING, start, end))
+                    .as("employees of " + deptNo).containsExactly(members(
+                            "SELECT DISTINCT emp_no FROM dept_emp WHERE dept_no = ? AND from_date <= ? AND to_date > ?"
+                                    + " ORDER BY emp_no", deptNo, end, start));
+            assertThat(historyIndex.departmentEmployees(deptNo, EmployeeHistoryIndex.Membership.JOINED, start, end))
+                    .as("employees joining " + deptNo).containsExactly(members(
+                            "SELECT DISTINCT emp_no FROM dept_emp WHERE dept_no = ? AND from_date BETWEEN ? AND ?"
+                                    + " ORDER BY emp_no", deptNo, start, end));
+        }
+    }
+
+    @Test
+    void nameIndexFindsEveryEmployee() {
+        for (int empNo = FIRST; empNo < LAST; empNo++) {
+            Map<String, Object> row = jdbc.queryForMap(
+                    "SELECT first_name, last_name FROM employees WHERE emp_no = ?", empNo);
+            EmployeeRecordDTO record = nameIndex.find(empNo);
+            assertThat(record.getFirstName()).isEqualTo(row.get("first_name"));
+            assertThat(record.getLastName()).isEqualTo(row.get("last_name"));
+
+            int matches = jdbc.queryForObject("SELECT COUNT(*) FROM employees WHERE first_name = ? AND last_name = ?",
+                    Integer.class, row.get("first_name"), row.get("last_name"));
+            assertThat(nameIndex.search(row.get("first_name") + " " + row.get("last_name"), false, matches + 1000))
+                    .extracting(EmployeeRecordDTO::getEmpNo).contains(empNo);
+        }
+        assertThat(nameIndex.find(9_999_999)).isNull();
+    }
+
+    @Test
+    void departmentAggregatesMatchTheCurrentRows() {
+        for (int d = 1; d <= EmbeddedEmployees.DEPARTMENTS; d++) {
+            assertDepartmentAggregates(EmbeddedEmployees.deptNo(d));
+        }
+    }
+
+    @Test
+    void readModelsFollowACommittedPromotion() throws InvalidDataException {
+        int empNo = jdbc.queryForObject("SELECT MIN(s.emp_no) FROM salaries s"
+                + " JOIN titles t ON t.emp_no = s.emp_no AND t.to_date = DATE '9999-01-01' AND t.title <> 'Manager'"
+                + " WHERE s.to_date = DATE '9999-01-01' AND s.emp_no >= ?", Integer.class, PROMOTED_FROM);
+        List<String> worked = jdbc.queryForList("SELECT dept_no FROM dept_emp WHERE emp_no = ?", String.class, empNo);
+        String oldDeptNo = single("SELECT dept_no FROM dept_emp WHERE emp_no = ? AND to_date = DATE '9999-01-01'",
+                empNo);
+        String newDeptNo = null;
+        for (int d = EmbeddedEmployees.DEPARTMENTS; newDeptNo == null; d--) {
+            newDeptNo = worked.contains(EmbeddedEmployees.deptNo(d)) ? null : EmbeddedEmployees.deptNo(d);
+        }
+        LocalDate date = LocalDate.of(2006, 3, 1);
+        EmployeePromotionRequest request = new EmployeePromotionRequest(empNo, "Technique Leader", 123_456, newDeptNo);
+        request.setPromotionDate(date);
+
+        dao.promoteEmployee(request);
+
+        EmployeeCurrentStateDTO state = currentState.find(empNo);
+        assertThat(state.getSalary()).isEqualTo(123_456);
+        assertThat(state.getTitle()).isEqualTo("Technique Leader");
+        assertThat(state.getDeptNo()).isEqualTo(newDeptNo);
+        assertCurrentState(empNo);
+
+        assertThat(salaryHistory.history(empNo).getLast().getFromDate()).isEqualTo(date);
+        assertThat(salaryHistory.salaryAsOf(empNo, date.minusDays(1)).getToDate()).isEqualTo(date);
+        assertThat(historyIndex.titleAsOf(empNo, date)).isEqualTo("Technique Leader");
+        assertThat(historyIndex.deptAsOf(empNo, date)).isEqualTo(newDeptNo);
+        assertThat(historyIndex.deptAsOf(empNo, date.minusDays(1))).isEqualTo(oldDeptNo);
+        assertThat(historyIndex.departmentEmployees(newDeptNo, EmployeeHistoryIndex.Membership.JOINED, date, date))
+                .containsExactly(empNo);
+        assertThat(historyIndex.departmentEmployees(oldDeptNo, EmployeeHistoryIndex.Membership.LEFT, date, date))
+                .containsExactly(empNo);
+        assertThat(historyIndex.departmentEmployees(oldDeptNo, EmployeeHistoryIndex.Membership.DURING,
+                date.minusDays(1), date.minusDays(1))).contains(empNo);
+        assertThat(historyIndex.departmentEmployees(newDeptNo, EmployeeHistoryIndex.Membership.DURING,
+                date.minusDays(1), date.minusDays(1))).doesNotContain(empNo);
+
+        assertDepartmentAggregates(oldDeptNo);
+        assertDepartmentAggregates(newDeptNo);
+    }
+
+    @Test
+    void salaryPercentilesFollowACommittedSalaryPromotion() throws InvalidDataException {
+        int empNo = jdbc.queryForObject("SELECT MIN(s.emp_no) FROM salaries s"
+                + " JOIN titles t ON t.emp_no = s.emp_no AND t.to_date = DATE '9999-01-01' AND t.title <> 'Manager'"
+                + " WHERE s.to_date = DATE '9999-01-01' AND s.emp_no >= ?", Integer.class, PROMOTED_FROM + 100);
+        String oldTitle = single("SELECT title FROM titles WHERE emp_no = ? AND to_date = DATE '9999-01-01'", empNo);
+        String oldDeptNo = single("SELECT dept_no FROM dept_emp WHERE emp_no = ? AND to_date = DATE '9999-01-01'",
+                empNo);
+        long oldTitleHeadcount = percentiles.getTitlePercentiles(oldTitle, null).getHeadcount();
+        long oldDeptHeadcount = percentiles.getDepartmentPercentiles(oldDeptNo, null).getHeadcount();
+        // a department and a title of its own, whose groups then hold the one salary exactly
+        jdbc.update("INSERT INTO departments (dept_no, dept_name) VALUES ('d991', 'Percentile Probe')");
+        departmentCatalogue.refresh();
+        EmployeePromotionRequest request = new EmployeePromotionRequest(empNo, "Percentile Probe", 654_321, "d991");
+        request.setPromotionDate(LocalDate.of(2006, 4, 1));
+
+        dao.promoteEmployee(request);
+
+        for (SalaryPercentilesDTO group : List.of(percentiles.getDepartmentPercentiles("d991", null),
+                percentiles.getTitlePercentiles("Percentile Probe", null))) {
+            assertThat(group.getHeadcount()).as(group.getGroupBy()).isEqualTo(1);
+            assertThat(group.getP25()).as(group.getGroupBy()).isEqualTo(654_321);
+            assertThat(group.getP90()).as(group.getGroupBy()).isEqualTo(654_321);
+            assertThat(group.getRankError()).as(group.getGroupBy()).isZero();
+        }
+        assertThat(percentiles.getTitlePercentiles(oldTitle, null).getHeadcount()).isEqualTo(oldTitleHeadcount - 1);
+        assertThat(percentiles.getDepartmentPercentiles(oldDeptNo, null).getHeadcount())
+                .isEqualTo(oldDeptHeadcount - 1);
+        assertDepartmentAggregates(oldDeptNo);
+    }
+
+    /**
+     * asserts the current state store answers for an employee as the current rows do
+     */
+    private void assertCurrentState(int empNo) {
+        EmployeeCurrentStateDTO state = currentState.find(empNo);
+        Integer salary = jdbc.query("SELECT salary FROM salaries WHERE emp_no = ? AND to_date = DATE '9999-01-01'",
+                rs -> rs.next() ? rs.getInt(1) : null, empNo);
+        assertThat(state.getEmpNo()).isEqualTo(empNo);
+        assertThat(state.isCurrent()).as("current " + empNo).isEqualTo(salary != null);
+        assertThat(state.getSalary()).as("salary of " + empNo).isEqualTo(salary);
+        if (salary != null) {
+            assertThat(state.getTitle()).as("title of " + empNo).isEqualTo(
+                    single("SELECT title FROM titles WHERE emp_no = ? AND to_date = DATE '9999-01-01'", empNo));
+            assertThat(state.getDeptNo()).as("department of " + empNo).isEqualTo(
+                    single("SELECT dept_no FROM dept_emp WHERE emp_no = ? AND to_date = DATE '9999-01-01'", empNo));
+        }
+    }
+
+    /**
+     * asserts the department stats and salary percentiles count the department's current employees
+     */
+    private void assertDepartmentAggregates(String deptNo) {
+        Map<String, Object> expected = jdbc.queryForMap("SELECT COUNT(*) AS headcount, SUM(s.salary) AS payroll"
+                + " FROM dept_emp d JOIN salaries s ON s.emp_no = d.emp_no AND s.to_date = DATE '9999-01-01'"
+                + " WHERE d.dept_no = ? AND d.to_date = DATE '9999-01-01'", deptNo);
+        assertThat((long) currentState.getDepartmentStats(deptNo).getHeadcount()).as("headcount of " + deptNo)
+                .isEqualTo(((Number) expected.get("headcount")).longValue());
+        assertThat(currentState.getDepartmentStats(deptNo).getPayroll()).as("payroll of " + deptNo)
+                .isEqualTo(((Number) expected.get("payroll")).longValue());
+
+        long sketched = jdbc.queryForObject("SELECT COUNT(*) FROM salaries s"
+                + " JOIN titles t ON t.emp_no = s.emp_no AND t.to_date = DATE '9999-01-01'"
+                + " JOIN dept_emp d ON d.emp_no = s.emp_no AND d.to_date = DATE '9999-01-01' AND d.dept_no = ?"
+                + " WHERE s.to_date = DATE '9999-01-01'", Long.class, deptNo);
+        assertThat(percentiles.getDepartmentPercentiles(deptNo, null).getHeadcount())
+                .as("percentile headcount of " + deptNo).isEqualTo(sketched);
+    }
+
+    /**
+     * returns the single string a query selects, or null if it selects no row
+     */
+    private String single(String sql, Object... args) {
+        List<String> values = jdbc.queryForList(sql, String.class, args);
+        assertThat(values).hasSizeLessThanOrEqualTo(1);
+        return values.isEmpty() ? null : values.getFirst();
+    }
+
+    /**
+     * returns the employee numbers a query selects
+     */
+    private int[] members(String sql, Object... args) {
+        return jdbc.queryForList(sql, Integer.class, args).stream().mapToInt(Integer::intValue).toArray();
+    }
+}
@@ -0,0 +1,56 @@
+package org.DigiCorp.service;
+
+import org.DigiCorp.fixture.EmbeddedEmployees;
+import org.DigiCorp.fixture.EmbeddedEmployeesContext;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Integration tests of the conditional GETs of EmployeeService: a listed ETag answers HTTP 304, and
+ * If-None-Match: * does so only for an employee that exists.
+ */
+@EmbeddedEmployeesContext
+class ConditionalRequestTest {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Test
+    void listedETagIsNotModified() throws Exception {
+        int empNo = EmbeddedEmployees.FIRST_EMP_NO + 42;
+        String etag = mvc.perform(get("/employees/getEmployeeRecord").param("empNo", String.valueOf(empNo)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mvc.perform(get("/employees/getEmployeeRecord").param("empNo", String.valueOf(empNo))
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"other\", " + etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, etag));
+        mvc.perform(get("/employees/getEmployeeSummary").param("empNo", String.valueOf(empNo))
+                        .header(HttpHeaders.IF_NONE_MATCH, "W/" + etag))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void wildcardIsNotModifiedOnlyForExistingEmployees() throws Exception {
+        for (String endpoint : new String[]{"/employees/getEmployeeRecord", "/employees/getEmployeeSummary"}) {
+            mvc.perform(get(endpoint).param("empNo", String.valueOf(EmbeddedEmployees.FIRST_EMP_NO + 7))
+                            .header(HttpHeaders.IF_NONE_MATCH, "*"))
+                    .andExpect(status().isNotModified());
+            mvc.perform(get(endpoint).param("empNo", "9999999")
+                            .header(HttpHeaders.IF_NONE_MATCH, "*"))
+                    .andExpect(status().isNotFound());
+        }
+        mvc.perform(get("/employees/getEmployeeSummary").param("empNo", "9999999").param("asOf", "1995-06-01")
+                        .header(HttpHeaders.IF_NONE_MATCH, "*"))
+                .andExpect(status().isNotFound());
+        mvc.perform(get("/employees/getAllDepartments").header(HttpHeaders.IF_NONE_MATCH, "*"))
+                .andExpect(status().isNotModified());
+    }
+}